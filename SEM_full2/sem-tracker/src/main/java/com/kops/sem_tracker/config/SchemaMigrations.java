@@ -0,0 +1,173 @@
+package com.kops.sem_tracker.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off schema migrations that hibernate.ddl-auto=update cannot perform on its own
+ * (it adds missing columns and indexes, but never changes the type of an existing column).
+ * Each migration checks the live schema first, so running it again is a no-op.
+ */
+@Configuration
+public class SchemaMigrations {
+
+    @Bean
+    public CommandLineRunner migrateSpecialDateToDate(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        return args -> {
+            String product;
+            int columnType;
+            try (Connection connection = dataSource.getConnection()) {
+                DatabaseMetaData metaData = connection.getMetaData();
+                product = metaData.getDatabaseProductName();
+                columnType = findColumnType(metaData, connection.getCatalog(), "timetables", "special_date");
+            }
+
+            if (columnType != Types.VARCHAR && columnType != Types.CHAR && columnType != Types.LONGVARCHAR) {
+                return; // Already DATE (or table not created yet)
+            }
+
+            System.out.println("[SchemaMigrations] Converting timetables.special_date from text to DATE");
+
+            // Backfill: blank strings cannot be converted, and regular schedules never carry a special date
+            jdbcTemplate.update("UPDATE timetables SET special_date = NULL " +
+                    "WHERE is_special_schedule = false OR TRIM(special_date) = ''");
+
+            if (product.toLowerCase().contains("mysql")) {
+                jdbcTemplate.execute("ALTER TABLE timetables MODIFY special_date DATE NULL");
+            } else {
+                jdbcTemplate.execute("ALTER TABLE timetables ALTER COLUMN special_date SET DATA TYPE DATE");
+            }
+
+            System.out.println("[SchemaMigrations] timetables.special_date is now DATE");
+        };
+    }
+
+    @Bean
+    public CommandLineRunner migrateSubjectSettingsIdToAutoIncrement(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        return args -> {
+            String autoIncrement;
+            try (Connection connection = dataSource.getConnection()) {
+                DatabaseMetaData metaData = connection.getMetaData();
+                if (!metaData.getDatabaseProductName().toLowerCase().contains("mysql")) {
+                    return; // Only MySQL tables created before the id was generated need it
+                }
+                autoIncrement = findColumnAutoIncrement(metaData, connection.getCatalog(), "subject_attendance_settings", "id");
+            }
+
+            if (!"NO".equals(autoIncrement)) {
+                return; // Already AUTO_INCREMENT (or table not created yet)
+            }
+
+            System.out.println("[SchemaMigrations] Making subject_attendance_settings.id AUTO_INCREMENT");
+            jdbcTemplate.execute("ALTER TABLE subject_attendance_settings MODIFY id BIGINT NOT NULL AUTO_INCREMENT");
+            System.out.println("[SchemaMigrations] subject_attendance_settings.id is now AUTO_INCREMENT");
+        };
+    }
+
+    @Bean
+    public CommandLineRunner migrateEmailOutboxStatus(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        return args -> {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+                    return; // Only MySQL enum columns list their values
+                }
+            }
+            List<String> types = jdbcTemplate.queryForList("SELECT COLUMN_TYPE FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'email_outbox' AND COLUMN_NAME = 'status'", String.class);
+            if (types.isEmpty() || !types.get(0).toLowerCase().startsWith("enum(") || types.get(0).contains("'SENDING'")) {
+                return; // Table not created yet, or already accepts SENDING
+            }
+
+            System.out.println("[SchemaMigrations] Adding SENDING to email_outbox.status");
+            jdbcTemplate.execute("ALTER TABLE email_outbox MODIFY status ENUM('PENDING','SENDING','SENT','FAILED') NOT NULL");
+        };
+    }
+
+    @Bean
+    public CommandLineRunner migrateAttendanceSummaryUniqueKey(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        return args -> {
+            boolean tableExists;
+            boolean keyExists;
+            try (Connection connection = dataSource.getConnection()) {
+                DatabaseMetaData metaData = connection.getMetaData();
+                tableExists = findColumnType(metaData, connection.getCatalog(), "attendance_summary", "student_id") != Types.NULL;
+                keyExists = hasUniqueIndex(metaData, connection.getCatalog(), "attendance_summary", Set.of("student_id", "module_name"));
+            }
+
+            if (!tableExists || keyExists) {
+                return; // Table not created yet, or ddl-auto could add the key
+            }
+
+            // ddl-auto skips the key while duplicate rows exist: fold each group into its oldest row
+            List<Map<String, Object>> duplicates = jdbcTemplate.queryForList("SELECT student_id, module_name, MIN(id) AS keep_id, " +
+                    "SUM(total_attended_hours) AS attended, MAX(total_scheduled_hours) AS scheduled " +
+                    "FROM attendance_summary GROUP BY student_id, module_name HAVING COUNT(*) > 1");
+            System.out.println("[SchemaMigrations] Merging " + duplicates.size() + " duplicated attendance summaries");
+            for (Map<String, Object> group : duplicates) {
+                double attended = ((Number) group.get("attended")).doubleValue();
+                double scheduled = ((Number) group.get("scheduled")).doubleValue();
+                long keepId = ((Number) group.get("keep_id")).longValue();
+                jdbcTemplate.update("UPDATE attendance_summary SET total_attended_hours = ?, total_scheduled_hours = ?, " +
+                                "attendance_percentage = ? WHERE id = ?",
+                        attended, scheduled, scheduled > 0 ? attended * 100.0 / scheduled : 0, keepId);
+                jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id = ? AND module_name = ? AND id <> ?",
+                        group.get("student_id"), group.get("module_name"), keepId);
+            }
+
+            jdbcTemplate.execute("ALTER TABLE attendance_summary ADD CONSTRAINT uk_attendance_summary_student_module " +
+                    "UNIQUE (student_id, module_name)");
+            System.out.println("[SchemaMigrations] attendance_summary now has one row per (student_id, module_name)");
+        };
+    }
+
+    // True when a unique index covers exactly these columns
+    static boolean hasUniqueIndex(DatabaseMetaData metaData, String catalog, String table, Set<String> columns) throws Exception {
+        for (String tableName : new String[]{table, table.toUpperCase()}) {
+            Map<String, Set<String>> columnsByIndex = new HashMap<>();
+            try (ResultSet indexes = metaData.getIndexInfo(catalog, null, tableName, true, false)) {
+                while (indexes.next()) {
+                    String column = indexes.getString("COLUMN_NAME");
+                    if (indexes.getString("INDEX_NAME") == null || column == null) continue;
+                    columnsByIndex.computeIfAbsent(indexes.getString("INDEX_NAME"), name -> new HashSet<>())
+                            .add(column.toLowerCase());
+                }
+            }
+            if (columnsByIndex.containsValue(columns)) return true;
+        }
+        return false;
+    }
+
+    // Returns IS_AUTOINCREMENT of a column ("YES", "NO" or ""), or null when it does not exist
+    static String findColumnAutoIncrement(DatabaseMetaData metaData, String catalog, String table, String column) throws Exception {
+        try (ResultSet columns = metaData.getColumns(catalog, null, table, column)) {
+            return columns.next() ? columns.getString("IS_AUTOINCREMENT") : null;
+        }
+    }
+
+    // Returns the java.sql.Types code of a column, or Types.NULL when it does not exist
+    static int findColumnType(DatabaseMetaData metaData, String catalog, String table, String column) throws Exception {
+        for (String tableName : new String[]{table, table.toUpperCase()}) {
+            for (String columnName : new String[]{column, column.toUpperCase()}) {
+                try (ResultSet columns = metaData.getColumns(catalog, null, tableName, columnName)) {
+                    if (columns.next()) {
+                        return columns.getInt("DATA_TYPE");
+                    }
+                }
+            }
+        }
+        return Types.NULL;
+    }
+}
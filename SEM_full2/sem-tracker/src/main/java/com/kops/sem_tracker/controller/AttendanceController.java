@@ -1,12 +1,21 @@
 package com.kops.sem_tracker.controller;
 
 import com.kops.sem_tracker.entyties.Attendance;
+import com.kops.sem_tracker.entyties.AttendanceSummary;
 import com.kops.sem_tracker.entyties.SubjectAttendanceSettings;
+import com.kops.sem_tracker.service.AttendanceImportService;
+import com.kops.sem_tracker.service.AttendanceOverview;
 import com.kops.sem_tracker.service.AttendanceService;
+import com.kops.sem_tracker.service.ImportReport;
 import com.kops.sem_tracker.service.SubjectAttendanceService;
+import com.kops.sem_tracker.service.SubjectEligibility;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,11 +27,14 @@ public class AttendanceController {
 
     private final AttendanceService attendanceService;
     private final SubjectAttendanceService subjectAttendanceService;
+    private final AttendanceImportService importService;
 
     public AttendanceController(AttendanceService attendanceService,
-                                SubjectAttendanceService subjectAttendanceService) {
+                                SubjectAttendanceService subjectAttendanceService,
+                                AttendanceImportService importService) {
         this.attendanceService = attendanceService;
         this.subjectAttendanceService = subjectAttendanceService;
+        this.importService = importService;
     }
 
     // ✅ Add a new attendance record
@@ -30,14 +42,59 @@ public class AttendanceController {
     public ResponseEntity<Attendance> create(@RequestBody Attendance attendance) {
         try {
             Attendance saved = attendanceService.save(attendance);
-            // Update subject attendance settings
-            subjectAttendanceService.updateAllSubjectAttendance(attendance.getStudentId(), attendance.getModuleName());
             return ResponseEntity.ok(saved);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Bulk import of attendance records as CSV or JSON lines, streamed from the request body
+     * (Content-Type text/csv or application/x-ndjson, or ?format=csv|jsonl).
+     * Returns counts and a per-row error report; valid records are imported even if others fail.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "application/jsonl", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importAttendance(InputStream body,
+                                              @RequestHeader(value = "Content-Type", required = false) String contentType,
+                                              @RequestParam(required = false) String format) {
+        String type = format != null ? format.toLowerCase()
+                : contentType != null && contentType.contains("json") ? "jsonl" : "csv";
+        return runImport(type, body);
+    }
+
+    // The same import from an uploaded file, e.g. a lecturer's spreadsheet export
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importAttendanceFile(@RequestParam("file") MultipartFile file,
+                                                  @RequestParam(required = false) String format) {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        String type = format != null ? format.toLowerCase()
+                : name.endsWith(".jsonl") || name.endsWith(".ndjson") ? "jsonl" : "csv";
+        try {
+            return runImport(type, file.getInputStream());
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not read file: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> runImport(String type, InputStream input) {
+        System.out.println("📥 ATTENDANCE IMPORT Request - Format: " + type);
+        try {
+            ImportReport report = switch (type) {
+                case "csv" -> importService.importCsv(input);
+                case "jsonl", "ndjson", "json" -> importService.importJsonLines(input);
+                default -> null;
+            };
+            if (report == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + type + ". Use csv or jsonl"));
+            }
+            System.out.println("✅ ATTENDANCE IMPORT finished: " + report.imported() + " imported, " + report.failed() + " failed");
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            System.out.println("❌ ATTENDANCE IMPORT Error: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "Import failed: " + e.getMessage()));
+        }
+    }
+
     // ✅ Get all attendance records
     @GetMapping
     public ResponseEntity<List<Attendance>> getAll() {
@@ -71,8 +128,6 @@ public class AttendanceController {
     public ResponseEntity<Attendance> update(@PathVariable Long id, @RequestBody Attendance newData) {
         try {
             Attendance updated = attendanceService.update(id, newData);
-            // Update subject attendance settings
-            subjectAttendanceService.updateAllSubjectAttendance(updated.getStudentId(), updated.getModuleName());
             return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
@@ -83,13 +138,8 @@ public class AttendanceController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         try {
-            Optional<Attendance> attendance = attendanceService.getById(id);
-            if (attendance.isPresent()) {
-                String studentId = attendance.get().getStudentId();
-                String moduleName = attendance.get().getModuleName();
+            if (attendanceService.getById(id).isPresent()) {
                 attendanceService.delete(id);
-                // Update subject attendance settings
-                subjectAttendanceService.updateAllSubjectAttendance(studentId, moduleName);
             }
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
@@ -110,17 +160,17 @@ public class AttendanceController {
         }
     }
 
-    // ✅ Calculate attendance percentage
+    // ✅ Attendance percentage against the hours the timetable schedules this semester
+    // (a totalScheduledHours parameter sent by older clients is ignored)
     @GetMapping("/student/{studentId}/module/{moduleName}/percentage")
     public ResponseEntity<Map<String, Object>> getAttendancePercentage(
             @PathVariable String studentId,
-            @PathVariable String moduleName,
-            @RequestParam double totalScheduledHours) {
+            @PathVariable String moduleName) {
         try {
-            double percentage = attendanceService.calculateAttendancePercentage(
-                    studentId, moduleName, totalScheduledHours);
+            AttendanceSummary summary = attendanceService.getSummary(studentId, moduleName);
             return ResponseEntity.ok(Map.of(
-                    "attendancePercentage", percentage,
+                    "attendancePercentage", summary.getAttendancePercentage(),
+                    "scheduledHours", summary.getTotalScheduledHours(),
                     "studentId", studentId,
                     "moduleName", moduleName
             ));
@@ -129,23 +179,24 @@ public class AttendanceController {
         }
     }
 
-    // ✅ Calculate how many more hours needed to reach a minimum percentage
+    // ✅ Calculate how many more hours needed to reach a minimum percentage of the scheduled hours
     @GetMapping("/student/{studentId}/module/{moduleName}/eligibility")
     public ResponseEntity<Map<String, Object>> getEligibilityGap(
             @PathVariable String studentId,
             @PathVariable String moduleName,
-            @RequestParam double totalScheduledHours,
             @RequestParam double minPercentage) {
         try {
-            double attended = attendanceService.getTotalAttendedHours(studentId, moduleName);
-            double requiredHours = (minPercentage / 100.0) * totalScheduledHours;
+            AttendanceSummary summary = attendanceService.getSummary(studentId, moduleName);
+            double attended = summary.getTotalAttendedHours();
+            double scheduled = summary.getTotalScheduledHours();
+            double requiredHours = (minPercentage / 100.0) * scheduled;
             double moreNeeded = Math.max(0, requiredHours - attended);
-            double currentPercentage = totalScheduledHours > 0 ? (attended / totalScheduledHours) * 100.0 : 0;
             return ResponseEntity.ok(Map.of(
                     "studentId", studentId,
                     "moduleName", moduleName,
-                    "currentPercentage", currentPercentage,
+                    "currentPercentage", summary.getAttendancePercentage(),
                     "requiredPercentage", minPercentage,
+                    "scheduledHours", scheduled,
                     "requiredHours", requiredHours,
                     "attendedHours", attended,
                     "moreHoursNeeded", moreNeeded
@@ -155,29 +206,11 @@ public class AttendanceController {
         }
     }
 
-    // ✅ Get attendance summary for a student
+    // ✅ Get attendance summary for a student, with a per-module breakdown
     @GetMapping("/student/{studentId}/summary")
-    public ResponseEntity<Map<String, Object>> getAttendanceSummary(@PathVariable String studentId) {
+    public ResponseEntity<AttendanceOverview> getAttendanceSummary(@PathVariable String studentId) {
         try {
-            List<Attendance> allRecords = attendanceService.getByStudentId(studentId);
-
-            double totalAttendedHours = allRecords.stream()
-                    .mapToDouble(Attendance::getAttendedHours)
-                    .sum();
-
-            // This would need to be provided or calculated based on your scheduling system
-            double totalScheduledHours = totalAttendedHours * 1.2; // Example calculation
-
-            double overallPercentage = totalScheduledHours > 0 ?
-                    (totalAttendedHours / totalScheduledHours) * 100 : 0;
-
-            return ResponseEntity.ok(Map.of(
-                    "studentId", studentId,
-                    "totalAttendedHours", totalAttendedHours,
-                    "totalScheduledHours", totalScheduledHours,
-                    "overallAttendancePercentage", overallPercentage,
-                    "totalRecords", allRecords.size()
-            ));
+            return ResponseEntity.ok(attendanceService.getOverview(studentId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -210,6 +243,16 @@ public class AttendanceController {
         }
     }
 
+    // Eligibility in every subject of a student against its minimum percentage (75% without settings)
+    @GetMapping("/student/{studentId}/eligibility")
+    public ResponseEntity<List<SubjectEligibility>> getStudentEligibility(@PathVariable String studentId) {
+        try {
+            return ResponseEntity.ok(subjectAttendanceService.getEligibility(studentId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Get specific subject attendance settings
     @GetMapping("/student/{studentId}/subjects/{subjectName}")
     public ResponseEntity<SubjectAttendanceSettings> getSubjectSettings(
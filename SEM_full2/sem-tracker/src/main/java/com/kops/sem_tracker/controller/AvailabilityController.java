@@ -0,0 +1,139 @@
+package com.kops.sem_tracker.controller;
+
+import com.kops.sem_tracker.service.AvailabilityIndex;
+import com.kops.sem_tracker.service.AvailabilityIndex.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Free/busy lookups for rooms and lecturers.
+ * {type} is either "rooms" or "lecturers".
+ */
+@RestController
+@RequestMapping("/api/availability")
+@CrossOrigin(origins = "*")
+public class AvailabilityController {
+
+    private static final int MAX_SEARCH_DAYS = 60;
+
+    private final AvailabilityIndex availabilityIndex;
+
+    public AvailabilityController(AvailabilityIndex availabilityIndex) {
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /** ✅ ALL KNOWN ROOMS / LECTURERS **/
+    @GetMapping("/{type}")
+    public ResponseEntity<?> list(@PathVariable String type) {
+        Resource resource = parseResource(type);
+        if (resource == null) return unknownType(type);
+        return ResponseEntity.ok(availabilityIndex.names(resource));
+    }
+
+    /** ✅ WHICH ROOMS / LECTURERS ARE FREE IN A TIME WINDOW **/
+    @GetMapping("/{type}/free")
+    public ResponseEntity<?> free(
+            @PathVariable String type,
+            @RequestParam String date,
+            @RequestParam String start,
+            @RequestParam String end) {
+        try {
+            Resource resource = parseResource(type);
+            if (resource == null) return unknownType(type);
+            LocalDate day = LocalDate.parse(date);
+            LocalTime from = LocalTime.parse(start);
+            LocalTime to = LocalTime.parse(end);
+            if (!from.isBefore(to)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Start time must be before end time"));
+            }
+
+            System.out.println("🔍 FREE " + type + " on " + date + " " + start + "-" + end);
+            return ResponseEntity.ok(Map.of(
+                    "date", date,
+                    "start", start,
+                    "end", end,
+                    "free", availabilityIndex.freeResources(resource, day, from, to)
+            ));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date or time format"));
+        }
+    }
+
+    /** ✅ BOOKINGS OF ONE ROOM / LECTURER ON A DATE **/
+    @GetMapping("/{type}/{name}/busy")
+    public ResponseEntity<?> busy(
+            @PathVariable String type,
+            @PathVariable String name,
+            @RequestParam String date) {
+        try {
+            Resource resource = parseResource(type);
+            if (resource == null) return unknownType(type);
+            return ResponseEntity.ok(availabilityIndex.busy(resource, name, LocalDate.parse(date), LocalTime.MIN, LocalTime.MIDNIGHT));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format. Use YYYY-MM-DD"));
+        }
+    }
+
+    /** ✅ FREE SLOTS OF ONE ROOM / LECTURER ON A DATE **/
+    @GetMapping("/{type}/{name}/free")
+    public ResponseEntity<?> freeSlots(
+            @PathVariable String type,
+            @PathVariable String name,
+            @RequestParam String date,
+            @RequestParam(defaultValue = "08:00") String from,
+            @RequestParam(defaultValue = "18:00") String to) {
+        try {
+            Resource resource = parseResource(type);
+            if (resource == null) return unknownType(type);
+            return ResponseEntity.ok(availabilityIndex.freeSlots(resource, name, LocalDate.parse(date),
+                    LocalTime.parse(from), LocalTime.parse(to)));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date or time format"));
+        }
+    }
+
+    /** ✅ FIRST FREE SLOT OF A GIVEN LENGTH **/
+    @GetMapping("/{type}/{name}/first-free")
+    public ResponseEntity<?> firstFree(
+            @PathVariable String type,
+            @PathVariable String name,
+            @RequestParam int minutes,
+            @RequestParam(required = false) String date,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "08:00") String from,
+            @RequestParam(defaultValue = "18:00") String to) {
+        try {
+            Resource resource = parseResource(type);
+            if (resource == null) return unknownType(type);
+            if (minutes < 1 || days < 1 || days > MAX_SEARCH_DAYS) {
+                return ResponseEntity.badRequest().body(Map.of("error",
+                        "Minutes must be positive and days between 1 and " + MAX_SEARCH_DAYS));
+            }
+            LocalDate start = date != null ? LocalDate.parse(date) : LocalDate.now();
+
+            return availabilityIndex.firstFreeSlot(resource, name, start, days, minutes,
+                            LocalTime.parse(from), LocalTime.parse(to))
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date or time format"));
+        }
+    }
+
+    private static Resource parseResource(String type) {
+        return switch (type.toLowerCase()) {
+            case "rooms" -> Resource.ROOM;
+            case "lecturers" -> Resource.LECTURER;
+            default -> null;
+        };
+    }
+
+    private static ResponseEntity<?> unknownType(String type) {
+        return ResponseEntity.badRequest().body(Map.of("error", "Unknown resource type: " + type + ". Use rooms or lecturers"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.kops.sem_tracker.controller;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.service.BlackoutService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/blackouts")
+@CrossOrigin(origins = "*")
+public class BlackoutController {
+
+    private final BlackoutService blackoutService;
+
+    public BlackoutController(BlackoutService blackoutService) {
+        this.blackoutService = blackoutService;
+    }
+
+    /** ✅ LIST HOLIDAYS / BLACKOUTS (institution-wide, plus the user's own) **/
+    @GetMapping
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String username) {
+        return ResponseEntity.ok(blackoutService.getBlackouts(username));
+    }
+
+    /** ✅ CREATE A HOLIDAY / BLACKOUT **/
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody Blackout blackout,
+                                    @RequestParam(defaultValue = "false") boolean cancelSpecial) {
+        try {
+            System.out.println("🔍 CREATE BLACKOUT: " + blackout.getStartDate() + " to " + blackout.getEndDate()
+                    + ", Username: " + blackout.getUsername() + ", Cancel special: " + cancelSpecial);
+            if (blackout.getStartDate() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Start date is required"));
+            }
+            if (blackout.getEndDate() != null && blackout.getEndDate().isBefore(blackout.getStartDate())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "End date cannot be before start date"));
+            }
+
+            int cancelled = blackoutService.create(blackout, cancelSpecial);
+            return ResponseEntity.ok(Map.of(
+                    "blackout", blackout,
+                    "cancelledSpecialSchedules", cancelled
+            ));
+        } catch (Exception e) {
+            System.out.println("❌ CREATE BLACKOUT Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to create blackout: " + e.getMessage()));
+        }
+    }
+
+    /** ✅ DELETE A HOLIDAY / BLACKOUT **/
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable Long id) {
+        if (!blackoutService.delete(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Blackout deleted successfully"));
+    }
+}
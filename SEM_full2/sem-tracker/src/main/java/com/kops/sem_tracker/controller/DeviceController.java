@@ -0,0 +1,50 @@
+package com.kops.sem_tracker.controller;
+
+import com.kops.sem_tracker.entyties.DeviceToken;
+import com.kops.sem_tracker.service.DeviceRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/devices")
+@CrossOrigin(origins = "*")
+public class DeviceController {
+
+    private final DeviceRegistry deviceRegistry;
+
+    public DeviceController(DeviceRegistry deviceRegistry) {
+        this.deviceRegistry = deviceRegistry;
+    }
+
+    /** ✅ LIST A STUDENT'S REGISTERED DEVICES **/
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam String username) {
+        return ResponseEntity.ok(deviceRegistry.devicesFor(username));
+    }
+
+    /** ✅ REGISTER (OR REFRESH) A DEVICE'S PUSH TOKEN **/
+    @PostMapping
+    public ResponseEntity<?> register(@RequestBody DeviceToken request) {
+        try {
+            System.out.println("🔍 REGISTER DEVICE: Username: " + request.getUsername() + ", Platform: " + request.getPlatform());
+            DeviceToken device = deviceRegistry.register(request.getUsername(), request.getToken(), request.getPlatform());
+            return ResponseEntity.ok(device);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.out.println("❌ REGISTER DEVICE Error: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to register device: " + e.getMessage()));
+        }
+    }
+
+    /** ✅ UNREGISTER A DEVICE (e.g. on logout) **/
+    @DeleteMapping
+    public ResponseEntity<?> unregister(@RequestParam String token) {
+        if (!deviceRegistry.unregister(token)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Device unregistered successfully"));
+    }
+}
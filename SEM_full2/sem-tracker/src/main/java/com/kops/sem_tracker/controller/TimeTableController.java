@@ -1,15 +1,31 @@
 package com.kops.sem_tracker.controller;
 
 import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.service.DailyDigestService;
+import com.kops.sem_tracker.service.DigestReport;
+import com.kops.sem_tracker.service.GroupAvailabilityService;
+import com.kops.sem_tracker.service.IcsFeedService;
+import com.kops.sem_tracker.service.ImportReport;
+import com.kops.sem_tracker.service.ScheduleConflictException;
+import com.kops.sem_tracker.service.TimeTableImportService;
 import com.kops.sem_tracker.service.TimeTableService;
+import com.kops.sem_tracker.service.TimetableGenerator;
+import com.kops.sem_tracker.service.TimetableProblem;
+import com.kops.sem_tracker.service.TimetableSolution;
 import com.kops.sem_tracker.service.NotificationService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
 import java.util.*;
 
 @RestController
@@ -17,12 +33,27 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class TimeTableController {
 
+    private static final int MAX_GROUP_SIZE = 1000;
+
     private final TimeTableService timetableService;
     private final NotificationService notificationService;
-
-    public TimeTableController(TimeTableService timetableService, NotificationService notificationService) {
+    private final GroupAvailabilityService groupAvailabilityService;
+    private final IcsFeedService icsFeedService;
+    private final TimeTableImportService importService;
+    private final TimetableGenerator timetableGenerator;
+    private final DailyDigestService dailyDigestService;
+
+    public TimeTableController(TimeTableService timetableService, NotificationService notificationService,
+                               GroupAvailabilityService groupAvailabilityService, IcsFeedService icsFeedService,
+                               TimeTableImportService importService, TimetableGenerator timetableGenerator,
+                               DailyDigestService dailyDigestService) {
         this.timetableService = timetableService;
         this.notificationService = notificationService;
+        this.groupAvailabilityService = groupAvailabilityService;
+        this.icsFeedService = icsFeedService;
+        this.importService = importService;
+        this.timetableGenerator = timetableGenerator;
+        this.dailyDigestService = dailyDigestService;
     }
 
     /** ✅ CREATE TIMETABLE ENTRY **/
@@ -57,14 +88,15 @@ public class TimeTableController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Username is required"));
             }
 
-            // Prevent duplicate schedules
-            if (timetableService.scheduleExists(timeTable)) {
-                System.out.println("❌ Duplicate schedule detected");
-                return ResponseEntity.badRequest().body(Map.of("error", "Duplicate schedule detected"));
-            }
-
+            // Prevent overlapping schedules (checked and saved atomically per user)
             System.out.println("💾 Saving timetable entry...");
-            TimeTable saved = timetableService.save(timeTable);
+            TimeTable saved;
+            try {
+                saved = timetableService.saveIfNoConflict(timeTable);
+            } catch (ScheduleConflictException e) {
+                System.out.println("❌ Schedule conflict detected: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+            }
 
             if (saved == null || saved.getId() == null) {
                 System.out.println("❌ Failed to save - returned null or no ID");
@@ -140,12 +172,12 @@ public class TimeTableController {
     public ResponseEntity<?> getSpecial(@RequestParam(required = false) String username) {
         try {
             System.out.println("🔍 GET SPECIAL Request - Username: " + username);
-            var all = timetableService.getSpecialSchedules();
             if (username != null && !username.isBlank()) {
-                var userSpecial = all.stream().filter(t -> username.equals(t.getUsername())).toList();
+                var userSpecial = timetableService.getSpecialSchedulesForUser(username);
                 System.out.println("📋 Found " + userSpecial.size() + " special schedules for user");
                 return ResponseEntity.ok(userSpecial);
             }
+            var all = timetableService.getSpecialSchedules();
             System.out.println("📋 Found " + all.size() + " special schedules total");
             return ResponseEntity.ok(all);
         } catch (Exception e) {
@@ -156,11 +188,11 @@ public class TimeTableController {
 
     /** ✅ GET ENTRY BY DATE **/
     @GetMapping("/date/{date}")
-    public ResponseEntity<?> getByDate(@PathVariable String date) {
+    public ResponseEntity<?> getByDate(@PathVariable String date, @RequestParam(required = false) String username) {
         try {
-            System.out.println("🔍 GET BY DATE Request - Date: " + date);
+            System.out.println("🔍 GET BY DATE Request - Date: " + date + ", Username: " + username);
             LocalDate localDate = LocalDate.parse(date);
-            var entries = timetableService.getByDayAndDate(localDate.getDayOfWeek().toString(), localDate.toString());
+            var entries = timetableService.getOccurrencesForDate(username, localDate);
             System.out.println("📋 Found " + entries.size() + " entries for date");
             return ResponseEntity.ok(entries);
         } catch (DateTimeParseException e) {
@@ -257,14 +289,15 @@ public class TimeTableController {
 
             timeTable.setId(id);
 
-            // Check for duplicates excluding current entry
-            if (timetableService.scheduleExistsExcludingId(timeTable, id)) {
-                System.out.println("❌ Duplicate schedule detected during update");
-                return ResponseEntity.badRequest().body(Map.of("error", "Another schedule with same details exists"));
-            }
-
+            // Check for overlaps excluding current entry (checked and updated atomically per user)
             System.out.println("💾 Updating timetable entry...");
-            TimeTable updated = timetableService.update(id, timeTable);
+            TimeTable updated;
+            try {
+                updated = timetableService.updateIfNoConflict(id, timeTable);
+            } catch (ScheduleConflictException e) {
+                System.out.println("❌ Schedule conflict detected during update: " + e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+            }
 
             if (updated == null) {
                 System.out.println("❌ Update failed - returned null");
@@ -327,6 +360,43 @@ public class TimeTableController {
     }
 
     /** ✅ SEARCH **/
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String username,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        System.out.println("🔍 SEARCH: " + q + ", Username: " + username + ", Page: " + page);
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Page must be >= 0 and size between 1 and 100"));
+        }
+        String scope = username != null && !username.isBlank() ? username : null;
+        var results = timetableService.search(q, scope, page, size);
+        return ResponseEntity.ok(Map.of(
+                "results", results.results(),
+                "total", results.total(),
+                "page", results.page(),
+                "size", results.size(),
+                "totalPages", results.totalPages()
+        ));
+    }
+
+    /**
+     * Delta sync: rows of a user created, updated or deleted after the version the client holds.
+     * since=0 (or omitted) returns the whole timetable as a snapshot, with the version to continue from.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam String username,
+                                        @RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        System.out.println("🔄 CHANGES Request - Username: " + username + ", Since: " + since);
+        try {
+            return ResponseEntity.ok(timetableService.getChangesSince(username, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/search/location/{location}")
     public ResponseEntity<?> searchByLocation(@PathVariable String location) {
         System.out.println("🔍 SEARCH BY LOCATION: " + location);
@@ -499,19 +569,7 @@ public class TimeTableController {
         try {
             System.out.println("🔍 GET STATS Request - Username: " + username);
             
-            var allSchedules = timetableService.getAllForUser(username);
-            long regularCount = allSchedules.stream().filter(s -> !s.isSpecialSchedule()).count();
-            long specialCount = allSchedules.stream().filter(TimeTable::isSpecialSchedule).count();
-            long futureSpecialCount = timetableService.getFutureSpecialSchedulesForUser(username).size();
-            var todaySchedules = timetableService.getTodaySchedulesForUser(username);
-            
-            Map<String, Object> stats = Map.of(
-                "totalSchedules", allSchedules.size(),
-                "regularSchedules", regularCount,
-                "specialSchedules", specialCount,
-                "futureSpecialSchedules", futureSpecialCount,
-                "classesToday", todaySchedules.size()
-            );
+            Map<String, Object> stats = timetableService.getStatsForUser(username);
             
             System.out.println("📊 Stats: " + stats);
             return ResponseEntity.ok(stats);
@@ -521,4 +579,160 @@ public class TimeTableController {
                     .body(Map.of("error", "Failed to fetch statistics: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Common free slots of a group of users, e.g. to plan a study session
+     */
+    @PostMapping("/group/free")
+    public ResponseEntity<?> getGroupFreeSlots(@RequestBody GroupFreeRequest request) {
+        try {
+            if (request.usernames() == null || request.usernames().isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "At least one username is required"));
+            }
+            if (request.usernames().size() > MAX_GROUP_SIZE) {
+                return ResponseEntity.badRequest().body(Map.of("error", "A group can have at most " + MAX_GROUP_SIZE + " users"));
+            }
+            System.out.println("🔍 GROUP FREE Request - Users: " + request.usernames().size() + ", " + request.from() + " to " + request.to());
+
+            LocalDate from = request.from() != null ? LocalDate.parse(request.from()) : LocalDate.now();
+            LocalDate to = request.to() != null ? LocalDate.parse(request.to()) : from.plusDays(6);
+            LocalTime dayStart = LocalTime.parse(request.dayStart() != null ? request.dayStart() : "08:00");
+            LocalTime dayEnd = LocalTime.parse(request.dayEnd() != null ? request.dayEnd() : "20:00");
+            int minMinutes = request.minMinutes() != null ? request.minMinutes() : 30;
+
+            return ResponseEntity.ok(groupAvailabilityService.commonFreeSlots(
+                    request.usernames(), from, to, dayStart, dayEnd, minMinutes));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date or time format"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    public record GroupFreeRequest(List<String> usernames, String from, String to,
+                                   String dayStart, String dayEnd, Integer minMinutes) {}
+
+    /**
+     * iCalendar feed of a user's timetable for calendar app subscriptions.
+     * Polls with a matching If-None-Match get 304 without the feed being rendered.
+     */
+    @GetMapping(value = "/feed/{username}.ics")
+    public ResponseEntity<String> getIcsFeed(@PathVariable String username,
+                                             @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = icsFeedService.etag(username);
+        CacheControl cacheControl = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePrivate();
+        if (ifNoneMatch != null && (ifNoneMatch.equals(etag) || ifNoneMatch.equals(etag.substring(2)))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        System.out.println("📅 ICS FEED Request - Username: " + username);
+        IcsFeedService.Feed feed = icsFeedService.getFeed(username);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "calendar", StandardCharsets.UTF_8))
+                .eTag(feed.etag())
+                .cacheControl(cacheControl)
+                .header("Content-Disposition", "inline; filename=\"" + username + ".ics\"")
+                .body(feed.body());
+    }
+
+    /**
+     * Bulk import from a CSV or iCalendar (.ics) file, e.g. a new semester's timetable.
+     * Returns counts and a per-row error report; valid rows are imported even if others fail.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importTimetable(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(required = false) String username,
+                                             @RequestParam(required = false) String format) {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        String type = format != null ? format.toLowerCase() : name.endsWith(".ics") ? "ics" : "csv";
+        System.out.println("📥 IMPORT Request - File: " + name + ", Format: " + type + ", Username: " + username);
+
+        try {
+            ImportReport report = switch (type) {
+                case "csv" -> importService.importCsv(file.getInputStream(), username);
+                case "ics" -> importService.importIcs(file.getInputStream(), username);
+                default -> null;
+            };
+            if (report == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + format + ". Use csv or ics"));
+            }
+            System.out.println("✅ IMPORT finished: " + report.imported() + " imported, " + report.failed() + " failed");
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            System.out.println("❌ IMPORT Error: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "Import failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Generate a clash-free weekly timetable for a set of courses within a time budget.
+     * With apply=true a feasible result is saved as regular rows for every enrolled student.
+     */
+    @PostMapping("/generate")
+    public ResponseEntity<?> generateTimetable(@RequestBody TimetableProblem problem,
+                                               @RequestParam(defaultValue = "false") boolean apply,
+                                               @RequestParam(defaultValue = "5000") long budgetMs,
+                                               @RequestParam(required = false) Integer parallelism,
+                                               @RequestParam(required = false) Long seed) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Duration budget = Duration.ofMillis(budgetMs);
+        if (budgetMs < 1 || budget.compareTo(TimetableGenerator.MAX_BUDGET) > 0) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Budget must be between 1 and " + TimetableGenerator.MAX_BUDGET.toMillis() + " ms"));
+        }
+        int chains = parallelism != null ? parallelism : cores;
+        if (chains < 1 || chains > cores) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Parallelism must be between 1 and " + cores));
+        }
+        System.out.println("🧮 GENERATE Request - Courses: " + (problem.courses() != null ? problem.courses().size() : 0)
+                + ", Budget: " + budgetMs + "ms, Chains: " + chains + ", Apply: " + apply);
+
+        try {
+            TimetableSolution solution = timetableGenerator.generate(problem, budget, chains,
+                    seed != null ? seed : System.nanoTime());
+            System.out.println("✅ GENERATE finished: " + solution.hardViolations() + " clashes, penalty "
+                    + solution.softPenalty() + ", " + solution.iterations() + " moves in " + solution.elapsedMs() + "ms");
+            if (!apply) {
+                return ResponseEntity.ok(solution);
+            }
+            if (!solution.isFeasible()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                        "error", "No clash-free timetable found within the budget",
+                        "solution", solution));
+            }
+            ImportReport report = importService.importRows(TimetableGenerator.toTimeTables(solution));
+            return ResponseEntity.ok(Map.of("solution", solution, "import", report));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Send the daily schedule email to every student now (date defaults to today).
+     * Blocks until every digest is queued in the outbox; progress is on /daily-digest/status.
+     */
+    @PostMapping("/daily-digest")
+    public ResponseEntity<?> sendDailyDigest(@RequestParam(required = false) String date) {
+        LocalDate digestDate;
+        try {
+            digestDate = date != null ? LocalDate.parse(date) : LocalDate.now();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date format (use YYYY-MM-DD)"));
+        }
+        System.out.println("📧 DAILY DIGEST Request - Date: " + digestDate);
+        try {
+            return ResponseEntity.ok(dailyDigestService.run(digestDate));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/daily-digest/status")
+    public ResponseEntity<?> getDailyDigestStatus() {
+        DigestReport report = dailyDigestService.progress();
+        if (report == null) {
+            return ResponseEntity.ok(Map.of("message", "No daily digest has run yet"));
+        }
+        return ResponseEntity.ok(report);
+    }
+}
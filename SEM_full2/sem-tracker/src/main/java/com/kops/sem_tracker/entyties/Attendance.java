@@ -6,6 +6,9 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_attendance_student_module", columnList = "student_id, module_name")
+})
 public class Attendance {
 
     @Id
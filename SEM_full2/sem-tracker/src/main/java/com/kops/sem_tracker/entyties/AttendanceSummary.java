@@ -6,11 +6,15 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.LocalDate;    // ← Add this import
 import java.time.LocalTime;
 
+// One row per (student, module): AttendanceService creates it once and then only increments it in place
 @Entity
-@Table(name = "attendance_summary")
+@Table(name = "attendance_summary", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_attendance_summary_student_module", columnNames = {"studentId", "moduleName"})
+})
 public class AttendanceSummary {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,72 @@
+package com.kops.sem_tracker.entyties;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * A holiday or blackout period during which regular (weekly) classes do not take place.
+ * Institution-wide when username is null, otherwise only for that user.
+ */
+@Entity
+@Table(name = "blackouts", indexes = {
+        @Index(name = "idx_blackouts_username", columnList = "username")
+})
+public class Blackout {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "username")
+    private String username;
+
+    private String reason;
+
+    // Constructors
+    public Blackout() {}
+
+    public Blackout(LocalDate startDate, LocalDate endDate, String username, String reason) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.username = username;
+        this.reason = reason;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void validate() {
+        if (endDate == null) {
+            endDate = startDate;
+        }
+        if (startDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("Blackout needs a start date on or before its end date");
+        }
+        if (username != null && username.isBlank()) {
+            username = null;
+        }
+    }
+
+    public boolean isInstitutionWide() { return username == null; }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
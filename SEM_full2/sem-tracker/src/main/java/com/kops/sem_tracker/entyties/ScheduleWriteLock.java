@@ -0,0 +1,42 @@
+package com.kops.sem_tracker.entyties;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-user lock for timetable writes that check for conflicts first. Whoever holds it
+ * (one call on one node) until expiresAt is the only one checking and inserting rows
+ * for that user, so writes on different nodes cannot both pass the check.
+ */
+@Entity
+@Table(name = "schedule_write_locks")
+public class ScheduleWriteLock {
+
+    @Id
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "holder", length = 64)
+    private String holder;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public ScheduleWriteLock() {}
+
+    public ScheduleWriteLock(String username) {
+        this.username = username;
+    }
+
+    // Getters and Setters
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getHolder() { return holder; }
+    public void setHolder(String holder) { this.holder = holder; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,41 @@
+package com.kops.sem_tracker.entyties;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one partition of the students for scheduled work (class reminders). Held by
+ * one backend node until expiresAt; the node renews it while it is alive.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+
+    @Column(name = "owner_node", length = 64)
+    private String ownerNode;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public SchedulerLease() {}
+
+    public SchedulerLease(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    // Getters and Setters
+    public Integer getPartitionId() { return partitionId; }
+    public void setPartitionId(Integer partitionId) { this.partitionId = partitionId; }
+
+    public String getOwnerNode() { return ownerNode; }
+    public void setOwnerNode(String ownerNode) { this.ownerNode = ownerNode; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
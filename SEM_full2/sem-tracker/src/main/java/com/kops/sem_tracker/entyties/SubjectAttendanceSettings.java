@@ -1,18 +1,30 @@
 package com.kops.sem_tracker.entyties;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 
+// One row per (student, subject); SubjectAttendanceService updates it in place when saved again
 @Data
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_subject_settings_student_subject", columnNames = {"studentId", "subjectName"})
+})
 public class SubjectAttendanceSettings {
 
     @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String studentId;
     private String subjectName;
+    // Used only when the timetable schedules nothing for the subject
     private double totalScheduledHours;
+    @JsonAlias("passPercentage")
     private double minPercentage;
 
     // Add more fields as needed
@@ -1,12 +1,16 @@
 package com.kops.sem_tracker.entyties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 @Entity
-@Table(name = "timetables")
+@Table(name = "timetables", indexes = {
+        @Index(name = "idx_timetables_user_day_special", columnList = "username, day, is_special_schedule"),
+        @Index(name = "idx_timetables_user_special_date", columnList = "username, special_date")
+})
 public class TimeTable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +35,18 @@ public class TimeTable {
     @Column(name = "is_weekly", nullable = false)
     private boolean isWeekly = true;
 
+    // Recurrence fields for regular schedules (1 = every week, 2 = every other week, ...);
+    // left null until saved so an update that omits it can be told apart from one that sets it
+    @Column(name = "recurrence_interval")
+    private Integer recurrenceInterval;
+
+    // Optional bounds for regular schedules; validFrom also anchors bi-weekly recurrences
+    @Column(name = "valid_from")
+    private LocalDate validFrom;
+
+    @Column(name = "valid_until")
+    private LocalDate validUntil;
+
     @Column(name = "notification_preference")
     private String notificationPreference = "NONE";
 
@@ -50,7 +66,7 @@ public class TimeTable {
     private boolean isSpecialSchedule = false;
 
     @Column(name = "special_date")
-    private String specialDate; // For special schedules (YYYY-MM-DD format)
+    private LocalDate specialDate; // For special schedules (exposed as YYYY-MM-DD in JSON)
 
     // Transient field for display purposes (not persisted in database)
     @Transient
@@ -100,17 +116,12 @@ public class TimeTable {
 
         // For special schedules, ensure specialDate is set and day is derived from it
         if (this.isSpecialSchedule) {
-            if (this.specialDate == null || this.specialDate.trim().isEmpty()) {
+            if (this.specialDate == null) {
                 throw new IllegalStateException("Special date is required for special schedules");
             }
 
             // Auto-set day based on special date
-            try {
-                LocalDate date = LocalDate.parse(this.specialDate);
-                this.day = date.getDayOfWeek().toString();
-            } catch (Exception e) {
-                throw new IllegalStateException("Invalid special date format: " + this.specialDate + ". Expected YYYY-MM-DD");
-            }
+            this.day = this.specialDate.getDayOfWeek().toString();
         } else {
             // For regular schedules, ensure specialDate is null and day is set
             this.specialDate = null;
@@ -125,12 +136,14 @@ public class TimeTable {
             throw new IllegalStateException("End time must be after start time");
         }
 
-        // Ensure boolean fields have proper defaults
-        if (!this.isSpecialSchedule) {
-            this.isSpecialSchedule = false;
+        // Validate recurrence bounds
+        if (this.validFrom != null && this.validUntil != null && this.validUntil.isBefore(this.validFrom)) {
+            throw new IllegalStateException("Valid until must not be before valid from");
         }
-        if (!this.isWeekly) {
-            this.isWeekly = true;
+
+        // Ensure recurrence fields have proper defaults
+        if (this.recurrenceInterval == null || this.recurrenceInterval < 1) {
+            this.recurrenceInterval = 1;
         }
         if (this.notificationPreference == null) {
             this.notificationPreference = "NONE";
@@ -210,6 +223,30 @@ public class TimeTable {
         isWeekly = weekly;
     }
 
+    public Integer getRecurrenceInterval() {
+        return recurrenceInterval;
+    }
+
+    public void setRecurrenceInterval(Integer recurrenceInterval) {
+        this.recurrenceInterval = recurrenceInterval;
+    }
+
+    public LocalDate getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDate validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public LocalDate getValidUntil() {
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDate validUntil) {
+        this.validUntil = validUntil;
+    }
+
     public String getNotificationPreference() {
         return notificationPreference;
     }
@@ -263,21 +300,14 @@ public class TimeTable {
     }
 
     public String getSpecialDate() {
-        return specialDate;
+        return specialDate != null ? specialDate.toString() : null;
     }
 
     public void setSpecialDate(String specialDate) {
         if (specialDate != null && !specialDate.trim().isEmpty()) {
             // Validate date format
             try {
-                LocalDate.parse(specialDate);
-                this.specialDate = specialDate;
-
-                // Auto-set day based on special date for special schedules
-                if (this.isSpecialSchedule) {
-                    LocalDate date = LocalDate.parse(specialDate);
-                    this.day = date.getDayOfWeek().toString();
-                }
+                setSpecialLocalDate(LocalDate.parse(specialDate.trim()));
             } catch (Exception e) {
                 throw new IllegalArgumentException("Invalid date format: " + specialDate + ". Expected YYYY-MM-DD");
             }
@@ -286,6 +316,21 @@ public class TimeTable {
         }
     }
 
+    // Typed access to the special date (the String accessors above are kept for the JSON API)
+    @JsonIgnore
+    public LocalDate getSpecialLocalDate() {
+        return specialDate;
+    }
+
+    public void setSpecialLocalDate(LocalDate specialDate) {
+        this.specialDate = specialDate;
+
+        // Auto-set day based on special date for special schedules
+        if (specialDate != null && this.isSpecialSchedule) {
+            this.day = specialDate.getDayOfWeek().toString();
+        }
+    }
+
     public String getDisplayDate() {
         return displayDate;
     }
@@ -300,7 +345,7 @@ public class TimeTable {
 
         if (this.isSpecialSchedule) {
             // For special schedules, only active on the exact date
-            return date.equals(this.specialDate);
+            return this.specialDate != null && date.equals(this.specialDate.toString());
         } else {
             // For regular schedules, check if the day matches
             try {
@@ -322,12 +367,7 @@ public class TimeTable {
     // Helper method to get the effective date for display
     public String getEffectiveDate() {
         if (this.isSpecialSchedule && this.specialDate != null) {
-            try {
-                LocalDate date = LocalDate.parse(this.specialDate);
-                return date.format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy"));
-            } catch (Exception e) {
-                return this.specialDate;
-            }
+            return this.specialDate.format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy"));
         } else if (this.displayDate != null) {
             try {
                 LocalDate date = LocalDate.parse(this.displayDate);
@@ -0,0 +1,70 @@
+package com.kops.sem_tracker.entyties;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only timetable change log read by delta sync clients.
+ * The id doubles as the version: clients remember the highest id they have seen
+ * and ask for everything after it. A DELETE entry is the tombstone of a removed row;
+ * RESYNC tells the user's clients to refetch everything (written after bulk imports).
+ */
+@Entity
+@Table(name = "timetable_changes", indexes = {
+        @Index(name = "idx_timetable_changes_user_id", columnList = "username, id"),
+        @Index(name = "idx_timetable_changes_changed_at", columnList = "changed_at")
+})
+public class TimeTableChange {
+
+    public enum Operation { CREATE, UPDATE, DELETE, RESYNC }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "timetable_id")
+    private Long timetableId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Operation operation;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    // Constructors
+    public TimeTableChange() {}
+
+    public TimeTableChange(Long timetableId, String username, Operation operation) {
+        this.timetableId = timetableId;
+        this.username = username;
+        this.operation = operation;
+    }
+
+    @PrePersist
+    private void onCreate() {
+        if (changedAt == null) {
+            changedAt = LocalDateTime.now();
+        }
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getTimetableId() { return timetableId; }
+    public void setTimetableId(Long timetableId) { this.timetableId = timetableId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Operation getOperation() { return operation; }
+    public void setOperation(Operation operation) { this.operation = operation; }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+    public void setChangedAt(LocalDateTime changedAt) { this.changedAt = changedAt; }
+}
@@ -14,6 +14,8 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
 
     List<Attendance> findByStudentId(String studentId);
 
+    long countByStudentId(String studentId);
+
     List<Attendance> findByStudentIdAndModuleName(String studentId, String moduleName);
 
     List<Attendance> findByStudentIdAndAttendanceDateBetween(String studentId, LocalDate startDate, LocalDate endDate);
@@ -2,7 +2,11 @@ package com.kops.sem_tracker.repository;
 
 import com.kops.sem_tracker.entyties.AttendanceSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +17,28 @@ public interface AttendanceSummaryRepository extends JpaRepository<AttendanceSum
 
     List<AttendanceSummary> findByStudentId(String studentId);
 
+    List<AttendanceSummary> findByStudentIdOrderByModuleNameAsc(String studentId);
+
+    List<AttendanceSummary> findByStudentIdIn(Collection<String> studentIds);
+
     boolean existsByStudentIdAndModuleName(String studentId, String moduleName);
-}
\ No newline at end of file
+
+    /**
+     * Add attended hours to a summary in one statement, so concurrent writers cannot lose each
+     * other's updates. The total never goes below zero, and the percentage is recomputed against
+     * the scheduled hours already stored. The percentage is assigned first because MySQL applies
+     * SET clauses left to right (later ones see the new values) while H2 uses the old values
+     * throughout; computed first from the old values, it comes out the same on both.
+     * Returns 0 when the summary row does not exist.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AttendanceSummary s SET " +
+            "s.attendancePercentage = CASE WHEN s.totalScheduledHours > 0 " +
+            "    THEN (CASE WHEN s.totalAttendedHours + :attended > 0 THEN s.totalAttendedHours + :attended ELSE 0 END) " +
+            "        * 100.0 / s.totalScheduledHours " +
+            "    ELSE 0 END, " +
+            "s.totalAttendedHours = CASE WHEN s.totalAttendedHours + :attended > 0 THEN s.totalAttendedHours + :attended ELSE 0 END " +
+            "WHERE s.studentId = :studentId AND s.moduleName = :moduleName")
+    int addAttendedHours(@Param("studentId") String studentId, @Param("moduleName") String moduleName,
+                         @Param("attended") double attended);
+}
@@ -0,0 +1,23 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BlackoutRepository extends JpaRepository<Blackout, Long> {
+
+    // Institution-wide blackouts plus the user's own
+    @Query("SELECT b FROM Blackout b WHERE b.username IS NULL OR b.username = :username ORDER BY b.startDate")
+    List<Blackout> findApplicableTo(@Param("username") String username);
+
+    List<Blackout> findByUsernameIsNullOrderByStartDate();
+
+    // With count(), tells whether the table changed since it was read (blackouts are inserted and deleted, never updated)
+    @Query("SELECT COALESCE(MAX(b.id), 0) FROM Blackout b")
+    long findMaxId();
+}
@@ -0,0 +1,37 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.DeviceToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
+
+    Optional<DeviceToken> findByToken(String token);
+
+    List<DeviceToken> findByUsernameOrderByLastSeenAtDesc(String username);
+
+    // Load only (username, token) pairs to build the in-memory registry
+    @Query("SELECT d.username, d.token FROM DeviceToken d")
+    List<Object[]> findUsernameAndToken();
+
+    // With count() and findLastSeen(), tells whether the table changed since it was read
+    @Query("SELECT COALESCE(MAX(d.id), 0) FROM DeviceToken d")
+    long findMaxId();
+
+    // Re-registering a token, also under another student, moves lastSeenAt forward
+    @Query("SELECT MAX(d.lastSeenAt) FROM DeviceToken d")
+    LocalDateTime findLastSeen();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DeviceToken d WHERE d.token IN :tokens")
+    int deleteByTokenIn(@Param("tokens") Collection<String> tokens);
+}
@@ -0,0 +1,40 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Ids after a given one of emails due for a (re)try, oldest first
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = com.kops.sem_tracker.entyties.EmailOutbox.Status.PENDING " +
+            "AND e.nextAttemptAt <= :now AND e.id > :after ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, @Param("after") long after, Pageable pageable);
+
+    // Take a due email for sending; 0 when another node or worker has it already
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = com.kops.sem_tracker.entyties.EmailOutbox.Status.SENDING, " +
+            "e.claimedUntil = :until WHERE e.id = :id " +
+            "AND e.status = com.kops.sem_tracker.entyties.EmailOutbox.Status.PENDING AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Claims of a node that stopped mid-send go back to PENDING
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = com.kops.sem_tracker.entyties.EmailOutbox.Status.PENDING, " +
+            "e.claimedUntil = NULL WHERE e.status = com.kops.sem_tracker.entyties.EmailOutbox.Status.SENDING " +
+            "AND e.claimedUntil < :now")
+    int releaseExpiredClaims(@Param("now") LocalDateTime now);
+
+    long countByStatus(EmailOutbox.Status status);
+}
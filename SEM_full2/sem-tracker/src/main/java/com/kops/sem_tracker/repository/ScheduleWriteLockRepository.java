@@ -0,0 +1,31 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.ScheduleWriteLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Locks change hands only through conditional UPDATEs, like scheduler leases, so two
+ * callers racing for a user's lock cannot both get it.
+ */
+public interface ScheduleWriteLockRepository extends JpaRepository<ScheduleWriteLock, String> {
+
+    // Take a user's lock if it is free or expired; 1 if we hold it afterwards
+    @Modifying
+    @Transactional
+    @Query("UPDATE ScheduleWriteLock l SET l.holder = :holder, l.expiresAt = :expiresAt " +
+            "WHERE l.username = :username AND (l.holder IS NULL OR l.expiresAt < :now)")
+    int acquire(@Param("username") String username, @Param("holder") String holder,
+                @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ScheduleWriteLock l SET l.holder = NULL, l.expiresAt = NULL " +
+            "WHERE l.username = :username AND l.holder = :holder")
+    int release(@Param("username") String username, @Param("holder") String holder);
+}
@@ -0,0 +1,52 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Leases change hands only through conditional UPDATEs, so two nodes racing for a
+ * partition cannot both get it: the row lock makes the second one see the first's owner.
+ */
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, Integer> {
+
+    // Extend every lease the node still holds
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLease l SET l.expiresAt = :expiresAt " +
+            "WHERE l.ownerNode = :node AND l.expiresAt >= :now")
+    int renew(@Param("node") String node, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Take a partition that is free, expired, or already ours; 1 if we hold it afterwards
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLease l SET l.ownerNode = :node, l.expiresAt = :expiresAt " +
+            "WHERE l.partitionId = :partition AND (l.ownerNode IS NULL OR l.ownerNode = :node OR l.expiresAt < :now)")
+    int claim(@Param("partition") int partition, @Param("node") String node,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLease l SET l.ownerNode = NULL, l.expiresAt = NULL " +
+            "WHERE l.partitionId = :partition AND l.ownerNode = :node")
+    int release(@Param("partition") int partition, @Param("node") String node);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLease l SET l.ownerNode = NULL, l.expiresAt = NULL WHERE l.ownerNode = :node")
+    int releaseAll(@Param("node") String node);
+
+    @Query("SELECT l.partitionId FROM SchedulerLease l " +
+            "WHERE l.ownerNode = :node AND l.expiresAt >= :now AND l.partitionId < :partitions ORDER BY l.partitionId")
+    List<Integer> findHeld(@Param("node") String node, @Param("now") LocalDateTime now, @Param("partitions") int partitions);
+
+    @Query("SELECT l.partitionId FROM SchedulerLease l " +
+            "WHERE (l.ownerNode IS NULL OR l.expiresAt < :now) AND l.partitionId < :partitions ORDER BY l.partitionId")
+    List<Integer> findClaimable(@Param("now") LocalDateTime now, @Param("partitions") int partitions);
+}
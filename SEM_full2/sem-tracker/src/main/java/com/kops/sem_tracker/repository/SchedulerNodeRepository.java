@@ -0,0 +1,26 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.SchedulerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerNode n SET n.heartbeatAt = :now WHERE n.nodeId = :node")
+    int heartbeat(@Param("node") String node, @Param("now") LocalDateTime now);
+
+    long countByHeartbeatAtGreaterThanEqual(LocalDateTime since);
+
+    // Forget nodes that have been gone for a while
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SchedulerNode n WHERE n.heartbeatAt < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
@@ -1,10 +1,32 @@
 package com.kops.sem_tracker.repository;
 
 import com.kops.sem_tracker.entyties.Student;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Optional<Student> findByEmail(String email);
     Optional<Student> findByUsername(String username);
-}
\ No newline at end of file
+
+    // (username, email) of many students in one query, to address a batch of notifications
+    @Query("SELECT s.username, s.email FROM Student s WHERE s.username IN :usernames")
+    List<Object[]> findEmailsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    // Every student with their candidate rows for a date (regular rows on its weekday plus special rows on it),
+    // grouped by student. A student without classes appears once with a null row. Must be read inside a transaction.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT s.username, s.email, t FROM Student s LEFT JOIN TimeTable t ON t.username = s.username AND " +
+            "((t.isSpecialSchedule = false AND t.day = :day) OR " +
+            "(t.isSpecialSchedule = true AND t.specialDate = :date)) " +
+            "ORDER BY s.id, t.startTime")
+    Stream<Object[]> streamDailyAgendas(@Param("day") String day, @Param("date") LocalDate date);
+}
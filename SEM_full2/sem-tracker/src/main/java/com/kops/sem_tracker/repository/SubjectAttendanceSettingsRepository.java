@@ -20,4 +20,24 @@ public interface SubjectAttendanceSettingsRepository extends JpaRepository<Subje
     List<SubjectAttendanceSettings> findByStudentIdOrderBySubjectName(@Param("studentId") String studentId);
     
     boolean existsByStudentIdAndSubjectName(String studentId, String subjectName);
+
+    /**
+     * Every subject of a student with an attendance summary, joined with its settings when
+     * the student has saved any (minPercentage and settingsScheduledHours are null otherwise).
+     */
+    @Query("SELECT a.moduleName AS subjectName, a.totalAttendedHours AS attendedHours, " +
+            "a.totalScheduledHours AS scheduledHours, s.minPercentage AS minPercentage, " +
+            "s.totalScheduledHours AS settingsScheduledHours " +
+            "FROM AttendanceSummary a LEFT JOIN SubjectAttendanceSettings s " +
+            "ON s.studentId = a.studentId AND s.subjectName = a.moduleName " +
+            "WHERE a.studentId = :studentId ORDER BY a.moduleName")
+    List<EligibilityRow> findEligibilityRows(@Param("studentId") String studentId);
+
+    interface EligibilityRow {
+        String getSubjectName();
+        double getAttendedHours();
+        double getScheduledHours();
+        Double getMinPercentage();
+        Double getSettingsScheduledHours();
+    }
 }
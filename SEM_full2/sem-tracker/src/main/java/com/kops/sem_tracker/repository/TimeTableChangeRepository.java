@@ -0,0 +1,31 @@
+package com.kops.sem_tracker.repository;
+
+import com.kops.sem_tracker.entyties.TimeTableChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TimeTableChangeRepository extends JpaRepository<TimeTableChange, Long> {
+
+    // A user's changes after a version, oldest first (served by idx_timetable_changes_user_id)
+    List<TimeTableChange> findByUsernameAndIdGreaterThanOrderByIdAsc(String username, Long id, Pageable pageable);
+
+    // Everyone's changes after a version, for nodes following the log
+    List<TimeTableChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM TimeTableChange c")
+    long findLatestVersion();
+
+    // Ids after a version logged since a cutoff, oldest first (served by idx_timetable_changes_changed_at)
+    @Query("SELECT c.id FROM TimeTableChange c WHERE c.id > :since AND c.changedAt >= :cutoff ORDER BY c.id")
+    List<Long> findIdsLoggedSince(@Param("since") long since, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT COALESCE(MAX(c.id), :since) FROM TimeTableChange c WHERE c.id > :since AND c.id < :before")
+    long findMaxIdBetween(@Param("since") long since, @Param("before") long before);
+}
@@ -5,7 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface TimeTableRepository extends JpaRepository<TimeTable, Long> {
@@ -23,7 +25,7 @@ public interface TimeTableRepository extends JpaRepository<TimeTable, Long> {
 
     // Find special schedules by specific date
     @Query("SELECT t FROM TimeTable t WHERE t.specialDate = :date AND t.isSpecialSchedule = true")
-    List<TimeTable> findBySpecialDate(@Param("date") String date);
+    List<TimeTable> findBySpecialDate(@Param("date") LocalDate date);
 
     // Find all special schedules
     List<TimeTable> findByIsSpecialScheduleTrue();
@@ -36,7 +38,74 @@ public interface TimeTableRepository extends JpaRepository<TimeTable, Long> {
     @Query("SELECT t FROM TimeTable t WHERE " +
             "(t.isSpecialSchedule = false AND t.day = :day) OR " +
             "(t.isSpecialSchedule = true AND t.specialDate = :date)")
-    List<TimeTable> findByDayAndDate(@Param("day") String day, @Param("date") String date);
+    List<TimeTable> findByDayAndDate(@Param("day") String day, @Param("date") LocalDate date);
+
+    // Find a user's regular schedules plus their special schedules inside a date window (single query for expansion)
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND " +
+            "(t.isSpecialSchedule = false OR " +
+            "(t.isSpecialSchedule = true AND t.specialDate BETWEEN :from AND :to))")
+    List<TimeTable> findByUsernameForWindow(@Param("username") String username,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    List<TimeTable> findByUsernameIn(Collection<String> usernames);
+
+    // Every user with a timetable
+    @Query("SELECT DISTINCT t.username FROM TimeTable t WHERE t.username IS NOT NULL")
+    List<String> findUsernames();
+
+    // Same as findByUsernameForWindow for a group of users
+    @Query("SELECT t FROM TimeTable t WHERE t.username IN :usernames AND " +
+            "(t.isSpecialSchedule = false OR " +
+            "(t.isSpecialSchedule = true AND t.specialDate BETWEEN :from AND :to))")
+    List<TimeTable> findByUsernameInForWindow(@Param("usernames") Collection<String> usernames,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to);
+
+    // Ids of special schedules inside a date window, for everyone or (username not null) one user
+    @Query("SELECT t.id FROM TimeTable t WHERE t.isSpecialSchedule = true " +
+            "AND t.specialDate BETWEEN :from AND :to " +
+            "AND (:username IS NULL OR t.username = :username)")
+    List<Long> findSpecialIdsBetween(@Param("from") LocalDate from,
+                                     @Param("to") LocalDate to,
+                                     @Param("username") String username);
+
+    // Find all regular schedules plus special schedules inside a date window (single query for expansion)
+    @Query("SELECT t FROM TimeTable t WHERE " +
+            "t.isSpecialSchedule = false OR " +
+            "(t.isSpecialSchedule = true AND t.specialDate BETWEEN :from AND :to)")
+    List<TimeTable> findForWindow(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // ========== USER-SCOPED LOOKUPS (served by the composite indexes on timetables) ==========
+
+    // Find a user's regular schedules for a day of week
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND t.day = :day AND t.isSpecialSchedule = false")
+    List<TimeTable> findRegularByUsernameAndDay(@Param("username") String username, @Param("day") String day);
+
+    // Find a user's regular schedules for a date's day of week plus their special schedules on that date
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND " +
+            "((t.isSpecialSchedule = false AND t.day = :day) OR " +
+            "(t.isSpecialSchedule = true AND t.specialDate = :date))")
+    List<TimeTable> findByUsernameAndDayAndDate(@Param("username") String username,
+                                                @Param("day") String day,
+                                                @Param("date") LocalDate date);
+
+    // Find a user's special schedules
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND t.isSpecialSchedule = true " +
+            "ORDER BY t.specialDate, t.startTime")
+    List<TimeTable> findSpecialByUsername(@Param("username") String username);
+
+    // Find a user's special schedules inside a date range
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND t.isSpecialSchedule = true " +
+            "AND t.specialDate BETWEEN :from AND :to ORDER BY t.specialDate, t.startTime")
+    List<TimeTable> findSpecialByUsernameBetween(@Param("username") String username,
+                                                 @Param("from") LocalDate from,
+                                                 @Param("to") LocalDate to);
+
+    // Find a user's special schedules on or after a date
+    @Query("SELECT t FROM TimeTable t WHERE t.username = :username AND t.isSpecialSchedule = true " +
+            "AND t.specialDate >= :from ORDER BY t.specialDate, t.startTime")
+    List<TimeTable> findSpecialByUsernameFrom(@Param("username") String username, @Param("from") LocalDate from);
 
     // Find upcoming events between time range (for notifications)
     @Query("SELECT t FROM TimeTable t WHERE " +
@@ -45,7 +114,7 @@ public interface TimeTableRepository extends JpaRepository<TimeTable, Long> {
             "(t.isSpecialSchedule = true AND t.specialDate = :currentDate))")
     List<TimeTable> findUpcomingEvents(@Param("start") LocalTime start,
                                        @Param("end") LocalTime end,
-                                       @Param("currentDate") String currentDate);
+                                       @Param("currentDate") LocalDate currentDate);
 
     // Find schedules by notification preference
     List<TimeTable> findByNotificationPreference(String notificationPreference);
@@ -58,4 +127,13 @@ public interface TimeTableRepository extends JpaRepository<TimeTable, Long> {
 
     // Find schedules by subject
     List<TimeTable> findBySubjectContainingIgnoreCase(String subject);
+
+    // Distinct (username, device token) pairs still stored on timetable rows, to move into the device registry
+    @Query("SELECT DISTINCT t.username, t.deviceToken FROM TimeTable t " +
+            "WHERE t.deviceToken IS NOT NULL AND t.deviceToken <> '' AND t.username IS NOT NULL")
+    List<Object[]> findDeviceTokens();
+
+    // Load only the searchable columns (id, username, subject, lecturer, location) to build the search index
+    @Query("SELECT t.id, t.username, t.subject, t.lecturer, t.location FROM TimeTable t")
+    List<Object[]> findSearchFields();
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.kops.sem_tracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk ingestion of attendance records from card readers and lecturer spreadsheets,
+ * as CSV or JSON lines (one record per line).
+ *
+ * The input is read as a stream and each record is validated as it arrives, so the payload
+ * is never held in memory as a whole. Valid records are collected into chunks. Each chunk
+ * is written in one transaction: the records with one JDBC batch insert, and the summary
+ * hours added up per (student, module) in memory, so each summary the chunk touches is
+ * updated once. Rejected records end up in the per-row error report.
+ */
+@Service
+public class AttendanceImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO attendance " +
+            "(student_id, module_name, attendance_date, start_time, end_time, attended_hours) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AttendanceService attendanceService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+
+    public AttendanceImportService(JdbcTemplate jdbcTemplate,
+                                   AttendanceService attendanceService,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.attendance-import.batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.attendanceService = attendanceService;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import a CSV file with a header row. Recognised columns (any order, case-insensitive):
+     * studentId (or student), moduleName (or module), attendanceDate (or date), startTime,
+     * endTime, attendedHours (or hours). Without attendedHours the hours are taken from
+     * the start and end times.
+     */
+    public ImportReport importCsv(InputStream input) throws IOException {
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) return batch.finish();
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(column(header.get(i)), i);
+            }
+
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                int rowNumber = csv.recordNumber();
+                if (record.size() == 1 && record.get(0).isBlank()) continue;
+                try {
+                    batch.add(rowNumber, fromCsv(record, columns));
+                } catch (IllegalArgumentException e) {
+                    batch.reject(rowNumber, e.getMessage());
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Import JSON lines: one object per line with the fields of an attendance record
+     * (studentId, moduleName, attendanceDate, startTime, endTime, attendedHours).
+     */
+    public ImportReport importJsonLines(InputStream input) throws IOException {
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                try {
+                    batch.add(lineNumber, objectMapper.readValue(line, AttendanceLine.class));
+                } catch (JsonProcessingException e) {
+                    batch.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    private static AttendanceLine fromCsv(List<String> record, Map<String, Integer> columns) {
+        String hours = field(record, columns, "attendedhours", "hours");
+        String date = field(record, columns, "attendancedate", "date");
+        String start = field(record, columns, "starttime", "start");
+        String end = field(record, columns, "endtime", "end");
+        return new AttendanceLine(
+                field(record, columns, "studentid", "student"),
+                field(record, columns, "modulename", "module"),
+                date != null ? parseDate(date) : null,
+                start != null ? parseTime(start, "start time") : null,
+                end != null ? parseTime(end, "end time") : null,
+                hours != null ? parseHours(hours) : null);
+    }
+
+    private static String column(String header) {
+        return header.replace("\uFEFF", "").toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null && index < record.size()) {
+                String value = record.get(index).trim();
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    private static LocalTime parseTime(String value, String label) {
+        try {
+            return LocalTime.parse(value.length() == 4 || value.length() == 7 ? "0" + value : value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + label + " (use HH:mm or HH:mm:ss): " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid attendance date (use YYYY-MM-DD): " + value);
+        }
+    }
+
+    private static double parseHours(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid attended hours: " + value);
+        }
+    }
+
+    // ---------- batching ----------
+
+    private final class Batch {
+        private final long startedAt = System.currentTimeMillis();
+        private final List<AttendanceLine> queued = new ArrayList<>();
+        private final Map<AttendanceService.SummaryKey, Double> hoursByKey = new LinkedHashMap<>();
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private int total;
+        private int imported;
+        private int failed;
+
+        void add(int rowNumber, AttendanceLine line) {
+            total++;
+            AttendanceLine row;
+            try {
+                row = line.normalized();
+            } catch (IllegalArgumentException e) {
+                fail(rowNumber, e.getMessage());
+                return;
+            }
+            queued.add(row);
+            hoursByKey.merge(new AttendanceService.SummaryKey(row.studentId(), row.moduleName()), row.attendedHours(), Double::sum);
+            if (queued.size() >= batchSize) flush();
+        }
+
+        void reject(int rowNumber, String error) {
+            total++;
+            fail(rowNumber, error);
+        }
+
+        ImportReport finish() {
+            flush();
+            long duration = System.currentTimeMillis() - startedAt;
+            System.out.println("[AttendanceImportService] Imported " + imported + " of " + total + " records in " + duration + " ms");
+            return new ImportReport(total, imported, failed, List.copyOf(errors), failed > errors.size(), duration);
+        }
+
+        private void flush() {
+            if (queued.isEmpty()) return;
+            // Created up front, as for a single save, so the chunk's transaction only inserts and increments
+            attendanceService.ensureSummaries(hoursByKey.keySet());
+            transaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, queued, queued.size(), (statement, row) -> {
+                    statement.setString(1, row.studentId());
+                    statement.setString(2, row.moduleName());
+                    statement.setDate(3, Date.valueOf(row.attendanceDate()));
+                    statement.setTime(4, row.startTime() != null ? Time.valueOf(row.startTime()) : null);
+                    statement.setTime(5, row.endTime() != null ? Time.valueOf(row.endTime()) : null);
+                    statement.setDouble(6, row.attendedHours());
+                });
+                attendanceService.addToSummaries(hoursByKey);
+            });
+            imported += queued.size();
+            queued.clear();
+            hoursByKey.clear();
+        }
+
+        private void fail(int rowNumber, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(rowNumber, error));
+            }
+        }
+    }
+
+    /**
+     * One incoming record. attendedHours is a Double so a missing value can be told apart
+     * from zero and taken from the start and end times instead.
+     */
+    private record AttendanceLine(String studentId, String moduleName, LocalDate attendanceDate,
+                                  LocalTime startTime, LocalTime endTime, Double attendedHours) {
+
+        // Trimmed, with the hours filled in; the same checks for CSV and JSON
+        AttendanceLine normalized() {
+            String student = studentId != null ? studentId.trim() : "";
+            String module = moduleName != null ? moduleName.trim() : "";
+            if (student.isEmpty()) throw new IllegalArgumentException("Student id is required");
+            if (module.isEmpty()) throw new IllegalArgumentException("Module name is required");
+            if (attendanceDate == null) throw new IllegalArgumentException("Attendance date is required");
+            if (startTime != null && endTime != null && !endTime.isAfter(startTime)) {
+                throw new IllegalArgumentException("End time must be after start time");
+            }
+
+            double hours;
+            if (attendedHours != null) {
+                hours = attendedHours;
+            } else if (startTime != null && endTime != null) {
+                hours = Duration.between(startTime, endTime).toMinutes() / 60.0;
+            } else {
+                throw new IllegalArgumentException("Attended hours, or start and end times, are required");
+            }
+            if (!(hours >= 0 && hours <= 24)) {
+                throw new IllegalArgumentException("Attended hours must be between 0 and 24: " + hours);
+            }
+            return new AttendanceLine(student, module, attendanceDate, startTime, endTime, hours);
+        }
+    }
+}
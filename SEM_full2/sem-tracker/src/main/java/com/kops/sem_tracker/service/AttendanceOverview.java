@@ -0,0 +1,15 @@
+package com.kops.sem_tracker.service;
+
+import java.util.List;
+
+/**
+ * A student's attendance across all modules, read from the per-module summaries,
+ * with one entry per module sorted by name. Percentages are 0 when nothing was scheduled.
+ */
+public record AttendanceOverview(String studentId, double totalAttendedHours, double totalScheduledHours,
+                                 double overallAttendancePercentage, long totalRecords,
+                                 List<ModuleAttendance> modules) {
+
+    public record ModuleAttendance(String moduleName, double attendedHours, double scheduledHours,
+                                   double attendancePercentage) {}
+}
@@ -4,29 +4,93 @@ import com.kops.sem_tracker.entyties.Attendance;
 import com.kops.sem_tracker.entyties.AttendanceSummary;
 import com.kops.sem_tracker.repository.AttendanceRepository;
 import com.kops.sem_tracker.repository.AttendanceSummaryRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Attendance records, and the per (student, module) AttendanceSummary kept in step with them.
+ *
+ * Attended hours are maintained with single-statement increments (addAttendedHours), so
+ * concurrent check-ins for the same student and module cannot lose each other's hours;
+ * scheduled hours are set from the timetable by ScheduledHoursService. The row an
+ * increment needs is created once per key, before the write's transaction starts, behind
+ * the unique key on (student_id, module_name): writers in this process wait on a striped
+ * lock for the one that creates it, and a writer on another node that loses the race gets
+ * the duplicate key error and moves on to the increment. Creating it up front keeps the
+ * write itself to one transaction and one connection.
+ */
 @Service
 public class AttendanceService {
 
+    private static final int STRIPES = 64;
+    private static final int STUDENT_QUERY_CHUNK = 1000;
+
+    private static final String INSERT_SUMMARY_SQL = "INSERT INTO attendance_summary " +
+            "(student_id, module_name, total_attended_hours, total_scheduled_hours, attendance_percentage) VALUES (?, ?, 0, 0, 0)";
+    // Same statement as AttendanceSummaryRepository.addAttendedHours, for JDBC batches
+    private static final String ADD_ATTENDED_SQL = "UPDATE attendance_summary SET " +
+            "attendance_percentage = CASE WHEN total_scheduled_hours > 0 " +
+            "    THEN GREATEST(total_attended_hours + ?, 0) * 100.0 / total_scheduled_hours ELSE 0 END, " +
+            "total_attended_hours = GREATEST(total_attended_hours + ?, 0) " +
+            "WHERE student_id = ? AND module_name = ?";
+    // The casts keep H2 from typing the bare parameters as DECFLOAT, which makes the division very slow
+    private static final String SET_SCHEDULED_SQL = "UPDATE attendance_summary SET " +
+            "attendance_percentage = CASE WHEN CAST(? AS DOUBLE) > 0 THEN total_attended_hours * 100.0 / CAST(? AS DOUBLE) ELSE 0 END, " +
+            "total_scheduled_hours = ? " +
+            "WHERE student_id = ? AND module_name = ?";
+
     private final AttendanceRepository attendanceRepository;
     private final AttendanceSummaryRepository summaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate newTransaction;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Summaries known to exist, so the common case is just the increment
+    private final Set<SummaryKey> knownSummaries = ConcurrentHashMap.newKeySet();
+
+    record SummaryKey(String studentId, String moduleName) {}
+
+    private static final Comparator<SummaryKey> SUMMARY_ORDER = Comparator
+            .comparing(SummaryKey::studentId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(SummaryKey::moduleName, Comparator.nullsFirst(Comparator.naturalOrder()));
 
     public AttendanceService(AttendanceRepository attendanceRepository,
-                             AttendanceSummaryRepository summaryRepository) {
+                             AttendanceSummaryRepository summaryRepository,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager) {
         this.attendanceRepository = attendanceRepository;
         this.summaryRepository = summaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
     }
 
     public Attendance save(Attendance attendance) {
-        Attendance savedAttendance = attendanceRepository.save(attendance);
-        updateAttendanceSummary(savedAttendance);
-        return savedAttendance;
+        ensureSummary(attendance.getStudentId(), attendance.getModuleName());
+        return transaction.execute(status -> {
+            Attendance savedAttendance = attendanceRepository.save(attendance);
+            updateAttendanceSummary(savedAttendance);
+            return savedAttendance;
+        });
     }
 
     public List<Attendance> getAll() {
@@ -46,10 +110,12 @@ public class AttendanceService {
     }
 
     public Attendance update(Long id, Attendance newData) {
-        return attendanceRepository.findById(id)
+        ensureSummary(newData.getStudentId(), newData.getModuleName());
+        return transaction.execute(status -> attendanceRepository.findById(id)
                 .map(existing -> {
                     // Store old values for summary update
                     double oldAttendedHours = existing.getAttendedHours();
+                    String oldStudentId = existing.getStudentId();
                     String oldModuleName = existing.getModuleName();
 
                     existing.setModuleName(newData.getModuleName());
@@ -60,28 +126,61 @@ public class AttendanceService {
 
                     Attendance updated = attendanceRepository.save(existing);
 
-                    // Update summary for both old and new module if module changed
-                    if (!oldModuleName.equals(newData.getModuleName())) {
-                        revertSummaryForModule(existing.getStudentId(), oldModuleName, oldAttendedHours);
+                    // The hours move to the new student/module; unchanged, the summary stays as it is
+                    SummaryKey from = new SummaryKey(oldStudentId, oldModuleName);
+                    SummaryKey to = new SummaryKey(updated.getStudentId(), updated.getModuleName());
+                    if (!from.equals(to)) {
+                        // Both rows get locked; always in the same order, so two moves in opposite directions cannot deadlock
+                        if (SUMMARY_ORDER.compare(from, to) < 0) {
+                            revertSummaryForModule(oldStudentId, oldModuleName, oldAttendedHours);
+                            updateAttendanceSummary(updated);
+                        } else {
+                            updateAttendanceSummary(updated);
+                            revertSummaryForModule(oldStudentId, oldModuleName, oldAttendedHours);
+                        }
                     }
-                    updateAttendanceSummary(updated);
 
                     return updated;
                 })
                 .orElseGet(() -> {
                     newData.setId(id);
-                    return attendanceRepository.save(newData);
-                });
+                    Attendance created = attendanceRepository.save(newData);
+                    updateAttendanceSummary(created);
+                    return created;
+                }));
     }
 
     public void delete(Long id) {
-        attendanceRepository.findById(id).ifPresent(attendance -> {
+        transaction.executeWithoutResult(status -> attendanceRepository.findById(id).ifPresent(attendance -> {
             // Revert summary before deletion
             revertSummaryForModule(attendance.getStudentId(),
                     attendance.getModuleName(),
                     attendance.getAttendedHours());
             attendanceRepository.deleteById(id);
-        });
+        }));
+    }
+
+    /**
+     * Totals and a per-module breakdown for one student, from the summary rows kept in step
+     * with every write, so the cost does not grow with the number of attendance records.
+     */
+    public AttendanceOverview getOverview(String studentId) {
+        double attended = 0;
+        double scheduled = 0;
+        List<AttendanceOverview.ModuleAttendance> modules = new ArrayList<>();
+        for (AttendanceSummary summary : summaryRepository.findByStudentIdOrderByModuleNameAsc(studentId)) {
+            attended += summary.getTotalAttendedHours();
+            scheduled += summary.getTotalScheduledHours();
+            modules.add(new AttendanceOverview.ModuleAttendance(summary.getModuleName(),
+                    summary.getTotalAttendedHours(), summary.getTotalScheduledHours(),
+                    percentage(summary.getTotalAttendedHours(), summary.getTotalScheduledHours())));
+        }
+        return new AttendanceOverview(studentId, attended, scheduled, percentage(attended, scheduled),
+                attendanceRepository.countByStudentId(studentId), modules);
+    }
+
+    private static double percentage(double attended, double scheduled) {
+        return scheduled > 0 ? (attended / scheduled) * 100 : 0;
     }
 
     public double getTotalAttendedHours(String studentId, String moduleName) {
@@ -89,56 +188,133 @@ public class AttendanceService {
         return total != null ? total : 0.0;
     }
 
-    public double calculateAttendancePercentage(String studentId, String moduleName, double totalScheduledHours) {
-        if (totalScheduledHours <= 0) return 0.0;
-
-        double totalAttended = getTotalAttendedHours(studentId, moduleName);
-        return (totalAttended / totalScheduledHours) * 100;
+    /**
+     * The summary of one student and module: attended hours, the hours scheduled by the
+     * timetable (see ScheduledHoursService) and the percentage. All zero when there is none yet.
+     */
+    public AttendanceSummary getSummary(String studentId, String moduleName) {
+        return summaryRepository.findByStudentIdAndModuleName(studentId, moduleName)
+                .orElseGet(() -> new AttendanceSummary(studentId, moduleName));
     }
 
-    @Transactional
+    // Runs in the caller's transaction; scheduled hours come from the timetable, not from here
     private void updateAttendanceSummary(Attendance attendance) {
         String studentId = attendance.getStudentId();
         String moduleName = attendance.getModuleName();
         double attendedHours = attendance.getAttendedHours();
 
-        // For simplicity, we'll assume each attendance entry represents a scheduled session
-        double scheduledHours = attendedHours; // In real scenario, this might be different
-
-        Optional<AttendanceSummary> existingSummary =
-                summaryRepository.findByStudentIdAndModuleName(studentId, moduleName);
-
-        if (existingSummary.isPresent()) {
-            AttendanceSummary summary = existingSummary.get();
-            summary.updateSummary(attendedHours, scheduledHours);
-            summaryRepository.save(summary);
-        } else {
-            AttendanceSummary newSummary = new AttendanceSummary(studentId, moduleName);
-            newSummary.updateSummary(attendedHours, scheduledHours);
-            summaryRepository.save(newSummary);
+        if (summaryRepository.addAttendedHours(studentId, moduleName, attendedHours) == 0) {
+            // Deleted since ensureSummary saw it: create it again, in this transaction this time
+            knownSummaries.remove(new SummaryKey(studentId, moduleName));
+            summaryRepository.saveAndFlush(new AttendanceSummary(studentId, moduleName));
+            summaryRepository.addAttendedHours(studentId, moduleName, attendedHours);
         }
     }
 
-    @Transactional
+    // Runs in the caller's transaction; nothing to revert without a summary
     private void revertSummaryForModule(String studentId, String moduleName, double attendedHours) {
-        Optional<AttendanceSummary> summaryOpt =
-                summaryRepository.findByStudentIdAndModuleName(studentId, moduleName);
-
-        if (summaryOpt.isPresent()) {
-            AttendanceSummary summary = summaryOpt.get();
-            // Subtract the hours from the summary
-            summary.setTotalAttendedHours(Math.max(0, summary.getTotalAttendedHours() - attendedHours));
-            summary.setTotalScheduledHours(Math.max(0, summary.getTotalScheduledHours() - attendedHours));
-
-            if (summary.getTotalScheduledHours() > 0) {
-                summary.setAttendancePercentage(
-                        (summary.getTotalAttendedHours() / summary.getTotalScheduledHours()) * 100
-                );
-            } else {
-                summary.setAttendancePercentage(0);
+        summaryRepository.addAttendedHours(studentId, moduleName, -attendedHours);
+    }
+
+    // The empty summary row, committed on its own so a concurrent insert cannot roll back the write
+    private void ensureSummary(String studentId, String moduleName) {
+        SummaryKey key = new SummaryKey(studentId, moduleName);
+        if (knownSummaries.contains(key)) return;
+        ReentrantLock stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        stripe.lock();
+        try {
+            if (knownSummaries.contains(key)) return;
+            try {
+                newTransaction.executeWithoutResult(status -> {
+                    if (!summaryRepository.existsByStudentIdAndModuleName(key.studentId(), key.moduleName())) {
+                        summaryRepository.saveAndFlush(new AttendanceSummary(key.studentId(), key.moduleName()));
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Created by another node meanwhile
             }
+            knownSummaries.add(key);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // ---------- bulk writes ----------
 
-            summaryRepository.save(summary);
+    /**
+     * Make sure a summary row exists for every key, before a bulk write's transaction starts.
+     * The missing rows are found with one IN query per chunk of students and inserted with one
+     * JDBC batch; if another writer created one of them meanwhile, the keys are retried one by one.
+     */
+    void ensureSummaries(Collection<SummaryKey> keys) {
+        List<SummaryKey> unknown = keys.stream().filter(key -> !knownSummaries.contains(key)).toList();
+        if (unknown.isEmpty()) return;
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                List<String> students = unknown.stream().map(SummaryKey::studentId).distinct().toList();
+                Set<SummaryKey> existing = new HashSet<>();
+                for (int i = 0; i < students.size(); i += STUDENT_QUERY_CHUNK) {
+                    List<String> chunk = students.subList(i, Math.min(i + STUDENT_QUERY_CHUNK, students.size()));
+                    for (AttendanceSummary summary : summaryRepository.findByStudentIdIn(chunk)) {
+                        existing.add(new SummaryKey(summary.getStudentId(), summary.getModuleName()));
+                    }
+                }
+                List<SummaryKey> missing = unknown.stream().filter(key -> !existing.contains(key)).toList();
+                if (missing.isEmpty()) return;
+                jdbcTemplate.batchUpdate(INSERT_SUMMARY_SQL, missing, missing.size(), (statement, key) -> {
+                    statement.setString(1, key.studentId());
+                    statement.setString(2, key.moduleName());
+                });
+            });
+            knownSummaries.addAll(unknown);
+        } catch (DataIntegrityViolationException e) {
+            unknown.forEach(key -> ensureSummary(key.studentId(), key.moduleName()));
         }
     }
+
+    /**
+     * Add attended hours to many summaries with one JDBC batch, in the caller's transaction.
+     * Rows are updated in key order, as in update(), so concurrent batches cannot deadlock.
+     */
+    void addToSummaries(Map<SummaryKey, Double> attendedByKey) {
+        List<Map.Entry<SummaryKey, Double>> entries = new ArrayList<>(attendedByKey.entrySet());
+        entries.sort(Map.Entry.comparingByKey(SUMMARY_ORDER));
+        int[][] counts = jdbcTemplate.batchUpdate(ADD_ATTENDED_SQL, entries, entries.size(), (statement, entry) -> {
+            statement.setDouble(1, entry.getValue());
+            statement.setDouble(2, entry.getValue());
+            statement.setString(3, entry.getKey().studentId());
+            statement.setString(4, entry.getKey().moduleName());
+        });
+
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                Map.Entry<SummaryKey, Double> entry = entries.get(index++);
+                if (count != 0) continue;
+                // Deleted since ensureSummaries saw it
+                SummaryKey key = entry.getKey();
+                knownSummaries.remove(key);
+                summaryRepository.saveAndFlush(new AttendanceSummary(key.studentId(), key.moduleName()));
+                summaryRepository.addAttendedHours(key.studentId(), key.moduleName(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Replace the scheduled hours of many summaries, creating the missing ones first, with one
+     * JDBC batch in its own transaction. Rows are updated in key order like the other batches.
+     */
+    void setScheduledHours(Map<SummaryKey, Double> scheduledByKey) {
+        ensureSummaries(scheduledByKey.keySet());
+        List<Map.Entry<SummaryKey, Double>> entries = new ArrayList<>(scheduledByKey.entrySet());
+        entries.sort(Map.Entry.comparingByKey(SUMMARY_ORDER));
+        transaction.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(SET_SCHEDULED_SQL, entries, entries.size(), (statement, entry) -> {
+                    statement.setDouble(1, entry.getValue());
+                    statement.setDouble(2, entry.getValue());
+                    statement.setDouble(3, entry.getValue());
+                    statement.setString(4, entry.getKey().studentId());
+                    statement.setString(5, entry.getKey().moduleName());
+                }));
+    }
 }
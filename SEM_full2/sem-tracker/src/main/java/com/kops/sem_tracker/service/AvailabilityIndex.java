@@ -0,0 +1,315 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Interval trees of booked time per room (TimeTable.location) and per lecturer,
+ * answering free/busy questions without loading the timetable.
+ *
+ * Every resource has one tree per weekday for regular rows and one tree per date
+ * for special rows. A lookup for a date searches the two trees that can apply and
+ * keeps the regular rows that really occur on it (recurrence interval, validity range).
+ * Built when the application is ready and kept current by TimeTableService on writes.
+ */
+@Component
+public class AvailabilityIndex {
+
+    public enum Resource { ROOM, LECTURER }
+
+    private static final int DAY_END = 24 * 60;
+
+    private final TimeTableRepository timetableRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Resource, Map<String, Bookings>> resources = new HashMap<>();
+    private final Map<Long, List<Placement>> placementsByRowId = new HashMap<>();
+
+    public AvailabilityIndex(TimeTableRepository timetableRepository) {
+        this.timetableRepository = timetableRepository;
+        for (Resource resource : Resource.values()) {
+            resources.put(resource, new TreeMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<TimeTable> rows = timetableRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            resources.values().forEach(Map::clear);
+            placementsByRowId.clear();
+            rows.forEach(this::addLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("[AvailabilityIndex] Indexed " + rows.size() + " timetable rows");
+    }
+
+    /**
+     * Add a row, or replace it if it is already indexed.
+     */
+    public void index(TimeTable row) {
+        if (row.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(row.getId());
+            addLocked(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long rowId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(rowId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Known rooms or lecturers, sorted by name.
+     */
+    public List<String> names(Resource resource) {
+        lock.readLock().lock();
+        try {
+            return resources.get(resource).values().stream().map(bookings -> bookings.name).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bookings of a room or lecturer on a date that overlap [from, to), by start time.
+     */
+    public List<ScheduleOccurrence> busy(Resource resource, String name, LocalDate date, LocalTime from, LocalTime to) {
+        lock.readLock().lock();
+        try {
+            Bookings bookings = resources.get(resource).get(key(name));
+            if (bookings == null) return List.of();
+            return bookings.on(date, minutes(from), endMinutes(to)).stream()
+                    .map(row -> ScheduleOccurrence.of(row, date))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isFree(Resource resource, String name, LocalDate date, LocalTime from, LocalTime to) {
+        return busy(resource, name, date, from, to).isEmpty();
+    }
+
+    /**
+     * Whether a room or lecturer has a regular (weekly) booking overlapping [from, to) on a weekday,
+     * whatever its dates; used when planning a weekly timetable.
+     */
+    public boolean hasWeeklyBooking(Resource resource, String name, DayOfWeek day, LocalTime from, LocalTime to) {
+        lock.readLock().lock();
+        try {
+            Bookings bookings = resources.get(resource).get(key(name));
+            if (bookings == null) return false;
+            IntervalTree<TimeTable> regular = bookings.trees.get(day.toString());
+            return regular != null && !regular.overlapping(minutes(from), endMinutes(to)).isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rooms or lecturers with nothing booked in [from, to) on a date.
+     */
+    public List<String> freeResources(Resource resource, LocalDate date, LocalTime from, LocalTime to) {
+        int start = minutes(from);
+        int end = endMinutes(to);
+        lock.readLock().lock();
+        try {
+            List<String> free = new ArrayList<>();
+            for (Bookings bookings : resources.get(resource).values()) {
+                if (bookings.on(date, start, end).isEmpty()) free.add(bookings.name);
+            }
+            return free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gaps between bookings of a room or lecturer within [from, to) on a date.
+     */
+    public List<TimeSlot> freeSlots(Resource resource, String name, LocalDate date, LocalTime from, LocalTime to) {
+        int start = minutes(from);
+        int end = endMinutes(to);
+        lock.readLock().lock();
+        try {
+            Bookings bookings = resources.get(resource).get(key(name));
+            List<TimeTable> busy = bookings == null ? List.of() : bookings.on(date, start, end);
+
+            List<TimeSlot> free = new ArrayList<>();
+            int cursor = start;
+            for (TimeTable row : busy) {
+                int busyStart = minutes(row.getStartTime());
+                if (busyStart > cursor) free.add(slot(date, cursor, busyStart));
+                cursor = Math.max(cursor, endMinutes(row.getEndTime()));
+            }
+            if (cursor < end) free.add(slot(date, cursor, end));
+            return free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * First gap of at least the given length within [from, to), searching day by day from a date.
+     */
+    public Optional<TimeSlot> firstFreeSlot(Resource resource, String name, LocalDate fromDate, int days,
+                                            int lengthMinutes, LocalTime from, LocalTime to) {
+        for (int i = 0; i < days; i++) {
+            LocalDate date = fromDate.plusDays(i);
+            for (TimeSlot slot : freeSlots(resource, name, date, from, to)) {
+                if (slot.minutes() >= lengthMinutes) {
+                    return Optional.of(new TimeSlot(date, slot.start(), slot.start().plusMinutes(lengthMinutes)));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // ---------- maintenance ----------
+
+    private void addLocked(TimeTable row) {
+        if (row.getId() == null || row.getStartTime() == null || row.getEndTime() == null) return;
+        int start = minutes(row.getStartTime());
+        int end = endMinutes(row.getEndTime());
+        if (end <= start) return;
+
+        String slot;
+        if (row.isSpecialSchedule()) {
+            if (row.getSpecialLocalDate() == null) return;
+            slot = row.getSpecialLocalDate().toString();
+        } else {
+            if (row.getDay() == null) return;
+            slot = row.getDay().trim().toUpperCase(Locale.ROOT);
+        }
+
+        TimeTable copy = snapshot(row);
+        List<Placement> placements = new ArrayList<>(2);
+        placeLocked(Resource.ROOM, row.getLocation(), slot, start, end, copy, placements);
+        placeLocked(Resource.LECTURER, row.getLecturer(), slot, start, end, copy, placements);
+        if (!placements.isEmpty()) placementsByRowId.put(row.getId(), placements);
+    }
+
+    private void placeLocked(Resource resource, String name, String slot, int start, int end,
+                             TimeTable row, List<Placement> placements) {
+        String key = key(name);
+        if (key.isEmpty()) return;
+        resources.get(resource).computeIfAbsent(key, k -> new Bookings(name.trim()))
+                .trees.computeIfAbsent(slot, s -> new IntervalTree<>())
+                .insert(start, end, row.getId(), row);
+        placements.add(new Placement(resource, key, slot, start));
+    }
+
+    private void removeLocked(Long rowId) {
+        List<Placement> placements = placementsByRowId.remove(rowId);
+        if (placements == null) return;
+        for (Placement placement : placements) {
+            Map<String, Bookings> byName = resources.get(placement.resource);
+            Bookings bookings = byName.get(placement.key);
+            IntervalTree<TimeTable> tree = bookings.trees.get(placement.slot);
+            tree.remove(placement.start, rowId);
+            if (tree.isEmpty()) bookings.trees.remove(placement.slot);
+            if (bookings.trees.isEmpty()) byName.remove(placement.key);
+        }
+    }
+
+    // Detached copy, so later changes to the saved entity cannot move it inside a tree
+    private static TimeTable snapshot(TimeTable row) {
+        TimeTable copy = new TimeTable();
+        copy.setId(row.getId());
+        copy.setSubject(row.getSubject());
+        copy.setTitle(row.getTitle());
+        copy.setLocation(row.getLocation());
+        copy.setLecturer(row.getLecturer());
+        copy.setDescription(row.getDescription());
+        copy.setUsername(row.getUsername());
+        copy.setNotificationPreference(row.getNotificationPreference());
+        copy.setStartTime(row.getStartTime());
+        copy.setEndTime(row.getEndTime());
+        copy.setDay(row.getDay());
+        copy.setWeekly(row.isWeekly());
+        copy.setRecurrenceInterval(row.getRecurrenceInterval());
+        copy.setValidFrom(row.getValidFrom());
+        copy.setValidUntil(row.getValidUntil());
+        copy.setSpecialSchedule(row.isSpecialSchedule());
+        copy.setSpecialLocalDate(row.getSpecialLocalDate());
+        return copy;
+    }
+
+    // ---------- helpers ----------
+
+    static String key(String name) {
+        if (name == null) return "";
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static int minutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // 00:00 as an end time means midnight at the end of the day
+    private static int endMinutes(LocalTime time) {
+        int minutes = minutes(time);
+        return minutes == 0 ? DAY_END : minutes;
+    }
+
+    private static TimeSlot slot(LocalDate date, int start, int end) {
+        LocalTime endTime = end >= DAY_END ? LocalTime.MAX.withNano(0) : LocalTime.of(end / 60, end % 60);
+        return new TimeSlot(date, LocalTime.of(start / 60, start % 60), endTime);
+    }
+
+    private record Placement(Resource resource, String key, String slot, int start) {}
+
+    private static final class Bookings {
+        final String name;
+        final Map<String, IntervalTree<TimeTable>> trees = new HashMap<>();
+
+        Bookings(String name) {
+            this.name = name;
+        }
+
+        // Rows occurring on date that overlap [start, end), by start time
+        List<TimeTable> on(LocalDate date, int start, int end) {
+            List<TimeTable> result = new ArrayList<>();
+            IntervalTree<TimeTable> regular = trees.get(date.getDayOfWeek().toString());
+            if (regular != null) {
+                regular.forEachOverlapping(start, end, row -> {
+                    if (ScheduleExpander.occursOn(row, date)) result.add(row);
+                });
+            }
+            IntervalTree<TimeTable> special = trees.get(date.toString());
+            if (special != null) {
+                special.forEachOverlapping(start, end, result::add);
+            }
+            if (regular != null && special != null) {
+                result.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Blacked-out dates held in memory as bitsets indexed by epoch day: one for the
+ * whole institution and one per user that has personal blackouts. Occurrence queries
+ * filter through it without touching the database.
+ *
+ * Only regular (weekly) occurrences are suppressed. Special schedules are dated
+ * on purpose, so they stay unless they are cancelled explicitly.
+ *
+ * The bitsets are rebuilt from the blackouts table whenever it changes (it is small
+ * and rarely written) and swapped in as a whole, so readers never take a lock. Other
+ * nodes notice a change by the table's row count and highest id (see refreshIfChanged).
+ */
+@Component
+public class BlackoutCalendar {
+
+    private final BlackoutRepository blackoutRepository;
+    private volatile Dates dates = new Dates(new BitSet(), Map.of());
+
+    // Row count and highest id of the table when it was last read
+    private long loadedCount = -1;
+    private long loadedMaxId = -1;
+
+    /**
+     * What a reload changed: every user's dates, or those of the listed users.
+     */
+    public record Change(boolean institutionWide, Set<String> usernames) {
+
+        public boolean isEmpty() {
+            return !institutionWide && usernames.isEmpty();
+        }
+    }
+
+    public BlackoutCalendar(BlackoutRepository blackoutRepository) {
+        this.blackoutRepository = blackoutRepository;
+    }
+
+    // Before the indexes that filter through it are built
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void rebuild() {
+        reload();
+    }
+
+    /**
+     * Reload from the table. Returns whose blacked-out dates changed.
+     */
+    public synchronized Change reload() {
+        // Read before the rows, so a write in between is picked up by the next refresh
+        loadedCount = blackoutRepository.count();
+        loadedMaxId = blackoutRepository.findMaxId();
+        return load(blackoutRepository.findAll());
+    }
+
+    /**
+     * Reload if the table changed since it was last read, e.g. written on another node.
+     */
+    public synchronized Change refreshIfChanged() {
+        if (blackoutRepository.count() == loadedCount && blackoutRepository.findMaxId() == loadedMaxId) {
+            return new Change(false, Set.of());
+        }
+        return reload();
+    }
+
+    /**
+     * Replace the calendar with the given blackouts.
+     */
+    public Change load(Collection<Blackout> blackouts) {
+        BitSet institution = new BitSet();
+        Map<String, BitSet> byUser = new HashMap<>();
+        for (Blackout blackout : blackouts) {
+            BitSet target = blackout.getUsername() == null
+                    ? institution
+                    : byUser.computeIfAbsent(blackout.getUsername(), user -> new BitSet());
+            LocalDate end = blackout.getEndDate() != null ? blackout.getEndDate() : blackout.getStartDate();
+            int from = (int) Math.max(0, blackout.getStartDate().toEpochDay());
+            int to = (int) end.toEpochDay() + 1;
+            if (from < to) target.set(from, to);
+        }
+        Dates previous = dates;
+        dates = new Dates(institution, byUser);
+        System.out.println("[BlackoutCalendar] Loaded " + blackouts.size() + " blackout periods");
+
+        Set<String> changedUsers = new HashSet<>();
+        for (String username : previous.byUser.keySet()) {
+            if (!previous.byUser.get(username).equals(byUser.get(username))) changedUsers.add(username);
+        }
+        for (String username : byUser.keySet()) {
+            if (!byUser.get(username).equals(previous.byUser.get(username))) changedUsers.add(username);
+        }
+        return new Change(!previous.institution.equals(institution), changedUsers);
+    }
+
+    public boolean isBlackedOut(String username, LocalDate date) {
+        return dates.contains(username, date);
+    }
+
+    /**
+     * All blacked-out dates that apply to a user, in order.
+     */
+    public List<LocalDate> datesFor(String username) {
+        Dates current = dates;
+        BitSet merged = (BitSet) current.institution.clone();
+        BitSet personal = username != null ? current.byUser.get(username) : null;
+        if (personal != null) merged.or(personal);
+        return merged.stream().mapToObj(LocalDate::ofEpochDay).toList();
+    }
+
+    /**
+     * Whether a row's occurrence on a date is cancelled by a blackout.
+     */
+    public boolean suppresses(TimeTable row, LocalDate date) {
+        return !row.isSpecialSchedule() && dates.contains(row.getUsername(), date);
+    }
+
+    /**
+     * Drop regular occurrences that fall on a blacked-out date of their user.
+     */
+    public List<ScheduleOccurrence> filter(List<ScheduleOccurrence> occurrences) {
+        Dates current = dates;
+        if (current.isEmpty()) return occurrences;
+        return occurrences.stream()
+                .filter(occurrence -> occurrence.specialSchedule() || !current.contains(occurrence.username(), occurrence.date()))
+                .toList();
+    }
+
+    /**
+     * Drop regular rows that are blacked out on the given date.
+     */
+    public List<TimeTable> filterRows(List<TimeTable> rows, LocalDate date) {
+        Dates current = dates;
+        if (current.isEmpty()) return rows;
+        return rows.stream()
+                .filter(row -> row.isSpecialSchedule() || !current.contains(row.getUsername(), date))
+                .toList();
+    }
+
+    private record Dates(BitSet institution, Map<String, BitSet> byUser) {
+
+        boolean contains(String username, LocalDate date) {
+            long epochDay = date.toEpochDay();
+            if (epochDay < 0) return false;
+            int day = (int) epochDay;
+            if (institution.get(day)) return true;
+            BitSet personal = username != null ? byUser.get(username) : null;
+            return personal != null && personal.get(day);
+        }
+
+        boolean isEmpty() {
+            return institution.isEmpty() && byUser.isEmpty();
+        }
+    }
+}
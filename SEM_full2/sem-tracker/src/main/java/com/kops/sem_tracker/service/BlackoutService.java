@@ -0,0 +1,157 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Blackouts are written in the caller's transaction. The calendar, indexes, reminder timers
+ * and scheduled hours are only updated once it has committed, in a transaction of their own,
+ * so a rolled-back write leaves no trace in them.
+ */
+@Service
+public class BlackoutService {
+
+    private final BlackoutRepository blackoutRepository;
+    private final TimeTableRepository timetableRepository;
+    private final BlackoutCalendar blackoutCalendar;
+    private final UserScheduleCache scheduleCache;
+    private final TimeTableSearchIndex searchIndex;
+    private final AvailabilityIndex availabilityIndex;
+    private final IcsFeedService icsFeedService;
+    private final TimeTableChangeLog changeLog;
+    private final ReminderScheduler reminderScheduler;
+    private final ScheduledHoursService scheduledHours;
+    private final TransactionTemplate newTransaction;
+
+    public BlackoutService(BlackoutRepository blackoutRepository,
+                           TimeTableRepository timetableRepository,
+                           BlackoutCalendar blackoutCalendar,
+                           UserScheduleCache scheduleCache,
+                           TimeTableSearchIndex searchIndex,
+                           AvailabilityIndex availabilityIndex,
+                           IcsFeedService icsFeedService,
+                           TimeTableChangeLog changeLog,
+                           ReminderScheduler reminderScheduler,
+                           ScheduledHoursService scheduledHours,
+                           PlatformTransactionManager transactionManager) {
+        this.blackoutRepository = blackoutRepository;
+        this.timetableRepository = timetableRepository;
+        this.blackoutCalendar = blackoutCalendar;
+        this.scheduleCache = scheduleCache;
+        this.searchIndex = searchIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.icsFeedService = icsFeedService;
+        this.changeLog = changeLog;
+        this.reminderScheduler = reminderScheduler;
+        this.scheduledHours = scheduledHours;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Institution-wide blackouts, plus the user's own when a username is given.
+     */
+    public List<Blackout> getBlackouts(String username) {
+        if (username == null || username.isBlank()) {
+            return blackoutRepository.findByUsernameIsNullOrderByStartDate();
+        }
+        return blackoutRepository.findApplicableTo(username);
+    }
+
+    /**
+     * Record a blackout. Regular classes in the period are suppressed by the calendar, so no
+     * timetable row is touched; with cancelSpecial the special schedules in the period are
+     * deleted too, in one statement.
+     * Returns the number of special schedules cancelled.
+     */
+    @Transactional
+    public int create(Blackout blackout, boolean cancelSpecial) {
+        Blackout saved = blackoutRepository.save(blackout);
+
+        List<Long> ids = cancelSpecial
+                ? timetableRepository.findSpecialIdsBetween(saved.getStartDate(), saved.getEndDate(), saved.getUsername())
+                : List.of();
+        if (!ids.isEmpty()) {
+            List<TimeTable> cancelledRows = timetableRepository.findAllById(ids);
+            timetableRepository.deleteAllByIdInBatch(ids);
+            changeLog.recordDeletes(cancelledRows);
+        }
+
+        afterCommit(() -> {
+            ids.forEach(searchIndex::remove);
+            ids.forEach(availabilityIndex::remove);
+            ids.forEach(reminderScheduler::cancel);
+            refresh(saved);
+        });
+        return ids.size();
+    }
+
+    @Transactional
+    public boolean delete(Long id) {
+        return blackoutRepository.findById(id).map(existing -> {
+            blackoutRepository.delete(existing);
+            afterCommit(() -> refresh(existing));
+            return true;
+        }).orElse(false);
+    }
+
+    /**
+     * Pick up blackouts created or deleted on another node. The scheduled hours are stored,
+     * so the node that wrote the blackout has updated them already.
+     */
+    public void refreshIfChanged() {
+        apply(blackoutCalendar.refreshIfChanged());
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable inNewTransaction = () -> newTransaction.executeWithoutResult(status -> action.run());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    inNewTransaction.run();
+                }
+            });
+        } else {
+            inNewTransaction.run();
+        }
+    }
+
+    private void refresh(Blackout changed) {
+        apply(blackoutCalendar.reload());
+        if (changed.isInstitutionWide()) {
+            scheduledHours.rebuild();
+        } else {
+            scheduledHours.refreshUser(changed.getUsername());
+        }
+    }
+
+    // Drop what this node derived from the old dates; timers of lifted dates are set again
+    private void apply(BlackoutCalendar.Change change) {
+        if (change.isEmpty()) return;
+        if (change.institutionWide()) {
+            scheduleCache.invalidateAll();
+            icsFeedService.invalidateAll();
+            Set<String> users = new HashSet<>(timetableRepository.findUsernames());
+            users.addAll(reminderScheduler.scheduledUsers());
+            reminderScheduler.reloadUsers(users);
+        } else {
+            change.usernames().forEach(scheduleCache::invalidate);
+            change.usernames().forEach(icsFeedService::invalidate);
+            reminderScheduler.reloadUsers(change.usernames());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Sends every student the daily schedule email.
+ *
+ * The agendas come from one streamed query over students left-joined to their timetable
+ * rows for the day, ordered by student, so consecutive result rows form one student's
+ * agenda. Students are cut into chunks as they stream past. Each chunk is rendered and
+ * queued in the email outbox (one transaction per chunk) on a small worker pool, while
+ * the reader carries on. A semaphore bounds the chunks in flight, so memory stays flat
+ * however many students there are.
+ */
+@Service
+public class DailyDigestService {
+
+    private final StudentRepository studentRepository;
+    private final EmailService emailService;
+    private final BlackoutCalendar blackoutCalendar;
+    private final PartitionLeases partitionLeases;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Progress progress;
+
+    public DailyDigestService(StudentRepository studentRepository,
+                              EmailService emailService,
+                              BlackoutCalendar blackoutCalendar,
+                              PartitionLeases partitionLeases,
+                              EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.schedule.daily-email.enabled:false}") boolean enabled,
+                              @Value("${app.schedule.daily-email.chunk-size:500}") int chunkSize,
+                              @Value("${app.schedule.daily-email.parallelism:4}") int parallelism) {
+        this.studentRepository = studentRepository;
+        this.emailService = emailService;
+        this.blackoutCalendar = blackoutCalendar;
+        this.partitionLeases = partitionLeases;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Scheduled(cron = "${app.schedule.daily-email.cron:0 0 7 * * *}")
+    public void sendScheduledDigests() {
+        if (!enabled) {
+            System.out.println("[DailyDigestService] Daily email service is disabled");
+            return;
+        }
+        // Every node fires the cron; one of them sends
+        if (!partitionLeases.isLeader()) {
+            System.out.println("[DailyDigestService] Daily digest is sent by another node");
+            return;
+        }
+        try {
+            run(LocalDate.now());
+        } catch (IllegalStateException e) {
+            System.err.println("[DailyDigestService] " + e.getMessage());
+        }
+    }
+
+    /**
+     * Progress of the current run, or the outcome of the last one (null before the first run).
+     */
+    public DigestReport progress() {
+        Progress current = progress;
+        return current != null ? current.report() : null;
+    }
+
+    /**
+     * Send the digest for a date to every student and wait until all of it is queued.
+     *
+     * @throws IllegalStateException when a run is already in progress
+     */
+    public DigestReport run(LocalDate date) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A daily digest run is already in progress");
+        }
+        Progress current = new Progress(date, studentRepository.count());
+        progress = current;
+        System.out.println("[DailyDigestService] Sending daily digest for " + date + " to "
+                + current.totalStudents + " students (chunks of " + chunkSize + ", " + parallelism + " workers)");
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "daily-digest-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Two chunks per worker: one being processed, one ready to go
+        int permits = parallelism * 2;
+        Semaphore inFlight = new Semaphore(permits);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = studentRepository.streamDailyAgendas(date.getDayOfWeek().toString(), date)) {
+                    readAgendas(rows.iterator(), chunk -> submit(pool, inFlight, chunk, date, current));
+                }
+            });
+        } finally {
+            // Let the chunks already handed over finish, even when reading failed
+            inFlight.acquireUninterruptibly(permits);
+            pool.shutdown();
+            current.finish();
+            running.set(false);
+        }
+
+        DigestReport report = current.report();
+        System.out.println("[DailyDigestService] Daily digest for " + date + " done: " + report.queued() + " queued, "
+                + report.skipped() + " skipped, " + report.failed() + " failed in " + report.elapsedMs() + "ms ("
+                + Math.round(report.studentsPerSecond()) + " students/s)");
+        return report;
+    }
+
+    // Group consecutive result rows by student and hand them over a chunk at a time
+    private void readAgendas(Iterator<Object[]> rows, Consumer<List<Agenda>> chunks) {
+        List<Agenda> chunk = new ArrayList<>(chunkSize);
+        Agenda agenda = null;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            String username = (String) row[0];
+            if (agenda == null || !agenda.username.equals(username)) {
+                if (chunk.size() == chunkSize) {
+                    chunks.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                    // Rows already handed over are only read from here on; keep the session small
+                    entityManager.clear();
+                }
+                agenda = new Agenda(username, (String) row[1]);
+                chunk.add(agenda);
+            }
+            if (row[2] != null) agenda.rows.add((TimeTable) row[2]);
+        }
+        if (!chunk.isEmpty()) chunks.accept(chunk);
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, List<Agenda> chunk, LocalDate date, Progress current) {
+        inFlight.acquireUninterruptibly();
+        try {
+            pool.execute(() -> {
+                try {
+                    send(chunk, date, current);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void send(List<Agenda> chunk, LocalDate date, Progress current) {
+        List<EmailService.DailyDigest> digests = new ArrayList<>(chunk.size());
+        for (Agenda agenda : chunk) {
+            if (agenda.email == null || agenda.email.isBlank()) {
+                current.skipped.incrementAndGet();
+                continue;
+            }
+            digests.add(new EmailService.DailyDigest(agenda.email, agenda.username, classesOn(agenda.rows, date)));
+        }
+        try {
+            int queued = emailService.sendDailyScheduleEmails(digests, date);
+            current.queued.addAndGet(queued);
+            current.skipped.addAndGet(digests.size() - queued);
+        } catch (RuntimeException e) {
+            current.failed.addAndGet(digests.size());
+            System.err.println("[DailyDigestService] Failed to queue " + digests.size() + " digests: " + e.getMessage());
+        }
+        current.processed(chunk.size());
+    }
+
+    // Candidate rows that really occur on the date (recurrence, validity) and are not blacked out
+    private List<TimeTable> classesOn(List<TimeTable> rows, LocalDate date) {
+        List<TimeTable> classes = new ArrayList<>(rows.size());
+        for (TimeTable row : rows) {
+            if (ScheduleExpander.occursOn(row, date) && !blackoutCalendar.suppresses(row, date)) {
+                classes.add(row);
+            }
+        }
+        classes.sort(Comparator.comparing(TimeTable::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return classes;
+    }
+
+    private static final class Agenda {
+        final String username;
+        final String email;
+        final List<TimeTable> rows = new ArrayList<>(4);
+
+        Agenda(String username, String email) {
+            this.username = Objects.requireNonNull(username);
+            this.email = email;
+        }
+    }
+
+    private static final class Progress {
+        final LocalDate date;
+        final long totalStudents;
+        final long startedAt = System.nanoTime();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong queued = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicInteger loggedDecile = new AtomicInteger();
+        volatile boolean finished;
+        volatile long finishedAt;
+
+        Progress(LocalDate date, long totalStudents) {
+            this.date = date;
+            this.totalStudents = totalStudents;
+        }
+
+        void processed(int students) {
+            long done = processed.addAndGet(students);
+            if (totalStudents == 0) return;
+            int decile = (int) Math.min(10, done * 10 / totalStudents);
+            int logged = loggedDecile.get();
+            if (decile > logged && loggedDecile.compareAndSet(logged, decile)) {
+                DigestReport report = report();
+                System.out.println("[DailyDigestService] " + done + "/" + totalStudents + " students ("
+                        + decile * 10 + "%), " + Math.round(report.studentsPerSecond()) + " students/s");
+            }
+        }
+
+        void finish() {
+            finishedAt = System.nanoTime();
+            finished = true;
+        }
+
+        DigestReport report() {
+            boolean done = finished;
+            long end = done ? finishedAt : System.nanoTime();
+            long elapsedNanos = Math.max(1, end - startedAt);
+            long students = processed.get();
+            return new DigestReport(date, !done, totalStudents, students, queued.get(), skipped.get(),
+                    failed.get(), elapsedNanos / 1_000_000, students * 1e9 / elapsedNanos);
+        }
+    }
+}
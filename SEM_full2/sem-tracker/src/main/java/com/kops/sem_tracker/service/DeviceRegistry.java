@@ -0,0 +1,168 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.DeviceToken;
+import com.kops.sem_tracker.repository.DeviceTokenRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Push tokens by student, kept in device_tokens and mirrored in memory.
+ *
+ * Every reminder looks up its student's tokens, so the lookup is served from a map that
+ * is loaded at startup and updated on each change. Changes made on other nodes are picked
+ * up by refreshIfChanged, which compares a cheap version of the table before reloading.
+ * Tokens that used to be stored on timetable rows are copied in on startup.
+ */
+@Service
+public class DeviceRegistry {
+
+    private final DeviceTokenRepository deviceTokenRepository;
+    private final TimeTableRepository timeTableRepository;
+
+    // username -> tokens; values are immutable and replaced as a whole
+    private final Map<String, List<String>> tokensByUser = new ConcurrentHashMap<>();
+    private final Map<String, String> ownerByToken = new ConcurrentHashMap<>();
+
+    // Row count, highest id and latest lastSeenAt of the table when it was last read
+    private long loadedCount = -1;
+    private long loadedMaxId = -1;
+    private LocalDateTime loadedLastSeen;
+
+    public DeviceRegistry(DeviceTokenRepository deviceTokenRepository, TimeTableRepository timeTableRepository) {
+        this.deviceTokenRepository = deviceTokenRepository;
+        this.timeTableRepository = timeTableRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int imported = importTimetableTokens();
+        rebuild();
+        System.out.println("[DeviceRegistry] Loaded tokens for " + tokensByUser.size() + " students"
+                + (imported > 0 ? " (" + imported + " moved from timetable rows)" : ""));
+    }
+
+    public synchronized void rebuild() {
+        // Read before the rows, so a write in between is picked up by the next refresh
+        loadedCount = deviceTokenRepository.count();
+        loadedMaxId = deviceTokenRepository.findMaxId();
+        loadedLastSeen = deviceTokenRepository.findLastSeen();
+        Map<String, List<String>> loaded = new HashMap<>();
+        ownerByToken.clear();
+        for (Object[] row : deviceTokenRepository.findUsernameAndToken()) {
+            loaded.computeIfAbsent((String) row[0], user -> new ArrayList<>()).add((String) row[1]);
+            ownerByToken.put((String) row[1], (String) row[0]);
+        }
+        tokensByUser.clear();
+        loaded.forEach((user, tokens) -> tokensByUser.put(user, List.copyOf(tokens)));
+    }
+
+    /**
+     * Reload if the table changed since it was last read, e.g. written on another node.
+     */
+    public synchronized boolean refreshIfChanged() {
+        if (deviceTokenRepository.count() == loadedCount
+                && deviceTokenRepository.findMaxId() == loadedMaxId
+                && Objects.equals(deviceTokenRepository.findLastSeen(), loadedLastSeen)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+    public List<String> tokensFor(String username) {
+        if (username == null) return List.of();
+        return tokensByUser.getOrDefault(username, List.of());
+    }
+
+    public List<DeviceToken> devicesFor(String username) {
+        return deviceTokenRepository.findByUsernameOrderByLastSeenAtDesc(username);
+    }
+
+    /**
+     * Register a token for a student, or refresh it. A token seen under another student
+     * (a shared or handed-down device) moves to this one.
+     */
+    public synchronized DeviceToken register(String username, String token, String platform) {
+        if (username == null || username.isBlank() || token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Username and token are required");
+        }
+        DeviceToken device = deviceTokenRepository.findByToken(token).orElse(null);
+        String previousOwner = null;
+        if (device == null) {
+            device = new DeviceToken(username, token, platform);
+        } else {
+            previousOwner = device.getUsername();
+            device.setUsername(username);
+            if (platform != null) device.setPlatform(platform);
+            device.setLastSeenAt(LocalDateTime.now());
+        }
+        DeviceToken saved = deviceTokenRepository.save(device);
+
+        if (previousOwner != null && !previousOwner.equals(username)) {
+            removeFromMemory(previousOwner, token);
+        }
+        List<String> current = tokensFor(username);
+        if (!current.contains(token)) {
+            List<String> updated = new ArrayList<>(current);
+            updated.add(token);
+            tokensByUser.put(username, List.copyOf(updated));
+        }
+        ownerByToken.put(token, username);
+        return saved;
+    }
+
+    public synchronized boolean unregister(String token) {
+        DeviceToken device = deviceTokenRepository.findByToken(token).orElse(null);
+        if (device == null) return false;
+        deviceTokenRepository.delete(device);
+        removeFromMemory(device.getUsername(), token);
+        return true;
+    }
+
+    /**
+     * Forget tokens the push provider reported as no longer valid. Returns how many were removed.
+     */
+    public synchronized int removeInvalid(Collection<String> tokens) {
+        if (tokens.isEmpty()) return 0;
+        int removed = deviceTokenRepository.deleteByTokenIn(tokens);
+        for (String token : tokens) {
+            String owner = ownerByToken.get(token);
+            if (owner != null) removeFromMemory(owner, token);
+        }
+        return removed;
+    }
+
+    // Copy tokens still held only on timetable rows into the registry
+    private int importTimetableTokens() {
+        int imported = 0;
+        for (Object[] row : timeTableRepository.findDeviceTokens()) {
+            String username = (String) row[0];
+            String token = (String) row[1];
+            if (deviceTokenRepository.findByToken(token).isEmpty()) {
+                deviceTokenRepository.save(new DeviceToken(username, token, null));
+                imported++;
+            }
+        }
+        return imported;
+    }
+
+    private void removeFromMemory(String username, String token) {
+        ownerByToken.remove(token, username);
+        List<String> current = tokensByUser.get(username);
+        if (current == null || !current.contains(token)) return;
+        List<String> updated = current.stream().filter(existing -> !existing.equals(token)).toList();
+        if (updated.isEmpty()) tokensByUser.remove(username);
+        else tokensByUser.put(username, updated);
+    }
+}
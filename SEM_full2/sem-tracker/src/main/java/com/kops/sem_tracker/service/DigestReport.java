@@ -0,0 +1,11 @@
+package com.kops.sem_tracker.service;
+
+import java.time.LocalDate;
+
+/**
+ * Progress of a daily digest run, or its outcome once running is false.
+ * processed counts students read so far; queued + skipped + failed add up to it.
+ */
+public record DigestReport(LocalDate date, boolean running, long totalStudents, long processed,
+                           long queued, long skipped, long failed, long elapsedMs, double studentsPerSecond) {
+}
@@ -0,0 +1,360 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.EmailOutbox;
+import com.kops.sem_tracker.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends email through a persistent outbox, so callers never wait on SMTP.
+ *
+ * enqueue() stores the message in email_outbox and hands its id to a bounded in-memory
+ * queue. A pool of virtual-thread workers drains the queue. Each worker keeps its own SMTP
+ * connection open across messages and closes it after a quiet period or an error. A failed
+ * send is retried with exponential backoff until max-attempts, then marked FAILED.
+ * Anything that could not be queued (queue full, restart) stays PENDING in the table and is
+ * picked up by a periodic sweep, so no message is lost. A sweep pages through the due ids
+ * past the ones this node already holds until the queue is full; when it stops on a full
+ * queue, the next sweep runs as soon as the workers have drained the queue to half.
+ *
+ * Every node runs the sweep, so a worker claims the row in the database (PENDING to SENDING
+ * with a conditional UPDATE) before sending, and only the worker whose UPDATE matched sends.
+ * A claim lasts claim-seconds; claims left by a node that stopped mid-send are handed back
+ * to PENDING by the sweep once they expire.
+ *
+ * Jakarta Mail blocks inside synchronized methods. On Java 21 that pins a worker's
+ * virtual thread to its carrier for the length of an SMTP exchange, so keep the worker
+ * count around the number of cores.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final int SWEEP_BATCH = 1000;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final BlockingQueue<Long> queue;
+
+    // Ids queued or being sent on this node, so the sweep and retries never queue one twice
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+
+    // Set when due emails were left in the table because the queue was full
+    private final AtomicBoolean backlog = new AtomicBoolean();
+    private final int refillBelow;
+
+    private final boolean enabled;
+    private final int workers;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration idleTimeout;
+    private final Duration sweepInterval;
+    private final Duration claimTimeout;
+    private final String fromEmail;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final Session session;
+
+    private final Counter sent;
+    private final Counter failures;
+    private final Counter dead;
+    private final Timer sendLatency;
+
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private ScheduledExecutorService retryExecutor;
+    private volatile boolean running;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.email.enabled:false}") boolean enabled,
+                              @Value("${app.email.from:noreply@semtracker.com}") String fromEmail,
+                              @Value("${app.email.outbox.queue-capacity:10000}") int queueCapacity,
+                              @Value("${app.email.outbox.workers:4}") int workers,
+                              @Value("${app.email.outbox.max-attempts:6}") int maxAttempts,
+                              @Value("${app.email.outbox.backoff-millis:2000}") long backoffMillis,
+                              @Value("${app.email.outbox.max-backoff-millis:600000}") long maxBackoffMillis,
+                              @Value("${app.email.outbox.idle-seconds:30}") long idleSeconds,
+                              @Value("${app.email.outbox.sweep-seconds:30}") long sweepSeconds,
+                              @Value("${app.email.outbox.claim-seconds:300}") long claimSeconds,
+                              @Value("${spring.mail.host:localhost}") String host,
+                              @Value("${spring.mail.port:25}") int port,
+                              @Value("${spring.mail.username:}") String username,
+                              @Value("${spring.mail.password:}") String password,
+                              @Value("${spring.mail.properties.mail.smtp.auth:false}") boolean auth,
+                              @Value("${spring.mail.properties.mail.smtp.starttls.enable:false}") boolean startTls,
+                              @Value("${spring.mail.properties.mail.smtp.connectiontimeout:5000}") int connectionTimeout,
+                              @Value("${spring.mail.properties.mail.smtp.timeout:5000}") int timeout) {
+        this.outboxRepository = outboxRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.refillBelow = queueCapacity / 2;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.idleTimeout = Duration.ofSeconds(idleSeconds);
+        this.sweepInterval = Duration.ofSeconds(sweepSeconds);
+        this.claimTimeout = Duration.ofSeconds(claimSeconds);
+        this.fromEmail = fromEmail;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", Boolean.toString(auth));
+        properties.put("mail.smtp.starttls.enable", Boolean.toString(startTls));
+        properties.put("mail.smtp.connectiontimeout", Integer.toString(connectionTimeout));
+        properties.put("mail.smtp.timeout", Integer.toString(timeout));
+        properties.put("mail.smtp.writetimeout", Integer.toString(timeout));
+        this.session = Session.getInstance(properties);
+
+        Gauge.builder("email.outbox.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.sent = Counter.builder("email.outbox.sent").register(meterRegistry);
+        this.failures = Counter.builder("email.outbox.failures")
+                .description("Failed send attempts, including ones that are retried").register(meterRegistry);
+        this.dead = Counter.builder("email.outbox.dead")
+                .description("Emails given up on after the last attempt").register(meterRegistry);
+        this.sendLatency = Timer.builder("email.outbox.send.latency").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerThreads.add(Thread.ofVirtual().name("email-outbox-" + i).start(this::runWorker));
+        }
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryExecutor.scheduleWithFixedDelay(this::sweep, 0, sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+        System.out.println("[EmailOutboxService] Started " + workers + " workers for " + host + ":" + port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        if (retryExecutor != null) retryExecutor.shutdownNow();
+    }
+
+    /**
+     * Store an email for delivery and return without waiting for SMTP.
+     */
+    public EmailOutbox enqueue(String to, String subject, String body, boolean html) {
+        EmailOutbox saved = outboxRepository.save(new EmailOutbox(to, subject, body, html));
+        if (running && !offer(saved.getId())) backlog.set(true);
+        return saved;
+    }
+
+    /**
+     * Store a batch of emails in one transaction, e.g. a chunk of daily digests.
+     */
+    public List<EmailOutbox> enqueueAll(List<EmailOutbox> emails) {
+        List<EmailOutbox> saved = outboxRepository.saveAll(emails);
+        if (running) {
+            for (EmailOutbox email : saved) {
+                // Queue full: the rest stay PENDING for the sweep
+                if (!offer(email.getId())) {
+                    backlog.set(true);
+                    break;
+                }
+            }
+        }
+        return saved;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Queue every PENDING email that is due, e.g. after a restart or while the queue was full.
+     */
+    public void sweep() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int released = outboxRepository.releaseExpiredClaims(now);
+            if (released > 0) {
+                System.out.println("[EmailOutboxService] " + released + " emails claimed by a stopped node are pending again");
+            }
+            backlog.set(false);
+            long after = 0;
+            List<Long> due;
+            do {
+                due = outboxRepository.findDueIds(now, after, PageRequest.ofSize(SWEEP_BATCH));
+                for (Long id : due) {
+                    // Ids already queued on this node are skipped by offer
+                    if (!offer(id)) {
+                        backlog.set(true);
+                        return;
+                    }
+                    after = id;
+                }
+            } while (due.size() == SWEEP_BATCH);
+        } catch (RuntimeException e) {
+            System.err.println("[EmailOutboxService] Sweep failed: " + e.getMessage());
+        }
+    }
+
+    // ---------- workers ----------
+
+    // False when the queue is full; the email stays PENDING for the next sweep
+    private boolean offer(Long id) {
+        if (!claimed.add(id)) return true;
+        if (queue.offer(id)) return true;
+        claimed.remove(id);
+        return false;
+    }
+
+    private void runWorker() {
+        Transport transport = null;
+        try {
+            while (running) {
+                Long id = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (id == null) {
+                    // Servers drop idle connections; close ours first
+                    transport = close(transport);
+                    continue;
+                }
+                if (running && queue.size() <= refillBelow && backlog.compareAndSet(true, false)) {
+                    retryExecutor.execute(this::sweep);
+                }
+                try {
+                    transport = deliver(id, transport);
+                } catch (RuntimeException e) {
+                    System.err.println("[EmailOutboxService] Email " + id + " could not be processed: " + e.getMessage());
+                } finally {
+                    claimed.remove(id);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+        }
+    }
+
+    // Returns the connection to use for the next message (null when it had to be dropped)
+    private Transport deliver(Long id, Transport transport) {
+        // Sent, failed, not due yet, or taken by another node's worker
+        LocalDateTime now = LocalDateTime.now();
+        if (outboxRepository.claim(id, now, now.plus(claimTimeout)) == 0) return transport;
+        EmailOutbox email = outboxRepository.findById(id).orElse(null);
+        if (email == null) return transport;
+
+        email.setAttempts(email.getAttempts() + 1);
+        long started = System.nanoTime();
+        try {
+            if (transport == null) transport = connect();
+            MimeMessage message = toMimeMessage(email);
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException | RuntimeException e) {
+            failures.increment();
+            failed(email, e);
+            return close(transport);
+        }
+        sendLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        sent.increment();
+
+        email.setStatus(EmailOutbox.Status.SENT);
+        email.setSentAt(LocalDateTime.now());
+        email.setLastError(null);
+        email.setClaimedUntil(null);
+        outboxRepository.save(email);
+        return transport;
+    }
+
+    private void failed(EmailOutbox email, Exception error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        email.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        email.setClaimedUntil(null);
+
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(EmailOutbox.Status.FAILED);
+            outboxRepository.save(email);
+            dead.increment();
+            System.err.println("[EmailOutboxService] Giving up on email " + email.getId() + " to " + email.getRecipient()
+                    + " after " + email.getAttempts() + " attempts: " + message);
+            return;
+        }
+
+        Duration delay = backoff(email.getAttempts());
+        email.setStatus(EmailOutbox.Status.PENDING);
+        email.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        outboxRepository.save(email);
+        Long id = email.getId();
+        retryExecutor.schedule(() -> offer(id), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // backoff, 2 x backoff, 4 x backoff, ... capped at maxBackoff
+    Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = backoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        if (username == null || username.isBlank()) {
+            transport.connect(host, port, null, null);
+        } else {
+            transport.connect(host, port, username, password);
+        }
+        return transport;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(fromEmail));
+        message.setRecipients(MimeMessage.RecipientType.TO, InternetAddress.parse(email.getRecipient()));
+        message.setSubject(email.getSubject(), StandardCharsets.UTF_8.name());
+        message.setText(email.getBody(), StandardCharsets.UTF_8.name(), email.isHtml() ? "html" : "plain");
+        message.saveChanges();
+        return message;
+    }
+
+    private static Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+                // Already broken; a new connection is opened for the next message
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,261 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContextWrapper;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Renders the HTML emails from the Thymeleaf templates under templates/email.
+ *
+ * The stylesheet head and the footer never change, so they are read once and copied into
+ * every email as-is. A class block depends only on the class, not on the student, so each
+ * distinct block is rendered once (schedule-item.html) and copied into every email that
+ * lists it. That leaves Thymeleaf only the short per-student part (daily-schedule.html,
+ * class-reminder.html). The engine is private to this class, so its template cache
+ * stays on even where devtools switches off spring.thymeleaf.cache, and its SpEL
+ * expressions are compiled. Each thread renders into its own reusable buffer.
+ */
+@Component
+public class EmailTemplateRenderer {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a");
+    private static final Comparator<TimeTable> BY_START =
+            Comparator.comparing(TimeTable::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    // Buffers that grew past this (an unusually long agenda) are not kept around
+    private static final int MAX_KEPT_BUFFER = 64 * 1024;
+    private static final int MAX_CACHED_ITEMS = 10_000;
+
+    private final SpringTemplateEngine engine;
+    private final String head;
+    private final String foot;
+    private final Format format = new Format();
+    private final ThreadLocal<RenderBuffer> buffers = ThreadLocal.withInitial(RenderBuffer::new);
+    private final ExpiringLruCache<ItemKey, String> items = new ExpiringLruCache<>(MAX_CACHED_ITEMS, Duration.ofHours(24));
+
+    // The digest renders thousands of emails for the same date; format it once
+    private volatile FormattedDate lastDate = new FormattedDate(LocalDate.MIN, "");
+
+    public EmailTemplateRenderer() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+
+        this.engine = new SpringTemplateEngine();
+        this.engine.setTemplateResolver(resolver);
+        this.engine.setEnableSpringELCompiler(true);
+
+        this.head = readStatic("templates/email/layout-head.html");
+        this.foot = readStatic("templates/email/layout-foot.html");
+
+        // Parse both templates now, so a broken template fails startup instead of the first send
+        renderDailySchedule("warm-up", List.of(), LocalDate.now());
+        renderClassReminder("warm-up", new TimeTable("Warm-up", "MONDAY", LocalTime.NOON, LocalTime.NOON, null, null));
+    }
+
+    /**
+     * The daily schedule email. Classes are shown by start time; the list is not modified.
+     */
+    public String renderDailySchedule(String username, List<TimeTable> classes, LocalDate date) {
+        List<TimeTable> sorted = sortedByStart(classes);
+        List<String> blocks = new ArrayList<>(sorted.size());
+        for (TimeTable item : sorted) {
+            blocks.add(block(item));
+        }
+
+        RenderBuffer buffer = buffers.get();
+        Context context = buffer.context();
+        context.setVariable("date", formatDate(date));
+        context.setVariable("username", username);
+        context.setVariable("count", sorted.size());
+        return render(buffer, "email/daily-schedule", blocks);
+    }
+
+    /**
+     * The reminder sent shortly before a class starts.
+     */
+    public String renderClassReminder(String username, TimeTable event) {
+        return renderClassReminder(username, List.of(event));
+    }
+
+    /**
+     * One reminder for several classes starting close together, shown by start time.
+     */
+    public String renderClassReminder(String username, List<TimeTable> events) {
+        List<TimeTable> sorted = sortedByStart(events);
+        List<String> blocks = new ArrayList<>(sorted.size());
+        for (TimeTable item : sorted) {
+            blocks.add(block(item));
+        }
+
+        RenderBuffer buffer = buffers.get();
+        Context context = buffer.context();
+        context.setVariable("username", username);
+        context.setVariable("count", sorted.size());
+        return render(buffer, "email/class-reminder", blocks);
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    public String formatDate(LocalDate date) {
+        FormattedDate cached = lastDate;
+        if (cached.date.equals(date)) return cached.text;
+        String text = date.format(DATE_FORMAT);
+        lastDate = new FormattedDate(date, text);
+        return text;
+    }
+
+    private String block(TimeTable item) {
+        return items.get(ItemKey.of(item), key -> {
+            RenderBuffer buffer = buffers.get();
+            Context context = buffer.context();
+            context.setVariable("item", item);
+            context.setVariable("format", format);
+            StringBuilder out = buffer.builder;
+            out.setLength(0);
+            engine.process("email/schedule-item", context, buffer);
+            return out.toString();
+        });
+    }
+
+    // head, the template, the class blocks, foot
+    private String render(RenderBuffer buffer, String template, List<String> blocks) {
+        StringBuilder out = buffer.builder;
+        out.setLength(0);
+        out.append(head);
+        engine.process(template, buffer.context, buffer);
+        for (String block : blocks) {
+            out.append(block);
+        }
+        out.append(foot);
+        String html = out.toString();
+        if (out.capacity() > MAX_KEPT_BUFFER) buffers.remove();
+        return html;
+    }
+
+    private static List<TimeTable> sortedByStart(List<TimeTable> classes) {
+        if (classes == null) return List.of();
+        for (int i = 1; i < classes.size(); i++) {
+            if (BY_START.compare(classes.get(i - 1), classes.get(i)) > 0) {
+                List<TimeTable> sorted = new ArrayList<>(classes);
+                sorted.sort(BY_START);
+                return sorted;
+            }
+        }
+        return classes;
+    }
+
+    private static String readStatic(String path) {
+        try {
+            return new String(new ClassPathResource(path).getContentAsByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Missing email template " + path, e);
+        }
+    }
+
+    /**
+     * Helpers the templates call as ${format...}.
+     */
+    public static final class Format {
+
+        public String time(LocalTime time) {
+            return time != null ? time.format(TIME_FORMAT) : "";
+        }
+
+        public String timeRange(TimeTable item) {
+            if (item.getStartTime() == null || item.getEndTime() == null) return "";
+            return time(item.getStartTime()) + " - " + time(item.getEndTime());
+        }
+
+        public boolean present(String text) {
+            return text != null && !text.isEmpty();
+        }
+    }
+
+    private record FormattedDate(LocalDate date, String text) {}
+
+    // Everything a class block shows
+    private record ItemKey(String subject, LocalTime startTime, LocalTime endTime, String lecturer,
+                           String location, String description, boolean special) {
+
+        static ItemKey of(TimeTable item) {
+            return new ItemKey(item.getSubject(), item.getStartTime(), item.getEndTime(), item.getLecturer(),
+                    item.getLocation(), item.getDescription(), item.isSpecialSchedule());
+        }
+    }
+
+    // Writer over a StringBuilder that is cleared and reused instead of reallocated, plus the
+    // per-thread context. Without an evaluation context in it, Thymeleaf builds a fresh SpEL
+    // context for every expression it evaluates.
+    private static final class RenderBuffer extends Writer {
+        final StringBuilder builder = new StringBuilder(8 * 1024);
+        final Context context = new Context();
+        final ThymeleafEvaluationContextWrapper evaluation =
+                new ThymeleafEvaluationContextWrapper(new StandardEvaluationContext());
+
+        Context context() {
+            context.clearVariables();
+            context.setVariable(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME, evaluation);
+            return context;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            // append(CharSequence, int, int) copies char by char; Thymeleaf nearly always writes whole strings
+            if (offset == 0 && length == text.length()) {
+                builder.append(text);
+            } else {
+                builder.append(text, offset, offset + length);
+            }
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            builder.append(text);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
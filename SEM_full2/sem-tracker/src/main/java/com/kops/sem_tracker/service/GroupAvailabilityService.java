@@ -0,0 +1,139 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common free time of a group of users (e.g. a study group).
+ *
+ * All the users' rows for the window are loaded with one query. Each user's plain
+ * weekly rows become a 7-day minute bitset, and the group's week is the OR of those.
+ * The week is laid over every date of the window, then occurrences that depend on the
+ * date (special schedules, bi-weekly rows, rows with a validity range) are set directly.
+ * The free intervals are the clear runs of the result.
+ */
+@Service
+public class GroupAvailabilityService {
+
+    public static final int MAX_DAYS = 62;
+
+    // Keeps the IN list well under database limits for very large groups
+    private static final int QUERY_CHUNK = 500;
+
+    private static final Set<String> VALID_DAYS = Set.of(
+            "MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY");
+
+    private final TimeTableRepository timetableRepository;
+
+    public GroupAvailabilityService(TimeTableRepository timetableRepository) {
+        this.timetableRepository = timetableRepository;
+    }
+
+    /**
+     * Intervals of at least minMinutes inside [dayStart, dayEnd) on each date from..to
+     * during which none of the users has anything scheduled.
+     */
+    public List<TimeSlot> commonFreeSlots(Collection<String> usernames, LocalDate from, LocalDate to,
+                                          LocalTime dayStart, LocalTime dayEnd, int minMinutes) {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("Date window must be between 1 and " + MAX_DAYS + " days");
+        }
+        MinuteBitset busy = busyMinutes(loadRows(usernames, from, to), from, days);
+
+        int start = minuteOfDay(dayStart);
+        int end = dayEnd.equals(LocalTime.MIDNIGHT) ? MinuteBitset.MINUTES_PER_DAY : minuteOfDay(dayEnd);
+        List<TimeSlot> free = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            LocalDate date = from.plusDays(day);
+            int cursor = busy.nextFree(day, start, end);
+            while (cursor >= 0) {
+                int until = busy.nextBusy(day, cursor, end);
+                if (until - cursor >= minMinutes) {
+                    free.add(new TimeSlot(date, time(cursor), time(until)));
+                }
+                cursor = busy.nextFree(day, until, end);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Busy minutes of all given rows over days starting at from.
+     */
+    static MinuteBitset busyMinutes(List<TimeTable> rows, LocalDate from, int days) {
+        LocalDate to = from.plusDays(days - 1);
+
+        // Per-user week of plain weekly rows, OR-ed into the group's week
+        Map<String, MinuteBitset> weekByUser = new HashMap<>();
+        List<TimeTable> dated = new ArrayList<>();
+        for (TimeTable row : rows) {
+            if (row.getStartTime() == null || row.getEndTime() == null) continue;
+            if (isPlainWeekly(row, from, to)) {
+                DayOfWeek dayOfWeek = DayOfWeek.valueOf(row.getDay().trim().toUpperCase());
+                weekByUser.computeIfAbsent(row.getUsername(), user -> new MinuteBitset(7))
+                        .setRange(dayOfWeek.getValue() - 1, minuteOfDay(row.getStartTime()), endMinute(row.getEndTime()));
+            } else {
+                dated.add(row);
+            }
+        }
+        MinuteBitset groupWeek = new MinuteBitset(7);
+        weekByUser.values().forEach(groupWeek::or);
+
+        MinuteBitset busy = new MinuteBitset(days);
+        for (int day = 0; day < days; day++) {
+            busy.orDay(day, groupWeek, from.plusDays(day).getDayOfWeek().getValue() - 1);
+        }
+        for (ScheduleOccurrence occurrence : ScheduleExpander.expand(dated, from, to)) {
+            busy.setRange((int) ChronoUnit.DAYS.between(from, occurrence.date()),
+                    minuteOfDay(occurrence.startTime()), endMinute(occurrence.endTime()));
+        }
+        return busy;
+    }
+
+    private List<TimeTable> loadRows(Collection<String> usernames, LocalDate from, LocalDate to) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(usernames));
+        List<TimeTable> rows = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i += QUERY_CHUNK) {
+            List<String> chunk = distinct.subList(i, Math.min(i + QUERY_CHUNK, distinct.size()));
+            rows.addAll(timetableRepository.findByUsernameInForWindow(chunk, from, to));
+        }
+        return rows;
+    }
+
+    // Occurs on every matching weekday of the window, so it can go into the weekly template
+    private static boolean isPlainWeekly(TimeTable row, LocalDate from, LocalDate to) {
+        if (row.isSpecialSchedule() || !row.isWeekly() || row.getDay() == null) return false;
+        if (row.getRecurrenceInterval() != null && row.getRecurrenceInterval() > 1) return false;
+        if (row.getValidFrom() != null && row.getValidFrom().isAfter(from)) return false;
+        if (row.getValidUntil() != null && row.getValidUntil().isBefore(to)) return false;
+        return VALID_DAYS.contains(row.getDay().trim().toUpperCase());
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // 00:00 as an end time means the end of the day
+    private static int endMinute(LocalTime time) {
+        int minute = minuteOfDay(time);
+        return minute == 0 ? MinuteBitset.MINUTES_PER_DAY : minute;
+    }
+
+    private static LocalTime time(int minute) {
+        return minute >= MinuteBitset.MINUTES_PER_DAY ? LocalTime.MAX.withNano(0) : LocalTime.of(minute / 60, minute % 60);
+    }
+}
@@ -0,0 +1,214 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user iCalendar (.ics) feed for calendar subscriptions.
+ * Weekly rows become RRULE:FREQ=WEEKLY events (blacked-out dates as EXDATE),
+ * special rows and one-off rows single events.
+ *
+ * Each user has a version number bumped on every change to their timetable (and for
+ * everyone when a blackout changes). The ETag is built from that version alone, so a
+ * client polling with If-None-Match is answered without rendering or querying anything,
+ * and a feed is rendered at most once per version.
+ */
+@Service
+public class IcsFeedService {
+
+    private static final DateTimeFormatter LOCAL_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final int MAX_LINE_OCTETS = 75;
+
+    // How far back an open-ended weekly row starts in the feed
+    private static final int HISTORY_WEEKS = 4;
+
+    private final TimeTableRepository timetableRepository;
+    private final BlackoutCalendar blackoutCalendar;
+    private final ExpiringLruCache<String, Feed> cache;
+
+    // Distinguishes versions handed out before and after a restart
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<String, AtomicLong> userVersions = new ConcurrentHashMap<>();
+
+    public IcsFeedService(TimeTableRepository timetableRepository,
+                          BlackoutCalendar blackoutCalendar,
+                          @Value("${app.ics-feed.cache-size:5000}") int cacheSize,
+                          @Value("${app.ics-feed.ttl-minutes:1440}") long ttlMinutes) {
+        this.timetableRepository = timetableRepository;
+        this.blackoutCalendar = blackoutCalendar;
+        this.cache = new ExpiringLruCache<>(cacheSize, Duration.ofMinutes(ttlMinutes));
+    }
+
+    public record Feed(String etag, String body) {}
+
+    /**
+     * Current ETag of a user's feed; cheap, no rendering or database access.
+     */
+    public String etag(String username) {
+        long userVersion = userVersions.computeIfAbsent(username, user -> new AtomicLong()).get();
+        return "W/\"" + bootId + "-" + globalVersion.get() + "-" + userVersion + "\"";
+    }
+
+    /**
+     * The user's feed, rendered on the first request after a change and cached until the next one.
+     */
+    public Feed getFeed(String username) {
+        return cache.get(username, user -> {
+            String etag = etag(user);
+            return new Feed(etag, render(user, timetableRepository.findByUsername(user)));
+        });
+    }
+
+    public void invalidate(String username) {
+        if (username == null) return;
+        userVersions.computeIfAbsent(username, user -> new AtomicLong()).incrementAndGet();
+        cache.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        globalVersion.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // ---------- rendering ----------
+
+    String render(String username, List<TimeTable> rows) {
+        StringBuilder ics = new StringBuilder(256 + rows.size() * 320);
+        line(ics, "BEGIN:VCALENDAR");
+        line(ics, "VERSION:2.0");
+        line(ics, "PRODID:-//SEM-Tracker//Timetable//EN");
+        line(ics, "CALSCALE:GREGORIAN");
+        line(ics, "METHOD:PUBLISH");
+        line(ics, "X-WR-CALNAME:" + escape("SEM-Tracker - " + username));
+
+        String stamp = LocalDateTime.now(ZoneOffset.UTC).format(UTC_DATE_TIME);
+        List<LocalDate> blackouts = blackoutCalendar.datesFor(username);
+        for (TimeTable row : rows) {
+            if (row.getStartTime() != null && row.getEndTime() != null) {
+                event(ics, row, stamp, blackouts);
+            }
+        }
+
+        line(ics, "END:VCALENDAR");
+        return ics.toString();
+    }
+
+    private void event(StringBuilder ics, TimeTable row, String stamp, List<LocalDate> blackouts) {
+        LocalDate first;
+        boolean recurring = false;
+        if (row.isSpecialSchedule()) {
+            first = row.getSpecialLocalDate();
+        } else {
+            DayOfWeek day = parseDay(row.getDay());
+            if (day == null) return;
+            LocalDate from = row.getValidFrom() != null ? row.getValidFrom() : LocalDate.now().minusWeeks(HISTORY_WEEKS);
+            // First real occurrence, so bi-weekly rows keep the parity ScheduleExpander uses
+            first = ScheduleExpander.expand(List.of(row), from, from.plusWeeks(interval(row))).stream()
+                    .map(ScheduleOccurrence::date)
+                    .findFirst()
+                    .orElse(null);
+            recurring = row.isWeekly() || row.getValidFrom() == null;
+        }
+        if (first == null) return;
+
+        line(ics, "BEGIN:VEVENT");
+        line(ics, "UID:timetable-" + row.getId() + "@sem-tracker");
+        line(ics, "DTSTAMP:" + stamp);
+        line(ics, "DTSTART:" + first.atTime(row.getStartTime()).format(LOCAL_DATE_TIME));
+        line(ics, "DTEND:" + end(first, row.getStartTime(), row.getEndTime()).format(LOCAL_DATE_TIME));
+
+        if (recurring) {
+            StringBuilder rule = new StringBuilder("RRULE:FREQ=WEEKLY");
+            if (interval(row) > 1) rule.append(";INTERVAL=").append(interval(row));
+            rule.append(";BYDAY=").append(first.getDayOfWeek().toString(), 0, 2);
+            if (row.getValidUntil() != null) {
+                rule.append(";UNTIL=").append(row.getValidUntil().atTime(LocalTime.of(23, 59, 59)).format(LOCAL_DATE_TIME));
+            }
+            line(ics, rule.toString());
+
+            for (LocalDate date : blackouts) {
+                if (!date.isBefore(first) && ScheduleExpander.occursOn(row, date)) {
+                    line(ics, "EXDATE:" + date.atTime(row.getStartTime()).format(LOCAL_DATE_TIME));
+                }
+            }
+        }
+
+        line(ics, "SUMMARY:" + escape(row.getSubject()));
+        if (row.getLocation() != null && !row.getLocation().isBlank()) {
+            line(ics, "LOCATION:" + escape(row.getLocation()));
+        }
+        StringBuilder description = new StringBuilder();
+        if (row.getLecturer() != null && !row.getLecturer().isBlank()) {
+            description.append("Lecturer: ").append(row.getLecturer());
+        }
+        if (row.getDescription() != null && !row.getDescription().isBlank()) {
+            if (!description.isEmpty()) description.append('\n');
+            description.append(row.getDescription());
+        }
+        if (!description.isEmpty()) {
+            line(ics, "DESCRIPTION:" + escape(description.toString()));
+        }
+        line(ics, "END:VEVENT");
+    }
+
+    // An end at or before the start (e.g. 00:00) runs into the next day
+    private static LocalDateTime end(LocalDate date, LocalTime start, LocalTime end) {
+        return end.isAfter(start) ? date.atTime(end) : date.plusDays(1).atTime(end);
+    }
+
+    private static int interval(TimeTable row) {
+        return row.getRecurrenceInterval() != null && row.getRecurrenceInterval() > 1 ? row.getRecurrenceInterval() : 1;
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        if (day == null) return null;
+        try {
+            return DayOfWeek.valueOf(day.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // RFC 5545 TEXT escaping
+    static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    // Writes a content line folded at 75 octets, without splitting a UTF-8 character
+    static void line(StringBuilder out, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                out.append("\r\n ");
+                octets = 1;
+            }
+            out.appendCodePoint(codePoint);
+            octets += size;
+            i += Character.charCount(codePoint);
+        }
+        out.append("\r\n");
+    }
+}
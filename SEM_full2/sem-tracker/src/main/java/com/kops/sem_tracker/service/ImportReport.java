@@ -0,0 +1,13 @@
+package com.kops.sem_tracker.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk timetable or attendance import: counts plus one entry per rejected row.
+ * Only the first errors are listed (see errorsTruncated); failed always has the full count.
+ */
+public record ImportReport(int total, int imported, int failed, List<RowError> errors,
+                           boolean errorsTruncated, long durationMs) {
+
+    public record RowError(int row, String error) {}
+}
@@ -0,0 +1,177 @@
+package com.kops.sem_tracker.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Balanced (AVL) interval tree over half-open [start, end) intervals of minutes.
+ * Nodes are ordered by (start, id) and every node carries the largest end in its subtree,
+ * so insert and remove are O(log n) and finding every interval that overlaps a window
+ * is O(log n + k) for k matches.
+ */
+public final class IntervalTree<T> {
+
+    private Node<T> root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void insert(int start, int end, long id, T value) {
+        root = insert(root, new Node<>(start, end, id, value));
+    }
+
+    /**
+     * Remove the interval stored under (start, id). Returns false when it was not present.
+     */
+    public boolean remove(int start, long id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    /**
+     * Visit every interval overlapping [start, end) in ascending start order.
+     */
+    public void forEachOverlapping(int start, int end, Consumer<T> action) {
+        visit(root, start, end, action);
+    }
+
+    public List<T> overlapping(int start, int end) {
+        List<T> result = new ArrayList<>();
+        forEachOverlapping(start, end, result::add);
+        return result;
+    }
+
+    // ---------- traversal ----------
+
+    private static <T> void visit(Node<T> node, int start, int end, Consumer<T> action) {
+        // Nothing in this subtree ends after start
+        if (node == null || node.maxEnd <= start) return;
+        visit(node.left, start, end, action);
+        // Everything to the right starts at or after this node
+        if (node.start >= end) return;
+        if (node.end > start) action.accept(node.value);
+        visit(node.right, start, end, action);
+    }
+
+    // ---------- AVL maintenance ----------
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            size++;
+            return added;
+        }
+        int order = compare(added.start, added.id, node);
+        if (order < 0) {
+            node.left = insert(node.left, added);
+        } else if (order > 0) {
+            node.right = insert(node.right, added);
+        } else {
+            node.end = added.end;
+            node.value = added.value;
+        }
+        return rebalance(node);
+    }
+
+    private Node<T> remove(Node<T> node, int start, long id) {
+        if (node == null) return null;
+        int order = compare(start, id, node);
+        if (order < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (order > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            Node<T> successor = node.right;
+            while (successor.left != null) successor = successor.left;
+            node.right = removeMin(node.right);
+            successor.left = node.left;
+            successor.right = node.right;
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    private Node<T> removeMin(Node<T> node) {
+        if (node.left == null) return node.right;
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int compare(int start, long id, Node<?> node) {
+        int order = Integer.compare(start, node.start);
+        return order != 0 ? order : Long.compare(id, node.id);
+    }
+
+    private Node<T> rebalance(Node<T> node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > maxEnd) maxEnd = node.right.maxEnd;
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<T> {
+        final int start;
+        final long id;
+        int end;
+        T value;
+        int maxEnd;
+        int height = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(int start, int end, long id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+}
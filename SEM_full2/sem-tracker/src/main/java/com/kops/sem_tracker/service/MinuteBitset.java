@@ -0,0 +1,104 @@
+package com.kops.sem_tracker.service;
+
+import java.util.Arrays;
+
+/**
+ * One bit per minute over a run of whole days, set where someone is busy.
+ * Every day is padded to 23 words (1472 bits, 1440 used) so a day can be copied
+ * or OR-ed with whole-word operations: a weekly template of 7 days is laid over
+ * any date window with plain array copies.
+ */
+public final class MinuteBitset {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    static final int DAY_WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    private final int days;
+    private final long[] words;
+
+    public MinuteBitset(int days) {
+        this.days = days;
+        this.words = new long[days * DAY_WORDS];
+    }
+
+    public int days() {
+        return days;
+    }
+
+    /**
+     * Mark [fromMinute, toMinute) of a day busy.
+     */
+    public void setRange(int day, int fromMinute, int toMinute) {
+        if (fromMinute < 0) fromMinute = 0;
+        if (toMinute > MINUTES_PER_DAY) toMinute = MINUTES_PER_DAY;
+        if (fromMinute >= toMinute) return;
+
+        int base = day * DAY_WORDS;
+        int firstWord = base + (fromMinute >>> 6);
+        int lastWord = base + ((toMinute - 1) >>> 6);
+        long firstMask = -1L << fromMinute;
+        long lastMask = -1L >>> -toMinute;
+        if (firstWord == lastWord) {
+            words[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        words[firstWord] |= firstMask;
+        Arrays.fill(words, firstWord + 1, lastWord, -1L);
+        words[lastWord] |= lastMask;
+    }
+
+    /**
+     * OR another bitset of the same length into this one.
+     */
+    public void or(MinuteBitset other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * OR one day of another bitset into a day of this one.
+     */
+    public void orDay(int day, MinuteBitset source, int sourceDay) {
+        int to = day * DAY_WORDS;
+        int from = sourceDay * DAY_WORDS;
+        for (int i = 0; i < DAY_WORDS; i++) {
+            words[to + i] |= source.words[from + i];
+        }
+    }
+
+    public boolean isBusy(int day, int minute) {
+        return (words[day * DAY_WORDS + (minute >>> 6)] & (1L << minute)) != 0;
+    }
+
+    /**
+     * First free minute of a day at or after fromMinute, or -1 if none before limit.
+     */
+    public int nextFree(int day, int fromMinute, int limit) {
+        return next(day, fromMinute, limit, true);
+    }
+
+    /**
+     * First busy minute of a day at or after fromMinute, or limit if none before it.
+     */
+    public int nextBusy(int day, int fromMinute, int limit) {
+        int minute = next(day, fromMinute, limit, false);
+        return minute < 0 ? limit : minute;
+    }
+
+    // Word-at-a-time scan for the next clear (free) or set (busy) bit
+    private int next(int day, int fromMinute, int limit, boolean free) {
+        if (fromMinute >= limit) return -1;
+        int base = day * DAY_WORDS;
+        int index = fromMinute >>> 6;
+        long word = (free ? ~words[base + index] : words[base + index]) & (-1L << fromMinute);
+        while (true) {
+            if (word != 0) {
+                int minute = (index << 6) + Long.numberOfTrailingZeros(word);
+                return minute < limit ? minute : -1;
+            }
+            if (++index << 6 >= limit) return -1;
+            word = free ? ~words[base + index] : words[base + index];
+        }
+    }
+}
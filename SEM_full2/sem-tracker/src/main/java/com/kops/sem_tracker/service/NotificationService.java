@@ -1,86 +1,143 @@
 package com.kops.sem_tracker.service;
 
-import com.kops.sem_tracker.entyties.Student;
 import com.kops.sem_tracker.entyties.TimeTable;
 import com.kops.sem_tracker.repository.StudentRepository;
-import org.springframework.scheduling.annotation.Scheduled;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
 
+/**
+ * Sends class reminders by email and/or push, as the row's notification preference asks.
+ * Timing is handled by ReminderScheduler, which publishes a ReminderTick with everything due,
+ * grouped by student, so several classes starting close together share one email and one push.
+ *
+ * The email addresses for a whole tick are read with one IN query (per IN_BATCH students),
+ * however many reminders are due in it.
+ */
 @Service
 public class NotificationService {
 
-    private final TimeTableService timetableService;
+    private static final int IN_BATCH = 1000;
+
+    private final ReminderScheduler reminderScheduler;
     private final EmailService emailService;
     private final PushNotificationService pushNotificationService;
     private final StudentRepository studentRepository;
-    private final ConcurrentHashMap<Long, String> scheduledNotifications = new ConcurrentHashMap<>();
 
-    public NotificationService(TimeTableService timetableService,
+    private final Counter recipientQueries;
+    private final DistributionSummary tickRecipientQueries;
+    private final DistributionSummary tickReminders;
+
+    public NotificationService(ReminderScheduler reminderScheduler,
                                EmailService emailService,
                                PushNotificationService pushNotificationService,
-                               StudentRepository studentRepository) {
-        this.timetableService = timetableService;
+                               StudentRepository studentRepository,
+                               MeterRegistry meterRegistry) {
+        this.reminderScheduler = reminderScheduler;
         this.emailService = emailService;
         this.pushNotificationService = pushNotificationService;
         this.studentRepository = studentRepository;
+        this.recipientQueries = Counter.builder("notifications.recipient.queries")
+                .description("Student lookups made to address reminders").register(meterRegistry);
+        this.tickRecipientQueries = DistributionSummary.builder("notifications.tick.recipient_queries")
+                .description("Student lookups per reminder tick").register(meterRegistry);
+        this.tickReminders = DistributionSummary.builder("notifications.tick.reminders")
+                .description("Reminders sent per reminder tick").register(meterRegistry);
     }
 
     public void scheduleNotification(TimeTable event) {
-        // In a real implementation, you would schedule this with a task scheduler
-        // For now, we'll just store it and check periodically
-        scheduledNotifications.put(event.getId(), "SCHEDULED");
+        reminderScheduler.reschedule(event);
     }
 
     public void cancelNotification(TimeTable event) {
-        scheduledNotifications.remove(event.getId());
+        reminderScheduler.cancel(event.getId());
     }
 
-    // Check every minute for events that need notifications
-    @Scheduled(fixedRate = 60000)
-    public void checkForNotifications() {
-        LocalTime now = LocalTime.now();
-        LocalTime checkUntil = now.plusMinutes(15); // Check events in next 15 mins
-
-        List<TimeTable> upcomingEvents = timetableService.getEventsBetween(now, checkUntil);
+    @EventListener
+    public void onReminderTick(ReminderTick tick) {
+        List<String> emailUsernames = new ArrayList<>();
+        for (RemindersDue due : tick.students()) {
+            if (due.username() != null && due.reminders().stream().anyMatch(r -> wantsEmail(r.row()))) {
+                emailUsernames.add(due.username());
+            }
+        }
+        Map<String, String> emails = resolveEmails(emailUsernames);
+        tickReminders.record(tick.reminderCount());
 
-        for (TimeTable event : upcomingEvents) {
-            if (scheduledNotifications.containsKey(event.getId())) {
-                String status = scheduledNotifications.get(event.getId());
+        for (RemindersDue due : tick.students()) {
+            try {
+                List<TimeTable> rows = due.reminders().stream().map(ReminderDue::row).toList();
+                sendNotifications(due.username(), emails.get(due.username()), rows);
+            } catch (RuntimeException e) {
+                System.out.println("❌ Reminders for " + due.username() + " failed: " + e.getMessage());
+            }
+        }
+    }
 
-                if ("SCHEDULED".equals(status)) {
-                    sendNotification(event);
-                    scheduledNotifications.put(event.getId(), "SENT");
-                }
+    // Email addresses of the tick's recipients, IN_BATCH usernames per query
+    private Map<String, String> resolveEmails(List<String> usernames) {
+        Map<String, String> emails = new HashMap<>(usernames.size() * 2);
+        int queries = 0;
+        for (int from = 0; from < usernames.size(); from += IN_BATCH) {
+            List<String> batch = usernames.subList(from, Math.min(usernames.size(), from + IN_BATCH));
+            for (Object[] row : studentRepository.findEmailsByUsernameIn(batch)) {
+                emails.put((String) row[0], (String) row[1]);
             }
+            queries++;
         }
+        recipientQueries.increment(queries);
+        tickRecipientQueries.record(queries);
+        return emails;
     }
 
-    private void sendNotification(TimeTable event) {
-        String message = String.format("Reminder: %s starts at %s",
-                event.getTitle(), event.getStartTime());
+    /**
+     * One email and one push for all of a student's classes starting soon, each to the
+     * rows whose notification preference asks for that channel.
+     */
+    private void sendNotifications(String username, String email, List<TimeTable> events) {
+        List<TimeTable> byEmail = new ArrayList<>();
+        List<TimeTable> byPush = new ArrayList<>();
+        for (TimeTable event : events) {
+            if (wantsEmail(event)) byEmail.add(event);
+            String preference = event.getNotificationPreference();
+            if ("PUSH".equals(preference) || "BOTH".equals(preference)) byPush.add(event);
+        }
+
+        if (!byEmail.isEmpty() && email != null && !email.isBlank()) {
+            emailService.sendClassReminderEmail(email, username, byEmail);
+        }
+
+        if (!byPush.isEmpty()) {
+            // Every device the student registered, or else the rows' own tokens
+            List<String> rowTokens = byPush.stream().map(TimeTable::getDeviceToken).toList();
+            pushNotificationService.sendToStudent(username, rowTokens, "Class Reminder", pushMessage(byPush));
+        }
+    }
 
+    private static boolean wantsEmail(TimeTable event) {
         String preference = event.getNotificationPreference();
+        return "EMAIL".equals(preference) || "BOTH".equals(preference);
+    }
 
-        if ("EMAIL".equals(preference) || "BOTH".equals(preference)) {
-            String email = null;
-            if (event.getUsername() != null) {
-                Optional<Student> studentOpt = studentRepository.findByUsername(event.getUsername());
-                if (studentOpt.isPresent()) {
-                    email = studentOpt.get().getEmail();
-                }
-            }
-            if (email != null && !email.isBlank()) {
-                emailService.sendEmail(email, "Class Reminder", message);
-            }
+    private static String pushMessage(List<TimeTable> events) {
+        List<TimeTable> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparing(TimeTable::getStartTime));
+        if (sorted.size() == 1) {
+            return String.format("Reminder: %s starts at %s", sorted.get(0).getTitle(), sorted.get(0).getStartTime());
         }
-
-        if ("PUSH".equals(preference) || "BOTH".equals(preference)) {
-            pushNotificationService.sendPushNotification(event.getDeviceToken(), message);
+        StringJoiner classes = new StringJoiner(", ", "Reminder: ", "");
+        for (TimeTable event : sorted) {
+            classes.add(event.getTitle() + " at " + event.getStartTime());
         }
+        return classes.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.SchedulerLease;
+import com.kops.sem_tracker.entyties.SchedulerNode;
+import com.kops.sem_tracker.repository.SchedulerLeaseRepository;
+import com.kops.sem_tracker.repository.SchedulerNodeRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Splits the students between the backend nodes that are running, so each class reminder
+ * is sent by exactly one of them.
+ *
+ * Students are hashed into a fixed number of partitions, and each partition has a lease row
+ * in the database. Every heartbeat a node records itself as alive, counts the live nodes,
+ * renews its leases and then sheds or claims partitions until it holds its fair share
+ * (partitions / live nodes, rounded up). A joining node is picked up by the others at their
+ * next heartbeat and gets the partitions they shed; a node that dies stops renewing, and
+ * its partitions are claimed once their leases expire. Leases only change hands through
+ * conditional UPDATEs, which behave the same on MySQL and H2.
+ *
+ * A node trusts its leases only until a third of the lease time before they expire, so it
+ * has stopped sending before another node can take them over, even if it cannot reach the
+ * database to renew. The price is that reminders of a node that dies are not sent until
+ * its leases have expired and been claimed: reminders go out at most once, not exactly once.
+ * With app.cluster.enabled=false a single node owns every student.
+ */
+@Component
+public class PartitionLeases {
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final SchedulerNodeRepository nodeRepository;
+    private final ApplicationEventPublisher publisher;
+
+    private final boolean enabled;
+    private final int partitions;
+    private final String nodeId;
+    private final Duration leaseDuration;
+
+    private volatile Ownership ownership = new Ownership(Set.of(), 0);
+
+    private record Ownership(Set<Integer> partitions, long validUntilMillis) {}
+
+    public PartitionLeases(SchedulerLeaseRepository leaseRepository,
+                           SchedulerNodeRepository nodeRepository,
+                           ApplicationEventPublisher publisher,
+                           @Value("${app.cluster.enabled:false}") boolean enabled,
+                           @Value("${app.cluster.partitions:64}") int partitions,
+                           @Value("${app.cluster.node-id:}") String nodeId,
+                           @Value("${app.cluster.lease-seconds:30}") long leaseSeconds) {
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.publisher = publisher;
+        this.enabled = enabled;
+        this.partitions = Math.max(1, partitions);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.leaseDuration = Duration.ofSeconds(leaseSeconds);
+    }
+
+    // Before the other ApplicationReadyEvent listeners, so reminders due at startup find their owner
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!enabled) return;
+        createMissingLeases();
+        heartbeat();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) return;
+        ownership = new Ownership(Set.of(), 0);
+        try {
+            // Hand the partitions over now instead of when the leases expire
+            leaseRepository.releaseAll(nodeId);
+            nodeRepository.deleteById(nodeId);
+        } catch (RuntimeException e) {
+            System.err.println("[PartitionLeases] Could not release leases of " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renew this node's leases and move towards its fair share of the partitions.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-millis:10000}",
+            initialDelayString = "${app.cluster.heartbeat-millis:10000}")
+    public synchronized void heartbeat() {
+        if (!enabled) return;
+        try {
+            // Taken before any database call: a lease renewed or claimed now expires at expiresAt,
+            // however long the round-trips below take
+            long startedMillis = System.currentTimeMillis();
+            LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(startedMillis), ZoneId.systemDefault());
+            LocalDateTime expiresAt = now.plus(leaseDuration);
+            long validUntil = startedMillis + leaseDuration.toMillis() * 2 / 3;
+            if (nodeRepository.heartbeat(nodeId, now) == 0) {
+                nodeRepository.save(new SchedulerNode(nodeId, now));
+            }
+            long liveNodes = Math.max(1, nodeRepository.countByHeartbeatAtGreaterThanEqual(now.minus(leaseDuration)));
+            int share = (int) ((partitions + liveNodes - 1) / liveNodes);
+
+            leaseRepository.renew(nodeId, now, expiresAt);
+            List<Integer> held = new ArrayList<>(leaseRepository.findHeld(nodeId, now, partitions));
+            while (held.size() > share) {
+                leaseRepository.release(held.remove(held.size() - 1), nodeId);
+            }
+            if (held.size() < share) {
+                List<Integer> claimable = new ArrayList<>(leaseRepository.findClaimable(now, partitions));
+                // Nodes claiming at the same moment mostly try different partitions
+                Collections.shuffle(claimable);
+                for (Integer partition : claimable) {
+                    if (held.size() >= share) break;
+                    if (leaseRepository.claim(partition, nodeId, now, expiresAt) == 1) held.add(partition);
+                }
+            }
+            nodeRepository.deleteStale(now.minus(leaseDuration.multipliedBy(10)));
+
+            update(new Ownership(Set.copyOf(held), validUntil), (int) liveNodes);
+        } catch (RuntimeException e) {
+            System.err.println("[PartitionLeases] Heartbeat of " + nodeId + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether this node sends the student's reminders now.
+     */
+    public boolean owns(String username) {
+        if (!enabled) return true;
+        Ownership current = ownership;
+        return System.currentTimeMillis() < current.validUntilMillis
+                && current.partitions.contains(partitionOf(username));
+    }
+
+    /**
+     * Whether this node runs once-per-cluster jobs such as the daily digest: the holder of partition 0.
+     */
+    public boolean isLeader() {
+        if (!enabled) return true;
+        Ownership current = ownership;
+        return System.currentTimeMillis() < current.validUntilMillis && current.partitions.contains(0);
+    }
+
+    public int partitionOf(String username) {
+        return username == null ? 0 : Math.floorMod(username.hashCode(), partitions);
+    }
+
+    public Set<Integer> heldPartitions() {
+        Ownership current = ownership;
+        return System.currentTimeMillis() < current.validUntilMillis ? current.partitions : Set.of();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // ---------- internals ----------
+
+    private void update(Ownership next, int liveNodes) {
+        Set<Integer> before = ownership.partitions;
+        ownership = next;
+        Set<Integer> gained = new TreeSet<>(next.partitions);
+        gained.removeAll(before);
+        Set<Integer> lost = new TreeSet<>(before);
+        lost.removeAll(next.partitions);
+        if (gained.isEmpty() && lost.isEmpty()) return;
+
+        System.out.println("[PartitionLeases] " + nodeId + " holds " + next.partitions.size() + "/" + partitions
+                + " partitions (" + liveNodes + " live nodes, +" + gained.size() + " -" + lost.size() + ")");
+        publisher.publishEvent(new PartitionsChanged(gained, lost));
+    }
+
+    // One row per partition; nodes starting together may race to insert the same one
+    private void createMissingLeases() {
+        Set<Integer> existing = new HashSet<>();
+        leaseRepository.findAll().forEach(lease -> existing.add(lease.getPartitionId()));
+        for (int partition = 0; partition < partitions; partition++) {
+            if (existing.contains(partition)) continue;
+            try {
+                leaseRepository.save(new SchedulerLease(partition));
+            } catch (DataIntegrityViolationException e) {
+                // Inserted by another node meanwhile
+            }
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) host = "node";
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,8 @@
+package com.kops.sem_tracker.service;
+
+import java.util.Set;
+
+/**
+ * Published by PartitionLeases when this node gains or loses partitions of the students.
+ */
+public record PartitionsChanged(Set<Integer> gained, Set<Integer> lost) {}
@@ -0,0 +1,455 @@
+package com.kops.sem_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client for the push provider's multicast endpoint (FCM legacy HTTP format: one
+ * notification for up to batch-size registration_ids per request).
+ *
+ * send() only queues (token, notification) pairs. A dispatcher thread waits linger-millis
+ * after the first one arrives, groups what has queued up by notification (a reminder has
+ * the same text for every student in the class) and posts one request per batch. Requests
+ * share the HttpClient's keep-alive connections, and at most limit of them are in flight.
+ *
+ * When the provider throttles (429/503), dispatch pauses for its Retry-After (or an
+ * exponential backoff) and limit is halved; every accepted request raises it by one again,
+ * up to max-in-flight. While dispatch is paused the bounded queue fills, and send() then
+ * blocks its caller for up to enqueue-timeout per call before dropping; trySend() drops
+ * straight away. Tokens the provider reports as
+ * unregistered are removed from the DeviceRegistry; temporary per-token errors are retried.
+ */
+@Component
+public class PushGateway {
+
+    private static final Set<String> INVALID_TOKEN_ERRORS = Set.of("NotRegistered", "InvalidRegistration", "MismatchSenderId");
+    private static final Set<String> RETRYABLE_ERRORS = Set.of("Unavailable", "InternalServerError", "DeviceMessageRateExceeded");
+
+    private final DeviceRegistry deviceRegistry;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final BlockingQueue<Outgoing> queue;
+
+    private final boolean enabled;
+    private final URI endpoint;
+    private final String apiKey;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Duration linger;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration requestTimeout;
+    private final Duration enqueueTimeout;
+
+    // Dispatch slots: at most limit requests in flight, none while paused
+    private final ReentrantLock slotLock = new ReentrantLock();
+    private final Condition slotChanged = slotLock.newCondition();
+    private int inFlight;
+    private int limit;
+    private long pausedUntil;
+
+    // Tokens accepted by send() and not yet delivered, dropped as invalid or given up on
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter invalid;
+    private final Counter throttled;
+    private final Counter dropped;
+    private final Timer requestLatency;
+
+    private Thread dispatcher;
+    private ScheduledExecutorService retryExecutor;
+    private volatile boolean running;
+
+    public PushGateway(DeviceRegistry deviceRegistry,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.push.enabled:false}") boolean enabled,
+                       @Value("${app.push.url:https://fcm.googleapis.com/fcm/send}") String url,
+                       @Value("${app.push.api-key:}") String apiKey,
+                       @Value("${app.push.batch-size:500}") int batchSize,
+                       @Value("${app.push.linger-millis:50}") long lingerMillis,
+                       @Value("${app.push.max-in-flight:8}") int maxInFlight,
+                       @Value("${app.push.queue-capacity:50000}") int queueCapacity,
+                       @Value("${app.push.enqueue-timeout-millis:200}") long enqueueTimeoutMillis,
+                       @Value("${app.push.max-attempts:5}") int maxAttempts,
+                       @Value("${app.push.backoff-millis:500}") long backoffMillis,
+                       @Value("${app.push.max-backoff-millis:60000}") long maxBackoffMillis,
+                       @Value("${app.push.request-timeout-seconds:10}") long requestTimeoutSeconds) {
+        this.deviceRegistry = deviceRegistry;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.endpoint = URI.create(url);
+        this.apiKey = apiKey;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.limit = this.maxInFlight;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.linger = Duration.ofMillis(lingerMillis);
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+        this.enqueueTimeout = Duration.ofMillis(enqueueTimeoutMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Gauge.builder("push.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("push.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("push.in_flight.limit", this, gateway -> gateway.currentLimit()).register(meterRegistry);
+        this.sent = Counter.builder("push.sent").description("Tokens the provider accepted").register(meterRegistry);
+        this.failed = Counter.builder("push.failed").description("Tokens given up on").register(meterRegistry);
+        this.invalid = Counter.builder("push.invalid_tokens").description("Tokens removed as unregistered").register(meterRegistry);
+        this.throttled = Counter.builder("push.throttled").description("Requests the provider throttled").register(meterRegistry);
+        this.dropped = Counter.builder("push.dropped").description("Tokens not queued because the queue was full").register(meterRegistry);
+        this.requestLatency = Timer.builder("push.request.latency").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "push-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(this::runDispatcher, "push-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        System.out.println("[PushGateway] Sending to " + endpoint + " (batches of " + batchSize
+                + ", up to " + maxInFlight + " requests in flight)");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) dispatcher.interrupt();
+        if (retryExecutor != null) retryExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue one notification for a set of device tokens. While the queue is full it waits
+     * for up to enqueue-timeout in total, not per token; returns false if any token had to
+     * be dropped.
+     */
+    public boolean send(Collection<String> tokens, String title, String body) {
+        return send(tokens, title, body, enqueueTimeout);
+    }
+
+    /**
+     * Like send(), but never waits: tokens that do not fit in the queue are dropped. For the
+     * reminder wheel's thread, where a wait would hold up every reminder due after this one.
+     */
+    public boolean trySend(Collection<String> tokens, String title, String body) {
+        return send(tokens, title, body, Duration.ZERO);
+    }
+
+    private boolean send(Collection<String> tokens, String title, String body, Duration maxWait) {
+        if (!enabled) {
+            System.out.println("[PushGateway] Push disabled. Would send to " + tokens.size() + " devices: " + title + " - " + body);
+            return true;
+        }
+        Payload payload = new Payload(title, body);
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        boolean all = true;
+        for (String token : tokens) {
+            Outgoing outgoing = new Outgoing(payload, token);
+            pending.incrementAndGet();
+            boolean queued = queue.offer(outgoing);
+            long wait = deadline - System.nanoTime();
+            if (!queued && wait > 0) {
+                try {
+                    queued = queue.offer(outgoing, wait, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!queued) {
+                pending.decrementAndGet();
+                dropped.increment();
+                all = false;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Tokens accepted by send() that have not reached a final outcome yet.
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    int currentLimit() {
+        slotLock.lock();
+        try {
+            return limit;
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    // ---------- dispatch ----------
+
+    private void runDispatcher() {
+        int gatherLimit = batchSize * maxInFlight;
+        try {
+            while (running) {
+                List<Outgoing> gathered = new ArrayList<>();
+                gathered.add(queue.take());
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (gathered.size() < gatherLimit) {
+                    queue.drainTo(gathered, gatherLimit - gathered.size());
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0 || gathered.size() >= gatherLimit) break;
+                    Outgoing next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    gathered.add(next);
+                }
+
+                Map<Payload, Set<String>> byPayload = new LinkedHashMap<>();
+                for (Outgoing outgoing : gathered) {
+                    if (!byPayload.computeIfAbsent(outgoing.payload, payload -> new LinkedHashSet<>()).add(outgoing.token)) {
+                        pending.decrementAndGet(); // same token twice for the same notification
+                    }
+                }
+                for (Map.Entry<Payload, Set<String>> group : byPayload.entrySet()) {
+                    List<String> tokens = new ArrayList<>(group.getValue());
+                    for (int from = 0; from < tokens.size(); from += batchSize) {
+                        List<String> chunk = tokens.subList(from, Math.min(tokens.size(), from + batchSize));
+                        dispatch(new Batch(group.getKey(), List.copyOf(chunk), 1));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(Batch batch) throws InterruptedException {
+        acquireSlot();
+        long started = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(endpoint)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "key=" + apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(requestBody(batch)))
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        requestLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                        completed(batch, response, error);
+                    });
+        } catch (RuntimeException | IOException e) {
+            releaseSlot(false, null);
+            giveUp(batch.tokens.size(), "could not build request: " + e.getMessage());
+        }
+    }
+
+    private byte[] requestBody(Batch batch) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of(
+                "registration_ids", batch.tokens,
+                "priority", "high",
+                "notification", Map.of("title", batch.payload.title, "body", batch.payload.body)));
+    }
+
+    private void completed(Batch batch, HttpResponse<byte[]> response, Throwable error) {
+        if (error != null) {
+            releaseSlot(false, null);
+            retry(batch, batch.tokens, backoff(batch.attempt), error.getClass().getSimpleName() + ": " + error.getMessage());
+            return;
+        }
+        int status = response.statusCode();
+        if (status == 429 || status == 503) {
+            Duration wait = retryAfter(response).orElse(backoff(batch.attempt));
+            throttled.increment();
+            releaseSlot(false, wait);
+            // Not counted as an attempt: the provider asked us to slow down, nothing was wrong with the batch
+            scheduleRetry(new Batch(batch.payload, batch.tokens, batch.attempt), Duration.ZERO);
+            return;
+        }
+        if (status >= 500) {
+            releaseSlot(false, null);
+            retry(batch, batch.tokens, backoff(batch.attempt), "HTTP " + status);
+            return;
+        }
+        releaseSlot(status == 200, null);
+        if (status != 200) {
+            giveUp(batch.tokens.size(), "HTTP " + status + " " + new String(response.body()));
+            return;
+        }
+        handleResults(batch, response.body());
+    }
+
+    private void handleResults(Batch batch, byte[] body) {
+        JsonNode results;
+        try {
+            results = objectMapper.readTree(body).path("results");
+        } catch (IOException e) {
+            results = null;
+        }
+        if (results == null || !results.isArray() || results.size() != batch.tokens.size()) {
+            // Accepted, but without per-token results to act on
+            settle(batch.tokens.size(), sent);
+            return;
+        }
+
+        List<String> unregistered = new ArrayList<>();
+        List<String> again = new ArrayList<>();
+        int delivered = 0;
+        int rejected = 0;
+        for (int i = 0; i < batch.tokens.size(); i++) {
+            String errorCode = results.get(i).path("error").asText(null);
+            if (errorCode == null) delivered++;
+            else if (INVALID_TOKEN_ERRORS.contains(errorCode)) unregistered.add(batch.tokens.get(i));
+            else if (RETRYABLE_ERRORS.contains(errorCode)) again.add(batch.tokens.get(i));
+            else rejected++;
+        }
+        settle(delivered, sent);
+        settle(rejected, failed);
+        if (!unregistered.isEmpty()) {
+            try {
+                deviceRegistry.removeInvalid(unregistered);
+            } catch (RuntimeException e) {
+                System.err.println("[PushGateway] Could not remove " + unregistered.size() + " invalid tokens: " + e.getMessage());
+            }
+            settle(unregistered.size(), invalid);
+        }
+        if (!again.isEmpty()) {
+            retry(batch, again, backoff(batch.attempt), "temporary per-token errors");
+        }
+    }
+
+    private void retry(Batch batch, List<String> tokens, Duration delay, String reason) {
+        if (batch.attempt >= maxAttempts) {
+            giveUp(tokens.size(), reason);
+            return;
+        }
+        scheduleRetry(new Batch(batch.payload, List.copyOf(tokens), batch.attempt + 1), delay);
+    }
+
+    private void scheduleRetry(Batch batch, Duration delay) {
+        if (!running) {
+            giveUp(batch.tokens.size(), "gateway stopped");
+            return;
+        }
+        retryExecutor.schedule(() -> {
+            try {
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                giveUp(batch.tokens.size(), "gateway stopped");
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void giveUp(int tokens, String reason) {
+        settle(tokens, failed);
+        System.err.println("[PushGateway] Giving up on " + tokens + " pushes: " + reason);
+    }
+
+    private void settle(int tokens, Counter outcome) {
+        if (tokens == 0) return;
+        outcome.increment(tokens);
+        pending.addAndGet(-tokens);
+    }
+
+    // ---------- backpressure ----------
+
+    private void acquireSlot() throws InterruptedException {
+        slotLock.lock();
+        try {
+            while (true) {
+                long pause = pausedUntil - System.nanoTime();
+                if (pause > 0) {
+                    slotChanged.awaitNanos(pause);
+                } else if (inFlight < limit) {
+                    inFlight++;
+                    return;
+                } else {
+                    slotChanged.await();
+                }
+            }
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    // accepted: raise the limit by one; pause: halve it and hold all dispatch for that long
+    private void releaseSlot(boolean accepted, Duration pause) {
+        slotLock.lock();
+        try {
+            inFlight--;
+            if (pause != null) {
+                limit = Math.max(1, limit / 2);
+                pausedUntil = Math.max(pausedUntil, System.nanoTime() + pause.toNanos());
+            } else if (accepted && limit < maxInFlight) {
+                limit++;
+            }
+            slotChanged.signalAll();
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    private Optional<Duration> retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").flatMap(value -> {
+            try {
+                Duration wait = Duration.ofSeconds(Long.parseLong(value.trim()));
+                return Optional.of(wait.compareTo(maxBackoff) > 0 ? maxBackoff : wait);
+            } catch (NumberFormatException e) {
+                return Optional.empty(); // HTTP-date form; fall back to our own backoff
+            }
+        });
+    }
+
+    // backoff, 2 x backoff, 4 x backoff, ... capped at maxBackoff
+    Duration backoff(int attempt) {
+        int doublings = Math.min(attempt - 1, 30);
+        Duration delay = backoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private record Payload(String title, String body) {}
+
+    private record Outgoing(Payload payload, String token) {}
+
+    private record Batch(Payload payload, List<String> tokens, int attempt) {}
+}
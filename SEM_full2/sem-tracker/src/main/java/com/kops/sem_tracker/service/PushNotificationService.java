@@ -1,23 +1,54 @@
 package com.kops.sem_tracker.service;
 
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Push notifications to students' devices. Tokens come from the DeviceRegistry, delivery
+ * is batched and rate-limited by the PushGateway.
+ */
 @Service
 public class PushNotificationService {
 
-    // This would integrate with FCM (Firebase Cloud Messaging) or similar service
-    public void sendPushNotification(String deviceToken, String message) {
-        // Implementation would depend on your push notification service
-        // This is a simplified example
-        try {
-            // Make API call to your push notification service
-            // RestTemplate restTemplate = new RestTemplate();
-            // String response = restTemplate.postForObject(...);
-            System.out.println("Sending push to " + deviceToken + ": " + message);
-        } catch (Exception e) {
-            System.err.println("Failed to send push notification: " + e.getMessage());
+    private final PushGateway pushGateway;
+    private final DeviceRegistry deviceRegistry;
+
+    public PushNotificationService(PushGateway pushGateway, DeviceRegistry deviceRegistry) {
+        this.pushGateway = pushGateway;
+        this.deviceRegistry = deviceRegistry;
+    }
+
+    /**
+     * Push to every device the student has registered. Returns false if they have none,
+     * or if the gateway's queue was too full to take them all. Never waits for queue space,
+     * since reminders are sent from the reminder wheel's thread.
+     */
+    public boolean sendToStudent(String username, String title, String message) {
+        return sendToStudent(username, List.of(), title, message);
+    }
+
+    /**
+     * Same, falling back to the given tokens when the student has no registered device:
+     * timetable rows that carry their own device token but have no username, or were saved
+     * before the registry existed.
+     */
+    public boolean sendToStudent(String username, Collection<String> fallbackTokens, String title, String message) {
+        List<String> tokens = username == null ? List.of() : deviceRegistry.tokensFor(username);
+        if (tokens.isEmpty()) {
+            tokens = fallbackTokens.stream()
+                    .filter(token -> token != null && !token.isBlank())
+                    .distinct()
+                    .toList();
         }
+        if (tokens.isEmpty()) return false;
+        return pushGateway.trySend(tokens, title, message);
+    }
+
+    public void sendPushNotification(String deviceToken, String message) {
+        if (deviceToken == null || deviceToken.isBlank()) return;
+        pushGateway.send(List.of(deviceToken), "SEM Tracker", message);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.entyties.TimeTableChange;
+import com.kops.sem_tracker.repository.TimeTableChangeRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps this node's reminder timers, and its other in-memory views of the timetable (search
+ * and availability indexes, schedule and .ics caches, scheduled-hour totals), in step with
+ * timetable writes made on other nodes, by following the timetable change log. Only active
+ * when clustering is enabled; a single node sees every write itself.
+ *
+ * When the node gains partitions it reloads the timers of those partitions' students from
+ * the database as well, so a partition it takes over never depends on changes it might have
+ * missed. Reminders whose time has passed are not sent again by the reload.
+ *
+ * What a reminder does when it fires also depends on the blackout calendar and the device
+ * registry, which are written through whichever node handled the request. Each sync, and
+ * each partition gain, reloads them when their tables have changed.
+ *
+ * Log ids are taken when an entry is inserted, but entries written on different nodes
+ * commit in any order, so id 101 can be visible before id 100. Each sync therefore reads
+ * everything after version, the highest id below which every entry has been applied, and
+ * skips the entries it already applied above it. version only moves past a missing id once
+ * the entry after it has been known for change-gap-seconds: by then the id belongs to an
+ * insert that was rolled back, not to one still committing.
+ */
+@Component
+public class ReminderClusterSync {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final PartitionLeases partitionLeases;
+    private final ReminderScheduler reminderScheduler;
+    private final TimeTableChangeRepository changeRepository;
+    private final TimeTableRepository timetableRepository;
+    private final BlackoutService blackoutService;
+    private final DeviceRegistry deviceRegistry;
+    private final TimeTableSearchIndex searchIndex;
+    private final AvailabilityIndex availabilityIndex;
+    private final UserScheduleCache scheduleCache;
+    private final IcsFeedService icsFeedService;
+    private final ScheduledHoursService scheduledHours;
+
+    private final Duration gapTimeout;
+
+    // Every entry up to version has been applied, and those above it in appliedAbove (id -> when read)
+    private long version;
+    private final TreeMap<Long, Long> appliedAbove = new TreeMap<>();
+    private volatile boolean started;
+
+    public ReminderClusterSync(PartitionLeases partitionLeases,
+                               ReminderScheduler reminderScheduler,
+                               TimeTableChangeRepository changeRepository,
+                               TimeTableRepository timetableRepository,
+                               BlackoutService blackoutService,
+                               DeviceRegistry deviceRegistry,
+                               TimeTableSearchIndex searchIndex,
+                               AvailabilityIndex availabilityIndex,
+                               UserScheduleCache scheduleCache,
+                               IcsFeedService icsFeedService,
+                               ScheduledHoursService scheduledHours,
+                               @Value("${app.cluster.change-gap-seconds:60}") long gapSeconds) {
+        this.partitionLeases = partitionLeases;
+        this.reminderScheduler = reminderScheduler;
+        this.changeRepository = changeRepository;
+        this.timetableRepository = timetableRepository;
+        this.blackoutService = blackoutService;
+        this.deviceRegistry = deviceRegistry;
+        this.searchIndex = searchIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.scheduleCache = scheduleCache;
+        this.icsFeedService = icsFeedService;
+        this.scheduledHours = scheduledHours;
+        this.gapTimeout = Duration.ofSeconds(gapSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        // The scheduler loads every row at startup; follow the log from there
+        version = changeRepository.findLatestVersion();
+        started = true;
+    }
+
+    @EventListener
+    public void onPartitionsChanged(PartitionsChanged change) {
+        // Partitions claimed at startup come before the scheduler's first load, which covers them
+        if (!started || change.gained().isEmpty()) return;
+        refreshSharedState();
+        Set<String> users = new HashSet<>(timetableRepository.findUsernames());
+        users.addAll(reminderScheduler.scheduledUsers());
+        users.removeIf(username -> !change.gained().contains(partitionLeases.partitionOf(username)));
+        reminderScheduler.reloadUsers(users);
+    }
+
+    /**
+     * Apply the changes logged since the last call. Returns how many were applied.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.sync-millis:5000}")
+    public synchronized int sync() {
+        if (!partitionLeases.isEnabled()) return 0;
+        int applied = 0;
+        try {
+            long cursor = version;
+            List<TimeTableChange> changes;
+            do {
+                changes = changeRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.ofSize(PAGE_SIZE));
+                List<TimeTableChange> unseen = changes.stream()
+                        .filter(change -> !appliedAbove.containsKey(change.getId()))
+                        .toList();
+                apply(unseen);
+                long readAt = System.currentTimeMillis();
+                unseen.forEach(change -> appliedAbove.put(change.getId(), readAt));
+                if (!changes.isEmpty()) cursor = changes.get(changes.size() - 1).getId();
+                applied += unseen.size();
+            } while (changes.size() == PAGE_SIZE);
+            advanceVersion();
+            refreshSharedState();
+        } catch (RuntimeException e) {
+            System.err.println("[ReminderClusterSync] Sync failed after version " + version + ": " + e.getMessage());
+        }
+        return applied;
+    }
+
+    private void refreshSharedState() {
+        blackoutService.refreshIfChanged();
+        deviceRegistry.refreshIfChanged();
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    // Move version over applied entries, and over a missing id once the entry after it is old enough
+    private void advanceVersion() {
+        long now = System.currentTimeMillis();
+        while (!appliedAbove.isEmpty()) {
+            Map.Entry<Long, Long> lowest = appliedAbove.firstEntry();
+            boolean gapBelow = lowest.getKey() > version + 1;
+            if (gapBelow && now - lowest.getValue() < gapTimeout.toMillis()) return;
+            version = lowest.getKey();
+            appliedAbove.pollFirstEntry();
+        }
+    }
+
+    // Entries this node wrote itself come back here too; applying them again changes nothing
+    private void apply(List<TimeTableChange> changes) {
+        if (changes.isEmpty()) return;
+        // Last operation per row; users to reload completely; every user touched
+        Map<Long, TimeTableChange.Operation> latest = new LinkedHashMap<>();
+        Set<String> resync = new LinkedHashSet<>();
+        Set<String> users = new LinkedHashSet<>();
+        for (TimeTableChange change : changes) {
+            users.add(change.getUsername());
+            if (change.getOperation() == TimeTableChange.Operation.RESYNC) resync.add(change.getUsername());
+            else latest.put(change.getTimetableId(), change.getOperation());
+        }
+
+        List<Long> live = new ArrayList<>();
+        latest.forEach((id, operation) -> {
+            if (operation == TimeTableChange.Operation.DELETE) {
+                reminderScheduler.cancel(id);
+                searchIndex.remove(id);
+                availabilityIndex.remove(id);
+            } else {
+                live.add(id);
+            }
+        });
+        for (TimeTable row : timetableRepository.findAllById(live)) {
+            reminderScheduler.reschedule(row);
+            searchIndex.index(row);
+            availabilityIndex.index(row);
+        }
+        for (String username : resync) {
+            reminderScheduler.reloadUser(username, timetableRepository.findByUsername(username));
+        }
+        if (!resync.isEmpty()) {
+            // A bulk import has no row ids to follow, so the indexes are rebuilt as on the importing node
+            searchIndex.rebuild();
+            availabilityIndex.rebuild();
+        }
+
+        for (String username : users) {
+            scheduleCache.invalidate(username);
+            icsFeedService.invalidate(username);
+        }
+        scheduledHours.refreshUsers(users);
+    }
+}
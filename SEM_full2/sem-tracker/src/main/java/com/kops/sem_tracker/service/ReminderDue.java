@@ -0,0 +1,12 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Published by ReminderScheduler when a class reminder is due: the row, and the
+ * date and start of the occurrence it is for.
+ */
+public record ReminderDue(TimeTable row, LocalDate date, LocalDateTime startsAt) {}
@@ -0,0 +1,415 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Fires class reminders from an in-memory timer wheel instead of polling the database.
+ *
+ * Every row that wants reminders has exactly one pending timer: for its next occurrence,
+ * at the class start minus the lead time. When it fires, the reminder is published and
+ * the timer for the following occurrence is set, so weekly reminders keep coming.
+ * TimeTableService reschedules a row whenever it is written. A worker thread advances the
+ * wheel once a second, so reminders go out within a second of their time and the database
+ * is only read at startup.
+ *
+ * Reminders are coalesced per student: when one fires, the student's other reminders
+ * due within the coalesce window are taken off the wheel and fire with it, and all of
+ * them go out as one RemindersDue. Two classes starting ten minutes apart then produce
+ * one email and one push instead of two of each. Everything due in a tick is published
+ * together as one ReminderTick.
+ *
+ * With several backend nodes every node keeps every timer, but only publishes the reminders
+ * of students whose partition it holds (see PartitionLeases). A node taking over a partition
+ * therefore already has its timers.
+ *
+ * Only the load at startup catches up: a reminder whose time passed while the node was down
+ * goes out at once if its class has not started yet. Every later reschedule or reload skips
+ * occurrences whose reminder time is already behind the wheel, since this node (or the one
+ * holding the partition then) has sent them.
+ */
+@Component
+public class ReminderScheduler {
+
+    private static final Set<String> REMINDED = Set.of("EMAIL", "PUSH", "BOTH");
+
+    // How far ahead to look for a row's next occurrence (covers any recurrence interval in use)
+    private static final int SEARCH_DAYS = 366;
+
+    private static final int USER_QUERY_CHUNK = 500;
+
+    private final TimeTableRepository timetableRepository;
+    private final BlackoutCalendar blackoutCalendar;
+    private final ApplicationEventPublisher publisher;
+    private final Clock clock;
+    private final Duration lead;
+    private final Duration coalesceWindow;
+    private final Predicate<String> ownsUser;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TimerWheel<ReminderKey> wheel;
+    private final Map<Long, Pending> pendingByRowId = new HashMap<>();
+    private final Map<String, Set<Long>> pendingRowsByUser = new HashMap<>();
+
+    // Rows whose reminder is being sent, and those of them cancelled meanwhile
+    private final Set<Long> firing = new HashSet<>();
+    private final Set<Long> cancelledWhileFiring = new HashSet<>();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Autowired
+    public ReminderScheduler(TimeTableRepository timetableRepository,
+                             BlackoutCalendar blackoutCalendar,
+                             ApplicationEventPublisher publisher,
+                             PartitionLeases partitionLeases,
+                             @Value("${app.reminders.lead-minutes:15}") long leadMinutes,
+                             @Value("${app.reminders.coalesce-minutes:15}") long coalesceMinutes) {
+        this(timetableRepository, blackoutCalendar, publisher, Clock.systemDefaultZone(),
+                Duration.ofMinutes(leadMinutes), Duration.ofMinutes(coalesceMinutes), partitionLeases::owns);
+    }
+
+    ReminderScheduler(TimeTableRepository timetableRepository, BlackoutCalendar blackoutCalendar,
+                      ApplicationEventPublisher publisher, Clock clock, Duration lead) {
+        this(timetableRepository, blackoutCalendar, publisher, clock, lead, Duration.ZERO, username -> true);
+    }
+
+    ReminderScheduler(TimeTableRepository timetableRepository, BlackoutCalendar blackoutCalendar,
+                      ApplicationEventPublisher publisher, Clock clock, Duration lead, Duration coalesceWindow,
+                      Predicate<String> ownsUser) {
+        this.timetableRepository = timetableRepository;
+        this.blackoutCalendar = blackoutCalendar;
+        this.publisher = publisher;
+        this.clock = clock;
+        this.lead = lead;
+        this.coalesceWindow = coalesceWindow;
+        this.ownsUser = ownsUser;
+        this.wheel = new TimerWheel<>(clock.instant().getEpochSecond());
+    }
+
+    /**
+     * One occurrence of a row, the key of its timer.
+     */
+    public record ReminderKey(long timetableId, LocalDate date) {}
+
+    private record Pending(ReminderKey key, TimeTable row, LocalDateTime startsAt) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load(timetableRepository.findAll());
+        running = true;
+        worker = new Thread(this::runWorker, "reminder-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+    }
+
+    /**
+     * Replace all timers with the next reminder of each of the given rows, at startup.
+     * Reminders already due for classes that have not started fire on the next tick.
+     */
+    public void load(Collection<TimeTable> rows) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        lock.lock();
+        try {
+            wheel.clear(clock.instant().getEpochSecond());
+            pendingByRowId.clear();
+            pendingRowsByUser.clear();
+            for (TimeTable row : rows) {
+                scheduleNextLocked(row, now, true);
+            }
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("[ReminderScheduler] " + pendingByRowId.size() + " reminders scheduled");
+    }
+
+    /**
+     * Reload the timers of these students from the database, in chunks, after writes that were
+     * not seen row by row (bulk imports, partitions taken over from another node).
+     */
+    public void reloadUsers(Collection<String> usernames) {
+        List<String> users = new ArrayList<>(new LinkedHashSet<>(usernames));
+        for (int i = 0; i < users.size(); i += USER_QUERY_CHUNK) {
+            List<String> chunk = users.subList(i, Math.min(i + USER_QUERY_CHUNK, users.size()));
+            Map<String, List<TimeTable>> byUser = new HashMap<>();
+            chunk.forEach(username -> byUser.put(username, new ArrayList<>()));
+            for (TimeTable row : timetableRepository.findByUsernameIn(chunk)) {
+                byUser.get(row.getUsername()).add(row);
+            }
+            byUser.forEach(this::reloadUser);
+        }
+    }
+
+    /**
+     * Students that have a timer set.
+     */
+    public Set<String> scheduledUsers() {
+        lock.lock();
+        try {
+            return Set.copyOf(pendingRowsByUser.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recompute a row's next reminder after it was created or changed.
+     */
+    public void reschedule(TimeTable row) {
+        if (row.getId() == null) return;
+        LocalDateTime now = LocalDateTime.now(clock);
+        lock.lock();
+        try {
+            cancelLocked(row.getId());
+            scheduleNextLocked(snapshot(row), now, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace a student's timers with those of the given rows, after writes that were
+     * not seen row by row (bulk imports on another node).
+     */
+    public void reloadUser(String username, Collection<TimeTable> rows) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        lock.lock();
+        try {
+            Set<Long> rowIds = pendingRowsByUser.get(username);
+            if (rowIds != null) List.copyOf(rowIds).forEach(this::cancelLocked);
+            for (TimeTable row : rows) {
+                cancelLocked(row.getId());
+                scheduleNextLocked(snapshot(row), now, false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(Long rowId) {
+        lock.lock();
+        try {
+            cancelLocked(rowId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return wheel.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fire everything due up to the clock's current second, plus whatever the same students
+     * have due within the coalesce window. Returns the number of reminders sent.
+     */
+    public int advance() {
+        List<Pending> due = new ArrayList<>();
+        long now = clock.instant().getEpochSecond();
+        lock.lock();
+        try {
+            wheel.advance(now, key -> due.add(removePendingLocked(key.timetableId())));
+            if (!due.isEmpty() && !coalesceWindow.isZero()) {
+                pullForward(due, now + coalesceWindow.toSeconds());
+            }
+            due.forEach(reminder -> firing.add(reminder.key.timetableId()));
+        } finally {
+            lock.unlock();
+        }
+        if (due.isEmpty()) return 0;
+
+        List<RemindersDue> students = new ArrayList<>();
+        for (List<ReminderDue> reminders : byUser(due)) {
+            students.add(new RemindersDue(reminders.get(0).row().getUsername(), reminders));
+        }
+        ReminderTick tick = new ReminderTick(students);
+        int sent = 0;
+        if (!students.isEmpty()) {
+            try {
+                publisher.publishEvent(tick);
+                sent = tick.reminderCount();
+            } catch (RuntimeException e) {
+                System.out.println("❌ Reminders for " + students.size() + " students failed: " + e.getMessage());
+            }
+        }
+
+        lock.lock();
+        try {
+            for (Pending reminder : due) {
+                long rowId = reminder.key.timetableId();
+                firing.remove(rowId);
+                // Rows rescheduled or cancelled while the reminders were being sent keep that
+                boolean cancelled = cancelledWhileFiring.remove(rowId);
+                if (!cancelled && !pendingByRowId.containsKey(rowId)) {
+                    scheduleNextLocked(reminder.row, reminder.startsAt, false);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sent;
+    }
+
+    // ---------- internals ----------
+
+
+    // Take the other reminders of the students in due that fire by untilSecond off the wheel, into due
+    private void pullForward(List<Pending> due, long untilSecond) {
+        Set<String> users = new HashSet<>();
+        for (Pending reminder : due) {
+            if (reminder.row.getUsername() != null) users.add(reminder.row.getUsername());
+        }
+        for (String username : users) {
+            Set<Long> rowIds = pendingRowsByUser.get(username);
+            if (rowIds == null) continue;
+            for (Long rowId : List.copyOf(rowIds)) {
+                Pending pending = pendingByRowId.get(rowId);
+                if (fireSecond(pending) <= untilSecond) {
+                    wheel.cancel(pending.key);
+                    due.add(removePendingLocked(rowId));
+                }
+            }
+        }
+    }
+
+    // Reminders this node sends and still wanted (not blacked out since the timer was set), one list per student
+    private List<List<ReminderDue>> byUser(List<Pending> due) {
+        Map<String, List<ReminderDue>> byUsername = new LinkedHashMap<>();
+        List<List<ReminderDue>> groups = new ArrayList<>();
+        for (Pending reminder : due) {
+            if (!ownsUser.test(reminder.row.getUsername())) continue;
+            if (blackoutCalendar.suppresses(reminder.row, reminder.key.date())) continue;
+            ReminderDue event = new ReminderDue(reminder.row, reminder.key.date(), reminder.startsAt);
+            String username = reminder.row.getUsername();
+            if (username == null) {
+                groups.add(List.of(event));
+            } else {
+                byUsername.computeIfAbsent(username, name -> {
+                    List<ReminderDue> group = new ArrayList<>();
+                    groups.add(group);
+                    return group;
+                }).add(event);
+            }
+        }
+        return groups;
+    }
+
+    private long fireSecond(Pending pending) {
+        return pending.startsAt.minus(lead).atZone(clock.getZone()).toEpochSecond();
+    }
+
+    private Pending removePendingLocked(Long rowId) {
+        Pending pending = pendingByRowId.remove(rowId);
+        if (pending != null && pending.row.getUsername() != null) {
+            Set<Long> rowIds = pendingRowsByUser.get(pending.row.getUsername());
+            if (rowIds != null) {
+                rowIds.remove(rowId);
+                if (rowIds.isEmpty()) pendingRowsByUser.remove(pending.row.getUsername());
+            }
+        }
+        return pending;
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                advance();
+                Thread.sleep(1000 - clock.millis() % 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("❌ Reminder worker error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void cancelLocked(Long rowId) {
+        if (firing.contains(rowId)) cancelledWhileFiring.add(rowId);
+        Pending pending = removePendingLocked(rowId);
+        if (pending != null) wheel.cancel(pending.key);
+    }
+
+    // Timer for the first occurrence of the row that starts after the given time; without catchUp,
+    // occurrences whose reminder time the wheel has already passed are skipped
+    private void scheduleNextLocked(TimeTable row, LocalDateTime after, boolean catchUp) {
+        if (row.getId() == null || row.getStartTime() == null || !REMINDED.contains(row.getNotificationPreference())) {
+            return;
+        }
+        LocalDate date = after.toLocalDate();
+        for (int i = 0; i <= SEARCH_DAYS; i++, date = date.plusDays(1)) {
+            LocalDateTime startsAt = date.atTime(row.getStartTime());
+            if (startsAt.isAfter(after) && ScheduleExpander.occursOn(row, date) && !blackoutCalendar.suppresses(row, date)) {
+                ReminderKey key = new ReminderKey(row.getId(), date);
+                Pending pending = new Pending(key, row, startsAt);
+                if (!catchUp && fireSecond(pending) < wheel.currentTick()) continue;
+                pendingByRowId.put(row.getId(), pending);
+                if (row.getUsername() != null) {
+                    pendingRowsByUser.computeIfAbsent(row.getUsername(), name -> new HashSet<>()).add(row.getId());
+                }
+                wheel.schedule(key, fireSecond(pending));
+                return;
+            }
+            if (row.isSpecialSchedule() && row.getSpecialLocalDate() != null && !date.isBefore(row.getSpecialLocalDate())) {
+                return;
+            }
+        }
+    }
+
+    // Detached copy, so later changes to the saved entity cannot alter a pending reminder
+    private static TimeTable snapshot(TimeTable row) {
+        TimeTable copy = new TimeTable();
+        copy.setId(row.getId());
+        copy.setSubject(row.getSubject());
+        copy.setTitle(row.getTitle());
+        copy.setLocation(row.getLocation());
+        copy.setLecturer(row.getLecturer());
+        copy.setUsername(row.getUsername());
+        copy.setNotificationPreference(row.getNotificationPreference());
+        copy.setDeviceToken(row.getDeviceToken());
+        copy.setStartTime(row.getStartTime());
+        copy.setEndTime(row.getEndTime());
+        copy.setDay(row.getDay());
+        copy.setWeekly(row.isWeekly());
+        copy.setRecurrenceInterval(row.getRecurrenceInterval());
+        copy.setValidFrom(row.getValidFrom());
+        copy.setValidUntil(row.getValidUntil());
+        copy.setSpecialSchedule(row.isSpecialSchedule());
+        copy.setSpecialLocalDate(row.getSpecialLocalDate());
+        return copy;
+    }
+}
@@ -0,0 +1,14 @@
+package com.kops.sem_tracker.service;
+
+import java.util.List;
+
+/**
+ * Published by ReminderScheduler once per tick with every reminder that became due,
+ * grouped by student, so recipients can be looked up for all of them at once.
+ */
+public record ReminderTick(List<RemindersDue> students) {
+
+    public int reminderCount() {
+        return students.stream().mapToInt(student -> student.reminders().size()).sum();
+    }
+}
@@ -0,0 +1,9 @@
+package com.kops.sem_tracker.service;
+
+import java.util.List;
+
+/**
+ * Every reminder due for one student at once, so they can be sent as one message per
+ * channel. Rows without a username come one per RemindersDue. Part of a ReminderTick.
+ */
+public record RemindersDue(String username, List<ReminderDue> reminders) {}
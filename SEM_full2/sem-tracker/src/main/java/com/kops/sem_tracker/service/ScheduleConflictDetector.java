@@ -0,0 +1,255 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.ScheduleWriteLock;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.ScheduleWriteLockRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Detects time overlaps between a user's schedules.
+ * Candidates are loaded per (username, day) or (username, date) through the composite
+ * indexes on timetables, so a check costs the same no matter how large the table is,
+ * and are searched through a small interval index sorted by start time.
+ * Writes for the same user are serialized by a lock row per user in the database, taken
+ * and given back through conditional UPDATEs, so two concurrent creates cannot both pass
+ * the check even on different nodes. Threads of one node queue on a striped in-process
+ * lock first and so never poll the database for each other. A lock held by a node that
+ * died is taken over once it expires after write-lock-seconds.
+ */
+@Component
+public class ScheduleConflictDetector {
+
+    private static final int LOCK_STRIPES = 64;
+
+    // How far ahead two open-ended weekly rows are compared for a shared date
+    private static final int COMPARE_WEEKS = 52;
+
+    // Longest pause between two attempts to take a lock row held elsewhere
+    private static final long MAX_WAIT_MILLIS = 200;
+
+    private final TimeTableRepository timetableRepository;
+    private final ScheduleWriteLockRepository lockRepository;
+    private final Duration lockDuration;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public ScheduleConflictDetector(TimeTableRepository timetableRepository,
+                                    ScheduleWriteLockRepository lockRepository,
+                                    @Value("${app.timetable.write-lock-seconds:30}") long lockSeconds) {
+        this.timetableRepository = timetableRepository;
+        this.lockRepository = lockRepository;
+        this.lockDuration = Duration.ofSeconds(lockSeconds);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Run an action while holding the write lock of a user.
+     */
+    public <T> T withUserLock(String username, Supplier<T> action) {
+        return withUserLocks(Collections.singleton(username), action);
+    }
+
+    /**
+     * Run an action while holding the write locks of several users (a chunk of a bulk import).
+     * Locks are taken in a fixed order, so callers with overlapping users cannot deadlock.
+     */
+    public <T> T withUserLocks(Collection<String> usernames, Supplier<T> action) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        TreeSet<String> users = new TreeSet<>();
+        for (String username : usernames) {
+            stripes.add(Math.floorMod(Objects.hashCode(username), LOCK_STRIPES));
+            if (username != null) users.add(username);
+        }
+
+        List<ReentrantLock> taken = new ArrayList<>(stripes.size());
+        String holder = UUID.randomUUID().toString();
+        List<String> held = new ArrayList<>(users.size());
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                taken.add(locks[stripe]);
+            }
+            for (String username : users) {
+                acquire(username, holder);
+                held.add(username);
+            }
+            return action.get();
+        } finally {
+            for (String username : held) {
+                release(username, holder);
+            }
+            for (int i = taken.size() - 1; i >= 0; i--) {
+                taken.get(i).unlock();
+            }
+        }
+    }
+
+    // Wait for the user's lock row, creating it on the user's first checked write
+    private void acquire(String username, String holder) {
+        long waitMillis = 5;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            if (lockRepository.acquire(username, holder, now, now.plus(lockDuration)) == 1) return;
+            if (!lockRepository.existsById(username)) {
+                try {
+                    lockRepository.saveAndFlush(new ScheduleWriteLock(username));
+                } catch (DataIntegrityViolationException e) {
+                    // Created by another node at the same time
+                }
+                continue;
+            }
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the schedule lock of " + username, e);
+            }
+            waitMillis = Math.min(waitMillis * 2, MAX_WAIT_MILLIS);
+        }
+    }
+
+    // A lock that cannot be given back now is taken over once it expires
+    private void release(String username, String holder) {
+        try {
+            lockRepository.release(username, holder);
+        } catch (RuntimeException e) {
+            System.err.println("[ScheduleConflictDetector] Could not release the schedule lock of " + username + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find an existing schedule of the same user whose time overlaps the candidate.
+     * The row with id excludeId (the one being updated) is ignored.
+     */
+    public Optional<TimeTable> findConflict(TimeTable candidate, Long excludeId) {
+        if (candidate.getUsername() == null || candidate.getStartTime() == null || candidate.getEndTime() == null) {
+            return Optional.empty();
+        }
+
+        List<TimeTable> rows;
+        LocalDate specialDate = candidate.getSpecialLocalDate();
+        if (candidate.isSpecialSchedule()) {
+            if (specialDate == null) return Optional.empty();
+            rows = timetableRepository.findByUsernameAndDayAndDate(
+                    candidate.getUsername(), specialDate.getDayOfWeek().toString(), specialDate);
+        } else {
+            if (candidate.getDay() == null) return Optional.empty();
+            rows = timetableRepository.findByUsernameAndDay(candidate.getUsername(), candidate.getDay().toUpperCase());
+        }
+
+        return findConflict(candidate, excludeId, rows);
+    }
+
+    /**
+     * Same as findConflict, against rows the caller already loaded (e.g. a bulk import
+     * checking a whole batch in memory). The rows must include every row of the
+     * candidate's user on the candidate's weekday.
+     */
+    public Optional<TimeTable> findConflict(TimeTable candidate, Long excludeId, Collection<TimeTable> rows) {
+        if (candidate.getStartTime() == null || candidate.getEndTime() == null) {
+            return Optional.empty();
+        }
+        IntervalIndex index = new IntervalIndex(rows.stream()
+                .filter(row -> excludeId == null || !excludeId.equals(row.getId()))
+                .filter(row -> row.getStartTime() != null && row.getEndTime() != null)
+                .toList());
+
+        return index.overlapping(candidate.getStartTime(), candidate.getEndTime()).stream()
+                .filter(existing -> shareADate(candidate, existing))
+                .findFirst();
+    }
+
+    // Two rows that overlap in time only clash if they also occur on a common date
+    private boolean shareADate(TimeTable candidate, TimeTable existing) {
+        if (candidate.isSpecialSchedule()) {
+            return ScheduleExpander.occursOn(existing, candidate.getSpecialLocalDate());
+        }
+        if (existing.isSpecialSchedule()) {
+            LocalDate date = existing.getSpecialLocalDate();
+            return date != null && !date.isBefore(LocalDate.now()) && ScheduleExpander.occursOn(candidate, date);
+        }
+
+        // Both regular: compare the candidate's dates with the existing row inside their common validity window
+        LocalDate from = latest(LocalDate.now(), candidate.getValidFrom(), existing.getValidFrom());
+        LocalDate to = from.plusWeeks(COMPARE_WEEKS);
+        if (candidate.getValidUntil() != null && candidate.getValidUntil().isBefore(to)) to = candidate.getValidUntil();
+        if (existing.getValidUntil() != null && existing.getValidUntil().isBefore(to)) to = existing.getValidUntil();
+
+        return ScheduleExpander.expand(List.of(candidate), from, to).stream()
+                .anyMatch(occurrence -> ScheduleExpander.occursOn(existing, occurrence.date()));
+    }
+
+    private static LocalDate latest(LocalDate first, LocalDate... others) {
+        LocalDate result = first;
+        for (LocalDate other : others) {
+            if (other != null && other.isAfter(result)) result = other;
+        }
+        return result;
+    }
+
+    /**
+     * Intervals sorted by start time with a running maximum of end times,
+     * so every interval overlapping [start, end) is found with one binary search
+     * and a backwards scan that stops as soon as no earlier interval can reach start.
+     */
+    static final class IntervalIndex {
+        private final List<TimeTable> byStart;
+        private final LocalTime[] maxEndUpTo;
+
+        IntervalIndex(List<TimeTable> rows) {
+            this.byStart = new ArrayList<>(rows);
+            this.byStart.sort(Comparator.comparing(TimeTable::getStartTime));
+            this.maxEndUpTo = new LocalTime[byStart.size()];
+            LocalTime max = LocalTime.MIN;
+            for (int i = 0; i < byStart.size(); i++) {
+                LocalTime end = byStart.get(i).getEndTime();
+                if (end.isAfter(max)) max = end;
+                maxEndUpTo[i] = max;
+            }
+        }
+
+        List<TimeTable> overlapping(LocalTime start, LocalTime end) {
+            // Last interval that starts before end
+            int low = 0;
+            int high = byStart.size() - 1;
+            int last = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (byStart.get(mid).getStartTime().isBefore(end)) {
+                    last = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            List<TimeTable> result = new ArrayList<>();
+            for (int i = last; i >= 0 && maxEndUpTo[i].isAfter(start); i--) {
+                if (byStart.get(i).getEndTime().isAfter(start)) {
+                    result.add(byStart.get(i));
+                }
+            }
+            return result;
+        }
+    }
+}
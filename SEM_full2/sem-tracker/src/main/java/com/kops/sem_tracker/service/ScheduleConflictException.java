@@ -0,0 +1,22 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+
+/**
+ * Thrown when a schedule would overlap another schedule of the same user.
+ */
+public class ScheduleConflictException extends RuntimeException {
+
+    private final TimeTable conflicting;
+
+    public ScheduleConflictException(TimeTable conflicting) {
+        super("Schedule overlaps with \"" + conflicting.getSubject() + "\" (" +
+                (conflicting.isSpecialSchedule() ? conflicting.getSpecialDate() : conflicting.getDay()) + " " +
+                conflicting.getFormattedTimeRange() + ")");
+        this.conflicting = conflicting;
+    }
+
+    public TimeTable getConflicting() {
+        return conflicting;
+    }
+}
@@ -0,0 +1,122 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Expands TimeTable rows into dated occurrences in memory.
+ * Callers load the rows once and expand any date window from them,
+ * instead of querying the repository once per calendar day.
+ */
+public final class ScheduleExpander {
+
+    // Monday used to align bi-weekly rows that have no validFrom anchor
+    private static final LocalDate DEFAULT_ANCHOR = LocalDate.of(1970, 1, 5);
+
+    private static final Comparator<ScheduleOccurrence> ORDER = Comparator
+            .comparing(ScheduleOccurrence::date)
+            .thenComparing(ScheduleOccurrence::startTime, Comparator.nullsLast(Comparator.<LocalTime>naturalOrder()))
+            .thenComparing(ScheduleOccurrence::id, Comparator.nullsLast(Comparator.<Long>naturalOrder()));
+
+    private ScheduleExpander() {}
+
+    /**
+     * Expand rows into occurrences between from and to (both inclusive), sorted by date and start time.
+     */
+    public static List<ScheduleOccurrence> expand(Collection<TimeTable> rows, LocalDate from, LocalDate to) {
+        List<ScheduleOccurrence> occurrences = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return occurrences;
+        }
+
+        for (TimeTable row : rows) {
+            if (row.isSpecialSchedule()) {
+                LocalDate date = row.getSpecialLocalDate();
+                if (date != null && !date.isBefore(from) && !date.isAfter(to)) {
+                    occurrences.add(ScheduleOccurrence.of(row, date));
+                }
+            } else {
+                expandRegular(row, from, to, occurrences);
+            }
+        }
+
+        occurrences.sort(ORDER);
+        return occurrences;
+    }
+
+    /**
+     * Check whether a row has an occurrence on the given date.
+     */
+    public static boolean occursOn(TimeTable row, LocalDate date) {
+        if (row.isSpecialSchedule()) {
+            return date.equals(row.getSpecialLocalDate());
+        }
+        List<ScheduleOccurrence> single = new ArrayList<>(1);
+        expandRegular(row, date, date, single);
+        return !single.isEmpty();
+    }
+
+    private static void expandRegular(TimeTable row, LocalDate from, LocalDate to, List<ScheduleOccurrence> out) {
+        DayOfWeek dayOfWeek = parseDay(row.getDay());
+        if (dayOfWeek == null) {
+            return;
+        }
+
+        LocalDate start = from;
+        LocalDate end = to;
+        if (row.getValidFrom() != null && row.getValidFrom().isAfter(start)) {
+            start = row.getValidFrom();
+        }
+        if (row.getValidUntil() != null && row.getValidUntil().isBefore(end)) {
+            end = row.getValidUntil();
+        }
+        if (start.isAfter(end)) {
+            return;
+        }
+
+        // A non-weekly row with an anchor happens once: on its first matching day from validFrom
+        if (!row.isWeekly() && row.getValidFrom() != null) {
+            LocalDate once = row.getValidFrom().with(TemporalAdjusters.nextOrSame(dayOfWeek));
+            if (!once.isBefore(start) && !once.isAfter(end)) {
+                out.add(ScheduleOccurrence.of(row, once));
+            }
+            return;
+        }
+
+        int interval = row.getRecurrenceInterval() != null && row.getRecurrenceInterval() > 1
+                ? row.getRecurrenceInterval() : 1;
+
+        LocalDate date = start.with(TemporalAdjusters.nextOrSame(dayOfWeek));
+        if (interval > 1) {
+            LocalDate anchor = (row.getValidFrom() != null ? row.getValidFrom() : DEFAULT_ANCHOR)
+                    .with(TemporalAdjusters.nextOrSame(dayOfWeek));
+            long offset = Math.floorMod(ChronoUnit.WEEKS.between(anchor, date), interval);
+            if (offset != 0) {
+                date = date.plusWeeks(interval - offset);
+            }
+        }
+
+        while (!date.isAfter(end)) {
+            out.add(ScheduleOccurrence.of(row, date));
+            date = date.plusWeeks(interval);
+        }
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        if (day == null) return null;
+        try {
+            return DayOfWeek.valueOf(day.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.kops.sem_tracker.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kops.sem_tracker.entyties.TimeTable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A single dated occurrence of a TimeTable row.
+ * Immutable, so the same weekly row can appear on many dates without the
+ * dates overwriting each other (unlike TimeTable.displayDate).
+ * JSON field names match TimeTable so existing clients keep working.
+ */
+public record ScheduleOccurrence(
+        Long id,
+        @JsonIgnore LocalDate date,
+        String day,
+        LocalTime startTime,
+        LocalTime endTime,
+        String subject,
+        String title,
+        String location,
+        String lecturer,
+        String description,
+        boolean specialSchedule,
+        String username,
+        String notificationPreference) {
+
+    public static ScheduleOccurrence of(TimeTable row, LocalDate date) {
+        return new ScheduleOccurrence(
+                row.getId(),
+                date,
+                date.getDayOfWeek().toString(),
+                row.getStartTime(),
+                row.getEndTime(),
+                row.getSubject(),
+                row.getTitle(),
+                row.getLocation(),
+                row.getLecturer(),
+                row.getDescription(),
+                row.isSpecialSchedule(),
+                row.getUsername(),
+                row.getNotificationPreference());
+    }
+
+    @JsonProperty("displayDate")
+    public String displayDate() {
+        return date.toString();
+    }
+
+    @JsonProperty("specialDate")
+    public String specialDate() {
+        return specialSchedule ? date.toString() : null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.AttendanceSummary;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.AttendanceSummaryRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scheduled hours per (student, module), derived from the student's timetable: every
+ * occurrence of a row in the semester window counts its length towards the row's subject,
+ * except regular classes cancelled by a blackout. The student is the timetable username
+ * and the module the subject, as the attendance pages use them.
+ *
+ * The totals are kept in attendance_summary next to the attended hours, so a percentage
+ * or eligibility check is a single-row read that every node sees. They are computed for
+ * all users when the application is ready, then recomputed for one user whenever one of
+ * their timetable rows or blackouts changes; only the totals that moved are written.
+ *
+ * Without configured dates the window is the half-year we are in, resolved on every
+ * computation, and all totals are recomputed when a new half-year starts.
+ */
+@Service
+public class ScheduledHoursService {
+
+    private static final int USER_QUERY_CHUNK = 500;
+    private static final double EPSILON = 1e-9;
+
+    private final TimeTableRepository timetableRepository;
+    private final AttendanceSummaryRepository summaryRepository;
+    private final AttendanceService attendanceService;
+    private final BlackoutCalendar blackoutCalendar;
+    private final Clock clock;
+    // null when not configured
+    private final LocalDate configuredStart;
+    private final LocalDate configuredEnd;
+
+    /**
+     * The dates scheduled hours are counted between, both inclusive.
+     */
+    record Window(LocalDate start, LocalDate end) {}
+
+    @Autowired
+    public ScheduledHoursService(TimeTableRepository timetableRepository,
+                                 AttendanceSummaryRepository summaryRepository,
+                                 AttendanceService attendanceService,
+                                 BlackoutCalendar blackoutCalendar,
+                                 @Value("${app.semester.start:}") String semesterStart,
+                                 @Value("${app.semester.end:}") String semesterEnd) {
+        this(timetableRepository, summaryRepository, attendanceService, blackoutCalendar,
+                semesterStart, semesterEnd, Clock.systemDefaultZone());
+    }
+
+    ScheduledHoursService(TimeTableRepository timetableRepository,
+                          AttendanceSummaryRepository summaryRepository,
+                          AttendanceService attendanceService,
+                          BlackoutCalendar blackoutCalendar,
+                          String semesterStart,
+                          String semesterEnd,
+                          Clock clock) {
+        this.timetableRepository = timetableRepository;
+        this.summaryRepository = summaryRepository;
+        this.attendanceService = attendanceService;
+        this.blackoutCalendar = blackoutCalendar;
+        this.clock = clock;
+        this.configuredStart = semesterStart.isBlank() ? null : LocalDate.parse(semesterStart);
+        this.configuredEnd = semesterEnd.isBlank() ? null : LocalDate.parse(semesterEnd);
+        Window window = window();
+        if (window.end().isBefore(window.start())) {
+            throw new IllegalArgumentException("app.semester.end must not be before app.semester.start");
+        }
+    }
+
+    public LocalDate getSemesterStart() {
+        return window().start();
+    }
+
+    public LocalDate getSemesterEnd() {
+        return window().end();
+    }
+
+    // Configured dates, or the half-year we are in
+    Window window() {
+        LocalDate today = LocalDate.now(clock);
+        LocalDate halfStart = today.withDayOfMonth(1).withMonth(today.getMonthValue() <= 6 ? 1 : 7);
+        return new Window(configuredStart != null ? configuredStart : halfStart,
+                configuredEnd != null ? configuredEnd : halfStart.plusMonths(6).minusDays(1));
+    }
+
+    // After the blackout calendar has loaded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void rebuild() {
+        Window window = window();
+        Map<String, Map<String, Double>> computed = compute(timetableRepository.findAll(), window);
+        int written = write(computed, summaryRepository.findAll());
+        System.out.println("[ScheduledHoursService] Scheduled hours for " + computed.size() + " users between "
+                + window.start() + " and " + window.end() + ", " + written + " totals updated");
+    }
+
+    // A default window moves at midnight on 1 January and 1 July
+    @Scheduled(cron = "0 0 0 1 1,7 *")
+    public void rebuildForNewHalfYear() {
+        if (configuredStart != null && configuredEnd != null) return;
+        rebuild();
+    }
+
+    public void refreshUser(String username) {
+        if (username != null) refreshUsers(List.of(username));
+    }
+
+    /**
+     * Recompute the totals of these users from their current timetable rows.
+     * A failure is logged rather than thrown: the timetable write that triggered it has
+     * already happened, and the next change or restart corrects the totals.
+     */
+    public void refreshUsers(Collection<String> usernames) {
+        List<String> users = new ArrayList<>(new LinkedHashSet<>(usernames));
+        Window window = window();
+        try {
+            for (int i = 0; i < users.size(); i += USER_QUERY_CHUNK) {
+                List<String> chunk = users.subList(i, Math.min(i + USER_QUERY_CHUNK, users.size()));
+                write(compute(timetableRepository.findByUsernameIn(chunk), window), summaryRepository.findByStudentIdIn(chunk));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[ScheduledHoursService] Could not update scheduled hours for " + users + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A student's scheduled hours per subject from the start of the semester window up to and
+     * including a date. Not stored, since it moves every day; computed from their timetable.
+     */
+    public Map<String, Double> scheduledUntil(String username, LocalDate date) {
+        Window window = window();
+        LocalDate end = date.isBefore(window.end()) ? date : window.end();
+        if (username == null || end.isBefore(window.start())) return Map.of();
+        return compute(timetableRepository.findByUsername(username), new Window(window.start(), end))
+                .getOrDefault(username, Map.of());
+    }
+
+    /**
+     * Scheduled hours per user and subject in the semester window, blackouts excluded.
+     */
+    Map<String, Map<String, Double>> compute(Collection<TimeTable> rows, Window window) {
+        Map<String, Map<String, Double>> hours = new HashMap<>();
+        for (TimeTable row : rows) {
+            if (row.getUsername() == null || row.getSubject() == null
+                    || row.getStartTime() == null || row.getEndTime() == null) continue;
+            long minutes = Duration.between(row.getStartTime(), row.getEndTime()).toMinutes();
+            if (minutes <= 0) continue;
+
+            int occurrences = blackoutCalendar.filter(ScheduleExpander.expand(List.of(row), window.start(), window.end())).size();
+            if (occurrences == 0) continue;
+            hours.computeIfAbsent(row.getUsername(), user -> new HashMap<>())
+                    .merge(row.getSubject(), occurrences * minutes / 60.0, Double::sum);
+        }
+        return hours;
+    }
+
+    // Write the totals that differ from the stored summaries; stored ones no longer scheduled go to 0
+    private int write(Map<String, Map<String, Double>> computed, Collection<AttendanceSummary> stored) {
+        Map<AttendanceService.SummaryKey, Double> changed = new HashMap<>();
+        Set<AttendanceService.SummaryKey> present = new HashSet<>();
+        for (AttendanceSummary summary : stored) {
+            AttendanceService.SummaryKey key = new AttendanceService.SummaryKey(summary.getStudentId(), summary.getModuleName());
+            present.add(key);
+            double hours = computed.getOrDefault(summary.getStudentId(), Map.of()).getOrDefault(summary.getModuleName(), 0.0);
+            if (Math.abs(summary.getTotalScheduledHours() - hours) > EPSILON) changed.put(key, hours);
+        }
+        computed.forEach((username, bySubject) -> bySubject.forEach((subject, hours) -> {
+            AttendanceService.SummaryKey key = new AttendanceService.SummaryKey(username, subject);
+            if (!present.contains(key)) changed.put(key, hours);
+        }));
+        if (!changed.isEmpty()) attendanceService.setScheduledHours(changed);
+        return changed.size();
+    }
+}
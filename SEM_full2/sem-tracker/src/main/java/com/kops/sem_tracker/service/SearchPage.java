@@ -0,0 +1,13 @@
+package com.kops.sem_tracker.service;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results.
+ */
+public record SearchPage<T>(List<T> results, long total, int page, int size) {
+
+    public int totalPages() {
+        return size == 0 ? 0 : (int) ((total + size - 1) / size);
+    }
+}
@@ -1,34 +1,135 @@
 package com.kops.sem_tracker.service;
 
 import com.kops.sem_tracker.entyties.SubjectAttendanceSettings;
+import com.kops.sem_tracker.repository.SubjectAttendanceSettingsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Per-subject attendance settings (minimum percentage, fallback scheduled hours) and the
+ * eligibility of a student in each subject against them.
+ *
+ * A student's settings are read through a small cache, invalidated when they save one.
+ * Eligibility for all subjects comes from one query joining the attendance summaries with
+ * the settings; the summaries are kept current by AttendanceService and ScheduledHoursService,
+ * so nothing needs recalculating here when attendance changes. Only the hours scheduled so
+ * far, which the percentage to date is measured against, are read from the timetable.
+ */
 @Service
 public class SubjectAttendanceService {
 
-    // Update all subject attendance (you should implement actual logic here)
-    public void updateAllSubjectAttendance(String studentId, String moduleName) {
-        // TODO: implement logic to recalculate subject attendance for this student & module
+    private final SubjectAttendanceSettingsRepository settingsRepository;
+    private final AttendanceService attendanceService;
+    private final ScheduledHoursService scheduledHours;
+    private final ExpiringLruCache<String, List<SubjectAttendanceSettings>> cache;
+    private final double defaultMinPercentage;
+
+    public SubjectAttendanceService(SubjectAttendanceSettingsRepository settingsRepository,
+                                    AttendanceService attendanceService,
+                                    ScheduledHoursService scheduledHours,
+                                    @Value("${app.subject-settings.cache-size:10000}") int cacheSize,
+                                    @Value("${app.subject-settings.ttl-minutes:10}") long ttlMinutes,
+                                    @Value("${app.attendance.default-min-percentage:75}") double defaultMinPercentage) {
+        this.settingsRepository = settingsRepository;
+        this.attendanceService = attendanceService;
+        this.scheduledHours = scheduledHours;
+        this.cache = new ExpiringLruCache<>(cacheSize, Duration.ofMinutes(ttlMinutes));
+        this.defaultMinPercentage = defaultMinPercentage;
     }
 
     // Get summary of attendance settings for a student
     public List<SubjectAttendanceSettings> getAttendanceSummary(String studentId) {
-        // TODO: fetch from repository
-        return List.of(); // return empty list for now
+        return cache.get(studentId, id -> List.copyOf(settingsRepository.findByStudentIdOrderBySubjectName(id)));
     }
 
-    // Save or update attendance settings
+    // Save or update attendance settings; one row per (student, subject)
     public SubjectAttendanceSettings saveSettings(SubjectAttendanceSettings settings) {
-        // TODO: save using repository
-        return settings;
+        String studentId = settings.getStudentId() != null ? settings.getStudentId().trim() : "";
+        String subjectName = settings.getSubjectName() != null ? settings.getSubjectName().trim() : "";
+        if (studentId.isEmpty()) throw new IllegalArgumentException("Student id is required");
+        if (subjectName.isEmpty()) throw new IllegalArgumentException("Subject name is required");
+        if (!(settings.getMinPercentage() >= 0 && settings.getMinPercentage() <= 100)) {
+            throw new IllegalArgumentException("Minimum percentage must be between 0 and 100");
+        }
+        if (!(settings.getTotalScheduledHours() >= 0)) {
+            throw new IllegalArgumentException("Total scheduled hours must not be negative");
+        }
+
+        SubjectAttendanceSettings saved;
+        try {
+            saved = store(settingsRepository.findByStudentIdAndSubjectName(studentId, subjectName)
+                    .orElseGet(SubjectAttendanceSettings::new), studentId, subjectName, settings);
+        } catch (DataIntegrityViolationException e) {
+            // Another request inserted the row after we looked for it: update that one instead
+            saved = store(settingsRepository.findByStudentIdAndSubjectName(studentId, subjectName)
+                    .orElseThrow(() -> e), studentId, subjectName, settings);
+        }
+
+        // So the subject shows up in the eligibility list before any attendance is recorded
+        attendanceService.ensureSummaries(List.of(new AttendanceService.SummaryKey(studentId, subjectName)));
+        cache.invalidate(studentId);
+        return saved;
+    }
+
+    private SubjectAttendanceSettings store(SubjectAttendanceSettings stored, String studentId, String subjectName,
+                                            SubjectAttendanceSettings settings) {
+        stored.setStudentId(studentId);
+        stored.setSubjectName(subjectName);
+        stored.setMinPercentage(settings.getMinPercentage());
+        stored.setTotalScheduledHours(settings.getTotalScheduledHours());
+        return settingsRepository.save(stored);
     }
 
     // Get a specific subject's settings
     public Optional<SubjectAttendanceSettings> getSubjectSettings(String studentId, String subjectName) {
-        // TODO: fetch from repository
-        return Optional.empty();
+        return getAttendanceSummary(studentId).stream()
+                .filter(settings -> settings.getSubjectName().equals(subjectName))
+                .findFirst();
+    }
+
+    /**
+     * Eligibility in every subject the student has a summary for, from one query over the
+     * summaries and settings and one read of the student's timetable. Subjects
+     * without settings use the default minimum percentage; the settings' scheduled hours
+     * are used only when the timetable schedules nothing for the subject.
+     *
+     * The current percentage and the hours still needed count the whole semester, as every
+     * other attendance endpoint does; the percentage to date counts only the hours scheduled
+     * up to today, so it is not diluted by classes that have not happened yet.
+     */
+    public List<SubjectEligibility> getEligibility(String studentId) {
+        return getEligibility(studentId, LocalDate.now());
+    }
+
+    List<SubjectEligibility> getEligibility(String studentId, LocalDate today) {
+        List<SubjectAttendanceSettingsRepository.EligibilityRow> rows = settingsRepository.findEligibilityRows(studentId);
+        Map<String, Double> toDateBySubject = rows.isEmpty() ? Map.of() : scheduledHours.scheduledUntil(studentId, today);
+        List<SubjectEligibility> result = new ArrayList<>();
+        for (SubjectAttendanceSettingsRepository.EligibilityRow row : rows) {
+            double attended = row.getAttendedHours();
+            double scheduled = row.getScheduledHours();
+            double toDate = toDateBySubject.getOrDefault(row.getSubjectName(), 0.0);
+            if (scheduled <= 0 && row.getSettingsScheduledHours() != null) {
+                // Not in the timetable, so there is no way to tell how much of it is behind us
+                scheduled = row.getSettingsScheduledHours();
+                toDate = scheduled;
+            }
+            double minPercentage = row.getMinPercentage() != null ? row.getMinPercentage() : defaultMinPercentage;
+            double current = scheduled > 0 ? attended / scheduled * 100 : 0;
+            double currentToDate = toDate > 0 ? attended / toDate * 100 : 0;
+            double required = minPercentage / 100.0 * scheduled;
+            double moreNeeded = Math.max(0, required - attended);
+            result.add(new SubjectEligibility(row.getSubjectName(), attended, scheduled, toDate, current, currentToDate,
+                    minPercentage, required, moreNeeded, moreNeeded == 0));
+        }
+        return result;
     }
 }
@@ -0,0 +1,12 @@
+package com.kops.sem_tracker.service;
+
+/**
+ * Where a student stands in one subject against its minimum attendance percentage.
+ * currentPercentage and the hours still needed are measured against the subject's scheduled
+ * hours for the whole semester, like the stored attendance summaries; percentageToDate
+ * against the hours scheduled so far.
+ */
+public record SubjectEligibility(String subjectName, double attendedHours, double scheduledHours,
+                                 double scheduledHoursToDate, double currentPercentage, double percentageToDate,
+                                 double minPercentage, double requiredHours, double moreHoursNeeded, boolean eligible) {
+}
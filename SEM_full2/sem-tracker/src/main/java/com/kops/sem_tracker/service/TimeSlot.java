@@ -0,0 +1,15 @@
+package com.kops.sem_tracker.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A free (or busy) stretch of time on one date.
+ */
+public record TimeSlot(LocalDate date, LocalTime start, LocalTime end) {
+
+    public long minutes() {
+        return Duration.between(start, end).toMinutes();
+    }
+}
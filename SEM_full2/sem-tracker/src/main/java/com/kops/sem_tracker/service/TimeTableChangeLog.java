@@ -0,0 +1,168 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.entyties.TimeTableChange;
+import com.kops.sem_tracker.repository.TimeTableChangeRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only log of timetable writes, so clients can fetch what changed since
+ * the version they hold instead of their whole timetable.
+ *
+ * Appends are serialized, and each one commits in its own transaction before the next
+ * id is taken. A reader therefore never sees version N while a smaller version from the
+ * same node is still uncommitted, and "everything after the highest version I have seen"
+ * loses nothing. Entries appended on different nodes can still commit out of id order, so
+ * a delta stops below the first missing id that may still be committing: one whose next
+ * entry was logged less than change-gap-seconds ago (ReminderClusterSync uses the same rule).
+ * A write made inside a transaction is logged once that transaction has committed.
+ */
+@Service
+public class TimeTableChangeLog {
+
+    public static final int MAX_LIMIT = 5000;
+
+    private final TimeTableChangeRepository changeRepository;
+    private final TimeTableRepository timetableRepository;
+    private final TransactionTemplate newTransaction;
+    private final Duration gapTimeout;
+
+    public TimeTableChangeLog(TimeTableChangeRepository changeRepository, TimeTableRepository timetableRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.cluster.change-gap-seconds:60}") long gapSeconds) {
+        this.changeRepository = changeRepository;
+        this.timetableRepository = timetableRepository;
+        this.gapTimeout = Duration.ofSeconds(gapSeconds);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void recordCreate(TimeTable row) {
+        append(List.of(new TimeTableChange(row.getId(), row.getUsername(), TimeTableChange.Operation.CREATE)));
+    }
+
+    public void recordUpdate(TimeTable row) {
+        append(List.of(new TimeTableChange(row.getId(), row.getUsername(), TimeTableChange.Operation.UPDATE)));
+    }
+
+    /**
+     * Tombstones for deleted rows.
+     */
+    public void recordDeletes(Collection<TimeTable> rows) {
+        append(rows.stream()
+                .map(row -> new TimeTableChange(row.getId(), row.getUsername(), TimeTableChange.Operation.DELETE))
+                .toList());
+    }
+
+    /**
+     * Ask the users' clients to refetch everything, after writes that bypass the entity
+     * layer (bulk imports) and so have no row ids to log.
+     */
+    public void recordResync(Collection<String> usernames) {
+        append(usernames.stream()
+                .map(username -> new TimeTableChange(null, username, TimeTableChange.Operation.RESYNC))
+                .toList());
+    }
+
+    private void append(List<TimeTableChange> changes) {
+        if (changes.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    commit(changes);
+                }
+            });
+        } else {
+            commit(changes);
+        }
+    }
+
+    private synchronized void commit(List<TimeTableChange> changes) {
+        newTransaction.executeWithoutResult(status -> changeRepository.saveAll(changes));
+    }
+
+    /**
+     * What changed in a user's timetable after a version. Several changes of one row
+     * collapse into its current state or its tombstone. since <= 0 (first sync), or a
+     * RESYNC entry in the range, returns a snapshot of the whole timetable instead.
+     */
+    public TimeTableChanges changesSince(String username, long since, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (since <= 0) return snapshot(username);
+
+        List<TimeTableChange> changes = changeRepository.findByUsernameAndIdGreaterThanOrderByIdAsc(
+                username, since, PageRequest.ofSize(limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) changes = changes.subList(0, limit);
+        // Handing out a version above a missing id would make the client skip that entry for good
+        long settled = changes.isEmpty() ? Long.MAX_VALUE : settledVersion(since);
+        if (!changes.isEmpty() && changes.get(changes.size() - 1).getId() > settled) {
+            changes = changes.stream().filter(change -> change.getId() <= settled).toList();
+            hasMore = false;
+        }
+        if (changes.isEmpty()) return new TimeTableChanges(since, List.of(), List.of(), false, false);
+
+        // Last operation per row, in order of first appearance
+        Map<Long, TimeTableChange.Operation> latest = new LinkedHashMap<>();
+        for (TimeTableChange change : changes) {
+            if (change.getOperation() == TimeTableChange.Operation.RESYNC) return snapshot(username);
+            latest.put(change.getTimetableId(), change.getOperation());
+        }
+        long version = changes.get(changes.size() - 1).getId();
+
+        List<Long> live = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        latest.forEach((id, operation) -> (operation == TimeTableChange.Operation.DELETE ? deleted : live).add(id));
+
+        // Rows are read after the log, so they are at least as new as version
+        Map<Long, TimeTable> rows = timetableRepository.findAllById(live).stream()
+                .collect(Collectors.toMap(TimeTable::getId, Function.identity()));
+        List<TimeTable> upserted = new ArrayList<>(rows.size());
+        for (Long id : live) {
+            TimeTable row = rows.get(id);
+            // Deleted after the page we read; its tombstone comes with the next request as well
+            if (row == null) deleted.add(id);
+            else upserted.add(row);
+        }
+        return new TimeTableChanges(version, upserted, deleted, false, hasMore);
+    }
+
+    // Highest version below the first missing id after since that may still be committing
+    private long settledVersion(long since) {
+        List<Long> recent = changeRepository.findIdsLoggedSince(since, LocalDateTime.now().minus(gapTimeout));
+        if (recent.isEmpty()) return Long.MAX_VALUE;
+        long previous = changeRepository.findMaxIdBetween(since, recent.get(0));
+        for (long id : recent) {
+            if (id > previous + 1) return previous;
+            previous = id;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    // The version is read before the rows, so a write in between is sent again next time rather than lost
+    private TimeTableChanges snapshot(String username) {
+        long version = changeRepository.findLatestVersion();
+        return new TimeTableChanges(version, timetableRepository.findByUsername(username), List.of(), true, false);
+    }
+}
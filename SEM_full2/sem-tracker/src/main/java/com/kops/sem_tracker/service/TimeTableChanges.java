@@ -0,0 +1,14 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+
+import java.util.List;
+
+/**
+ * Answer to a delta sync request: rows created or updated since the client's version
+ * (current state, one entry per row) and ids of rows deleted since then.
+ * With snapshot=true, upserted is the user's whole timetable and the client replaces
+ * its copy instead of merging. With hasMore=true the client asks again from version.
+ */
+public record TimeTableChanges(long version, List<TimeTable> upserted, List<Long> deleted,
+                               boolean snapshot, boolean hasMore) {}
@@ -0,0 +1,572 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bulk import of timetable rows from CSV or iCalendar files.
+ *
+ * Input is read as a stream and every row is validated as it arrives. Valid rows are
+ * collected into chunks. Each chunk takes the write locks of its users (the same ones
+ * single creates take, on any node), loads their rows with one IN query, checks conflicts
+ * in memory against those rows, which include the rows accepted earlier in the same import,
+ * and inserts the accepted rows with one JDBC batch before giving the locks back.
+ * Rejected rows end up in the per-row error report.
+ */
+@Service
+public class TimeTableImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int USER_QUERY_CHUNK = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO timetables (subject, title, description, location, " +
+            "lecturer, day, start_time, end_time, is_weekly, recurrence_interval, valid_from, valid_until, " +
+            "notification_preference, username, is_special_schedule, special_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final Set<String> PREFERENCES = Set.of("NONE", "EMAIL", "PUSH", "BOTH");
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final TimeTableRepository timetableRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduleConflictDetector conflictDetector;
+    private final TimeTableSearchIndex searchIndex;
+    private final AvailabilityIndex availabilityIndex;
+    private final UserScheduleCache scheduleCache;
+    private final IcsFeedService icsFeedService;
+    private final TimeTableChangeLog changeLog;
+    private final ReminderScheduler reminderScheduler;
+    private final ScheduledHoursService scheduledHours;
+    private final int batchSize;
+
+    public TimeTableImportService(TimeTableRepository timetableRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  ScheduleConflictDetector conflictDetector,
+                                  TimeTableSearchIndex searchIndex,
+                                  AvailabilityIndex availabilityIndex,
+                                  UserScheduleCache scheduleCache,
+                                  IcsFeedService icsFeedService,
+                                  TimeTableChangeLog changeLog,
+                                  ReminderScheduler reminderScheduler,
+                                  ScheduledHoursService scheduledHours,
+                                  @Value("${app.import.batch-size:1000}") int batchSize) {
+        this.timetableRepository = timetableRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.conflictDetector = conflictDetector;
+        this.searchIndex = searchIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.scheduleCache = scheduleCache;
+        this.icsFeedService = icsFeedService;
+        this.changeLog = changeLog;
+        this.reminderScheduler = reminderScheduler;
+        this.scheduledHours = scheduledHours;
+        this.batchSize = batchSize;
+    }
+
+    // ---------- CSV ----------
+
+    /**
+     * Import a CSV file with a header row. Recognised columns (any order, case-insensitive):
+     * username, subject, title, day, specialDate (or date), startTime, endTime, location,
+     * lecturer, description, notificationPreference, recurrenceInterval, validFrom, validUntil.
+     * Rows with a specialDate become special schedules, the others regular ones.
+     * defaultUsername is used for rows without a username.
+     */
+    public ImportReport importCsv(InputStream input, String defaultUsername) throws IOException {
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) return batch.finish();
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(column(header.get(i)), i);
+            }
+
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                int rowNumber = csv.recordNumber();
+                if (record.size() == 1 && record.get(0).isBlank()) continue;
+                try {
+                    batch.add(rowNumber, fromCsv(record, columns, defaultUsername));
+                } catch (IllegalArgumentException e) {
+                    batch.reject(rowNumber, e.getMessage());
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    private static TimeTable fromCsv(List<String> record, Map<String, Integer> columns, String defaultUsername) {
+        String specialDate = field(record, columns, "specialdate", "date");
+        TimeTable row = new TimeTable();
+        row.setUsername(orDefault(field(record, columns, "username", "user"), defaultUsername));
+        row.setSubject(field(record, columns, "subject"));
+        row.setTitle(field(record, columns, "title"));
+        row.setLocation(field(record, columns, "location", "room"));
+        row.setLecturer(field(record, columns, "lecturer"));
+        row.setDescription(field(record, columns, "description"));
+        row.setStartTime(parseTime(field(record, columns, "starttime", "start"), "start time"));
+        row.setEndTime(parseTime(field(record, columns, "endtime", "end"), "end time"));
+        row.setNotificationPreference(field(record, columns, "notificationpreference", "notification"));
+
+        if (specialDate != null) {
+            row.setSpecialSchedule(true);
+            row.setSpecialLocalDate(parseDate(specialDate, "special date"));
+        } else {
+            row.setDay(field(record, columns, "day"));
+            String interval = field(record, columns, "recurrenceinterval", "interval");
+            if (interval != null) {
+                try {
+                    row.setRecurrenceInterval(Integer.parseInt(interval));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid recurrence interval: " + interval);
+                }
+            }
+            String validFrom = field(record, columns, "validfrom");
+            String validUntil = field(record, columns, "validuntil");
+            if (validFrom != null) row.setValidFrom(parseDate(validFrom, "valid from"));
+            if (validUntil != null) row.setValidUntil(parseDate(validUntil, "valid until"));
+        }
+        return row;
+    }
+
+    private static String column(String header) {
+        return header.replace("\uFEFF", "").toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String... names) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null && index < record.size()) {
+                String value = record.get(index).trim();
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    // ---------- iCalendar ----------
+
+    /**
+     * Import the VEVENTs of an iCalendar file for one user. Weekly RRULEs become regular rows
+     * (one per BYDAY), anything else a special schedule on the DTSTART date.
+     * "Lecturer: ..." on the first DESCRIPTION line (as written by the feed) fills the lecturer.
+     */
+    public ImportReport importIcs(InputStream input, String username) throws IOException {
+        Batch batch = new Batch();
+        if (username == null || username.isBlank()) {
+            batch.reject(0, "Username is required for iCalendar imports");
+            return batch.finish();
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, String[]> event = null;
+            int eventNumber = 0;
+            String line;
+            String pending = reader.readLine();
+            while ((line = pending) != null) {
+                // Unfold continuation lines
+                StringBuilder unfolded = new StringBuilder(line);
+                while ((pending = reader.readLine()) != null && (pending.startsWith(" ") || pending.startsWith("\t"))) {
+                    unfolded.append(pending, 1, pending.length());
+                }
+                String content = unfolded.toString();
+
+                if (content.equals("BEGIN:VEVENT")) {
+                    event = new HashMap<>();
+                    eventNumber++;
+                } else if (content.equals("END:VEVENT") && event != null) {
+                    try {
+                        for (TimeTable row : fromIcs(event, username)) {
+                            batch.add(eventNumber, row);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        batch.reject(eventNumber, e.getMessage());
+                    }
+                    event = null;
+                } else if (event != null) {
+                    int colon = content.indexOf(':');
+                    if (colon > 0) {
+                        String nameAndParams = content.substring(0, colon);
+                        int semicolon = nameAndParams.indexOf(';');
+                        String name = (semicolon < 0 ? nameAndParams : nameAndParams.substring(0, semicolon)).toUpperCase(Locale.ROOT);
+                        String params = semicolon < 0 ? "" : nameAndParams.substring(semicolon + 1);
+                        event.putIfAbsent(name, new String[]{content.substring(colon + 1), params});
+                    }
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    private static List<TimeTable> fromIcs(Map<String, String[]> event, String username) {
+        String[] start = event.get("DTSTART");
+        String[] end = event.get("DTEND");
+        if (start == null) throw new IllegalArgumentException("DTSTART is required");
+        if (end == null) throw new IllegalArgumentException("DTEND is required");
+        LocalDateTime startsAt = parseIcsDateTime(start[0]);
+        LocalDateTime endsAt = parseIcsDateTime(end[0]);
+
+        String subject = unescape(value(event, "SUMMARY"));
+        String description = unescape(value(event, "DESCRIPTION"));
+        String lecturer = null;
+        if (description != null && description.startsWith("Lecturer: ")) {
+            int newline = description.indexOf('\n');
+            lecturer = description.substring("Lecturer: ".length(), newline < 0 ? description.length() : newline);
+            description = newline < 0 ? null : description.substring(newline + 1);
+        }
+
+        String rule = value(event, "RRULE");
+        List<TimeTable> rows = new ArrayList<>();
+        if (rule == null) {
+            TimeTable row = icsRow(username, subject, description, lecturer, event, startsAt, endsAt);
+            row.setSpecialSchedule(true);
+            row.setSpecialLocalDate(startsAt.toLocalDate());
+            rows.add(row);
+            return rows;
+        }
+
+        Map<String, String> parts = new HashMap<>();
+        for (String part : rule.split(";")) {
+            int equals = part.indexOf('=');
+            if (equals > 0) parts.put(part.substring(0, equals).toUpperCase(Locale.ROOT), part.substring(equals + 1));
+        }
+        if (!"WEEKLY".equalsIgnoreCase(parts.get("FREQ"))) {
+            throw new IllegalArgumentException("Only weekly recurrence is supported: " + rule);
+        }
+        int interval = parts.containsKey("INTERVAL") ? parseInt(parts.get("INTERVAL"), "INTERVAL") : 1;
+
+        List<DayOfWeek> days = new ArrayList<>();
+        if (parts.containsKey("BYDAY")) {
+            for (String day : parts.get("BYDAY").split(",")) {
+                days.add(icsDay(day.trim()));
+            }
+        } else {
+            days.add(startsAt.getDayOfWeek());
+        }
+
+        LocalDate until = null;
+        if (parts.containsKey("UNTIL")) {
+            until = parseIcsDateTime(parts.get("UNTIL")).toLocalDate();
+        } else if (parts.containsKey("COUNT")) {
+            if (days.size() > 1) throw new IllegalArgumentException("COUNT with several BYDAY values is not supported");
+            until = startsAt.toLocalDate().plusWeeks((long) (parseInt(parts.get("COUNT"), "COUNT") - 1) * interval);
+        }
+
+        for (DayOfWeek day : days) {
+            TimeTable row = icsRow(username, subject, description, lecturer, event, startsAt, endsAt);
+            row.setDay(day.toString());
+            row.setRecurrenceInterval(interval);
+            row.setValidFrom(startsAt.toLocalDate());
+            row.setValidUntil(until);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static TimeTable icsRow(String username, String subject, String description, String lecturer,
+                                    Map<String, String[]> event, LocalDateTime startsAt, LocalDateTime endsAt) {
+        TimeTable row = new TimeTable();
+        row.setUsername(username);
+        row.setSubject(subject);
+        row.setDescription(description);
+        row.setLecturer(lecturer);
+        row.setLocation(unescape(value(event, "LOCATION")));
+        row.setStartTime(startsAt.toLocalTime());
+        row.setEndTime(endsAt.toLocalTime());
+        return row;
+    }
+
+    private static String value(Map<String, String[]> event, String name) {
+        String[] entry = event.get(name);
+        return entry == null || entry[0].isBlank() ? null : entry[0];
+    }
+
+    // Local (floating) times are taken as they are; UTC times are converted to the server's zone
+    private static LocalDateTime parseIcsDateTime(String value) {
+        try {
+            if (value.length() == 8) {
+                return LocalDate.parse(value, ICS_DATE).atStartOfDay();
+            }
+            if (value.endsWith("Z")) {
+                return LocalDateTime.parse(value.substring(0, value.length() - 1), ICS_DATE_TIME)
+                        .atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            return LocalDateTime.parse(value, ICS_DATE_TIME);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid date-time: " + value);
+        }
+    }
+
+    private static DayOfWeek icsDay(String day) {
+        String code = day.length() > 2 ? day.substring(day.length() - 2) : day;
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (dayOfWeek.toString().startsWith(code.toUpperCase(Locale.ROOT))) return dayOfWeek;
+        }
+        throw new IllegalArgumentException("Invalid BYDAY value: " + day);
+    }
+
+    private static String unescape(String text) {
+        if (text == null) return null;
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                out.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    // ---------- shared parsing ----------
+
+    private static LocalTime parseTime(String value, String label) {
+        if (value == null) return null;
+        try {
+            return LocalTime.parse(value.length() == 4 || value.length() == 7 ? "0" + value : value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + label + " (use HH:mm or HH:mm:ss): " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String label) {
+        try {
+            return LocalDate.parse(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + label + " (use YYYY-MM-DD): " + value);
+        }
+    }
+
+    private static int parseInt(String value, String label) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + label + ": " + value);
+        }
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value != null ? value : (fallback != null && !fallback.isBlank() ? fallback : null);
+    }
+
+    // Same rules as a single create, applied before the row is queued
+    private static String validate(TimeTable row) {
+        if (row.getSubject() == null || row.getSubject().isBlank()) return "Subject is required";
+        if (row.getUsername() == null || row.getUsername().isBlank()) return "Username is required";
+        if (row.isSpecialSchedule()) {
+            if (row.getSpecialLocalDate() == null) return "Special date is required for special schedules";
+        } else {
+            if (row.getDay() == null || row.getDay().isBlank()) return "Day is required for regular schedules";
+            try {
+                DayOfWeek.valueOf(row.getDay().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return "Invalid day: " + row.getDay();
+            }
+            if (row.getRecurrenceInterval() != null && row.getRecurrenceInterval() < 1) {
+                return "Recurrence interval must be at least 1";
+            }
+            if (row.getValidFrom() != null && row.getValidUntil() != null && row.getValidUntil().isBefore(row.getValidFrom())) {
+                return "Valid until must not be before valid from";
+            }
+        }
+        if (row.getStartTime() == null) return "Start time is required";
+        if (row.getEndTime() == null) return "End time is required";
+        if (!row.getEndTime().isAfter(row.getStartTime())) return "End time must be after start time";
+        if (row.getNotificationPreference() != null
+                && !PREFERENCES.contains(row.getNotificationPreference().toUpperCase(Locale.ROOT))) {
+            return "Invalid notification preference: " + row.getNotificationPreference();
+        }
+        return null;
+    }
+
+    // ---------- generated rows ----------
+
+    /**
+     * Save rows built in memory (e.g. by the timetable generator) through the same
+     * validation, conflict checks and batched inserts as a file import.
+     */
+    public ImportReport importRows(List<TimeTable> rows) {
+        Batch batch = new Batch();
+        for (int i = 0; i < rows.size(); i++) {
+            batch.add(i + 1, rows.get(i));
+        }
+        return batch.finish();
+    }
+
+    // ---------- batching ----------
+
+    private final class Batch {
+        private final long startedAt = System.currentTimeMillis();
+        private final List<Queued> queued = new ArrayList<>();
+        private final Set<String> users = new LinkedHashSet<>();
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+        private int total;
+        private int imported;
+        private int failed;
+
+        void add(int rowNumber, TimeTable row) {
+            total++;
+            String error = validate(row);
+            if (error != null) {
+                fail(rowNumber, error);
+                return;
+            }
+            normalize(row);
+            queued.add(new Queued(rowNumber, row));
+            if (queued.size() >= batchSize) flush();
+        }
+
+        void reject(int rowNumber, String error) {
+            total++;
+            fail(rowNumber, error);
+        }
+
+        ImportReport finish() {
+            flush();
+            if (imported > 0) {
+                searchIndex.rebuild();
+                availabilityIndex.rebuild();
+                reminderScheduler.reloadUsers(users);
+                scheduledHours.refreshUsers(users);
+                for (String username : users) {
+                    scheduleCache.invalidate(username);
+                    icsFeedService.invalidate(username);
+                }
+                // JDBC batch inserts return no ids, so these users' clients refetch in full
+                changeLog.recordResync(users);
+            }
+            long duration = System.currentTimeMillis() - startedAt;
+            System.out.println("[TimeTableImportService] Imported " + imported + " of " + total + " rows in " + duration + " ms");
+            // Conflicts are found when a chunk is flushed, after later rows were validated
+            errors.sort(Comparator.comparingInt(ImportReport.RowError::row));
+            return new ImportReport(total, imported, failed, List.copyOf(errors), failed > errors.size(), duration);
+        }
+
+        private void flush() {
+            if (queued.isEmpty()) return;
+            Set<String> chunkUsers = new LinkedHashSet<>();
+            for (Queued item : queued) {
+                chunkUsers.add(item.row.getUsername());
+            }
+            users.addAll(chunkUsers);
+            imported += conflictDetector.withUserLocks(chunkUsers, () -> insertChunk(chunkUsers));
+            queued.clear();
+        }
+
+        // Runs under the chunk's user locks, so no other write can slip in between check and insert
+        private int insertChunk(Set<String> chunkUsers) {
+            Map<String, Map<String, List<TimeTable>>> rowsByUserAndDay = loadExisting(chunkUsers);
+
+            List<TimeTable> accepted = new ArrayList<>(queued.size());
+            for (Queued item : queued) {
+                TimeTable row = item.row;
+                List<TimeTable> sameDay = rowsByUserAndDay.get(row.getUsername())
+                        .computeIfAbsent(row.getDay(), day -> new ArrayList<>());
+                Optional<TimeTable> conflict = conflictDetector.findConflict(row, null, sameDay);
+                if (conflict.isPresent()) {
+                    fail(item.rowNumber, new ScheduleConflictException(conflict.get()).getMessage());
+                } else {
+                    sameDay.add(row);
+                    accepted.add(row);
+                }
+            }
+            if (accepted.isEmpty()) return 0;
+
+            jdbcTemplate.batchUpdate(INSERT_SQL, accepted, accepted.size(), (statement, row) -> {
+                statement.setString(1, row.getSubject());
+                statement.setString(2, row.getTitle());
+                statement.setString(3, row.getDescription());
+                statement.setString(4, row.getLocation());
+                statement.setString(5, row.getLecturer());
+                statement.setString(6, row.getDay());
+                statement.setTime(7, Time.valueOf(row.getStartTime()));
+                statement.setTime(8, Time.valueOf(row.getEndTime()));
+                statement.setBoolean(9, row.isWeekly());
+                statement.setInt(10, row.getRecurrenceInterval());
+                statement.setDate(11, row.getValidFrom() != null ? Date.valueOf(row.getValidFrom()) : null);
+                statement.setDate(12, row.getValidUntil() != null ? Date.valueOf(row.getValidUntil()) : null);
+                statement.setString(13, row.getNotificationPreference());
+                statement.setString(14, row.getUsername());
+                statement.setBoolean(15, row.isSpecialSchedule());
+                statement.setDate(16, row.getSpecialLocalDate() != null ? Date.valueOf(row.getSpecialLocalDate()) : null);
+            });
+            return accepted.size();
+        }
+
+        // The chunk's users' current rows, by user and day, with one IN query per USER_QUERY_CHUNK users
+        private Map<String, Map<String, List<TimeTable>>> loadExisting(Set<String> chunkUsers) {
+            Map<String, Map<String, List<TimeTable>>> rowsByUserAndDay = new HashMap<>();
+            for (String username : chunkUsers) {
+                rowsByUserAndDay.put(username, new HashMap<>());
+            }
+            List<String> usernames = new ArrayList<>(chunkUsers);
+            for (int i = 0; i < usernames.size(); i += USER_QUERY_CHUNK) {
+                List<String> chunk = usernames.subList(i, Math.min(i + USER_QUERY_CHUNK, usernames.size()));
+                for (TimeTable existing : timetableRepository.findByUsernameIn(new HashSet<>(chunk))) {
+                    if (existing.getDay() == null) continue;
+                    rowsByUserAndDay.get(existing.getUsername())
+                            .computeIfAbsent(existing.getDay().toUpperCase(Locale.ROOT), day -> new ArrayList<>())
+                            .add(existing);
+                }
+            }
+            return rowsByUserAndDay;
+        }
+
+        private void fail(int rowNumber, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(rowNumber, error));
+            }
+        }
+    }
+
+    // Defaults the entity would apply in @PrePersist, which a JDBC insert bypasses
+    private static void normalize(TimeTable row) {
+        row.setUsername(row.getUsername().trim());
+        if (row.getTitle() == null) row.setTitle(row.getSubject());
+        if (row.getRecurrenceInterval() == null) row.setRecurrenceInterval(1);
+        row.setNotificationPreference(row.getNotificationPreference() == null
+                ? "NONE" : row.getNotificationPreference().toUpperCase(Locale.ROOT));
+        if (row.isSpecialSchedule()) {
+            // Special rows are grouped and stored under their date's weekday, like a JPA save
+            row.setSpecialLocalDate(row.getSpecialLocalDate());
+        } else {
+            row.setDay(row.getDay().trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private record Queued(int rowNumber, TimeTable row) {}
+}
@@ -0,0 +1,286 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index over TimeTable subject, lecturer and location.
+ * Replaces the LIKE '%x%' lookups (which can never use an index) for the search box.
+ * Built once when the application is ready and kept current by TimeTableService on
+ * every save, update and delete.
+ *
+ * Queries of three or more characters match substrings anywhere; shorter queries
+ * match the start of a word. Every candidate from the posting lists is verified
+ * against the real text, then ranked by field and match position.
+ */
+@Component
+public class TimeTableSearchIndex {
+
+    // Rebuild the posting lists once this share of documents has been replaced or removed
+    private static final double COMPACT_RATIO = 0.25;
+
+    private static final int SUBJECT_WEIGHT = 3;
+    private static final int LECTURER_WEIGHT = 2;
+    private static final int LOCATION_WEIGHT = 2;
+
+    private final TimeTableRepository timetableRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> docByRowId = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    public TimeTableSearchIndex(TimeTableRepository timetableRepository) {
+        this.timetableRepository = timetableRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> rows = timetableRepository.findSearchFields();
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Object[] row : rows) {
+                add((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("[TimeTableSearchIndex] Indexed " + rows.size() + " timetable rows");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Add a row, or replace it if it is already indexed.
+     */
+    public void index(TimeTable row) {
+        if (row.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(row.getId());
+            add(row.getId(), row.getUsername(), row.getSubject(), row.getLecturer(), row.getLocation());
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long rowId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(rowId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the ids of matching rows, best match first, optionally limited to one user.
+     */
+    public List<Long> search(String query, String username) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) return List.of();
+        String[] terms = normalized.split(" ");
+
+        lock.readLock().lock();
+        try {
+            // Intersect posting lists, shortest first
+            List<Postings> lists = new ArrayList<>();
+            for (String term : terms) {
+                for (String gram : queryGrams(term)) {
+                    Postings list = postings.get(gram);
+                    if (list == null) return List.of();
+                    lists.add(list);
+                }
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int[] candidates = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists.get(i));
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            for (int docId : candidates) {
+                Doc doc = docs.get(docId);
+                if (!live.get(docId) || (username != null && !username.equals(doc.username))) continue;
+                int score = score(doc, terms);
+                if (score > 0) hits.add(new Hit(doc, score));
+            }
+
+            hits.sort(Comparator.comparingInt(Hit::score).reversed()
+                    .thenComparing(hit -> hit.doc.subject)
+                    .thenComparingLong(hit -> hit.doc.rowId));
+            return hits.stream().map(hit -> hit.doc.rowId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- scoring ----------
+
+    // Every term must occur in some field; earlier and whole-word matches in heavier fields rank higher
+    private static int score(Doc doc, String[] terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = Math.max(fieldScore(doc.subject, term, SUBJECT_WEIGHT),
+                    Math.max(fieldScore(doc.lecturer, term, LECTURER_WEIGHT), fieldScore(doc.location, term, LOCATION_WEIGHT)));
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    private static int fieldScore(String field, String term, int weight) {
+        int at = field.indexOf(term);
+        if (at < 0) return 0;
+        // A term shorter than a trigram must start a word
+        if (term.length() < 3) {
+            while (at > 0 && field.charAt(at - 1) != ' ') {
+                at = field.indexOf(term, at + 1);
+                if (at < 0) return 0;
+            }
+        }
+        int score = 1;
+        if (at == 0 || field.charAt(at - 1) == ' ') score += 2;  // starts a word
+        if (at == 0) score += 2;                                  // starts the field
+        if (field.length() == term.length()) score += 4;          // whole field
+        return score * weight;
+    }
+
+    // ---------- maintenance ----------
+
+    private void add(Long rowId, String username, String subject, String lecturer, String location) {
+        int docId = docs.size();
+        Doc doc = new Doc(rowId, username, normalize(subject), normalize(lecturer), normalize(location));
+        docs.add(doc);
+        live.set(docId);
+        docByRowId.put(rowId, docId);
+
+        Set<String> grams = new LinkedHashSet<>();
+        collectGrams(doc.subject, grams);
+        collectGrams(doc.lecturer, grams);
+        collectGrams(doc.location, grams);
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(docId);
+        }
+    }
+
+    private void removeLocked(Long rowId) {
+        Integer docId = docByRowId.remove(rowId);
+        if (docId != null) {
+            live.clear(docId);
+        }
+    }
+
+    // Doc ids only grow, so posting lists stay sorted; removed docs are skipped until the next compaction
+    private void compactIfNeeded() {
+        int dead = docs.size() - live.cardinality();
+        if (dead < 1024 || dead < docs.size() * COMPACT_RATIO) return;
+
+        List<Doc> survivors = new ArrayList<>();
+        for (int docId = live.nextSetBit(0); docId >= 0; docId = live.nextSetBit(docId + 1)) {
+            survivors.add(docs.get(docId));
+        }
+        clear();
+        for (Doc doc : survivors) {
+            add(doc.rowId, doc.username, doc.subject, doc.lecturer, doc.location);
+        }
+    }
+
+    private void clear() {
+        docs.clear();
+        live.clear();
+        docByRowId.clear();
+        postings.clear();
+    }
+
+    // ---------- text handling ----------
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    // Trigrams of every word, plus word-start grams ("  a", " ab") for short queries
+    private static void collectGrams(String field, Set<String> out) {
+        for (String word : field.split(" ")) {
+            if (word.isEmpty()) continue;
+            String padded = "  " + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                out.add(padded.substring(i, i + 3));
+            }
+        }
+    }
+
+    private static List<String> queryGrams(String term) {
+        if (term.length() < 3) {
+            String padded = "  " + term;
+            return List.of(padded.substring(padded.length() - 3));
+        }
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            grams.add(term.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static int[] intersect(int[] left, Postings right) {
+        int[] out = new int[Math.min(left.length, right.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < left.length && j < right.size) {
+            if (left[i] == right.ids[j]) {
+                out[n++] = left[i];
+                i++;
+                j++;
+            } else if (left[i] < right.ids[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private record Doc(Long rowId, String username, String subject, String lecturer, String location) {}
+
+    private record Hit(Doc doc, int score) {}
+
+    // Growable sorted int array of doc ids
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int docId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = docId;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
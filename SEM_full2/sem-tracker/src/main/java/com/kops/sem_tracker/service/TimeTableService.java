@@ -8,7 +8,11 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -17,6 +21,36 @@ public class TimeTableService {
     @Autowired
     private TimeTableRepository timetableRepository;
 
+    @Autowired
+    private ScheduleConflictDetector conflictDetector;
+
+    @Autowired
+    private UserScheduleCache scheduleCache;
+
+    @Autowired
+    private TimeTableSearchIndex searchIndex;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private BlackoutCalendar blackoutCalendar;
+
+    @Autowired
+    private IcsFeedService icsFeedService;
+
+    @Autowired
+    private TimeTableChangeLog changeLog;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private ScheduledHoursService scheduledHours;
+
     public List<TimeTable> getAll() {
         return timetableRepository.findAll();
     }
@@ -29,6 +63,13 @@ public class TimeTableService {
         return timetableRepository.findById(id);
     }
 
+    /**
+     * Rows of a user created, updated or deleted after a change-log version (delta sync).
+     */
+    public TimeTableChanges getChangesSince(String username, long since, int limit) {
+        return changeLog.changesSince(username, since, limit);
+    }
+
     public TimeTable save(TimeTable timeTable) {
         // Ensure title is set before saving
         if (timeTable.getTitle() == null) {
@@ -36,13 +77,8 @@ public class TimeTableService {
         }
 
         // For special schedules, ensure day is set based on specialDate
-        if (timeTable.isSpecialSchedule() && timeTable.getSpecialDate() != null && timeTable.getDay() == null) {
-            try {
-                LocalDate date = LocalDate.parse(timeTable.getSpecialDate());
-                timeTable.setDay(date.getDayOfWeek().toString());
-            } catch (Exception e) {
-                timeTable.setDay("MONDAY"); // Default fallback
-            }
+        if (timeTable.isSpecialSchedule() && timeTable.getSpecialLocalDate() != null && timeTable.getDay() == null) {
+            timeTable.setDay(timeTable.getSpecialLocalDate().getDayOfWeek().toString());
         }
 
         // For regular schedules, ensure specialDate is null
@@ -50,12 +86,31 @@ public class TimeTableService {
             timeTable.setSpecialDate(null);
         }
 
-        return timetableRepository.save(timeTable);
+        boolean created = timeTable.getId() == null;
+        TimeTable saved = timetableRepository.save(timeTable);
+        scheduleCache.invalidate(saved.getUsername());
+        icsFeedService.invalidate(saved.getUsername());
+        searchIndex.index(saved);
+        availabilityIndex.index(saved);
+        reminderScheduler.reschedule(saved);
+        scheduledHours.refreshUser(saved.getUsername());
+        if (created) changeLog.recordCreate(saved);
+        else changeLog.recordUpdate(saved);
+        // Older clients still send their push token with each row; keep the registry current
+        if (saved.getDeviceToken() != null && !saved.getDeviceToken().isBlank() && saved.getUsername() != null) {
+            deviceRegistry.register(saved.getUsername(), saved.getDeviceToken(), null);
+        }
+        return saved;
     }
 
+    /**
+     * Overwrite a schedule with the request's fields. Recurrence interval and validity
+     * bounds left null in the request keep their stored values.
+     */
     public TimeTable update(Long id, TimeTable newData) {
         return timetableRepository.findById(id)
                 .map(existing -> {
+                    keepOmittedRecurrence(newData, existing);
                     existing.setSubject(newData.getSubject());
                     existing.setDay(newData.getDay());
                     existing.setStartTime(newData.getStartTime());
@@ -67,19 +122,76 @@ public class TimeTableService {
                     existing.setDescription(newData.getDescription());
                     existing.setSpecialSchedule(newData.isSpecialSchedule());
                     existing.setSpecialDate(newData.getSpecialDate());
+                    existing.setWeekly(newData.isWeekly());
+                    existing.setRecurrenceInterval(newData.getRecurrenceInterval());
+                    existing.setValidFrom(newData.getValidFrom());
+                    existing.setValidUntil(newData.getValidUntil());
 
                     // Ensure data consistency
                     if (!existing.isSpecialSchedule()) {
                         existing.setSpecialDate(null);
                     }
 
-                    return timetableRepository.save(existing);
+                    TimeTable saved = timetableRepository.save(existing);
+                    scheduleCache.invalidate(saved.getUsername());
+                    icsFeedService.invalidate(saved.getUsername());
+                    searchIndex.index(saved);
+                    availabilityIndex.index(saved);
+                    reminderScheduler.reschedule(saved);
+                    scheduledHours.refreshUser(saved.getUsername());
+                    changeLog.recordUpdate(saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Timetable not found with id: " + id));
     }
 
+    /**
+     * Save a new schedule unless it overlaps one of the user's existing schedules.
+     * The check and the insert run under the user's lock, so concurrent creates cannot both pass.
+     */
+    public TimeTable saveIfNoConflict(TimeTable timeTable) {
+        return conflictDetector.withUserLock(timeTable.getUsername(), () -> {
+            conflictDetector.findConflict(timeTable, timeTable.getId()).ifPresent(conflict -> {
+                throw new ScheduleConflictException(conflict);
+            });
+            return save(timeTable);
+        });
+    }
+
+    /**
+     * Update a schedule unless the new data overlaps another schedule of the same user.
+     */
+    public TimeTable updateIfNoConflict(Long id, TimeTable newData) {
+        TimeTable existing = timetableRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Timetable not found with id: " + id));
+        newData.setUsername(existing.getUsername());
+        keepOmittedRecurrence(newData, existing);
+
+        return conflictDetector.withUserLock(existing.getUsername(), () -> {
+            conflictDetector.findConflict(newData, id).ifPresent(conflict -> {
+                throw new ScheduleConflictException(conflict);
+            });
+            return update(id, newData);
+        });
+    }
+
+    private static void keepOmittedRecurrence(TimeTable newData, TimeTable existing) {
+        if (newData.getRecurrenceInterval() == null) newData.setRecurrenceInterval(existing.getRecurrenceInterval());
+        if (newData.getValidFrom() == null) newData.setValidFrom(existing.getValidFrom());
+        if (newData.getValidUntil() == null) newData.setValidUntil(existing.getValidUntil());
+    }
+
     public void delete(Long id) {
-        timetableRepository.deleteById(id);
+        timetableRepository.findById(id).ifPresent(existing -> {
+            timetableRepository.delete(existing);
+            scheduleCache.invalidate(existing.getUsername());
+            icsFeedService.invalidate(existing.getUsername());
+            searchIndex.remove(id);
+            availabilityIndex.remove(id);
+            reminderScheduler.cancel(id);
+            scheduledHours.refreshUser(existing.getUsername());
+            changeLog.recordDeletes(List.of(existing));
+        });
     }
 
     // Get ALL schedules by day (includes both regular and special - for backward compatibility)
@@ -93,12 +205,12 @@ public class TimeTableService {
     }
 
     public List<TimeTable> getRegularByDayForUser(String username, String day) {
-        return timetableRepository.findByUsernameAndDay(username, day);
+        return timetableRepository.findRegularByUsernameAndDay(username, day);
     }
 
     // Get special schedules for a specific date
     public List<TimeTable> getBySpecialDate(String date) {
-        return timetableRepository.findBySpecialDate(date);
+        return timetableRepository.findBySpecialDate(LocalDate.parse(date));
     }
 
     // Get combined schedules for a specific date (regular + special for that date)
@@ -117,19 +229,15 @@ public class TimeTableService {
         return combinedSchedules;
     }
 
-    // Get today's schedules (regular for today's day + special for today's date)
+    // Get today's schedules (regular for today's day + special for today's date), skipping blacked-out classes
     public List<TimeTable> getTodaySchedules() {
-        LocalDate today = LocalDate.now();
-        String dayOfWeek = today.getDayOfWeek().toString();
-        String dateString = today.toString();
-
-        return getByDayAndDate(dayOfWeek, dateString);
+        return getActiveSchedulesForDate(LocalDate.now());
     }
 
-    // Get upcoming events between time range (for notifications) - considers special dates
+    // Get upcoming events between time range (for notifications) - considers special dates and blackouts
     public List<TimeTable> getEventsBetween(LocalTime start, LocalTime end) {
         LocalDate today = LocalDate.now();
-        return timetableRepository.findUpcomingEvents(start, end, today.toString());
+        return blackoutCalendar.filterRows(timetableRepository.findUpcomingEvents(start, end, today), today);
     }
 
     // Get all special schedules
@@ -137,27 +245,27 @@ public class TimeTableService {
         return timetableRepository.findByIsSpecialScheduleTrue();
     }
 
+    public List<TimeTable> getSpecialSchedulesForUser(String username) {
+        return timetableRepository.findSpecialByUsername(username);
+    }
+
     // Get active schedules for a specific date (both regular and special that are active on that date)
     public List<TimeTable> getActiveSchedulesForDate(String date) {
+        LocalDate localDate;
         try {
-            LocalDate localDate = LocalDate.parse(date);
-            String dayOfWeek = localDate.getDayOfWeek().toString();
-
-            // Get regular schedules for this day of week
-            List<TimeTable> regularSchedules = getRegularByDay(dayOfWeek);
-
-            // Get special schedules for this specific date
-            List<TimeTable> specialSchedules = getBySpecialDate(date);
-
-            // Combine both lists
-            List<TimeTable> activeSchedules = new ArrayList<>();
-            activeSchedules.addAll(regularSchedules);
-            activeSchedules.addAll(specialSchedules);
-
-            return activeSchedules;
+            localDate = LocalDate.parse(date);
         } catch (Exception e) {
             throw new RuntimeException("Invalid date format: " + date, e);
         }
+        return getActiveSchedulesForDate(localDate);
+    }
+
+    // Regular rows only count when they recur on the date (validity bounds, bi-weekly parity)
+    private List<TimeTable> getActiveSchedulesForDate(LocalDate date) {
+        List<TimeTable> activeSchedules = getByDayAndDate(date.getDayOfWeek().toString(), date.toString()).stream()
+                .filter(row -> ScheduleExpander.occursOn(row, date))
+                .toList();
+        return blackoutCalendar.filterRows(activeSchedules, date);
     }
 
     // Search methods
@@ -173,63 +281,76 @@ public class TimeTableService {
         return timetableRepository.findBySubjectContainingIgnoreCase(subject);
     }
 
+    /**
+     * Ranked search over subject, lecturer and location, optionally scoped to one user.
+     * Only the requested page of rows is loaded from the database.
+     */
+    public SearchPage<TimeTable> search(String query, String username, int page, int size) {
+        if (!searchIndex.isReady()) {
+            // Index is still being built at startup: fall back to the LIKE queries
+            Map<Long, TimeTable> matches = new LinkedHashMap<>();
+            for (TimeTable row : searchBySubject(query)) matches.put(row.getId(), row);
+            for (TimeTable row : searchByLecturer(query)) matches.put(row.getId(), row);
+            for (TimeTable row : searchByLocation(query)) matches.put(row.getId(), row);
+            List<TimeTable> rows = matches.values().stream()
+                    .filter(row -> username == null || username.equals(row.getUsername()))
+                    .toList();
+            int from = Math.min(page * size, rows.size());
+            return new SearchPage<>(rows.subList(from, Math.min(from + size, rows.size())), rows.size(), page, size);
+        }
+
+        List<Long> ids = searchIndex.search(query, username);
+        int from = Math.min(page * size, ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + size, ids.size()));
+
+        Map<Long, TimeTable> byId = new HashMap<>();
+        for (TimeTable row : timetableRepository.findAllById(pageIds)) {
+            byId.put(row.getId(), row);
+        }
+        List<TimeTable> results = pageIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new SearchPage<>(results, ids.size(), page, size);
+    }
+
     public List<TimeTable> getByNotificationPreference(String preference) {
         return timetableRepository.findByNotificationPreference(preference);
     }
 
-    // Check if a schedule with the same details already exists (for validation)
+    // Check if a schedule overlaps another schedule of the same user (for validation)
     public boolean scheduleExists(TimeTable timeTable) {
-        if (timeTable.isSpecialSchedule()) {
-            // For special schedules, check by subject, date, and time
-            return timetableRepository.findAll().stream()
-                    .anyMatch(existing ->
-                            existing.isSpecialSchedule() &&
-                                    existing.getSpecialDate() != null &&
-                                    existing.getSpecialDate().equals(timeTable.getSpecialDate()) &&
-                                    existing.getSubject().equalsIgnoreCase(timeTable.getSubject()) &&
-                                    existing.getStartTime().equals(timeTable.getStartTime()) &&
-                                    existing.getEndTime().equals(timeTable.getEndTime()) &&
-                                    (existing.getId() == null || !existing.getId().equals(timeTable.getId()))
-                    );
-        } else {
-            // For regular schedules, check by subject, day, and time
-            return timetableRepository.findAll().stream()
-                    .anyMatch(existing ->
-                            !existing.isSpecialSchedule() &&
-                                    existing.getDay().equalsIgnoreCase(timeTable.getDay()) &&
-                                    existing.getSubject().equalsIgnoreCase(timeTable.getSubject()) &&
-                                    existing.getStartTime().equals(timeTable.getStartTime()) &&
-                                    existing.getEndTime().equals(timeTable.getEndTime()) &&
-                                    (existing.getId() == null || !existing.getId().equals(timeTable.getId()))
-                    );
-        }
+        return conflictDetector.findConflict(timeTable, timeTable.getId()).isPresent();
     }
 
-    // Get schedules for a date range
-    public List<TimeTable> getSchedulesForDateRange(LocalDate startDate, LocalDate endDate) {
-        List<TimeTable> allSchedules = new ArrayList<>();
-
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate)) {
-            String dateString = currentDate.toString();
-            List<TimeTable> dateSchedules = getActiveSchedulesForDate(dateString);
+    // Get schedules for a date range (all users), expanded from a single query
+    public List<ScheduleOccurrence> getSchedulesForDateRange(LocalDate startDate, LocalDate endDate) {
+        List<TimeTable> rows = timetableRepository.findForWindow(startDate, endDate);
+        return blackoutCalendar.filter(ScheduleExpander.expand(rows, startDate, endDate));
+    }
 
-            // Add date context for display
-            dateSchedules.forEach(schedule -> {
-                if (!schedule.isSpecialSchedule()) {
-                    schedule.setDisplayDate(dateString);
-                }
-            });
+    /**
+     * Get a user's occurrences between two dates (inclusive), expanded from a single query
+     */
+    public List<ScheduleOccurrence> getOccurrencesForUser(String username, LocalDate startDate, LocalDate endDate) {
+        List<TimeTable> rows = startDate.equals(endDate)
+                ? findRowsForUserOnDate(username, startDate)
+                : timetableRepository.findByUsernameForWindow(username, startDate, endDate);
+        return blackoutCalendar.filter(ScheduleExpander.expand(rows, startDate, endDate));
+    }
 
-            allSchedules.addAll(dateSchedules);
-            currentDate = currentDate.plusDays(1);
+    /**
+     * Get occurrences on a single date, for one user or (when username is null) for everyone
+     */
+    public List<ScheduleOccurrence> getOccurrencesForDate(String username, LocalDate date) {
+        if (username != null && !username.isBlank()) {
+            return getOccurrencesForUser(username, date, date);
         }
-
-        return allSchedules;
+        return getSchedulesForDateRange(date, date);
     }
 
     public boolean scheduleExistsExcludingId(TimeTable updatedEntity, Long id) {
-        return false;
+        return conflictDetector.findConflict(updatedEntity, id).isPresent();
     }
 
     // ========== USER-SPECIFIC SCHEDULE METHODS ==========
@@ -237,97 +358,50 @@ public class TimeTableService {
     /**
      * Get today's schedules for a specific user (both regular and special)
      */
-    public List<TimeTable> getTodaySchedulesForUser(String username) {
-        LocalDate today = LocalDate.now();
-        String dayOfWeek = today.getDayOfWeek().toString();
-        String dateString = today.toString();
-
-        List<TimeTable> schedules = new ArrayList<>();
-
-        // Get user's regular schedules for today's day of week
-        List<TimeTable> regularSchedules = timetableRepository.findByUsernameAndDay(username, dayOfWeek)
-                .stream()
-                .filter(s -> !s.isSpecialSchedule())
-                .toList();
-        schedules.addAll(regularSchedules);
-
-        // Get user's special schedules for today's exact date
-        List<TimeTable> specialSchedules = timetableRepository.findBySpecialDate(dateString)
-                .stream()
-                .filter(s -> s.getUsername() != null && s.getUsername().equals(username))
-                .toList();
-        schedules.addAll(specialSchedules);
+    public List<ScheduleOccurrence> getTodaySchedulesForUser(String username) {
+        return scheduleCache.get(username).today();
+    }
 
-        return schedules;
+    /**
+     * Get timetable statistics for a user (served from the schedule cache)
+     */
+    public Map<String, Object> getStatsForUser(String username) {
+        return scheduleCache.get(username).stats();
     }
 
     /**
      * Get schedules for a specific user and day
      */
     public List<TimeTable> getSchedulesForUserAndDay(String username, String day) {
-        return timetableRepository.findByUsernameAndDay(username, day)
-                .stream()
-                .filter(s -> !s.isSpecialSchedule())
-                .toList();
+        return timetableRepository.findRegularByUsernameAndDay(username, day);
     }
 
     /**
      * Get upcoming schedules for a user (from today onwards)
      */
-    public List<TimeTable> getUpcomingSchedulesForUser(String username, int days) {
+    public List<ScheduleOccurrence> getUpcomingSchedulesForUser(String username, int days) {
         LocalDate today = LocalDate.now();
-        LocalDate endDate = today.plusDays(days);
-
-        List<TimeTable> upcomingSchedules = new ArrayList<>();
-
-        LocalDate currentDate = today;
-        while (!currentDate.isAfter(endDate)) {
-            String dayOfWeek = currentDate.getDayOfWeek().toString();
-            String dateString = currentDate.toString();
-
-            // Get regular schedules for this day
-            List<TimeTable> regularSchedules = timetableRepository.findByUsernameAndDay(username, dayOfWeek)
-                    .stream()
-                    .filter(s -> !s.isSpecialSchedule())
-                    .toList();
-
-            // Add display date for context
-            for (TimeTable schedule : regularSchedules) {
-                schedule.setDisplayDate(dateString);
-            }
-            upcomingSchedules.addAll(regularSchedules);
-
-            // Get special schedules for this date
-            List<TimeTable> specialSchedules = timetableRepository.findBySpecialDate(dateString)
-                    .stream()
-                    .filter(s -> s.getUsername() != null && s.getUsername().equals(username))
+        if (days <= 7) {
+            // The cached snapshot already covers the next seven days
+            LocalDate end = today.plusDays(days);
+            return scheduleCache.get(username).week().stream()
+                    .filter(occurrence -> !occurrence.date().isAfter(end))
                     .toList();
-            upcomingSchedules.addAll(specialSchedules);
-
-            currentDate = currentDate.plusDays(1);
         }
-
-        return upcomingSchedules;
+        return getOccurrencesForUser(username, today, today.plusDays(days));
     }
 
     /**
      * Get all special schedules for a user (future only)
      */
     public List<TimeTable> getFutureSpecialSchedulesForUser(String username) {
-        LocalDate today = LocalDate.now();
-        String todayString = today.toString();
-
-        return timetableRepository.findByIsSpecialScheduleTrue()
-                .stream()
-                .filter(s -> s.getUsername() != null && s.getUsername().equals(username))
-                .filter(s -> s.getSpecialDate() != null && s.getSpecialDate().compareTo(todayString) >= 0)
-                .toList();
+        return timetableRepository.findSpecialByUsernameFrom(username, LocalDate.now());
     }
 
     /**
      * Get week schedule for a user (next 7 days)
      */
-    public List<TimeTable> getWeekScheduleForUser(String username) {
+    public List<ScheduleOccurrence> getWeekScheduleForUser(String username) {
         return getUpcomingSchedulesForUser(username, 7);
     }
 
@@ -337,23 +411,15 @@ public class TimeTableService {
     public boolean hasClassOnDate(String username, String date) {
         try {
             LocalDate localDate = LocalDate.parse(date);
-            String dayOfWeek = localDate.getDayOfWeek().toString();
-
-            // Check regular schedules
-            List<TimeTable> regularSchedules = timetableRepository.findByUsernameAndDay(username, dayOfWeek);
-            if (!regularSchedules.isEmpty()) {
-                return true;
-            }
-
-            // Check special schedules
-            List<TimeTable> specialSchedules = timetableRepository.findBySpecialDate(date)
-                    .stream()
-                    .filter(s -> s.getUsername() != null && s.getUsername().equals(username))
-                    .toList();
-            
-            return !specialSchedules.isEmpty();
+            return findRowsForUserOnDate(username, localDate).stream()
+                    .anyMatch(s -> ScheduleExpander.occursOn(s, localDate) && !blackoutCalendar.suppresses(s, localDate));
         } catch (Exception e) {
             return false;
         }
     }
+
+    // Single indexed query: the user's regular rows for the date's weekday plus their special rows on that date
+    private List<TimeTable> findRowsForUserOnDate(String username, LocalDate date) {
+        return timetableRepository.findByUsernameAndDayAndDate(username, date.getDayOfWeek().toString(), date);
+    }
 }
\ No newline at end of file
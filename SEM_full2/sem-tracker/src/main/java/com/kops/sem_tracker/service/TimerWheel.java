@@ -0,0 +1,167 @@
+package com.kops.sem_tracker.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timer wheel with one-second ticks, keyed so a timer can be
+ * replaced or cancelled in O(1).
+ *
+ * Four levels of 64 buckets each cover 64 s, 68 min, 72 h and 194 days. A timer goes
+ * to the lowest level whose span covers its distance from the current tick. When a
+ * higher-level bucket comes due, its timers cascade down a level. Timers further out
+ * than the top level wait in an overflow list until they come within range.
+ *
+ * Not thread-safe; callers hold their own lock.
+ */
+final class TimerWheel<K> {
+
+    private static final int LEVELS = 4;
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final long SPAN = 1L << (BITS * LEVELS);
+    private static final long TOP_LEVEL_TICKS = 1L << (BITS * (LEVELS - 1));
+
+    private final Node<K>[][] buckets;
+    private final Node<K> overflow = Node.sentinel();
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+
+    // Next tick to process
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long startTick) {
+        this.tick = startTick;
+        this.buckets = new Node[LEVELS][SLOTS];
+        for (Node<K>[] level : buckets) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = Node.sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedule key to expire at expiryTick, replacing any timer it already has.
+     * A tick that has already passed expires on the next advance.
+     */
+    void schedule(K key, long expiryTick) {
+        cancel(key);
+        Node<K> node = new Node<>(key, expiryTick);
+        nodes.put(key, node);
+        place(node);
+    }
+
+    boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) return false;
+        node.unlink();
+        return true;
+    }
+
+    boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    // The next tick to process; timers set before it have already fired
+    long currentTick() {
+        return tick;
+    }
+
+    void clear(long startTick) {
+        for (Node<K>[] level : buckets) {
+            for (Node<K> head : level) head.prev = head.next = head;
+        }
+        overflow.prev = overflow.next = overflow;
+        nodes.clear();
+        tick = startTick;
+    }
+
+    /**
+     * Process every tick up to and including nowTick, handing expired keys to the consumer
+     * in expiry order.
+     */
+    void advance(long nowTick, Consumer<K> expired) {
+        while (tick <= nowTick) {
+            if (nodes.isEmpty()) {
+                tick = nowTick + 1;
+                return;
+            }
+            if ((tick & (TOP_LEVEL_TICKS - 1)) == 0) {
+                cascade(overflow);
+            }
+            for (int level = 1; level < LEVELS; level++) {
+                if ((tick & ((1L << (BITS * level)) - 1)) != 0) break;
+                cascade(buckets[level][(int) ((tick >>> (BITS * level)) & MASK)]);
+            }
+
+            Node<K> head = buckets[0][(int) (tick & MASK)];
+            while (head.next != head) {
+                Node<K> node = head.next;
+                node.unlink();
+                nodes.remove(node.key);
+                expired.accept(node.key);
+            }
+            tick++;
+        }
+    }
+
+    private void cascade(Node<K> head) {
+        if (head.next == head) return;
+        List<Node<K>> moving = new ArrayList<>();
+        for (Node<K> node = head.next; node != head; node = node.next) {
+            moving.add(node);
+        }
+        head.prev = head.next = head;
+        for (Node<K> node : moving) {
+            place(node);
+        }
+    }
+
+    private void place(Node<K> node) {
+        long expiry = Math.max(node.expiry, tick);
+        long delta = expiry - tick;
+        Node<K> head;
+        if (delta >= SPAN) {
+            head = overflow;
+        } else {
+            int level = (63 - Long.numberOfLeadingZeros(delta | 1)) / BITS;
+            head = buckets[level][(int) ((expiry >>> (BITS * level)) & MASK)];
+        }
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static final class Node<K> {
+        final K key;
+        final long expiry;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key, long expiry) {
+            this.key = key;
+            this.expiry = expiry;
+        }
+
+        static <K> Node<K> sentinel() {
+            Node<K> head = new Node<>(null, 0);
+            head.prev = head.next = head;
+            return head;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds a weekly timetable for a set of courses by simulated annealing.
+ *
+ * Every hour of a course is an event to be given a slot (day x start time) and a room.
+ * Hard constraints: a room holds one event per slot, a lecturer or student attends one
+ * event per slot, and nothing lands on a slot already booked in the timetable (the
+ * students' regular rows, the lecturer's and the room's weekly bookings). Soft constraint:
+ * the hours of a course are spread over different days.
+ *
+ * The problem is compiled into int arrays once, so a move costs only a walk over the
+ * events that can clash with the moved one. One independent annealing chain runs per
+ * core on its own ForkJoinPool with its own seed, all sharing the time budget; the best
+ * chain wins, and a chain that finds a perfect timetable stops the others.
+ */
+@Service
+public class TimetableGenerator {
+
+    public static final int MAX_EVENTS = 5000;
+    public static final Duration MAX_BUDGET = Duration.ofSeconds(60);
+
+    // One hard violation outweighs any amount of soft penalty
+    static final int HARD_WEIGHT = 1000;
+
+    private static final double START_TEMPERATURE = HARD_WEIGHT / 2.0;
+    private static final double END_TEMPERATURE = 0.05;
+
+    // Iterations between clock reads (and temperature updates)
+    private static final int CLOCK_MASK = 1023;
+
+    private static final int USER_QUERY_CHUNK = 500;
+
+    private final TimeTableRepository timetableRepository;
+    private final AvailabilityIndex availabilityIndex;
+
+    public TimetableGenerator(TimeTableRepository timetableRepository, AvailabilityIndex availabilityIndex) {
+        this.timetableRepository = timetableRepository;
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    /**
+     * Generate a timetable that avoids the bookings already in the database.
+     */
+    public TimetableSolution generate(TimetableProblem problem, Duration budget, int parallelism, long seed) {
+        Model model = Model.compile(problem);
+        blockExistingBookings(model);
+        return solve(model, budget, parallelism, seed);
+    }
+
+    /**
+     * One regular weekly row per placement and enrolled student, ready to be saved.
+     */
+    public static List<TimeTable> toTimeTables(TimetableSolution solution) {
+        List<TimeTable> rows = new ArrayList<>();
+        for (TimetableSolution.Placement placement : solution.placements()) {
+            for (String username : placement.usernames()) {
+                TimeTable row = new TimeTable();
+                row.setUsername(username);
+                row.setSubject(placement.subject());
+                row.setTitle(placement.subject());
+                row.setLecturer(placement.lecturer());
+                row.setLocation(placement.room());
+                row.setDay(placement.day());
+                row.setStartTime(placement.startTime());
+                row.setEndTime(placement.endTime());
+                row.setWeekly(true);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    // ---------- existing bookings ----------
+
+    private void blockExistingBookings(Model model) {
+        Map<String, List<Integer>> coursesByUser = new HashMap<>();
+        for (int c = 0; c < model.courses; c++) {
+            List<String> enrolled = model.problem.courses().get(c).usernames();
+            if (enrolled == null) continue;
+            for (String username : enrolled) {
+                coursesByUser.computeIfAbsent(username, user -> new ArrayList<>()).add(c);
+            }
+        }
+        List<String> usernames = new ArrayList<>(coursesByUser.keySet());
+        for (int i = 0; i < usernames.size(); i += USER_QUERY_CHUNK) {
+            List<String> chunk = usernames.subList(i, Math.min(usernames.size(), i + USER_QUERY_CHUNK));
+            for (TimeTable row : timetableRepository.findByUsernameIn(chunk)) {
+                if (row.isSpecialSchedule() || row.getStartTime() == null || row.getEndTime() == null) continue;
+                DayOfWeek day = parseDay(row.getDay());
+                if (day == null) continue;
+                for (int s = 0; s < model.slots; s++) {
+                    if (model.slotDay(s) == day && model.overlaps(s, row.getStartTime(), row.getEndTime())) {
+                        for (int c : coursesByUser.getOrDefault(row.getUsername(), List.of())) {
+                            model.blockedCourse[c * model.slots + s] = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int s = 0; s < model.slots; s++) {
+            DayOfWeek day = model.slotDay(s);
+            LocalTime start = model.slotStart(s);
+            LocalTime end = start.plusMinutes(model.problem.slotMinutes());
+            for (int c = 0; c < model.courses; c++) {
+                if (availabilityIndex.hasWeeklyBooking(AvailabilityIndex.Resource.LECTURER,
+                        model.problem.courses().get(c).lecturer(), day, start, end)) {
+                    model.blockedCourse[c * model.slots + s] = true;
+                }
+            }
+            for (int r = 0; r < model.rooms; r++) {
+                if (availabilityIndex.hasWeeklyBooking(AvailabilityIndex.Resource.ROOM,
+                        model.problem.rooms().get(r), day, start, end)) {
+                    model.blockedRoom[r * model.slots + s] = true;
+                }
+            }
+        }
+    }
+
+    // ---------- search ----------
+
+    static TimetableSolution solve(Model model, Duration budget, int parallelism, long seed) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + budget.toNanos();
+        AtomicBoolean solved = new AtomicBoolean();
+
+        List<Chain> chains = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Chain>> tasks = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                Chain chain = new Chain(model, seed + i * 0x9E3779B97F4A7C15L);
+                tasks.add(pool.submit(() -> {
+                    chain.run(startedAt, deadline, solved);
+                    return chain;
+                }));
+            }
+            for (ForkJoinTask<Chain> task : tasks) {
+                chains.add(task.join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Chain best = chains.stream().min(Comparator.comparingLong(chain -> chain.bestCost)).orElseThrow();
+        long iterations = chains.stream().mapToLong(chain -> chain.iterations).sum();
+        long firstFeasibleNanos = chains.stream()
+                .mapToLong(chain -> chain.firstFeasibleNanos)
+                .filter(nanos -> nanos >= 0)
+                .min()
+                .orElse(-1);
+
+        int[] score = model.score(best.bestSlot, best.bestRoom);
+        return new TimetableSolution(
+                model.placements(best.bestSlot, best.bestRoom),
+                score[0],
+                score[1],
+                iterations,
+                chains.size(),
+                (System.nanoTime() - startedAt) / 1_000_000,
+                firstFeasibleNanos < 0 ? -1 : firstFeasibleNanos / 1_000_000);
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        if (day == null) return null;
+        try {
+            return DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The problem as flat arrays. Slots are numbered day by day (slot = day * times + time),
+     * events course by course; neighbours[e] lists the events that may not share a slot with e.
+     */
+    static final class Model {
+        final TimetableProblem problem;
+        final int slots;
+        final int times;
+        final int days;
+        final int rooms;
+        final int courses;
+        final int events;
+
+        final DayOfWeek[] dayOfWeek;
+        final int[] eventCourse;
+        final int[] fixedRoom;
+        final int[][] neighbours;
+        final boolean[] blockedCourse;
+        final boolean[] blockedRoom;
+
+        private Model(TimetableProblem problem, DayOfWeek[] dayOfWeek, int[] eventCourse, int[] fixedRoom,
+                      int[][] neighbours) {
+            this.problem = problem;
+            this.dayOfWeek = dayOfWeek;
+            this.days = dayOfWeek.length;
+            this.times = problem.slotTimes().size();
+            this.slots = days * times;
+            this.rooms = problem.rooms().size();
+            this.courses = problem.courses().size();
+            this.events = eventCourse.length;
+            this.eventCourse = eventCourse;
+            this.fixedRoom = fixedRoom;
+            this.neighbours = neighbours;
+            this.blockedCourse = new boolean[courses * slots];
+            this.blockedRoom = new boolean[rooms * slots];
+        }
+
+        static Model compile(TimetableProblem problem) {
+            if (problem == null) throw new IllegalArgumentException("Problem is required");
+            if (problem.days() == null || problem.days().isEmpty()) {
+                throw new IllegalArgumentException("At least one day is required");
+            }
+            if (problem.slotTimes() == null || problem.slotTimes().isEmpty()) {
+                throw new IllegalArgumentException("At least one slot time is required");
+            }
+            if (problem.slotMinutes() < 1) throw new IllegalArgumentException("Slot length must be positive");
+            if (problem.rooms() == null || problem.rooms().isEmpty()) {
+                throw new IllegalArgumentException("At least one room is required");
+            }
+            if (problem.courses() == null || problem.courses().isEmpty()) {
+                throw new IllegalArgumentException("At least one course is required");
+            }
+            for (LocalTime time : problem.slotTimes()) {
+                if (time == null || time.plusMinutes(problem.slotMinutes()).isBefore(time)) {
+                    throw new IllegalArgumentException("Slots must start and end on the same day");
+                }
+            }
+
+            DayOfWeek[] dayOfWeek = new DayOfWeek[problem.days().size()];
+            for (int d = 0; d < dayOfWeek.length; d++) {
+                dayOfWeek[d] = parseDay(problem.days().get(d));
+                if (dayOfWeek[d] == null) throw new IllegalArgumentException("Invalid day: " + problem.days().get(d));
+            }
+
+            Map<String, Integer> roomIndex = new HashMap<>();
+            for (int r = 0; r < problem.rooms().size(); r++) {
+                roomIndex.putIfAbsent(AvailabilityIndex.key(problem.rooms().get(r)), r);
+            }
+
+            int courseCount = problem.courses().size();
+            int eventCount = 0;
+            int[] firstEvent = new int[courseCount + 1];
+            Map<String, List<Integer>> coursesByPerson = new HashMap<>();
+            for (int c = 0; c < courseCount; c++) {
+                TimetableProblem.Course course = problem.courses().get(c);
+                if (course.subject() == null || course.subject().isBlank()) {
+                    throw new IllegalArgumentException("Course " + (c + 1) + " has no subject");
+                }
+                if (course.hoursPerWeek() < 1) {
+                    throw new IllegalArgumentException("Course " + course.subject() + " needs at least one hour per week");
+                }
+                if (course.room() != null && !roomIndex.containsKey(AvailabilityIndex.key(course.room()))) {
+                    throw new IllegalArgumentException("Course " + course.subject() + " uses unknown room " + course.room());
+                }
+                firstEvent[c] = eventCount;
+                eventCount += course.hoursPerWeek();
+                if (eventCount > MAX_EVENTS) {
+                    throw new IllegalArgumentException("At most " + MAX_EVENTS + " course hours can be planned at once");
+                }
+
+                String lecturer = AvailabilityIndex.key(course.lecturer());
+                if (!lecturer.isEmpty()) coursesByPerson.computeIfAbsent("L:" + lecturer, k -> new ArrayList<>()).add(c);
+                if (course.usernames() != null) {
+                    for (String username : new LinkedHashSet<>(course.usernames())) {
+                        coursesByPerson.computeIfAbsent("U:" + username, k -> new ArrayList<>()).add(c);
+                    }
+                }
+            }
+            firstEvent[courseCount] = eventCount;
+
+            // Courses that share a lecturer or a student clash when placed in the same slot
+            List<Set<Integer>> clashing = new ArrayList<>(courseCount);
+            for (int c = 0; c < courseCount; c++) {
+                Set<Integer> set = new LinkedHashSet<>();
+                set.add(c);
+                clashing.add(set);
+            }
+            for (List<Integer> shared : coursesByPerson.values()) {
+                for (int a : shared) {
+                    clashing.get(a).addAll(shared);
+                }
+            }
+
+            int[] eventCourse = new int[eventCount];
+            int[] fixedRoom = new int[eventCount];
+            int[][] neighbours = new int[eventCount][];
+            for (int c = 0; c < courseCount; c++) {
+                TimetableProblem.Course course = problem.courses().get(c);
+                int room = course.room() == null ? -1 : roomIndex.get(AvailabilityIndex.key(course.room()));
+                int size = 0;
+                for (int other : clashing.get(c)) size += firstEvent[other + 1] - firstEvent[other];
+
+                for (int e = firstEvent[c]; e < firstEvent[c + 1]; e++) {
+                    eventCourse[e] = c;
+                    fixedRoom[e] = room;
+                    int[] list = new int[size - 1];
+                    int n = 0;
+                    for (int other : clashing.get(c)) {
+                        for (int o = firstEvent[other]; o < firstEvent[other + 1]; o++) {
+                            if (o != e) list[n++] = o;
+                        }
+                    }
+                    neighbours[e] = list;
+                }
+            }
+            return new Model(problem, dayOfWeek, eventCourse, fixedRoom, neighbours);
+        }
+
+        DayOfWeek slotDay(int slot) {
+            return dayOfWeek[slot / times];
+        }
+
+        LocalTime slotStart(int slot) {
+            return problem.slotTimes().get(slot % times);
+        }
+
+        boolean overlaps(int slot, LocalTime start, LocalTime end) {
+            LocalTime slotStart = slotStart(slot);
+            LocalTime slotEnd = slotStart.plusMinutes(problem.slotMinutes());
+            boolean endsAtMidnight = !end.isAfter(start);
+            return start.isBefore(slotEnd) && (endsAtMidnight || end.isAfter(slotStart));
+        }
+
+        /**
+         * Hard violations and soft penalty of an assignment, counted from scratch.
+         */
+        int[] score(int[] slot, int[] room) {
+            int hard = 0;
+            int soft = 0;
+            int[] occupancy = new int[rooms * slots];
+            int[] perDay = new int[courses * days];
+            for (int e = 0; e < events; e++) {
+                for (int n : neighbours[e]) {
+                    if (n > e && slot[n] == slot[e]) hard++;
+                }
+                int cell = room[e] * slots + slot[e];
+                hard += occupancy[cell]++;
+                if (blockedCourse[eventCourse[e] * slots + slot[e]]) hard++;
+                if (blockedRoom[cell]) hard++;
+                soft += perDay[eventCourse[e] * days + slot[e] / times]++;
+            }
+            return new int[]{hard, soft};
+        }
+
+        List<TimetableSolution.Placement> placements(int[] slot, int[] room) {
+            List<TimetableSolution.Placement> placements = new ArrayList<>(events);
+            for (int e = 0; e < events; e++) {
+                TimetableProblem.Course course = problem.courses().get(eventCourse[e]);
+                LocalTime start = slotStart(slot[e]);
+                placements.add(new TimetableSolution.Placement(
+                        course.subject(),
+                        course.lecturer(),
+                        problem.rooms().get(room[e]),
+                        slotDay(slot[e]).toString(),
+                        start,
+                        start.plusMinutes(problem.slotMinutes()),
+                        course.usernames() == null ? List.of() : List.copyOf(new LinkedHashSet<>(course.usernames()))));
+            }
+            placements.sort(Comparator
+                    .comparing((TimetableSolution.Placement p) -> DayOfWeek.valueOf(p.day()))
+                    .thenComparing(TimetableSolution.Placement::startTime)
+                    .thenComparing(TimetableSolution.Placement::room));
+            return placements;
+        }
+    }
+
+    /**
+     * One annealing run. All state is private to the chain; only the model is shared (read-only).
+     */
+    static final class Chain {
+        private final Model model;
+        private final SplittableRandom random;
+
+        private final int[] slot;
+        private final int[] room;
+        private final int[] occupancy;
+        private final int[] perDay;
+        private long cost;
+
+        int[] bestSlot;
+        int[] bestRoom;
+        long bestCost;
+        long iterations;
+        long firstFeasibleNanos = -1;
+
+        Chain(Model model, long seed) {
+            this.model = model;
+            this.random = new SplittableRandom(seed);
+            this.slot = new int[model.events];
+            this.room = new int[model.events];
+            this.occupancy = new int[model.rooms * model.slots];
+            this.perDay = new int[model.courses * model.days];
+
+            for (int e = 0; e < model.events; e++) {
+                slot[e] = random.nextInt(model.slots);
+                room[e] = model.fixedRoom[e] >= 0 ? model.fixedRoom[e] : random.nextInt(model.rooms);
+                occupancy[room[e] * model.slots + slot[e]]++;
+                perDay[model.eventCourse[e] * model.days + slot[e] / model.times]++;
+            }
+            int[] score = model.score(slot, room);
+            cost = (long) HARD_WEIGHT * score[0] + score[1];
+            keepBest();
+        }
+
+        void run(long startedAt, long deadline, AtomicBoolean solved) {
+            double temperature = START_TEMPERATURE;
+            double cooling = Math.log(END_TEMPERATURE / START_TEMPERATURE);
+            long budget = Math.max(1, deadline - startedAt);
+            if (cost < HARD_WEIGHT) firstFeasibleNanos = System.nanoTime() - startedAt;
+
+            while (bestCost > 0) {
+                if ((iterations & CLOCK_MASK) == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline || solved.get()) break;
+                    // Geometric cooling over the time budget rather than an iteration count
+                    temperature = START_TEMPERATURE * Math.exp(cooling * (now - startedAt) / budget);
+                }
+                iterations++;
+
+                int e = random.nextInt(model.events);
+                int oldSlot = slot[e];
+                int oldRoom = room[e];
+                if (random.nextBoolean()) {
+                    int newSlot = random.nextInt(model.slots);
+                    int newRoom = model.fixedRoom[e] >= 0 ? oldRoom : random.nextInt(model.rooms);
+                    long delta = move(e, newSlot, newRoom);
+                    if (accept(delta, temperature)) {
+                        cost += delta;
+                    } else {
+                        move(e, oldSlot, oldRoom);
+                    }
+                } else {
+                    int f = random.nextInt(model.events);
+                    if (f == e) continue;
+                    int otherSlot = slot[f];
+                    int otherRoom = room[f];
+                    long delta = move(e, otherSlot, model.fixedRoom[e] >= 0 ? oldRoom : otherRoom);
+                    delta += move(f, oldSlot, model.fixedRoom[f] >= 0 ? otherRoom : oldRoom);
+                    if (accept(delta, temperature)) {
+                        cost += delta;
+                    } else {
+                        move(f, otherSlot, otherRoom);
+                        move(e, oldSlot, oldRoom);
+                    }
+                }
+
+                if (cost < bestCost) {
+                    keepBest();
+                    if (cost < HARD_WEIGHT && firstFeasibleNanos < 0) {
+                        firstFeasibleNanos = System.nanoTime() - startedAt;
+                    }
+                }
+            }
+            if (bestCost == 0) solved.set(true);
+        }
+
+        private boolean accept(long delta, double temperature) {
+            return delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature);
+        }
+
+        // Moves an event and returns the change in cost
+        private long move(int e, int newSlot, int newRoom) {
+            int oldSlot = slot[e];
+            int oldRoom = room[e];
+            if (oldSlot == newSlot && oldRoom == newRoom) return 0;
+
+            int slots = model.slots;
+            int course = model.eventCourse[e];
+            long hard = 0;
+            long soft = 0;
+
+            if (oldSlot != newSlot) {
+                for (int n : model.neighbours[e]) {
+                    if (slot[n] == oldSlot) hard--;
+                    else if (slot[n] == newSlot) hard++;
+                }
+                if (model.blockedCourse[course * slots + oldSlot]) hard--;
+                if (model.blockedCourse[course * slots + newSlot]) hard++;
+
+                int oldDay = course * model.days + oldSlot / model.times;
+                int newDay = course * model.days + newSlot / model.times;
+                if (oldDay != newDay) {
+                    soft += perDay[newDay] - (perDay[oldDay] - 1);
+                    perDay[oldDay]--;
+                    perDay[newDay]++;
+                }
+            }
+
+            int oldCell = oldRoom * slots + oldSlot;
+            int newCell = newRoom * slots + newSlot;
+            hard += occupancy[newCell] - (occupancy[oldCell] - 1);
+            if (model.blockedRoom[oldCell]) hard--;
+            if (model.blockedRoom[newCell]) hard++;
+            occupancy[oldCell]--;
+            occupancy[newCell]++;
+
+            slot[e] = newSlot;
+            room[e] = newRoom;
+            return HARD_WEIGHT * hard + soft;
+        }
+
+        private void keepBest() {
+            bestSlot = slot.clone();
+            bestRoom = room.clone();
+            bestCost = cost;
+        }
+    }
+}
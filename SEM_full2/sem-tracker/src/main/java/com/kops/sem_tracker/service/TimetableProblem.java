@@ -0,0 +1,23 @@
+package com.kops.sem_tracker.service;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Input of the timetable generator: the weekly grid (days x slot start times),
+ * the rooms, and the courses with their weekly hours.
+ * Each hour of a course is placed in one slot and one room.
+ */
+public record TimetableProblem(
+        List<String> days,
+        List<LocalTime> slotTimes,
+        int slotMinutes,
+        List<String> rooms,
+        List<Course> courses) {
+
+    /**
+     * A course taught by one lecturer to a set of students (usernames).
+     * room may pin the course to one room; null lets the generator choose.
+     */
+    public record Course(String subject, String lecturer, int hoursPerWeek, List<String> usernames, String room) {}
+}
@@ -0,0 +1,26 @@
+package com.kops.sem_tracker.service;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Result of the timetable generator.
+ * hardViolations counts clashes (room, lecturer, student or existing booking); a usable
+ * timetable has none. softPenalty counts repeated hours of a course on the same day.
+ */
+public record TimetableSolution(
+        List<Placement> placements,
+        int hardViolations,
+        int softPenalty,
+        long iterations,
+        int chains,
+        long elapsedMs,
+        long firstFeasibleMs) {
+
+    public boolean isFeasible() {
+        return hardViolations == 0;
+    }
+
+    public record Placement(String subject, String lecturer, String room, String day,
+                            LocalTime startTime, LocalTime endTime, List<String> usernames) {}
+}
@@ -0,0 +1,165 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches each user's expanded weekly schedule (UserScheduleSnapshot) for /today, /week and /stats.
+ * Entries are keyed by (username, date) so a snapshot pre-warmed for tomorrow does not
+ * replace today's one before midnight. TimeTableService invalidates a user's entries on
+ * every save, update and delete. Hit, miss and eviction counts are published as
+ * schedule.cache.* metrics on the actuator metrics endpoint.
+ */
+@Component
+public class UserScheduleCache {
+
+    // Users seen within this many days are pre-warmed before the day rolls over
+    private static final int ACTIVE_USER_DAYS = 7;
+
+    private final TimeTableRepository timetableRepository;
+    private final BlackoutCalendar blackoutCalendar;
+    private final ExpiringLruCache<Key, UserScheduleSnapshot> cache;
+    private final Map<String, LocalDate> lastSeen = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService prewarmExecutor;
+    private final LocalTime prewarmTime;
+
+    public UserScheduleCache(TimeTableRepository timetableRepository,
+                             BlackoutCalendar blackoutCalendar,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.schedule-cache.max-size:10000}") int maxSize,
+                             @Value("${app.schedule-cache.ttl-minutes:720}") long ttlMinutes,
+                             @Value("${app.schedule-cache.prewarm-enabled:true}") boolean prewarmEnabled,
+                             @Value("${app.schedule-cache.prewarm-time:23:50}") String prewarmTime) {
+        this.timetableRepository = timetableRepository;
+        this.blackoutCalendar = blackoutCalendar;
+        this.cache = new ExpiringLruCache<>(maxSize, Duration.ofMinutes(ttlMinutes));
+        this.prewarmTime = LocalTime.parse(prewarmTime);
+
+        FunctionCounter.builder("schedule.cache.hits", cache, ExpiringLruCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("schedule.cache.misses", cache, ExpiringLruCache::missCount).register(meterRegistry);
+        FunctionCounter.builder("schedule.cache.evictions", cache, ExpiringLruCache::evictionCount).register(meterRegistry);
+        Gauge.builder("schedule.cache.size", cache, ExpiringLruCache::size).register(meterRegistry);
+
+        if (prewarmEnabled) {
+            this.prewarmExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "schedule-cache-prewarm");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduleNextPrewarm();
+        } else {
+            this.prewarmExecutor = null;
+        }
+    }
+
+    /**
+     * Get a user's snapshot for today, loading it with a single query on a miss.
+     */
+    public UserScheduleSnapshot get(String username) {
+        LocalDate today = LocalDate.now();
+        lastSeen.put(username, today);
+        return cache.get(new Key(username, today), key -> load(key.username(), key.date()));
+    }
+
+    /**
+     * Drop every cached snapshot of a user (today's and a pre-warmed one for tomorrow).
+     */
+    public void invalidate(String username) {
+        if (username == null) return;
+        LocalDate today = LocalDate.now();
+        cache.invalidate(new Key(username, today.minusDays(1)));
+        cache.invalidate(new Key(username, today));
+        cache.invalidate(new Key(username, today.plusDays(1)));
+    }
+
+    /**
+     * Drop every cached snapshot, e.g. when a holiday affects everyone.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Build tomorrow's snapshots for recently active users, so the morning spike is served from memory.
+     */
+    public void prewarmTomorrow() {
+        try {
+            LocalDate tomorrow = LocalDate.now().plusDays(1);
+            LocalDate activeSince = tomorrow.minusDays(ACTIVE_USER_DAYS);
+            lastSeen.values().removeIf(date -> date.isBefore(activeSince));
+            cache.evictExpired();
+
+            // Loaded through get() so a snapshot that raced with a save or delete is not kept
+            int warmed = 0;
+            for (String username : lastSeen.keySet()) {
+                cache.get(new Key(username, tomorrow), key -> load(key.username(), key.date()));
+                warmed++;
+            }
+            System.out.println("[UserScheduleCache] Pre-warmed " + warmed + " schedules for " + tomorrow);
+        } catch (Exception e) {
+            System.err.println("[UserScheduleCache] Pre-warming failed: " + e.getMessage());
+        }
+    }
+
+    // Re-computed after every run so the time of day survives daylight saving changes
+    private void scheduleNextPrewarm() {
+        prewarmExecutor.schedule(() -> {
+            prewarmTomorrow();
+            scheduleNextPrewarm();
+        }, millisUntil(prewarmTime), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (prewarmExecutor != null) {
+            prewarmExecutor.shutdownNow();
+        }
+    }
+
+    private UserScheduleSnapshot load(String username, LocalDate date) {
+        List<TimeTable> rows = timetableRepository.findByUsername(username);
+
+        int special = 0;
+        int futureSpecial = 0;
+        for (TimeTable row : rows) {
+            if (row.isSpecialSchedule()) {
+                special++;
+                if (row.getSpecialLocalDate() != null && !row.getSpecialLocalDate().isBefore(date)) {
+                    futureSpecial++;
+                }
+            }
+        }
+
+        return new UserScheduleSnapshot(date,
+                List.copyOf(blackoutCalendar.filter(ScheduleExpander.expand(rows, date, date.plusDays(7)))),
+                rows.size(), rows.size() - special, special, futureSpecial);
+    }
+
+    private static long millisUntil(LocalTime time) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(time);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        return Duration.between(now, next).toMillis();
+    }
+
+    private record Key(String username, LocalDate date) {}
+}
@@ -0,0 +1,34 @@
+package com.kops.sem_tracker.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's schedule as seen on one date: the next week of occurrences plus the
+ * counts shown by /stats. Immutable, so it can be shared between requests.
+ */
+public record UserScheduleSnapshot(
+        LocalDate date,
+        List<ScheduleOccurrence> week,
+        int totalSchedules,
+        int regularSchedules,
+        int specialSchedules,
+        int futureSpecialSchedules) {
+
+    public List<ScheduleOccurrence> today() {
+        return week.stream()
+                .filter(occurrence -> occurrence.date().equals(date))
+                .toList();
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "totalSchedules", totalSchedules,
+                "regularSchedules", regularSchedules,
+                "specialSchedules", specialSchedules,
+                "futureSpecialSchedules", futureSpecialSchedules,
+                "classesToday", today().size()
+        );
+    }
+}
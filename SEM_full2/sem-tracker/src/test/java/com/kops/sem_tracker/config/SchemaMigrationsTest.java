@@ -0,0 +1,56 @@
+package com.kops.sem_tracker.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class SchemaMigrationsTest {
+
+    private static final String INSERT_SUMMARY = "INSERT INTO attendance_summary " +
+            "(student_id, module_name, total_attended_hours, total_scheduled_hours, attendance_percentage) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    @Qualifier("migrateAttendanceSummaryUniqueKey")
+    private CommandLineRunner migrateAttendanceSummaryUniqueKey;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id LIKE 'migration-%'");
+        migrateAttendanceSummaryUniqueKey.run(); // Puts the key back if a test left it dropped
+    }
+
+    @Test
+    void duplicatedSummariesAreMergedBeforeTheKeyIsAdded() throws Exception {
+        // A database where ddl-auto could never add the key
+        jdbcTemplate.execute("ALTER TABLE attendance_summary DROP CONSTRAINT uk_attendance_summary_student_module");
+        jdbcTemplate.update(INSERT_SUMMARY, "migration-1", "Maths", 2.0, 10.0, 20.0);
+        jdbcTemplate.update(INSERT_SUMMARY, "migration-1", "Maths", 3.0, 10.0, 30.0);
+        jdbcTemplate.update(INSERT_SUMMARY, "migration-1", "Physics", 4.0, 8.0, 50.0);
+
+        migrateAttendanceSummaryUniqueKey.run();
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT module_name, total_attended_hours, attendance_percentage " +
+                "FROM attendance_summary WHERE student_id = 'migration-1' ORDER BY module_name");
+        assertEquals(2, rows.size());
+        assertEquals(5.0, ((Number) rows.get(0).get("total_attended_hours")).doubleValue(), 1e-9);
+        assertEquals(50.0, ((Number) rows.get(0).get("attendance_percentage")).doubleValue(), 1e-9);
+        assertEquals(4.0, ((Number) rows.get(1).get("total_attended_hours")).doubleValue(), 1e-9);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update(INSERT_SUMMARY, "migration-1", "Maths", 1.0, 10.0, 10.0));
+    }
+}
@@ -0,0 +1,162 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Attendance;
+import com.kops.sem_tracker.entyties.AttendanceSummary;
+import com.kops.sem_tracker.repository.AttendanceRepository;
+import com.kops.sem_tracker.repository.AttendanceSummaryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AttendanceImportServiceTest {
+
+    @Autowired
+    private AttendanceImportService importService;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private AttendanceSummaryRepository summaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM attendance WHERE student_id LIKE 'bulk-%'");
+        jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id LIKE 'bulk-%'");
+    }
+
+    @Test
+    void reportsInvalidRowsAndAddsTheRestToTheSummaries() throws Exception {
+        Attendance earlier = new Attendance();
+        earlier.setStudentId("bulk-a");
+        earlier.setModuleName("Maths");
+        earlier.setAttendanceDate(LocalDate.of(2025, 3, 3));
+        earlier.setAttendedHours(2);
+        attendanceService.save(earlier);
+
+        String csv = """
+                student,module,date,startTime,endTime,hours
+                bulk-a,Maths,2025-03-04,09:00,10:30,
+                bulk-a,Maths,2025-03-05,,,1
+                bulk-a,Physics,2025-03-05,14:00,16:00,
+                ,Maths,2025-03-05,,,1
+                bulk-b,Maths,05/03/2025,,,1
+                bulk-b,Maths,2025-03-05,11:00,10:00,
+                bulk-b,Maths,2025-03-05,,,
+                bulk-b,Maths,2025-03-05,,,lots
+                bulk-b,Maths,2025-03-06,,,3
+                """;
+        ImportReport report = importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(9, report.total());
+        assertEquals(4, report.imported());
+        assertEquals(List.of(5, 6, 7, 8, 9), report.errors().stream().map(ImportReport.RowError::row).toList());
+
+        assertEquals(4.5, summary("bulk-a", "Maths").getTotalAttendedHours(), 1e-9);
+        assertEquals(2.0, summary("bulk-a", "Physics").getTotalAttendedHours(), 1e-9);
+        assertEquals(3.0, summary("bulk-b", "Maths").getTotalAttendedHours(), 1e-9);
+        assertEquals(4.5, attendanceService.getTotalAttendedHours("bulk-a", "Maths"), 1e-9);
+        Attendance timed = attendanceRepository.findByStudentIdAndModuleName("bulk-a", "Physics").get(0);
+        assertEquals(LocalTime.of(14, 0), timed.getStartTime());
+        assertEquals(LocalDate.of(2025, 3, 5), timed.getAttendanceDate());
+    }
+
+    @Test
+    void importsJsonLines() throws Exception {
+        String jsonl = """
+                {"studentId":"bulk-c","moduleName":"Networks","attendanceDate":"2025-03-04","startTime":"09:00","endTime":"11:00"}
+
+                {"studentId":"bulk-c","moduleName":"Networks","attendanceDate":"2025-03-05","attendedHours":0.5,"source":"card-7"}
+                {"studentId":"bulk-c","moduleName":"Networks",
+                {"studentId":"bulk-c","attendanceDate":"2025-03-05","attendedHours":1}
+                """;
+        ImportReport report = importService.importJsonLines(new ByteArrayInputStream(jsonl.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.imported(), report.errors().toString());
+        assertEquals(List.of(4, 5), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertTrue(report.errors().get(0).error().startsWith("Invalid JSON"));
+        assertEquals(2.5, summary("bulk-c", "Networks").getTotalAttendedHours(), 1e-9);
+    }
+
+    @Test
+    void importsGeneratedRecordsIntoTheSummaries() throws Exception {
+        importGenerated(20_000, 500);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void importsAMillionRecords() throws Exception {
+        importGenerated(1_000_000, 5000);
+    }
+
+    private void importGenerated(int records, int students) throws Exception {
+        String[] modules = {"Maths", "Physics", "Chemistry", "Networks"};
+
+        long started = System.nanoTime();
+        ImportReport report = importService.importCsv(new GeneratedCsv(records, students, modules));
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        System.out.printf("[AttendanceImportService] %d records, %d summaries in %d ms (%d records/s)%n",
+                report.imported(), students * modules.length, millis, report.imported() * 1000L / Math.max(1, millis));
+
+        assertEquals(records, report.imported(), report.errors().toString());
+        // Record i goes to student i % students and module (i / students) % modules, one hour each
+        double expected = records / (students * modules.length);
+        assertEquals(expected, summary("bulk-42", "Physics").getTotalAttendedHours(), 1e-9);
+        assertEquals(expected, attendanceService.getTotalAttendedHours("bulk-42", "Physics"), 1e-9);
+    }
+
+    private AttendanceSummary summary(String studentId, String moduleName) {
+        return summaryRepository.findByStudentIdAndModuleName(studentId, moduleName).orElseThrow();
+    }
+
+    /**
+     * CSV produced line by line as it is read, so the test does not hold the payload in memory either.
+     */
+    private static final class GeneratedCsv extends InputStream {
+        private final int records;
+        private final int students;
+        private final String[] modules;
+        private byte[] line = "studentId,moduleName,attendanceDate,attendedHours\n".getBytes(StandardCharsets.UTF_8);
+        private int position;
+        private int next;
+
+        GeneratedCsv(int records, int students, String[] modules) {
+            this.records = records;
+            this.students = students;
+            this.modules = modules;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (next == records) return -1;
+                String module = modules[(next / students) % modules.length];
+                LocalDate date = LocalDate.of(2025, 1, 6).plusDays(next % 120);
+                line = ("bulk-" + (next % students) + "," + module + "," + date + ",1\n").getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                next++;
+            }
+            return line[position++];
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Attendance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AttendanceServiceTest {
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM attendance WHERE student_id LIKE 'overview-%'");
+        jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id LIKE 'overview-%'");
+    }
+
+    @Test
+    void overviewIsReadFromTheSummaries() {
+        attendanceService.save(attendance("overview-a", "Physics", LocalDate.of(2025, 3, 4), 2));
+        attendanceService.save(attendance("overview-a", "Maths", LocalDate.of(2025, 3, 4), 1.5));
+        attendanceService.save(attendance("overview-a", "Physics", LocalDate.of(2025, 3, 5), 1));
+
+        AttendanceOverview overview = attendanceService.getOverview("overview-a");
+        assertEquals(4.5, overview.totalAttendedHours(), 1e-9);
+        assertEquals(3, overview.totalRecords());
+        assertEquals(List.of("Maths", "Physics"), overview.modules().stream().map(AttendanceOverview.ModuleAttendance::moduleName).toList());
+        assertEquals(3.0, overview.modules().get(1).attendedHours(), 1e-9);
+
+        AttendanceOverview empty = attendanceService.getOverview("overview-nobody");
+        assertEquals(0, empty.overallAttendancePercentage());
+        assertTrue(empty.modules().isEmpty());
+    }
+
+    private static Attendance attendance(String studentId, String moduleName, LocalDate date, double hours) {
+        Attendance attendance = new Attendance();
+        attendance.setStudentId(studentId);
+        attendance.setModuleName(moduleName);
+        attendance.setAttendanceDate(date);
+        attendance.setAttendedHours(hours);
+        return attendance;
+    }
+}
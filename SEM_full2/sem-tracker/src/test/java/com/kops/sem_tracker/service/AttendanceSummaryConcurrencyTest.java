@@ -0,0 +1,127 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Attendance;
+import com.kops.sem_tracker.entyties.AttendanceSummary;
+import com.kops.sem_tracker.repository.AttendanceRepository;
+import com.kops.sem_tracker.repository.AttendanceSummaryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 64 writers checking in, moving and deleting attendance for a handful of (student, module)
+ * pairs at once; afterwards every summary must match its attendance rows exactly.
+ */
+@SpringBootTest
+class AttendanceSummaryConcurrencyTest {
+
+    private static final int WRITERS = 64;
+    private static final int WRITES_PER_WRITER = 60;
+    private static final String[] STUDENTS = {"stress-1", "stress-2", "stress-3", "stress-4"};
+    private static final String[] MODULES = {"Maths", "Physics"};
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private AttendanceSummaryRepository summaryRepository;
+
+    @AfterEach
+    void cleanUp() {
+        for (String student : STUDENTS) {
+            attendanceRepository.deleteAll(attendanceRepository.findByStudentId(student));
+            summaryRepository.deleteAll(summaryRepository.findByStudentId(student));
+        }
+    }
+
+    @Test
+    void concurrentWritersLeaveNoDrift() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger writes = new AtomicInteger();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int seed = w;
+            writers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                List<Long> mine = new ArrayList<>();
+                try {
+                    start.await();
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        int action = random.nextInt(10);
+                        if (action < 7 || mine.isEmpty()) {
+                            mine.add(attendanceService.save(attendance(random)).getId());
+                        } else if (action < 9) {
+                            // Move one of ours to another student/module
+                            Attendance moved = attendance(random);
+                            attendanceService.update(mine.get(random.nextInt(mine.size())), moved);
+                        } else {
+                            attendanceService.delete(mine.remove(random.nextInt(mine.size())));
+                        }
+                        writes.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> writer : writers) writer.get();
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        pool.shutdown();
+
+        assertTrue(errors.isEmpty(), () -> "writer failed: " + errors.peek());
+        int summaries = 0;
+        for (String student : STUDENTS) {
+            List<AttendanceSummary> rows = summaryRepository.findByStudentId(student);
+            for (String module : MODULES) {
+                List<AttendanceSummary> forModule = rows.stream().filter(row -> row.getModuleName().equals(module)).toList();
+                double expected = attendanceService.getTotalAttendedHours(student, module);
+                if (forModule.isEmpty()) {
+                    assertEquals(0.0, expected);
+                    continue;
+                }
+                assertEquals(1, forModule.size(), "duplicate summaries for " + student + "/" + module);
+                AttendanceSummary summary = forModule.get(0);
+                assertEquals(expected, summary.getTotalAttendedHours(), 1e-9, student + "/" + module);
+                // No timetable for these students, so nothing is scheduled
+                assertEquals(0.0, summary.getTotalScheduledHours(), student + "/" + module);
+                summaries++;
+            }
+        }
+        assertEquals(STUDENTS.length * MODULES.length, summaries);
+        System.out.printf("[AttendanceSummary] %d writes from %d writers on %d summaries in %d ms (%d writes/s), no drift%n",
+                writes.get(), WRITERS, summaries, elapsedMs, writes.get() * 1000L / elapsedMs);
+    }
+
+    private static Attendance attendance(Random random) {
+        Attendance attendance = new Attendance();
+        attendance.setStudentId(STUDENTS[random.nextInt(STUDENTS.length)]);
+        attendance.setModuleName(MODULES[random.nextInt(MODULES.length)]);
+        attendance.setAttendanceDate(LocalDate.of(2099, 1, 1 + random.nextInt(28)));
+        // Quarter hours add up exactly in binary floating point
+        attendance.setAttendedHours(0.25 * (1 + random.nextInt(12)));
+        return attendance;
+    }
+}
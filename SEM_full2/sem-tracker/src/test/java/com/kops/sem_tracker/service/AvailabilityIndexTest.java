@@ -0,0 +1,110 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.service.AvailabilityIndex.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+
+    private static final LocalDate TUESDAY = LocalDate.of(2025, 3, 4);
+
+    @Test
+    void answersRoomAndLecturerQueriesAndFollowsWrites() {
+        AvailabilityIndex index = new AvailabilityIndex(null);
+        index.index(regular(1L, "TUESDAY", 9, 11, "Hall A", "Dr Perera"));
+        index.index(regular(2L, "TUESDAY", 14, 15, "Lab 2", "Dr Perera"));
+        index.index(regular(3L, "WEDNESDAY", 14, 16, "Hall A", "Prof Silva"));
+        TimeTable exam = new TimeTable("Exam", TUESDAY.toString(), LocalTime.of(15, 0), LocalTime.of(17, 0), "Hall A", "Board", null);
+        exam.setId(4L);
+        index.index(exam);
+
+        // Tuesday 14:00-16:00: Hall A has the exam from 15:00, Lab 2 has a class
+        assertEquals(List.of(), index.freeResources(Resource.ROOM, TUESDAY, LocalTime.of(14, 0), LocalTime.of(16, 0)));
+        assertEquals(List.of("Hall A", "Lab 2"), index.freeResources(Resource.ROOM, TUESDAY, LocalTime.of(12, 0), LocalTime.of(14, 0)));
+        assertEquals(List.of("Hall A", "Lab 2"), index.freeResources(Resource.ROOM, TUESDAY.plusWeeks(1), LocalTime.of(15, 0), LocalTime.of(16, 0)));
+
+        assertEquals(List.of(
+                new TimeSlot(TUESDAY, LocalTime.of(8, 0), LocalTime.of(9, 0)),
+                new TimeSlot(TUESDAY, LocalTime.of(11, 0), LocalTime.of(14, 0)),
+                new TimeSlot(TUESDAY, LocalTime.of(15, 0), LocalTime.of(18, 0))),
+                index.freeSlots(Resource.LECTURER, "dr  perera", TUESDAY, LocalTime.of(8, 0), LocalTime.of(18, 0)));
+
+        // Hall A has at most four free hours on Tuesday, so five hours are first found on Wednesday morning
+        assertEquals(new TimeSlot(TUESDAY.plusDays(1), LocalTime.of(8, 0), LocalTime.of(13, 0)),
+                index.firstFreeSlot(Resource.ROOM, "Hall A", TUESDAY, 7, 300, LocalTime.of(8, 0), LocalTime.of(18, 0)).orElseThrow());
+
+        // Moving the class and deleting the exam frees the room
+        index.index(regular(1L, "THURSDAY", 9, 11, "Hall A", "Dr Perera"));
+        index.remove(4L);
+        assertTrue(index.isFree(Resource.ROOM, "Hall A", TUESDAY, LocalTime.of(8, 0), LocalTime.of(18, 0)));
+        assertEquals(List.of("Hall A", "Lab 2"), index.names(Resource.ROOM));
+        assertFalse(index.names(Resource.LECTURER).contains("Board"));
+    }
+
+    @Test
+    void honoursRecurrenceAndValidity() {
+        AvailabilityIndex index = new AvailabilityIndex(null);
+        TimeTable biWeekly = regular(1L, "TUESDAY", 9, 10, "Lab 7", "Ms Fernando");
+        biWeekly.setRecurrenceInterval(2);
+        biWeekly.setValidFrom(TUESDAY);
+        biWeekly.setValidUntil(TUESDAY.plusWeeks(4));
+        index.index(biWeekly);
+
+        LocalTime nine = LocalTime.of(9, 0);
+        LocalTime ten = LocalTime.of(10, 0);
+        assertFalse(index.isFree(Resource.ROOM, "Lab 7", TUESDAY, nine, ten));
+        assertTrue(index.isFree(Resource.ROOM, "Lab 7", TUESDAY.plusWeeks(1), nine, ten));
+        assertFalse(index.isFree(Resource.ROOM, "Lab 7", TUESDAY.plusWeeks(2), nine, ten));
+        assertTrue(index.isFree(Resource.ROOM, "Lab 7", TUESDAY.plusWeeks(6), nine, ten));
+    }
+
+    @Test
+    void intervalTreeMatchesBruteForce() {
+        Random random = new Random(42);
+        IntervalTree<Long> tree = new IntervalTree<>();
+        Map<Long, int[]> live = new HashMap<>();
+
+        for (long id = 0; id < 5_000; id++) {
+            int start = random.nextInt(1400);
+            int end = start + 1 + random.nextInt(120);
+            tree.insert(start, end, id, id);
+            live.put(id, new int[]{start, end});
+            if (random.nextInt(3) == 0) {
+                long victim = random.nextInt((int) id + 1);
+                int[] interval = live.remove(victim);
+                if (interval != null) assertTrue(tree.remove(interval[0], victim));
+            }
+        }
+        assertEquals(live.size(), tree.size());
+
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(1440);
+            int end = start + 1 + random.nextInt(90);
+            List<Long> expected = new ArrayList<>();
+            live.forEach((id, interval) -> {
+                if (interval[0] < end && interval[1] > start) expected.add(id);
+            });
+            List<Long> actual = tree.overlapping(start, end);
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+        }
+    }
+
+    private static TimeTable regular(Long id, String day, int startHour, int endHour, String room, String lecturer) {
+        TimeTable row = new TimeTable("Subject " + id, day, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0), room, lecturer);
+        row.setId(id);
+        return row;
+    }
+}
@@ -0,0 +1,142 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.entyties.TimeTableChange;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.TimeTableChangeRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BlackoutServiceTest {
+
+    private static final String USER = "blackout-user";
+    private static final LocalDate HOLIDAY = LocalDate.of(2099, 3, 2); // a Monday
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private BlackoutService blackoutService;
+
+    @Autowired
+    private TimeTableRepository timeTableRepository;
+
+    @Autowired
+    private BlackoutRepository blackoutRepository;
+
+    @Autowired
+    private BlackoutCalendar blackoutCalendar;
+
+    @Autowired
+    private TimeTableChangeRepository changeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        timeTableRepository.deleteAll(timeTableRepository.findByUsername(USER));
+        blackoutRepository.findAll().forEach(blackout -> blackoutService.delete(blackout.getId()));
+    }
+
+    @Test
+    void institutionHolidaySuppressesRegularClassesOnly() {
+        timeTableService.save(regular());
+        timeTableService.save(special("Make-up lab", HOLIDAY));
+
+        Blackout holiday = new Blackout(HOLIDAY, HOLIDAY, null, "Public holiday");
+        assertEquals(0, blackoutService.create(holiday, false));
+
+        List<ScheduleOccurrence> onHoliday = timeTableService.getOccurrencesForDate(USER, HOLIDAY);
+        assertEquals(List.of("Make-up lab"), onHoliday.stream().map(ScheduleOccurrence::subject).toList());
+        assertEquals(2, timeTableService.getOccurrencesForUser(USER, HOLIDAY, HOLIDAY.plusWeeks(1)).size());
+        assertTrue(timeTableService.hasClassOnDate(USER, HOLIDAY.plusWeeks(1).toString()));
+
+        blackoutService.delete(holiday.getId());
+        assertEquals(2, timeTableService.getOccurrencesForDate(USER, HOLIDAY).size());
+    }
+
+    @Test
+    void personalBlackoutCancelsSpecialSchedulesInOneStatement() {
+        timeTableService.save(regular());
+        timeTableService.save(special("Exam", HOLIDAY.plusDays(1)));
+        timeTableService.save(special("Field trip", HOLIDAY.plusDays(10)));
+
+        int cancelled = blackoutService.create(new Blackout(HOLIDAY, HOLIDAY.plusDays(4), USER, "Medical leave"), true);
+
+        assertEquals(1, cancelled);
+        assertFalse(timeTableService.hasClassOnDate(USER, HOLIDAY.toString()));
+        assertEquals(List.of("Field trip"), timeTableService.getSpecialSchedulesForUser(USER).stream()
+                .map(TimeTable::getSubject).toList());
+        assertTrue(timeTableService.search("exam", USER, 0, 10).results().isEmpty());
+        // Other users are not affected
+        assertEquals(1, blackoutService.getBlackouts(USER).size());
+        assertEquals(0, blackoutService.getBlackouts(null).size());
+    }
+
+    @Test
+    void activeSchedulesOnlyIncludeRowsThatRecurOnTheDate() {
+        TimeTable ended = regular();
+        ended.setSubject("Ended course");
+        ended.setValidUntil(HOLIDAY.minusWeeks(1));
+        timeTableService.save(ended);
+        timeTableService.save(regular());
+        timeTableService.save(special("Make-up lab", HOLIDAY));
+
+        assertEquals(List.of("Maths", "Make-up lab"), subjectsFor(HOLIDAY));
+
+        blackoutService.create(new Blackout(HOLIDAY, HOLIDAY, null, "Public holiday"), false);
+        assertEquals(List.of("Make-up lab"), subjectsFor(HOLIDAY));
+    }
+
+    @Test
+    void aRolledBackBlackoutLeavesCalendarAndIndexesAlone() {
+        TimeTable exam = timeTableService.save(special("Exam", HOLIDAY.plusDays(1)));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(1, blackoutService.create(new Blackout(HOLIDAY, HOLIDAY.plusDays(4), USER, "Medical leave"), true));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(blackoutCalendar.isBlackedOut(USER, HOLIDAY));
+        assertTrue(timeTableRepository.existsById(exam.getId()));
+        assertEquals(1, timeTableService.search("exam", USER, 0, 10).results().size());
+        assertTrue(changeRepository.findByUsernameAndIdGreaterThanOrderByIdAsc(USER, 0L, PageRequest.ofSize(100)).stream()
+                .noneMatch(change -> change.getOperation() == TimeTableChange.Operation.DELETE));
+    }
+
+    private List<String> subjectsFor(LocalDate date) {
+        return timeTableService.getActiveSchedulesForDate(date.toString()).stream()
+                .filter(row -> USER.equals(row.getUsername()))
+                .map(TimeTable::getSubject)
+                .toList();
+    }
+
+    private static TimeTable regular() {
+        TimeTable row = new TimeTable("Maths", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 1", "Lecturer");
+        row.setUsername(USER);
+        return row;
+    }
+
+    private static TimeTable special(String subject, LocalDate date) {
+        TimeTable row = new TimeTable(subject, date.toString(), LocalTime.of(13, 0), LocalTime.of(14, 0), "Hall", "Board", null);
+        row.setUsername(USER);
+        return row;
+    }
+}
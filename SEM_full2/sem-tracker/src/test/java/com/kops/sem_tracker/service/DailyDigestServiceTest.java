@@ -0,0 +1,142 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.EmailOutbox;
+import com.kops.sem_tracker.entyties.Student;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.EmailOutboxRepository;
+import com.kops.sem_tracker.repository.StudentRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Email on with no outbox workers: digests are queued but nothing is sent
+@SpringBootTest(properties = {"app.email.enabled=true", "app.email.outbox.workers=0",
+        "app.schedule.daily-email.chunk-size=200"})
+class DailyDigestServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2099, 3, 2);
+
+    @Autowired
+    private DailyDigestService dailyDigestService;
+
+    @Autowired
+    private BlackoutService blackoutService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TimeTableRepository timeTableRepository;
+
+    @Autowired
+    private BlackoutRepository blackoutRepository;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM timetables WHERE username LIKE 'digest-%'");
+        jdbcTemplate.update("DELETE FROM students WHERE username LIKE 'digest-%'");
+        blackoutRepository.findAll().forEach(blackout -> blackoutService.delete(blackout.getId()));
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void everyStudentGetsTheirOwnAgenda() {
+        studentRepository.saveAll(List.of(
+                new Student("digest-ann", "ann@example.com", "secret1"),
+                new Student("digest-bob", "bob@example.com", "secret1"),
+                new Student("digest-cat", "cat@example.com", "secret1")));
+        timeTableRepository.saveAll(List.of(
+                regular("digest-ann", "Maths", "MONDAY", 11),
+                regular("digest-ann", "Physics", "MONDAY", 9),
+                regular("digest-ann", "Biology", "TUESDAY", 9),
+                special("digest-ann", "Exam", MONDAY, 14),
+                special("digest-ann", "Resit", MONDAY.plusDays(1), 14),
+                regular("digest-bob", "Chemistry", "WEDNESDAY", 9),
+                regular("digest-cat", "Statistics", "MONDAY", 9)));
+        blackoutService.create(new Blackout(MONDAY, MONDAY, "digest-cat", "Field trip"), false);
+
+        DigestReport report = dailyDigestService.run(MONDAY);
+
+        assertFalse(report.running());
+        assertEquals(report.totalStudents(), report.processed());
+        assertEquals(report.processed(), report.queued());
+        Map<String, EmailOutbox> byRecipient = outboxRepository.findAll().stream()
+                .collect(Collectors.toMap(EmailOutbox::getRecipient, email -> email));
+
+        String ann = byRecipient.get("ann@example.com").getBody();
+        assertTrue(ann.contains("You have 3 classes today"));
+        assertTrue(ann.indexOf("Physics") < ann.indexOf("Maths") && ann.indexOf("Maths") < ann.indexOf("Exam"));
+        assertFalse(ann.contains("Biology") || ann.contains("Resit"));
+        assertTrue(byRecipient.get("bob@example.com").getBody().contains("No Classes Today"));
+        // Blacked out for cat only
+        assertTrue(byRecipient.get("cat@example.com").getBody().contains("No Classes Today"));
+        assertTrue(byRecipient.get("ann@example.com").getSubject().contains("Monday, March 2, 2099"));
+    }
+
+    @Test
+    void fanOutThroughput() {
+        int students = 10_000;
+        List<Object[]> studentRows = new ArrayList<>(students);
+        List<Object[]> classRows = new ArrayList<>(students * 3);
+        for (int i = 0; i < students; i++) {
+            String username = "digest-s" + i;
+            studentRows.add(new Object[]{username, username + "@example.com", "secret1"});
+            classRows.add(classRow(username, "Maths", "MONDAY", 9));
+            classRows.add(classRow(username, "Physics", "MONDAY", 11));
+            classRows.add(classRow(username, "Chemistry", "TUESDAY", 9));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO students (username, email, password) VALUES (?, ?, ?)", studentRows);
+        jdbcTemplate.batchUpdate("INSERT INTO timetables (username, subject, title, day, start_time, end_time, " +
+                "is_weekly, recurrence_interval, is_special_schedule, notification_preference) " +
+                "VALUES (?, ?, ?, ?, ?, ?, true, 1, false, 'NONE')", classRows);
+
+        DigestReport report = dailyDigestService.run(MONDAY);
+
+        assertEquals(report.processed(), report.queued());
+        assertEquals(report.queued(), outboxRepository.count());
+        assertTrue(outboxRepository.findAll().stream()
+                .filter(email -> email.getRecipient().equals("digest-s42@example.com"))
+                .allMatch(email -> email.getBody().contains("You have 2 classes today")));
+        System.out.println("[DailyDigest] " + report.queued() + " digests queued in " + report.elapsedMs() + "ms ("
+                + Math.round(report.studentsPerSecond()) + " students/s, 50k students in ~"
+                + Math.round(50_000 / report.studentsPerSecond()) + "s)");
+    }
+
+    private static TimeTable regular(String username, String subject, String day, int hour) {
+        TimeTable row = new TimeTable(subject, day, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0), "Room 1", "Lecturer");
+        row.setUsername(username);
+        return row;
+    }
+
+    private static TimeTable special(String username, String subject, LocalDate date, int hour) {
+        TimeTable row = new TimeTable(subject, date.toString(), LocalTime.of(hour, 0), LocalTime.of(hour + 2, 0), "Hall", "Board", null);
+        row.setUsername(username);
+        return row;
+    }
+
+    private static Object[] classRow(String username, String subject, String day, int hour) {
+        return new Object[]{username, subject, subject, day, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0)};
+    }
+}
@@ -0,0 +1,176 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.EmailOutbox;
+import com.kops.sem_tracker.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the outbox against an in-process SMTP server.
+ */
+@SpringBootTest
+class EmailOutboxServiceTest {
+
+    private static final FakeSmtpServer SMTP;
+
+    static {
+        try {
+            SMTP = new FakeSmtpServer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void smtpProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.email.enabled", () -> "true");
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", SMTP::port);
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        registry.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+        registry.add("app.email.outbox.workers", () -> "2");
+        registry.add("app.email.outbox.max-attempts", () -> "3");
+        registry.add("app.email.outbox.backoff-millis", () -> "50");
+        // Small enough for the tests to overflow it
+        registry.add("app.email.outbox.queue-capacity", () -> "20");
+    }
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxService outbox;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        SMTP.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        await(() -> outbox.queueDepth() == 0 && outboxRepository.countByStatus(EmailOutbox.Status.PENDING) == 0);
+        outboxRepository.deleteAll();
+        SMTP.reset();
+    }
+
+    @Test
+    void sendsWithoutBlockingAndReusesConnections() {
+        long started = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            emailService.sendEmail("student" + i + "@example.com", "Class Reminder", "Reminder " + i);
+        }
+        long enqueueMs = (System.nanoTime() - started) / 1_000_000;
+
+        await(() -> outboxRepository.countByStatus(EmailOutbox.Status.SENT) == 200);
+        assertEquals(200, SMTP.messages().size());
+        // Two workers, each keeping its connection open across messages
+        assertTrue(SMTP.connections() <= 2, "connections: " + SMTP.connections());
+        assertTrue(meterRegistry.get("email.outbox.send.latency").timer().count() >= 200);
+        System.out.println("[EmailOutbox] 200 emails enqueued in " + enqueueMs + " ms over "
+                + SMTP.connections() + " SMTP connections");
+    }
+
+    @Test
+    void aBacklogBeyondTheQueueDrainsWithoutWaitingForTheSweepInterval() {
+        List<EmailOutbox> emails = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            emails.add(new EmailOutbox("digest" + i + "@example.com", "Daily digest", "Digest " + i, false));
+        }
+        outbox.enqueueAll(emails);
+        assertTrue(outboxRepository.countByStatus(EmailOutbox.Status.PENDING) > 100);
+
+        // Well inside the 30 s sweep interval
+        await(() -> outboxRepository.countByStatus(EmailOutbox.Status.SENT) == 150);
+        assertEquals(150, SMTP.messages().size());
+    }
+
+    @Test
+    void temporaryFailuresAreRetriedWithBackoff() {
+        double failuresBefore = meterRegistry.get("email.outbox.failures").counter().count();
+        SMTP.failNext(2);
+
+        EmailOutbox email = outbox.enqueue("retry@example.com", "Retry", "Hello", false);
+
+        await(() -> outboxRepository.findById(email.getId()).orElseThrow().getStatus() == EmailOutbox.Status.SENT);
+        EmailOutbox sent = outboxRepository.findById(email.getId()).orElseThrow();
+        assertEquals(3, sent.getAttempts());
+        assertEquals(2, meterRegistry.get("email.outbox.failures").counter().count() - failuresBefore);
+        assertEquals(List.of("<retry@example.com>"), SMTP.messages().get(0).to());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        SMTP.failNext(10);
+
+        EmailOutbox email = outbox.enqueue("dead@example.com", "Dead", "Hello", true);
+
+        await(() -> outboxRepository.findById(email.getId()).orElseThrow().getStatus() == EmailOutbox.Status.FAILED);
+        EmailOutbox failed = outboxRepository.findById(email.getId()).orElseThrow();
+        assertEquals(3, failed.getAttempts());
+        assertTrue(failed.getLastError().contains("451"));
+        assertTrue(SMTP.messages().isEmpty());
+    }
+
+    @Test
+    void anEmailClaimedByAnotherNodeIsSentOnlyAfterTheClaimExpires() throws InterruptedException {
+        // Claimed by a node that then stopped, before sending
+        EmailOutbox claimed = new EmailOutbox("claimed@example.com", "Claimed", "Hello", false);
+        claimed.setStatus(EmailOutbox.Status.SENDING);
+        claimed.setClaimedUntil(LocalDateTime.now().plusSeconds(1));
+        EmailOutbox email = outboxRepository.save(claimed);
+
+        outbox.sweep();
+        Thread.sleep(300);
+        assertTrue(SMTP.messages().isEmpty());
+        assertEquals(0, outboxRepository.claim(email.getId(), LocalDateTime.now(), LocalDateTime.now().plusMinutes(5)));
+
+        Thread.sleep(1000);
+        outbox.sweep();
+        await(() -> outboxRepository.findById(email.getId()).orElseThrow().getStatus() == EmailOutbox.Status.SENT);
+        assertEquals(1, SMTP.messages().size());
+        assertNull(outboxRepository.findById(email.getId()).orElseThrow().getClaimedUntil());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(50, outbox.backoff(1).toMillis());
+        assertEquals(100, outbox.backoff(2).toMillis());
+        assertEquals(400, outbox.backoff(4).toMillis());
+        assertEquals(600_000, outbox.backoff(40).toMillis());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-email render cost of the daily schedule email: the old StringBuilder renderer
+ * (kept below as the baseline) against the cached template renderer, with classes shared
+ * between emails (as in a digest, where a course's block is the same for all its students)
+ * and with every class distinct.
+ */
+class EmailRenderBenchmarkTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 2, 3);
+    // Thymeleaf's compiled expressions need a long warm-up before the JIT settles
+    private static final long WARMUP_NANOS = 3_000_000_000L;
+    private static final int ROUNDS = 5;
+    private static final int RUNS = 20_000;
+
+    private final EmailTemplateRenderer renderer = new EmailTemplateRenderer();
+
+    @Test
+    void rendersTheSameContentWithoutTouchingTheCallersList() {
+        List<TimeTable> classes = agenda();
+        List<TimeTable> original = new ArrayList<>(classes);
+
+        String html = renderer.renderDailySchedule("alice", classes, DATE);
+
+        assertEquals(original, classes);
+        assertTrue(html.startsWith("<!DOCTYPE html>") && html.trim().endsWith("</html>"));
+        assertTrue(html.contains("Monday, February 3, 2025") && html.contains("Hello, alice!"));
+        assertTrue(html.contains("You have 4 classes today:"));
+        assertTrue(html.indexOf("Physics") < html.indexOf("Maths") && html.indexOf("Maths") < html.indexOf("Lab &amp; Practical"));
+        assertTrue(html.contains("09:00 AM - 10:00 AM") && html.contains("SPECIAL"));
+        assertFalse(html.contains("<script>"));
+        assertTrue(renderer.renderDailySchedule("bob", List.of(), DATE).contains("No Classes Today!"));
+
+        TimeTable reminder = classes.get(0);
+        String reminderHtml = renderer.renderClassReminder("alice", reminder);
+        assertTrue(reminderHtml.contains("Class Reminder") && reminderHtml.contains(reminder.getSubject()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void perEmailRenderCost() {
+        List<TimeTable> classes = agenda();
+        Supplier<String> legacy = () -> LegacyRenderer.build("alice", new ArrayList<>(classes), DATE);
+        Supplier<String> templated = () -> renderer.renderDailySchedule("alice", classes, DATE);
+
+        // Worst case for the block cache: no two emails share a class
+        int[] sequence = {0};
+        Supplier<String> uncached = () -> {
+            List<TimeTable> distinct = new ArrayList<>(classes.size());
+            for (TimeTable row : classes) {
+                TimeTable copy = new TimeTable(row.getSubject() + " " + sequence[0]++, row.getDay(),
+                        row.getStartTime(), row.getEndTime(), row.getLocation(), row.getLecturer());
+                distinct.add(copy);
+            }
+            return renderer.renderDailySchedule("alice", distinct, DATE);
+        };
+
+        Result before = measure(legacy);
+        Result after = measure(templated);
+        Result cold = measure(uncached);
+
+        System.out.println("[EmailRender] renderer              us/email   bytes allocated/email   html chars");
+        System.out.printf("[EmailRender] %-20s %10.2f %23d %12d%n", "legacy", before.micros, before.bytes, before.length);
+        System.out.printf("[EmailRender] %-20s %10.2f %23d %12d%n", "template", after.micros, after.bytes, after.length);
+        System.out.printf("[EmailRender] %-20s %10.2f %23d %12d%n", "template, no reuse", cold.micros, cold.bytes, cold.length);
+
+        // With the block cache, the templates allocate less per email than the renderer they replaced
+        assertTrue(after.bytes < before.bytes, "template allocates " + after.bytes + " bytes/email, legacy " + before.bytes);
+    }
+
+    // Best of ROUNDS rounds after a timed warm-up
+    private static Result measure(Supplier<String> render) {
+        int length = 0;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) length += render.get().length();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        Result best = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long started = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) length = render.get().length();
+            long elapsed = System.nanoTime() - started;
+            long allocated = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            Result result = new Result(elapsed / 1000.0 / RUNS, allocated / RUNS, length);
+            if (best == null || result.micros < best.micros) best = result;
+        }
+        return best;
+    }
+
+    private record Result(double micros, long bytes, int length) {}
+
+    private static List<TimeTable> agenda() {
+        TimeTable maths = new TimeTable("Maths", "MONDAY", LocalTime.of(11, 0), LocalTime.of(12, 0), "Room 1", "Dr Smith");
+        TimeTable physics = new TimeTable("Physics", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 2", "Dr Jones");
+        physics.setDescription("Bring a calculator");
+        TimeTable lab = new TimeTable("Lab & Practical", "MONDAY", LocalTime.of(14, 0), LocalTime.of(16, 0), "Lab 3", null);
+        TimeTable exam = new TimeTable("Midterm <script>", DATE.toString(), LocalTime.of(16, 30), LocalTime.of(18, 0),
+                "Hall", "Board", null);
+        return new ArrayList<>(List.of(maths, physics, lab, exam));
+    }
+
+    /**
+     * EmailService.buildDailyScheduleHtml as it was before the templates.
+     */
+    private static final class LegacyRenderer {
+
+        static String build(String username, List<TimeTable> schedules, LocalDate date) {
+            StringBuilder html = new StringBuilder();
+            String formattedDate = date.format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy"));
+
+            html.append("<!DOCTYPE html><html><head><style>");
+            html.append("body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }");
+            html.append(".container { max-width: 600px; margin: 0 auto; padding: 20px; }");
+            html.append(".header { background: linear-gradient(135deg, #667eea 0%, #764ba2 100%); color: white; padding: 30px; border-radius: 10px 10px 0 0; text-align: center; }");
+            html.append(".content { background: #f9f9f9; padding: 20px; }");
+            html.append(".schedule-item { background: white; padding: 15px; margin: 10px 0; border-left: 4px solid #667eea; border-radius: 5px; box-shadow: 0 2px 4px rgba(0,0,0,0.1); }");
+            html.append(".special { border-left-color: #ff6b6b; }");
+            html.append(".time { font-weight: bold; color: #667eea; font-size: 16px; }");
+            html.append(".subject { font-size: 18px; font-weight: bold; margin: 5px 0; }");
+            html.append(".details { color: #666; font-size: 14px; }");
+            html.append(".no-schedule { text-align: center; padding: 40px; color: #999; }");
+            html.append(".footer { background: #333; color: white; padding: 20px; text-align: center; border-radius: 0 0 10px 10px; font-size: 12px; }");
+            html.append("</style></head><body>");
+
+            html.append("<div class='container'>");
+            html.append("<div class='header'>");
+            html.append("<h1>📅 Today's Schedule</h1>");
+            html.append("<p>").append(formattedDate).append("</p>");
+            html.append("<p>Hello, ").append(username).append("!</p>");
+            html.append("</div>");
+            html.append("<div class='content'>");
+
+            if (schedules == null || schedules.isEmpty()) {
+                html.append("<div class='no-schedule'><h2>🎉 No Classes Today!</h2><p>Enjoy your free day!</p></div>");
+            } else {
+                html.append("<h2 style='color: #667eea;'>You have ").append(schedules.size())
+                        .append(" class").append(schedules.size() > 1 ? "es" : "").append(" today:</h2>");
+                schedules.sort((a, b) -> {
+                    LocalTime timeA = a.getStartTime();
+                    LocalTime timeB = b.getStartTime();
+                    return timeA != null && timeB != null ? timeA.compareTo(timeB) : 0;
+                });
+                for (TimeTable schedule : schedules) {
+                    String specialClass = schedule.isSpecialSchedule() ? " special" : "";
+                    html.append("<div class='schedule-item").append(specialClass).append("'>");
+                    if (schedule.isSpecialSchedule()) {
+                        html.append("<span style='background: #ff6b6b; color: white; padding: 3px 8px; border-radius: 3px; font-size: 11px; font-weight: bold;'>SPECIAL</span> ");
+                    }
+                    html.append("<div class='time'>⏰ ");
+                    if (schedule.getStartTime() != null && schedule.getEndTime() != null) {
+                        html.append(formatTime(schedule.getStartTime())).append(" - ").append(formatTime(schedule.getEndTime()));
+                    }
+                    html.append("</div>");
+                    html.append("<div class='subject'>").append(escapeHtml(schedule.getSubject())).append("</div>");
+                    if (schedule.getLecturer() != null && !schedule.getLecturer().isEmpty()) {
+                        html.append("<div class='details'>👤 ").append(escapeHtml(schedule.getLecturer())).append("</div>");
+                    }
+                    if (schedule.getLocation() != null && !schedule.getLocation().isEmpty()) {
+                        html.append("<div class='details'>📍 ").append(escapeHtml(schedule.getLocation())).append("</div>");
+                    }
+                    if (schedule.getDescription() != null && !schedule.getDescription().isEmpty()) {
+                        html.append("<div class='details'>📝 ").append(escapeHtml(schedule.getDescription())).append("</div>");
+                    }
+                    html.append("</div>");
+                }
+            }
+
+            html.append("</div>");
+            html.append("<div class='footer'><p>This is an automated email from SEM Tracker</p><p>Have a great day! 🎓</p></div>");
+            html.append("</div></body></html>");
+            return html.toString();
+        }
+
+        private static String formatTime(LocalTime time) {
+            return time == null ? "" : time.format(DateTimeFormatter.ofPattern("hh:mm a"));
+        }
+
+        private static String escapeHtml(String text) {
+            if (text == null) return "";
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                    .replace("\"", "&quot;").replace("'", "&#39;");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.kops.sem_tracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpiringLruCacheTest {
+
+    @Test
+    void evictsBySizeAndTtlAndCountsHitsAndMisses() {
+        MutableClock clock = new MutableClock();
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, Duration.ofMinutes(10), clock);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", key -> key + loads.incrementAndGet());
+        cache.get("b", key -> key + loads.incrementAndGet());
+        assertEquals("a1", cache.get("a", key -> key + loads.incrementAndGet()));
+        cache.get("c", key -> key + loads.incrementAndGet()); // evicts b, the least recently used
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertEquals(1, cache.evictionCount());
+
+        clock.advance(Duration.ofMinutes(11));
+        assertEquals("a4", cache.get("a", key -> key + loads.incrementAndGet()));
+        assertEquals(2, cache.evictionCount());
+
+        cache.invalidate("a");
+        assertEquals("a5", cache.get("a", key -> key + loads.incrementAndGet()));
+    }
+
+    @Test
+    void aLoadThatRacedWithAnInvalidationIsNotCached() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(10));
+
+        // The row changes while the snapshot is being built, as a save during pre-warming would
+        assertEquals("stale", cache.get("a", key -> {
+            cache.invalidate(key);
+            return "stale";
+        }));
+        assertEquals("fresh", cache.get("a", key -> "fresh"));
+        assertEquals("fresh", cache.get("a", key -> "unused"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
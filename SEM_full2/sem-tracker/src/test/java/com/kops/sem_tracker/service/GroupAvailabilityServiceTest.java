@@ -0,0 +1,83 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupAvailabilityServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+    private static final String[] DAYS = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY"};
+
+    @Test
+    void setRangeCoversWordBoundaries() {
+        MinuteBitset bits = new MinuteBitset(2);
+        bits.setRange(1, 60, 130);
+        assertFalse(bits.isBusy(1, 59));
+        assertTrue(bits.isBusy(1, 60));
+        assertTrue(bits.isBusy(1, 64));
+        assertTrue(bits.isBusy(1, 129));
+        assertFalse(bits.isBusy(1, 130));
+        assertFalse(bits.isBusy(0, 100));
+        assertEquals(130, bits.nextFree(1, 60, 1440));
+        assertEquals(60, bits.nextBusy(1, 0, 1440));
+        assertEquals(-1, bits.nextFree(1, 60, 130));
+    }
+
+    @Test
+    void groupBitsetMatchesPerMinuteScanForHundredsOfUsers() {
+        Random random = new Random(7);
+        List<TimeTable> rows = new ArrayList<>();
+        for (int user = 0; user < 400; user++) {
+            for (int i = 0; i < 12; i++) {
+                int start = 7 * 60 + random.nextInt(12) * 60 + random.nextInt(4) * 15;
+                TimeTable row = new TimeTable("Subject", DAYS[random.nextInt(DAYS.length)],
+                        LocalTime.of(start / 60, start % 60), LocalTime.of(start / 60 + 1, start % 60), "Room", "Lecturer");
+                if (i == 0) {
+                    row.setRecurrenceInterval(2);
+                    row.setValidFrom(MONDAY.minusWeeks(3));
+                } else if (i == 1) {
+                    row.setValidUntil(MONDAY.plusDays(10));
+                }
+                row.setUsername("user-" + user);
+                rows.add(row);
+            }
+            TimeTable special = new TimeTable("Exam", MONDAY.plusDays(random.nextInt(28)).toString(),
+                    LocalTime.of(6, 30), LocalTime.of(7, 0), "Hall", "Board", null);
+            special.setUsername("user-" + user);
+            rows.add(special);
+        }
+        int days = 28;
+
+        long start = System.nanoTime();
+        MinuteBitset busy = GroupAvailabilityService.busyMinutes(rows, MONDAY, days);
+        long bitsetNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        boolean[][] expected = new boolean[days][1440];
+        for (ScheduleOccurrence occurrence : ScheduleExpander.expand(rows, MONDAY, MONDAY.plusDays(days - 1))) {
+            int day = (int) ChronoUnit.DAYS.between(MONDAY, occurrence.date());
+            int from = occurrence.startTime().getHour() * 60 + occurrence.startTime().getMinute();
+            int to = occurrence.endTime().getHour() * 60 + occurrence.endTime().getMinute();
+            for (int minute = from; minute < to; minute++) expected[day][minute] = true;
+        }
+        long scanNanos = System.nanoTime() - start;
+        System.out.printf("400 users, 28 days: bitset %.2f ms, per-minute scan %.2f ms%n", bitsetNanos / 1e6, scanNanos / 1e6);
+
+        for (int day = 0; day < days; day++) {
+            for (int minute = 0; minute < 1440; minute++) {
+                assertEquals(expected[day][minute], busy.isBusy(day, minute), "day " + day + " minute " + minute);
+            }
+        }
+    }
+}
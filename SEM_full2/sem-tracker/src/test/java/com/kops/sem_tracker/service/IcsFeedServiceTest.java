@@ -0,0 +1,91 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IcsFeedServiceTest {
+
+    private static final String USER = "ics-user";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll(repository.findByUsername(USER));
+    }
+
+    @Test
+    void rendersRecurringAndSingleEventsAndAnswersNotModified() throws Exception {
+        TimeTable weekly = new TimeTable("Data Structures", "TUESDAY", LocalTime.of(9, 0), LocalTime.of(11, 0), "Lab 2", "Dr Perera");
+        weekly.setUsername(USER);
+        weekly.setRecurrenceInterval(2);
+        weekly.setValidFrom(LocalDate.of(2025, 3, 3));
+        weekly.setValidUntil(LocalDate.of(2025, 6, 30));
+        timeTableService.save(weekly);
+
+        TimeTable exam = new TimeTable("Final exam, part 1", "2025-06-12", LocalTime.of(13, 0), LocalTime.of(16, 0), "Hall A", "Board", null);
+        exam.setUsername(USER);
+        timeTableService.save(exam);
+
+        MvcResult first = mockMvc.perform(get("/api/timetable/feed/" + USER + ".ics"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String body = first.getResponse().getContentAsString();
+        String etag = first.getResponse().getHeader("ETag");
+
+        assertTrue(first.getResponse().getContentType().startsWith("text/calendar"));
+        assertTrue(body.startsWith("BEGIN:VCALENDAR\r\n"));
+        assertTrue(body.contains("DTSTART:20250304T090000\r\n"));
+        assertTrue(body.contains("RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=TU;UNTIL=20250630T235959\r\n"));
+        assertTrue(body.contains("DTSTART:20250612T130000\r\nDTEND:20250612T160000\r\n"));
+        assertTrue(body.contains("SUMMARY:Final exam\\, part 1\r\n"));
+
+        mockMvc.perform(get("/api/timetable/feed/" + USER + ".ics").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        exam.setLocation("Hall B");
+        timeTableService.update(exam.getId(), exam);
+
+        MvcResult changed = mockMvc.perform(get("/api/timetable/feed/" + USER + ".ics").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        assertTrue(changed.getResponse().getContentAsString().contains("LOCATION:Hall B\r\n"));
+    }
+
+    @Test
+    void foldsLongLinesAt75Octets() {
+        StringBuilder out = new StringBuilder();
+        IcsFeedService.line(out, "DESCRIPTION:" + "é".repeat(60));
+        for (String line : out.toString().split("\r\n")) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75);
+        }
+        assertEquals("DESCRIPTION:" + "é".repeat(60), out.toString().replace("\r\n ", "").trim());
+    }
+}
@@ -0,0 +1,133 @@
+package com.kops.sem_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process push provider for tests, speaking the FCM legacy multicast format.
+ * Tokens starting with "bad-" are reported as NotRegistered; the next throttleNext
+ * requests get a 429 with Retry-After: 1. Connections are counted by client port.
+ */
+class MockPushServer implements AutoCloseable {
+
+    static final String API_KEY = "test-key";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    private final Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger unauthorized = new AtomicInteger();
+
+    MockPushServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fcm/send", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/fcm/send";
+    }
+
+    Map<String, AtomicInteger> deliveries() {
+        return deliveries;
+    }
+
+    List<Integer> batchSizes() {
+        return batchSizes;
+    }
+
+    int connections() {
+        return clientPorts.size();
+    }
+
+    int throttled() {
+        return throttled.get();
+    }
+
+    int unauthorized() {
+        return unauthorized.get();
+    }
+
+    void throttleNext(int requests) {
+        throttleNext.set(requests);
+    }
+
+    void reset() {
+        deliveries.clear();
+        batchSizes.clear();
+        clientPorts.clear();
+        throttleNext.set(0);
+        throttled.set(0);
+        unauthorized.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+
+        if (!("key=" + API_KEY).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            unauthorized.incrementAndGet();
+            respond(exchange, 401, "Unauthorized");
+            return;
+        }
+        if (throttleNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throttled.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "");
+            return;
+        }
+
+        JsonNode tokens = request.path("registration_ids");
+        batchSizes.add(tokens.size());
+        List<Map<String, String>> results = new ArrayList<>();
+        int failure = 0;
+        for (JsonNode node : tokens) {
+            String token = node.asText();
+            if (token.startsWith("bad-")) {
+                results.add(Map.of("error", "NotRegistered"));
+                failure++;
+            } else {
+                deliveries.computeIfAbsent(token, t -> new AtomicInteger()).incrementAndGet();
+                results.add(Map.of("message_id", "0:" + token));
+            }
+        }
+        respond(exchange, 200, objectMapper.writeValueAsString(Map.of(
+                "success", tokens.size() - failure, "failure", failure, "results", results)));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.EmailOutbox;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Same context as DailyDigestServiceTest: email on, no outbox workers, so reminders stay queued
+@SpringBootTest(properties = {"app.email.enabled=true", "app.email.outbox.workers=0",
+        "app.schedule.daily-email.chunk-size=200"})
+class NotificationServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2099, 3, 2);
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM students WHERE username LIKE 'notify-%'");
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void recipientsOfATickAreResolvedWithOneQuery() {
+        insertStudents(900);
+        DistributionSummary perTick = meterRegistry.get("notifications.tick.recipient_queries").summary();
+
+        // 10 students, one class each
+        long ticksBefore = perTick.count();
+        double queriesBefore = perTick.totalAmount();
+        notificationService.onReminderTick(tick(10, 1, "EMAIL"));
+        assertEquals(1, perTick.count() - ticksBefore);
+        assertEquals(1, perTick.totalAmount() - queriesBefore);
+        assertEquals(10, outboxRepository.count());
+
+        // 900 students with three classes each: still one lookup, and one email per student
+        outboxRepository.deleteAll();
+        queriesBefore = perTick.totalAmount();
+        notificationService.onReminderTick(tick(900, 3, "BOTH"));
+        assertEquals(1, perTick.totalAmount() - queriesBefore);
+        List<EmailOutbox> emails = outboxRepository.findAll();
+        assertEquals(900, emails.size());
+        assertTrue(emails.get(0).getSubject().contains("3 classes"));
+
+        // Push only: no lookup at all
+        queriesBefore = perTick.totalAmount();
+        notificationService.onReminderTick(tick(50, 1, "PUSH"));
+        assertEquals(0, perTick.totalAmount() - queriesBefore);
+    }
+
+    private void insertStudents(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"notify-s" + i, "notify-s" + i + "@example.com", "secret1"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO students (username, email, password) VALUES (?, ?, ?)", rows);
+    }
+
+    private static ReminderTick tick(int students, int classesEach, String preference) {
+        List<RemindersDue> due = new ArrayList<>(students);
+        for (int s = 0; s < students; s++) {
+            String username = "notify-s" + s;
+            List<ReminderDue> reminders = new ArrayList<>(classesEach);
+            for (int c = 0; c < classesEach; c++) {
+                TimeTable row = new TimeTable("Course " + c, "MONDAY", LocalTime.of(9 + c, 0), LocalTime.of(10 + c, 0), "Room 1", "Lecturer");
+                row.setTitle("Course " + c);
+                row.setUsername(username);
+                row.setNotificationPreference(preference);
+                reminders.add(new ReminderDue(row, MONDAY, MONDAY.atTime(row.getStartTime())));
+            }
+            due.add(new RemindersDue(username, reminders));
+        }
+        return new ReminderTick(due);
+    }
+}
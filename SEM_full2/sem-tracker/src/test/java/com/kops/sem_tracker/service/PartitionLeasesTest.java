@@ -0,0 +1,148 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.SemTrackerApplication;
+import com.kops.sem_tracker.repository.SchedulerLeaseRepository;
+import com.kops.sem_tracker.repository.SchedulerNodeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several nodes in one JVM: this test's context is node-a, and node-b and node-c are
+ * extra application contexts on the same database. Heartbeats are driven by the test.
+ */
+@SpringBootTest(properties = {
+        "app.cluster.enabled=true",
+        "app.cluster.node-id=node-a",
+        "app.cluster.lease-seconds=2",
+        "app.cluster.heartbeat-millis=3600000",
+        "app.cluster.sync-millis=3600000"
+})
+class PartitionLeasesTest {
+
+    private static final int PARTITIONS = 64;
+
+    @Autowired
+    private PartitionLeases nodeA;
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private SchedulerNodeRepository nodeRepository;
+
+    private final List<ConfigurableApplicationContext> otherNodes = new ArrayList<>();
+
+    @BeforeEach
+    void freshCluster() {
+        nodeRepository.deleteAll();
+        leaseRepository.releaseAll("node-a");
+        nodeA.heartbeat();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        otherNodes.forEach(ConfigurableApplicationContext::close);
+        otherNodes.clear();
+    }
+
+    @Test
+    void joiningNodesGetAnEvenShareAndEveryStudentOneOwner() {
+        assertEquals(PARTITIONS, nodeA.heldPartitions().size());
+
+        PartitionLeases nodeB = startNode("node-b");
+        PartitionLeases nodeC = startNode("node-c");
+        List<PartitionLeases> nodes = List.of(nodeA, nodeB, nodeC);
+        for (int round = 0; round < 3; round++) {
+            nodes.forEach(PartitionLeases::heartbeat);
+        }
+
+        assertDisjointAndComplete(nodes);
+        for (PartitionLeases node : nodes) {
+            int held = node.heldPartitions().size();
+            assertTrue(held >= 20 && held <= 22, node.nodeId() + " holds " + held);
+        }
+        for (int i = 0; i < 1000; i++) {
+            String username = "student" + i;
+            assertEquals(1, nodes.stream().filter(node -> node.owns(username)).count(), username);
+        }
+        assertEquals(1, nodes.stream().filter(PartitionLeases::isLeader).count());
+    }
+
+    @Test
+    void partitionsOfADeadNodeAreTakenOverWhenItsLeasesExpire() throws InterruptedException {
+        PartitionLeases nodeB = startNode("node-b");
+        PartitionLeases nodeC = startNode("node-c");
+        for (int round = 0; round < 3; round++) {
+            List.of(nodeA, nodeB, nodeC).forEach(PartitionLeases::heartbeat);
+        }
+        Set<Integer> orphaned = nodeC.heldPartitions();
+        assertFalse(orphaned.isEmpty());
+
+        // node-c stops heartbeating; the others carry on
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(500);
+            nodeA.heartbeat();
+            nodeB.heartbeat();
+        }
+
+        assertTrue(nodeC.heldPartitions().isEmpty());
+        assertFalse(nodeC.owns("student1"));
+        assertDisjointAndComplete(List.of(nodeA, nodeB));
+        assertEquals(32, nodeA.heldPartitions().size());
+        assertEquals(32, nodeB.heldPartitions().size());
+    }
+
+    @Test
+    void aNodeShuttingDownHandsItsPartitionsOver() {
+        PartitionLeases nodeB = startNode("node-b");
+        for (int round = 0; round < 3; round++) {
+            List.of(nodeA, nodeB).forEach(PartitionLeases::heartbeat);
+        }
+        assertEquals(32, nodeB.heldPartitions().size());
+
+        otherNodes.remove(0).close();
+        nodeA.heartbeat();
+
+        assertEquals(PARTITIONS, nodeA.heldPartitions().size());
+    }
+
+    private PartitionLeases startNode(String nodeId) {
+        // As command line arguments, so they win over application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SemTrackerApplication.class).run(
+                "--server.port=0",
+                "--app.cluster.enabled=true",
+                "--app.cluster.node-id=" + nodeId,
+                "--app.cluster.lease-seconds=2",
+                "--app.cluster.heartbeat-millis=3600000",
+                "--app.cluster.sync-millis=3600000",
+                // The schema belongs to node-a's context
+                "--spring.jpa.hibernate.ddl-auto=none");
+        otherNodes.add(context);
+        return context.getBean(PartitionLeases.class);
+    }
+
+    private static void assertDisjointAndComplete(List<PartitionLeases> nodes) {
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (PartitionLeases node : nodes) {
+            all.addAll(node.heldPartitions());
+            total += node.heldPartitions().size();
+        }
+        assertEquals(PARTITIONS, all.size());
+        assertEquals(PARTITIONS, total);
+    }
+}
@@ -0,0 +1,217 @@
+package com.kops.sem_tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.DeviceTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the push gateway against an in-process push provider.
+ */
+@SpringBootTest
+class PushGatewayTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final MockPushServer PUSH;
+
+    static {
+        try {
+            PUSH = new MockPushServer();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void pushProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.push.enabled", () -> "true");
+        registry.add("app.push.url", PUSH::url);
+        registry.add("app.push.api-key", () -> MockPushServer.API_KEY);
+        registry.add("app.push.max-in-flight", () -> String.valueOf(MAX_IN_FLIGHT));
+        registry.add("app.push.linger-millis", () -> "20");
+        registry.add("app.push.backoff-millis", () -> "50");
+    }
+
+    @Autowired
+    private PushGateway gateway;
+
+    @Autowired
+    private PushNotificationService pushNotificationService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private DeviceTokenRepository deviceTokenRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterAll
+    static void stopServer() {
+        PUSH.close();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        await(() -> gateway.pending() == 0);
+        deviceTokenRepository.deleteAll();
+        deviceRegistry.rebuild();
+        PUSH.reset();
+    }
+
+    @Test
+    void burstOfRemindersIsBatchedOverFewConnections() {
+        // 200 classes starting at once, 50 students each, one reminder per student
+        int courses = 200;
+        int perCourse = 50;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < courses * perCourse; i++) {
+            rows.add(new Object[]{"push-student" + i, "token-" + i, "ANDROID", now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO device_tokens (username, token, platform, created_at, last_seen_at) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+        deviceRegistry.rebuild();
+
+        long started = System.nanoTime();
+        for (int i = 0; i < courses * perCourse; i++) {
+            String message = "Reminder: Course " + (i / perCourse) + " starts at 09:00";
+            assertTrue(pushNotificationService.sendToStudent("push-student" + i, "Class Reminder", message));
+        }
+        await(() -> gateway.pending() == 0);
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+
+        assertEquals(courses * perCourse, PUSH.deliveries().size());
+        assertTrue(PUSH.deliveries().values().stream().allMatch(count -> count.get() == 1));
+        double averageBatch = PUSH.batchSizes().stream().mapToInt(Integer::intValue).average().orElse(0);
+        assertTrue(averageBatch >= 10, "average batch: " + averageBatch);
+        assertTrue(PUSH.connections() <= MAX_IN_FLIGHT, "connections: " + PUSH.connections());
+        System.out.printf("[PushGateway] %d reminders in %d ms (%d/s): %d requests, %.1f tokens per request, %d connections%n",
+                courses * perCourse, elapsedMs, courses * perCourse * 1000L / elapsedMs,
+                PUSH.batchSizes().size(), averageBatch, PUSH.connections());
+    }
+
+    @Test
+    void unregisteredTokensAreRemoved() {
+        deviceRegistry.register("push-owner", "good-phone", "IOS");
+        deviceRegistry.register("push-owner", "bad-old-phone", "ANDROID");
+        double invalidBefore = meterRegistry.get("push.invalid_tokens").counter().count();
+
+        assertTrue(pushNotificationService.sendToStudent("push-owner", "Class Reminder", "Maths at 09:00"));
+        await(() -> gateway.pending() == 0);
+
+        assertEquals(1, PUSH.deliveries().get("good-phone").get());
+        assertEquals(List.of("good-phone"), deviceRegistry.tokensFor("push-owner"));
+        assertTrue(deviceTokenRepository.findByToken("bad-old-phone").isEmpty());
+        assertEquals(1, meterRegistry.get("push.invalid_tokens").counter().count() - invalidBefore);
+    }
+
+    @Test
+    void rowsWithoutRegisteredDevicesArePushedToTheirOwnToken() {
+        deviceRegistry.register("push-registered", "registered-phone", "IOS");
+        LocalDate monday = LocalDate.of(2099, 3, 2);
+        notificationService.onReminderTick(new ReminderTick(List.of(
+                new RemindersDue("push-registered", List.of(pushReminder("push-registered", "stale-row-phone", monday))),
+                new RemindersDue(null, List.of(pushReminder(null, "legacy-phone", monday))))));
+        await(() -> gateway.pending() == 0);
+
+        assertEquals(1, PUSH.deliveries().get("registered-phone").get());
+        assertEquals(1, PUSH.deliveries().get("legacy-phone").get());
+        assertFalse(PUSH.deliveries().containsKey("stale-row-phone"));
+    }
+
+    @Test
+    void throttledRequestsAreRetriedAndDeliveredOnce() {
+        double throttledBefore = meterRegistry.get("push.throttled").counter().count();
+        PUSH.throttleNext(3);
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) tokens.add("throttle-" + i);
+        assertTrue(gateway.send(tokens, "Timetable changed", "Room change for Physics"));
+        await(() -> gateway.pending() == 0);
+
+        assertEquals(2000, PUSH.deliveries().size());
+        assertTrue(PUSH.deliveries().values().stream().mapToInt(AtomicInteger::get).allMatch(count -> count == 1));
+        assertEquals(3, PUSH.throttled());
+        assertEquals(3, meterRegistry.get("push.throttled").counter().count() - throttledBefore);
+        assertEquals(0, PUSH.unauthorized());
+    }
+
+    @Test
+    void aFullQueueHoldsUpASendOnlyOnce() {
+        // Not started, so nothing drains the two-token queue
+        PushGateway stalled = new PushGateway(deviceRegistry, new ObjectMapper(), new SimpleMeterRegistry(),
+                true, PUSH.url(), MockPushServer.API_KEY, 500, 20, MAX_IN_FLIGHT, 2, 200, 5, 50, 60_000, 10);
+        List<String> tokens = List.of("full-1", "full-2", "full-3", "full-4", "full-5", "full-6");
+
+        long started = System.nanoTime();
+        assertFalse(stalled.send(tokens, "Timetable changed", "Room change"));
+        long sendMs = (System.nanoTime() - started) / 1_000_000;
+        // One 200 ms deadline for the call; waiting per dropped token would take 800 ms
+        assertTrue(sendMs >= 150 && sendMs < 600, "send took " + sendMs + " ms");
+        assertEquals(2, stalled.pending());
+
+        started = System.nanoTime();
+        assertFalse(stalled.trySend(tokens, "Class Reminder", "Maths at 09:00"));
+        long trySendMs = (System.nanoTime() - started) / 1_000_000;
+        assertTrue(trySendMs < 100, "trySend took " + trySendMs + " ms");
+        assertEquals(2, stalled.pending());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertEquals(50, gateway.backoff(1).toMillis());
+        assertEquals(200, gateway.backoff(3).toMillis());
+        assertEquals(60_000, gateway.backoff(40).toMillis());
+    }
+
+    private static ReminderDue pushReminder(String username, String deviceToken, LocalDate date) {
+        TimeTable row = new TimeTable("Maths", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 1", "Lecturer");
+        row.setUsername(username);
+        row.setDeviceToken(deviceToken);
+        row.setNotificationPreference("PUSH");
+        return new ReminderDue(row, date, date.atTime(row.getStartTime()));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
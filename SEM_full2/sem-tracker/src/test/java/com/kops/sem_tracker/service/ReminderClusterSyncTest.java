@@ -0,0 +1,179 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.DeviceToken;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.DeviceTokenRepository;
+import com.kops.sem_tracker.repository.TimeTableChangeRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Log entries are inserted with explicit ids, as other nodes' transactions would commit them.
+ */
+@SpringBootTest(properties = {
+        "app.cluster.enabled=true",
+        "app.cluster.node-id=sync-node",
+        "app.cluster.heartbeat-millis=3600000",
+        "app.cluster.sync-millis=3600000",
+        "app.cluster.change-gap-seconds=1"
+})
+class ReminderClusterSyncTest {
+
+    @Autowired
+    private ReminderClusterSync clusterSync;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private TimeTableRepository timetableRepository;
+
+    @Autowired
+    private TimeTableChangeRepository changeRepository;
+
+    @Autowired
+    private BlackoutRepository blackoutRepository;
+
+    @Autowired
+    private DeviceTokenRepository deviceTokenRepository;
+
+    @Autowired
+    private BlackoutCalendar blackoutCalendar;
+
+    @Autowired
+    private DeviceRegistry deviceRegistry;
+
+    @Autowired
+    private TimeTableSearchIndex searchIndex;
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private UserScheduleCache scheduleCache;
+
+    @Autowired
+    private IcsFeedService icsFeedService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        timetableRepository.findAll().stream()
+                .filter(row -> row.getUsername().startsWith("sync-"))
+                .forEach(row -> {
+                    reminderScheduler.cancel(row.getId());
+                    timetableRepository.delete(row);
+                });
+        jdbcTemplate.update("DELETE FROM timetable_changes WHERE username LIKE 'sync-%'");
+        jdbcTemplate.update("DELETE FROM blackouts WHERE username LIKE 'sync-%'");
+        jdbcTemplate.update("DELETE FROM device_tokens WHERE username LIKE 'sync-%'");
+        clusterSync.sync();
+    }
+
+    @Test
+    void entriesCommittedOutOfOrderAreApplied() throws InterruptedException {
+        clusterSync.sync();
+        long base = latestVersion();
+        TimeTable early = row("sync-early");
+        TimeTable late = row("sync-late");
+
+        // base + 2 commits first, while base + 1 is still in another node's transaction
+        logUpdate(base + 2, late);
+        clusterSync.sync();
+        assertTrue(reminderScheduler.scheduledUsers().contains("sync-late"));
+        assertEquals(base, clusterSync.version());
+
+        logUpdate(base + 1, early);
+        clusterSync.sync();
+        assertTrue(reminderScheduler.scheduledUsers().contains("sync-early"));
+        assertEquals(base + 2, clusterSync.version());
+
+        // base + 3 was rolled back and never shows up; version moves past it after the gap timeout
+        logUpdate(base + 4, early);
+        clusterSync.sync();
+        assertEquals(base + 2, clusterSync.version());
+        Thread.sleep(1100);
+        clusterSync.sync();
+        assertEquals(base + 4, clusterSync.version());
+    }
+
+    @Test
+    void rowsWrittenOnOtherNodesReachIndexesAndCaches() {
+        clusterSync.sync();
+        long base = latestVersion();
+        assertEquals(0, scheduleCache.get("sync-remote").totalSchedules());
+        String etag = icsFeedService.etag("sync-remote");
+
+        TimeTable row = row("sync-remote");
+        row.setLocation("Sync Hall");
+        timetableRepository.save(row);
+        logUpdate(base + 1, row);
+        clusterSync.sync();
+
+        assertEquals(List.of(row.getId()), searchIndex.search("sync", "sync-remote"));
+        assertTrue(availabilityIndex.names(AvailabilityIndex.Resource.ROOM).contains("Sync Hall"));
+        assertEquals(1, scheduleCache.get("sync-remote").totalSchedules());
+        assertFalse(etag.equals(icsFeedService.etag("sync-remote")));
+
+        timetableRepository.delete(row);
+        jdbcTemplate.update("INSERT INTO timetable_changes (id, timetable_id, username, operation, changed_at) VALUES (?, ?, ?, ?, ?)",
+                base + 2, row.getId(), row.getUsername(), "DELETE", LocalDateTime.now());
+        clusterSync.sync();
+
+        assertTrue(searchIndex.search("sync", "sync-remote").isEmpty());
+        assertFalse(availabilityIndex.names(AvailabilityIndex.Resource.ROOM).contains("Sync Hall"));
+        assertEquals(0, scheduleCache.get("sync-remote").totalSchedules());
+    }
+
+    @Test
+    void blackoutsAndDevicesWrittenOnOtherNodesArePickedUp() {
+        LocalDate date = LocalDate.now().plusDays(3);
+        // Saved through the repositories only, as another node's services would
+        Blackout blackout = blackoutRepository.save(new Blackout(date, date, "sync-away", "Trip"));
+        deviceTokenRepository.save(new DeviceToken("sync-phone", "sync-token-1", "ANDROID"));
+        assertFalse(blackoutCalendar.isBlackedOut("sync-away", date));
+        assertTrue(deviceRegistry.tokensFor("sync-phone").isEmpty());
+
+        clusterSync.sync();
+        assertTrue(blackoutCalendar.isBlackedOut("sync-away", date));
+        assertEquals(List.of("sync-token-1"), deviceRegistry.tokensFor("sync-phone"));
+
+        blackoutRepository.delete(blackout);
+        clusterSync.sync();
+        assertFalse(blackoutCalendar.isBlackedOut("sync-away", date));
+    }
+
+    // Entries of earlier tests are deleted, but this node's version has already moved past them
+    private long latestVersion() {
+        return Math.max(changeRepository.findLatestVersion(), clusterSync.version());
+    }
+
+    private TimeTable row(String username) {
+        TimeTable row = new TimeTable("Sync", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 1", "Lecturer");
+        row.setUsername(username);
+        row.setNotificationPreference("EMAIL");
+        return timetableRepository.save(row);
+    }
+
+    private void logUpdate(long id, TimeTable row) {
+        jdbcTemplate.update("INSERT INTO timetable_changes (id, timetable_id, username, operation, changed_at) VALUES (?, ?, ?, ?, ?)",
+                id, row.getId(), row.getUsername(), "UPDATE", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,223 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the reminder scheduler with a simulated clock, one second at a time.
+ */
+class ReminderSchedulerTest {
+
+    private static final String[] DAYS = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY", "SATURDAY", "SUNDAY"};
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 7, 0, 0); // a Monday
+    private static final Duration LEAD = Duration.ofMinutes(15);
+
+    private final SimulatedClock clock = new SimulatedClock(START.toInstant(ZoneOffset.UTC));
+    private final List<Fired> fired = new ArrayList<>();
+    private final BlackoutCalendar blackouts = new BlackoutCalendar(null);
+    private final ReminderScheduler scheduler = new ReminderScheduler(null, blackouts,
+            event -> ((ReminderTick) event).students().forEach(student ->
+                    student.reminders().forEach(r -> fired.add(new Fired(r, clock.instant())))), clock, LEAD);
+
+    private record Fired(ReminderDue reminder, Instant at) {}
+
+    @Test
+    void hundredThousandWeeklyRemindersFireOnTheSecondEveryWeek() {
+        Random random = new Random(42);
+        List<TimeTable> rows = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            LocalTime start = LocalTime.of(7 + random.nextInt(12), random.nextInt(60));
+            rows.add(row(id, DAYS[random.nextInt(7)], start, "EMAIL"));
+        }
+        long loadStarted = System.nanoTime();
+        scheduler.load(rows);
+        long loadMs = (System.nanoTime() - loadStarted) / 1_000_000;
+        assertEquals(100_000, scheduler.size());
+
+        long runStarted = System.nanoTime();
+        int seconds = (int) Duration.ofDays(14).toSeconds();
+        for (int i = 0; i < seconds; i++) {
+            clock.tick();
+            scheduler.advance();
+        }
+        long runMs = (System.nanoTime() - runStarted) / 1_000_000;
+
+        assertEquals(200_000, fired.size());
+        Map<Long, Integer> perRow = new HashMap<>();
+        for (Fired f : fired) {
+            Instant due = f.reminder.startsAt().minus(LEAD).toInstant(ZoneOffset.UTC);
+            assertEquals(due, f.at, "reminder for row " + f.reminder.row().getId());
+            perRow.merge(f.reminder.row().getId(), 1, Integer::sum);
+        }
+        assertTrue(perRow.values().stream().allMatch(count -> count == 2));
+        assertEquals(100_000, scheduler.size());
+        System.out.println("[ReminderScheduler] 100000 rows: load " + loadMs + " ms, 14 simulated days ("
+                + seconds + " ticks) in " + runMs + " ms");
+    }
+
+    @Test
+    void rescheduleCancelAndBlackouts() {
+        TimeTable maths = row(1, "MONDAY", LocalTime.of(9, 0), "EMAIL");
+        TimeTable physics = row(2, "MONDAY", LocalTime.of(10, 0), "PUSH");
+        TimeTable silent = row(3, "MONDAY", LocalTime.of(11, 0), "NONE");
+        TimeTable exam = row(4, null, LocalTime.of(12, 0), "BOTH");
+        exam.setSpecialSchedule(true);
+        exam.setSpecialLocalDate(START.toLocalDate().plusDays(2));
+        scheduler.load(List.of(maths, physics, silent, exam));
+        assertEquals(3, scheduler.size());
+
+        // Moved to 09:30 after its timer was set; deleted; the next Monday blacked out
+        TimeTable moved = row(1, "MONDAY", LocalTime.of(9, 30), "EMAIL");
+        scheduler.reschedule(moved);
+        scheduler.cancel(2L);
+        LocalDate nextMonday = START.toLocalDate().plusWeeks(1);
+        blackouts.load(List.of(new Blackout(nextMonday, nextMonday, null, "Holiday")));
+
+        int seconds = (int) Duration.ofDays(15).toSeconds();
+        for (int i = 0; i < seconds; i++) {
+            clock.tick();
+            scheduler.advance();
+        }
+
+        List<String> firedAt = fired.stream()
+                .map(f -> f.reminder.row().getId() + "@" + LocalDateTime.ofInstant(f.at, ZoneOffset.UTC))
+                .toList();
+        assertEquals(List.of(
+                "1@2030-01-07T09:15",
+                "4@2030-01-09T11:45",
+                "1@2030-01-21T09:15"), firedAt);
+    }
+
+    @Test
+    void remindersCloseTogetherAreSentTogetherByTheOwningNode() {
+        List<RemindersDue> batches = new ArrayList<>();
+        List<Instant> batchTimes = new ArrayList<>();
+        ReminderScheduler coalescing = new ReminderScheduler(null, blackouts, event -> {
+            for (RemindersDue student : ((ReminderTick) event).students()) {
+                batches.add(student);
+                batchTimes.add(clock.instant());
+            }
+        }, clock, LEAD, Duration.ofMinutes(15), username -> !username.equals("carol"));
+
+        TimeTable maths = owned(row(1, "MONDAY", LocalTime.of(9, 0), "EMAIL"), "alice");
+        TimeTable physics = owned(row(2, "MONDAY", LocalTime.of(9, 10), "PUSH"), "alice");
+        TimeTable chemistry = owned(row(3, "MONDAY", LocalTime.of(9, 40), "BOTH"), "alice");
+        TimeTable biology = owned(row(4, "MONDAY", LocalTime.of(9, 5), "EMAIL"), "bob");
+        // Another node's student: timers kept, nothing sent from here
+        TimeTable history = owned(row(5, "MONDAY", LocalTime.of(9, 0), "EMAIL"), "carol");
+        coalescing.load(List.of(maths, physics, chemistry, biology, history));
+
+        int seconds = (int) Duration.ofDays(8).toSeconds();
+        for (int i = 0; i < seconds; i++) {
+            clock.tick();
+            coalescing.advance();
+        }
+
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            sent.add(batches.get(i).username() + "@" + LocalDateTime.ofInstant(batchTimes.get(i), ZoneOffset.UTC) + " "
+                    + batches.get(i).reminders().stream().map(r -> r.row().getSubject()).toList());
+        }
+        // Physics (reminder due 08:55) goes out with Maths at 08:45; Chemistry (09:25) is outside the window
+        assertEquals(List.of(
+                "alice@2030-01-07T08:45 [Course 1, Course 2]",
+                "bob@2030-01-07T08:50 [Course 4]",
+                "alice@2030-01-07T09:25 [Course 3]",
+                "alice@2030-01-14T08:45 [Course 1, Course 2]",
+                "bob@2030-01-14T08:50 [Course 4]",
+                "alice@2030-01-14T09:25 [Course 3]"), sent);
+        assertEquals(5, coalescing.size());
+    }
+
+    @Test
+    void reloadsDoNotRepeatSentRemindersButStartupCatchesUp() {
+        TimeTable maths = row(1, "MONDAY", LocalTime.of(9, 0), "EMAIL");
+        scheduler.load(List.of(maths));
+        // 08:50: the 08:45 reminder has gone out
+        for (int i = 0; i < Duration.ofMinutes(530).toSeconds(); i++) {
+            clock.tick();
+            scheduler.advance();
+        }
+        assertEquals(1, fired.size());
+
+        // Reloaded after partitions moved or an import; the class has not started yet
+        scheduler.reloadUser(maths.getUsername(), List.of(maths));
+        scheduler.reschedule(maths);
+        clock.tick();
+        scheduler.advance();
+        assertEquals(1, fired.size());
+        assertEquals(1, scheduler.size());
+
+        // A node starting now sends the reminder it missed while it was down
+        List<ReminderDue> caughtUp = new ArrayList<>();
+        ReminderScheduler restarted = new ReminderScheduler(null, blackouts,
+                event -> ((ReminderTick) event).students().forEach(student -> caughtUp.addAll(student.reminders())), clock, LEAD);
+        restarted.load(List.of(maths));
+        restarted.advance();
+        assertEquals(1, caughtUp.size());
+        assertEquals(START.toLocalDate(), caughtUp.get(0).date());
+    }
+
+    private static TimeTable owned(TimeTable row, String username) {
+        row.setUsername(username);
+        return row;
+    }
+
+    private static TimeTable row(long id, String day, LocalTime start, String preference) {
+        TimeTable row = new TimeTable();
+        row.setId(id);
+        row.setUsername("user" + (id % 500));
+        row.setSubject("Course " + id);
+        row.setTitle("Course " + id);
+        row.setDay(day);
+        row.setStartTime(start);
+        row.setEndTime(start.plusHours(1));
+        row.setNotificationPreference(preference);
+        return row;
+    }
+
+    private static final class SimulatedClock extends Clock {
+        private Instant now;
+
+        SimulatedClock(Instant start) {
+            this.now = start;
+        }
+
+        void tick() {
+            now = now.plusSeconds(1);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
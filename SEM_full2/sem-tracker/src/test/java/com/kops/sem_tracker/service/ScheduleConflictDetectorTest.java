@@ -0,0 +1,159 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ScheduleConflictDetectorTest {
+
+    private static final String USER = "conflict-user";
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @Autowired
+    private TimeTableImportService importService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll(repository.findByUsername(USER));
+        repository.deleteAll(repository.findByUsername("someone-else"));
+        jdbcTemplate.update("DELETE FROM schedule_write_locks WHERE username IN (?, ?)", USER, "someone-else");
+    }
+
+    @Test
+    void detectsRealOverlapsAndIgnoresTouchingSlotsAndOtherUsers() {
+        timeTableService.saveIfNoConflict(regular("Maths", 9, 0, 10, 0));
+
+        assertThrows(ScheduleConflictException.class,
+                () -> timeTableService.saveIfNoConflict(regular("Physics", 9, 30, 10, 30)));
+
+        timeTableService.saveIfNoConflict(regular("Chemistry", 10, 0, 11, 0));
+
+        TimeTable otherUser = regular("Biology", 9, 0, 10, 0);
+        otherUser.setUsername("someone-else");
+        timeTableService.saveIfNoConflict(otherUser);
+
+        TimeTable special = new TimeTable("Exam", "2099-03-02", LocalTime.of(9, 45), LocalTime.of(11, 0), "Hall", "Board", null);
+        special.setUsername(USER);
+        assertTrue(timeTableService.scheduleExists(special)); // 2099-03-02 is a Monday
+    }
+
+    @Test
+    void updateIgnoresTheRowBeingUpdated() {
+        TimeTable saved = timeTableService.saveIfNoConflict(regular("Maths", 9, 0, 10, 0));
+
+        TimeTable moved = regular("Maths", 9, 30, 10, 30);
+        assertFalse(timeTableService.scheduleExistsExcludingId(moved, saved.getId()));
+        assertEquals(LocalTime.of(9, 30), timeTableService.updateIfNoConflict(saved.getId(), moved).getStartTime());
+    }
+
+    @Test
+    void updateKeepsRecurrenceFieldsTheRequestLeavesOut() {
+        TimeTable biWeekly = regular("Maths", 9, 0, 10, 0);
+        biWeekly.setRecurrenceInterval(2);
+        biWeekly.setValidFrom(LocalDate.of(2099, 3, 2));
+        biWeekly.setValidUntil(LocalDate.of(2099, 6, 29));
+        TimeTable saved = timeTableService.saveIfNoConflict(biWeekly);
+
+        TimeTable updated = timeTableService.updateIfNoConflict(saved.getId(), regular("Maths", 11, 0, 12, 0));
+        assertEquals(LocalTime.of(11, 0), updated.getStartTime());
+        assertEquals(2, updated.getRecurrenceInterval());
+        assertEquals(LocalDate.of(2099, 3, 2), updated.getValidFrom());
+        assertEquals(LocalDate.of(2099, 6, 29), updated.getValidUntil());
+
+        TimeTable weekly = regular("Maths", 11, 0, 12, 0);
+        weekly.setRecurrenceInterval(1);
+        assertEquals(1, timeTableService.updateIfNoConflict(saved.getId(), weekly).getRecurrenceInterval());
+    }
+
+    @Test
+    void concurrentCreatesForTheSameUserAdmitOnlyOne() throws Exception {
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int n = i;
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    timeTableService.saveIfNoConflict(regular("Subject " + n, 14, 0, 15, 0));
+                    return true;
+                } catch (ScheduleConflictException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int created = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) created++;
+        }
+        pool.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(1, repository.findByUsername(USER).size());
+    }
+
+    @Test
+    void aLockHeldByAnotherNodeHoldsUpWritesUntilItIsReleasedOrExpires() throws Exception {
+        timeTableService.saveIfNoConflict(regular("Maths", 9, 0, 10, 0));
+        holdLock(LocalDateTime.now().plusMinutes(1));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<TimeTable> save = pool.submit(() -> timeTableService.saveIfNoConflict(regular("Physics", 11, 0, 12, 0)));
+        Future<ImportReport> importing = pool.submit(() -> importService.importRows(List.of(regular("Chemistry", 13, 0, 14, 0))));
+        Thread.sleep(300);
+        assertFalse(save.isDone());
+        assertFalse(importing.isDone());
+
+        jdbcTemplate.update("UPDATE schedule_write_locks SET holder = NULL, expires_at = NULL WHERE username = ?", USER);
+        assertEquals("Physics", save.get(5, TimeUnit.SECONDS).getSubject());
+        assertEquals(1, importing.get(5, TimeUnit.SECONDS).imported());
+        pool.shutdown();
+
+        // A node that died while holding the lock loses it when it expires
+        holdLock(LocalDateTime.now().minusSeconds(1));
+        assertEquals("Biology", timeTableService.saveIfNoConflict(regular("Biology", 15, 0, 16, 0)).getSubject());
+    }
+
+    private void holdLock(LocalDateTime expiresAt) {
+        jdbcTemplate.update("UPDATE schedule_write_locks SET holder = 'other-node', expires_at = ? WHERE username = ?", expiresAt, USER);
+    }
+
+    private static TimeTable regular(String subject, int startHour, int startMinute, int endHour, int endMinute) {
+        TimeTable row = new TimeTable(subject, "MONDAY", LocalTime.of(startHour, startMinute),
+                LocalTime.of(endHour, endMinute), "Room 1", "Lecturer");
+        row.setUsername(USER);
+        return row;
+    }
+}
@@ -0,0 +1,148 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the single-query occurrence expansion against the old per-day loop
+ * (two repository queries per calendar day) for 7, 30 and 120-day windows.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ScheduleExpansionBenchmarkTest {
+
+    private static final String USER = "bench-user";
+    private static final LocalDate START = LocalDate.of(2025, 2, 3);
+    private static final int RUNS = 5;
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        List<TimeTable> rows = new ArrayList<>();
+        String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY"};
+        for (String owner : new String[]{USER, "other-1", "other-2", "other-3"}) {
+            for (int i = 0; i < 20; i++) {
+                TimeTable row = new TimeTable("Subject " + i, days[i % days.length],
+                        LocalTime.of(8 + i % 8, 0), LocalTime.of(9 + i % 8, 0), "Room " + i, "Lecturer " + i);
+                row.setUsername(owner);
+                rows.add(row);
+            }
+            for (int i = 0; i < 60; i++) {
+                TimeTable row = new TimeTable("Special " + i, START.plusDays(i * 2L).toString(),
+                        LocalTime.of(17, 0), LocalTime.of(18, 0), "Hall", "Guest", "Extra session");
+                row.setUsername(owner);
+                rows.add(row);
+            }
+        }
+        repository.saveAll(rows);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void expansionUsesOneQueryAndMatchesPerDayLoop() {
+        System.out.println();
+        System.out.println("window | per-day queries | per-day ms | expanded queries | expanded ms | occurrences");
+        for (int days : new int[]{7, 30, 120}) {
+            LocalDate end = START.plusDays(days);
+
+            Measurement legacy = measure(() -> perDayLoop(START, end));
+            Measurement expanded = measure(() -> ScheduleExpander.expand(
+                    repository.findByUsernameForWindow(USER, START, end), START, end));
+
+            System.out.printf("%6d | %15d | %10.3f | %16d | %11.3f | %d%n",
+                    days, legacy.queries, legacy.millis, expanded.queries, expanded.millis, expanded.occurrences);
+
+            assertEquals(2L * (days + 1), legacy.queries);
+            assertEquals(1L, expanded.queries);
+            assertEquals(legacy.keys, expanded.keys);
+        }
+    }
+
+    @Test
+    void biWeeklyAndBoundedRowsAreExpandedFromTheirAnchor() {
+        TimeTable biWeekly = new TimeTable("Lab", "WEDNESDAY", LocalTime.of(14, 0), LocalTime.of(16, 0), "Lab 1", "Dr. Lab");
+        biWeekly.setId(1L);
+        biWeekly.setRecurrenceInterval(2);
+        biWeekly.setValidFrom(LocalDate.of(2025, 2, 5));
+        biWeekly.setValidUntil(LocalDate.of(2025, 3, 31));
+
+        List<LocalDate> dates = ScheduleExpander.expand(List.of(biWeekly), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30))
+                .stream().map(ScheduleOccurrence::date).toList();
+
+        assertEquals(List.of(LocalDate.of(2025, 2, 5), LocalDate.of(2025, 2, 19),
+                LocalDate.of(2025, 3, 5), LocalDate.of(2025, 3, 19)), dates);
+        assertEquals(DayOfWeek.WEDNESDAY, dates.get(0).getDayOfWeek());
+    }
+
+    // The pre-expansion implementation: two repository queries per calendar day
+    private List<ScheduleOccurrence> perDayLoop(LocalDate from, LocalDate to) {
+        List<ScheduleOccurrence> occurrences = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (TimeTable row : repository.findByUsernameAndDay(USER, date.getDayOfWeek().toString())) {
+                if (!row.isSpecialSchedule()) {
+                    occurrences.add(ScheduleOccurrence.of(row, date));
+                }
+            }
+            for (TimeTable row : repository.findBySpecialDate(date)) {
+                if (USER.equals(row.getUsername())) {
+                    occurrences.add(ScheduleOccurrence.of(row, date));
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    private Measurement measure(Supplier<List<ScheduleOccurrence>> run) {
+        List<ScheduleOccurrence> result = run.get(); // warm-up
+        entityManager.clear();
+
+        statistics.clear();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            result = run.get();
+            entityManager.clear();
+        }
+        double millis = (System.nanoTime() - startNanos) / 1_000_000.0 / RUNS;
+        long queries = statistics.getPrepareStatementCount() / RUNS;
+
+        Set<String> keys = result.stream()
+                .map(o -> o.id() + "@" + o.date())
+                .collect(Collectors.toSet());
+        return new Measurement(queries, millis, result.size(), keys);
+    }
+
+    private record Measurement(long queries, double millis, int occurrences, Set<String> keys) {}
+}
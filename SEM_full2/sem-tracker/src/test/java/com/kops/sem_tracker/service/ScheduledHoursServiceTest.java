@@ -0,0 +1,149 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Attendance;
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"app.semester.start=2025-02-03", "app.semester.end=2025-05-30"})
+class ScheduledHoursServiceTest {
+
+    private static final String USER = "hours-user";
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private BlackoutService blackoutService;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private TimeTableRepository timeTableRepository;
+
+    @Autowired
+    private BlackoutRepository blackoutRepository;
+
+    @Autowired
+    private BlackoutCalendar blackoutCalendar;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        timeTableRepository.deleteAll(timeTableRepository.findByUsername(USER));
+        blackoutRepository.findAll().forEach(blackout -> blackoutService.delete(blackout.getId()));
+        jdbcTemplate.update("DELETE FROM attendance WHERE student_id = ?", USER);
+        jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id = ?", USER);
+    }
+
+    @Test
+    void scheduledHoursFollowTheTimetable() {
+        // 17 Mondays in the window, 2 hours each
+        TimeTable maths = timeTableService.save(row("Maths", "MONDAY", 9, 11));
+        // Every other Wednesday from 5 February: 9 weeks, 1 hour each
+        TimeTable physics = row("Physics", "WEDNESDAY", 14, 15);
+        physics.setRecurrenceInterval(2);
+        physics.setValidFrom(LocalDate.of(2025, 2, 5));
+        physics = timeTableService.save(physics);
+        TimeTable exam = new TimeTable("Maths", "2025-04-10", LocalTime.of(9, 0), LocalTime.of(12, 0), "Hall", "Board", null);
+        exam.setUsername(USER);
+        timeTableService.save(exam);
+
+        assertEquals(37.0, scheduled("Maths"), 1e-9);
+        assertEquals(9.0, scheduled("Physics"), 1e-9);
+
+        attendanceService.save(attendance("Maths", 10));
+        assertEquals(10 / 37.0 * 100, attendanceService.getSummary(USER, "Maths").getAttendancePercentage(), 1e-9);
+
+        // A personal blackout cancels one Monday; the exam is dated, so it stays
+        blackoutService.create(new Blackout(LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 3), USER, "Field trip"), false);
+        assertEquals(35.0, scheduled("Maths"), 1e-9);
+        assertEquals(10 / 35.0 * 100, attendanceService.getSummary(USER, "Maths").getAttendancePercentage(), 1e-9);
+
+        maths.setEndTime(LocalTime.of(10, 0));
+        timeTableService.update(maths.getId(), maths);
+        assertEquals(19.0, scheduled("Maths"), 1e-9);
+
+        timeTableService.delete(physics.getId());
+        assertEquals(0.0, scheduled("Physics"));
+        assertEquals(0.0, attendanceService.getSummary(USER, "Physics").getAttendancePercentage());
+    }
+
+    @Test
+    void defaultWindowMovesWithTheHalfYear() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-06-30T12:00:00Z"));
+        ScheduledHoursService unconfigured = new ScheduledHoursService(null, null, null, blackoutCalendar, "", "", clock);
+        TimeTable maths = row("Maths", "MONDAY", 9, 11);
+
+        assertEquals(new ScheduledHoursService.Window(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 6, 30)), unconfigured.window());
+        // 26 Mondays between 1 January and 30 June 2026
+        assertEquals(52.0, unconfigured.compute(List.of(maths), unconfigured.window()).get(USER).get("Maths"), 1e-9);
+
+        clock.now = Instant.parse("2026-07-01T12:00:00Z");
+        assertEquals(new ScheduledHoursService.Window(LocalDate.of(2026, 7, 1), LocalDate.of(2026, 12, 31)), unconfigured.window());
+        // 26 Mondays between 1 July and 31 December 2026
+        assertEquals(52.0, unconfigured.compute(List.of(maths), unconfigured.window()).get(USER).get("Maths"), 1e-9);
+        assertEquals(LocalDate.of(2026, 7, 1), unconfigured.getSemesterStart());
+    }
+
+    private double scheduled(String module) {
+        return attendanceService.getSummary(USER, module).getTotalScheduledHours();
+    }
+
+    private static TimeTable row(String subject, String day, int startHour, int endHour) {
+        TimeTable row = new TimeTable(subject, day, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0), "Room 1", "Lecturer");
+        row.setUsername(USER);
+        return row;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static Attendance attendance(String module, double hours) {
+        Attendance attendance = new Attendance();
+        attendance.setStudentId(USER);
+        attendance.setModuleName(module);
+        attendance.setAttendanceDate(LocalDate.of(2025, 2, 3));
+        attendance.setAttendedHours(hours);
+        return attendance;
+    }
+}
@@ -0,0 +1,161 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Attendance;
+import com.kops.sem_tracker.entyties.SubjectAttendanceSettings;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.SubjectAttendanceSettingsRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"app.semester.start=2025-02-03", "app.semester.end=2025-05-30"})
+class SubjectAttendanceServiceTest {
+
+    private static final String STUDENT = "subject-user";
+
+    @Autowired
+    private SubjectAttendanceService subjectAttendanceService;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private SubjectAttendanceSettingsRepository settingsRepository;
+
+    @Autowired
+    private TimeTableRepository timeTableRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        timeTableRepository.deleteAll(timeTableRepository.findByUsername(STUDENT));
+        settingsRepository.deleteAll(settingsRepository.findByStudentId(STUDENT));
+        jdbcTemplate.update("DELETE FROM attendance WHERE student_id = ?", STUDENT);
+        jdbcTemplate.update("DELETE FROM attendance_summary WHERE student_id = ?", STUDENT);
+    }
+
+    @Test
+    void savingAgainUpdatesTheSameRow() {
+        SubjectAttendanceSettings first = subjectAttendanceService.saveSettings(settings("Biology", 80, 0));
+        assertEquals(80, subjectAttendanceService.getSubjectSettings(STUDENT, "Biology").orElseThrow().getMinPercentage());
+
+        SubjectAttendanceSettings second = subjectAttendanceService.saveSettings(settings(" Biology ", 60, 0));
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, settingsRepository.findByStudentId(STUDENT).size());
+        // The cached list was invalidated by the save
+        assertEquals(60, subjectAttendanceService.getSubjectSettings(STUDENT, "Biology").orElseThrow().getMinPercentage());
+
+        assertThrows(IllegalArgumentException.class, () -> subjectAttendanceService.saveSettings(settings("Biology", 120, 0)));
+        assertThrows(IllegalArgumentException.class, () -> subjectAttendanceService.saveSettings(settings(" ", 50, 0)));
+    }
+
+    @Test
+    void concurrentFirstSavesEndInOneRow() throws Exception {
+        int writers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SubjectAttendanceSettings>> saves = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int minPercentage = 50 + w;
+            saves.add(pool.submit(() -> {
+                start.await();
+                return subjectAttendanceService.saveSettings(settings("Chemistry", minPercentage, 0));
+            }));
+        }
+        start.countDown();
+        for (Future<SubjectAttendanceSettings> save : saves) {
+            save.get(30, TimeUnit.SECONDS); // None of them fails on the unique key
+        }
+        pool.shutdown();
+
+        assertEquals(1, settingsRepository.findByStudentId(STUDENT).size());
+    }
+
+    @Test
+    void eligibilityForAllSubjects() {
+        // 17 Mondays of 2 hours in the semester, 5 of them up to 3 March
+        timeTableService.save(row("Maths", "MONDAY", 9, 11));
+        // 17 Wednesdays of 1 hour, 4 of them up to 3 March
+        timeTableService.save(row("Physics", "WEDNESDAY", 14, 15));
+        subjectAttendanceService.saveSettings(settings("Maths", 80, 0));
+        // Nothing scheduled by the timetable, so the hours from the settings apply
+        subjectAttendanceService.saveSettings(settings("Networks", 50, 10));
+        attendanceService.save(attendance("Maths", 6));
+        attendanceService.save(attendance("Physics", 3));
+
+        List<SubjectEligibility> eligibility = subjectAttendanceService.getEligibility(STUDENT, LocalDate.of(2025, 3, 3));
+        assertEquals(List.of("Maths", "Networks", "Physics"), eligibility.stream().map(SubjectEligibility::subjectName).toList());
+
+        SubjectEligibility maths = eligibility.get(0);
+        assertEquals(34.0, maths.scheduledHours(), 1e-9);
+        assertEquals(10.0, maths.scheduledHoursToDate(), 1e-9);
+        assertEquals(60.0, maths.percentageToDate(), 1e-9);
+        // Same denominator as the stored summary and the per-module endpoints
+        assertEquals(6.0 / 34 * 100, maths.currentPercentage(), 1e-9);
+        assertEquals(attendanceService.getSummary(STUDENT, "Maths").getAttendancePercentage(), maths.currentPercentage(), 1e-9);
+        // The hours still needed count the whole semester
+        assertEquals(27.2, maths.requiredHours(), 1e-9);
+        assertEquals(21.2, maths.moreHoursNeeded(), 1e-9);
+        assertFalse(maths.eligible());
+
+        SubjectEligibility networks = eligibility.get(1);
+        assertEquals(10.0, networks.scheduledHours(), 1e-9);
+        assertEquals(5.0, networks.moreHoursNeeded(), 1e-9);
+
+        // No settings: the default 75%
+        SubjectEligibility physics = eligibility.get(2);
+        assertEquals(75.0, physics.minPercentage(), 1e-9);
+        assertEquals(75.0, physics.percentageToDate(), 1e-9);
+        assertEquals(9.75, physics.moreHoursNeeded(), 1e-9);
+        assertFalse(physics.eligible());
+
+        // Before the semester starts nothing has been scheduled yet
+        assertEquals(0.0, subjectAttendanceService.getEligibility(STUDENT, LocalDate.of(2025, 1, 15)).get(0).percentageToDate());
+    }
+
+    private static SubjectAttendanceSettings settings(String subject, double minPercentage, double scheduledHours) {
+        SubjectAttendanceSettings settings = new SubjectAttendanceSettings();
+        settings.setStudentId(STUDENT);
+        settings.setSubjectName(subject);
+        settings.setMinPercentage(minPercentage);
+        settings.setTotalScheduledHours(scheduledHours);
+        return settings;
+    }
+
+    private static TimeTable row(String subject, String day, int startHour, int endHour) {
+        TimeTable row = new TimeTable(subject, day, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0), "Room 1", "Lecturer");
+        row.setUsername(STUDENT);
+        return row;
+    }
+
+    private static Attendance attendance(String module, double hours) {
+        Attendance attendance = new Attendance();
+        attendance.setStudentId(STUDENT);
+        attendance.setModuleName(module);
+        attendance.setAttendanceDate(LocalDate.of(2025, 3, 3));
+        attendance.setAttendedHours(hours);
+        return attendance;
+    }
+}
@@ -0,0 +1,157 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.Blackout;
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.BlackoutRepository;
+import com.kops.sem_tracker.repository.TimeTableChangeRepository;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TimeTableChangeLogTest {
+
+    private static final String USER = "delta-user";
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private BlackoutService blackoutService;
+
+    @Autowired
+    private TimeTableImportService importService;
+
+    @Autowired
+    private TimeTableRepository timeTableRepository;
+
+    @Autowired
+    private TimeTableChangeRepository changeRepository;
+
+    @Autowired
+    private BlackoutRepository blackoutRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        timeTableRepository.deleteAll(timeTableRepository.findByUsername(USER));
+        blackoutRepository.findAll().forEach(blackout -> blackoutService.delete(blackout.getId()));
+        changeRepository.deleteAll();
+    }
+
+    @Test
+    void deltaCarriesOnlyChangedRowsAndTombstones() {
+        TimeTable maths = timeTableService.save(row("Maths", "MONDAY", 9));
+        TimeTable physics = timeTableService.save(row("Physics", "TUESDAY", 9));
+        timeTableService.save(row("Chemistry", "WEDNESDAY", 9));
+
+        TimeTableChanges snapshot = timeTableService.getChangesSince(USER, 0, 500);
+        assertTrue(snapshot.snapshot());
+        assertEquals(3, snapshot.upserted().size());
+
+        maths.setLocation("Room 9");
+        timeTableService.update(maths.getId(), maths);
+        timeTableService.delete(physics.getId());
+        TimeTable biology = timeTableService.save(row("Biology", "THURSDAY", 9));
+        biology.setLocation("Lab 1");
+        timeTableService.update(biology.getId(), biology);
+
+        TimeTableChanges delta = timeTableService.getChangesSince(USER, snapshot.version(), 500);
+        assertFalse(delta.snapshot());
+        assertFalse(delta.hasMore());
+        assertEquals(List.of("Maths", "Biology"), delta.upserted().stream().map(TimeTable::getSubject).toList());
+        assertEquals("Lab 1", delta.upserted().get(1).getLocation());
+        assertEquals(List.of(physics.getId()), delta.deleted());
+        assertTrue(delta.version() > snapshot.version());
+
+        TimeTableChanges upToDate = timeTableService.getChangesSince(USER, delta.version(), 500);
+        assertTrue(upToDate.upserted().isEmpty() && upToDate.deleted().isEmpty());
+        assertEquals(delta.version(), upToDate.version());
+    }
+
+    @Test
+    void largeDeltasArePaged() {
+        timeTableService.save(row("Maths", "MONDAY", 9));
+        long since = timeTableService.getChangesSince(USER, 0, 500).version();
+        timeTableService.save(row("Physics", "MONDAY", 11));
+        timeTableService.save(row("Statistics", "MONDAY", 15));
+        timeTableService.save(row("Chemistry", "MONDAY", 13));
+
+        TimeTableChanges first = timeTableService.getChangesSince(USER, since, 2);
+        assertTrue(first.hasMore());
+        assertEquals(2, first.upserted().size());
+
+        TimeTableChanges second = timeTableService.getChangesSince(USER, first.version(), 2);
+        assertFalse(second.hasMore());
+        assertEquals(List.of("Chemistry"), second.upserted().stream().map(TimeTable::getSubject).toList());
+    }
+
+    @Test
+    void deltaStopsBelowAnEntryStillCommittingOnAnotherNode() {
+        TimeTable maths = timeTableService.save(row("Maths", "MONDAY", 9));
+        TimeTable physics = timeTableService.save(row("Physics", "TUESDAY", 9));
+        long since = timeTableService.getChangesSince(USER, 0, 500).version();
+
+        // Other nodes took since + 1 and since + 2; since + 2 committed first
+        logUpdate(since + 2, physics, LocalDateTime.now());
+        TimeTableChanges waiting = timeTableService.getChangesSince(USER, since, 500);
+        assertTrue(waiting.upserted().isEmpty());
+        assertEquals(since, waiting.version());
+
+        logUpdate(since + 1, maths, LocalDateTime.now());
+        TimeTableChanges both = timeTableService.getChangesSince(USER, since, 500);
+        assertEquals(List.of("Maths", "Physics"), both.upserted().stream().map(TimeTable::getSubject).toList());
+        assertEquals(since + 2, both.version());
+
+        // since + 3 was rolled back: once the entry after it is old enough, the delta moves past it
+        logUpdate(since + 4, maths, LocalDateTime.now().minusMinutes(2));
+        assertEquals(since + 4, timeTableService.getChangesSince(USER, since + 2, 500).version());
+    }
+
+    @Test
+    void bulkWritesReachTheLog() throws Exception {
+        LocalDate exam = LocalDate.of(2099, 5, 12);
+        TimeTable special = new TimeTable("Exam", exam.toString(), LocalTime.of(9, 0), LocalTime.of(11, 0), "Hall", "Board", null);
+        special.setUsername(USER);
+        special = timeTableService.save(special);
+        long since = timeTableService.getChangesSince(USER, 0, 500).version();
+
+        // Cancelled inside the blackout transaction: the tombstone is written after it commits
+        blackoutService.create(new Blackout(exam, exam, USER, "Strike"), true);
+        TimeTableChanges afterBlackout = timeTableService.getChangesSince(USER, since, 500);
+        assertEquals(List.of(special.getId()), afterBlackout.deleted());
+
+        String csv = "subject,day,startTime,endTime\nStatistics,FRIDAY,09:00,10:00\n";
+        importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), USER);
+        TimeTableChanges afterImport = timeTableService.getChangesSince(USER, afterBlackout.version(), 500);
+        assertTrue(afterImport.snapshot());
+        assertEquals(List.of("Statistics"), afterImport.upserted().stream().map(TimeTable::getSubject).toList());
+    }
+
+    private void logUpdate(long id, TimeTable row, LocalDateTime changedAt) {
+        jdbcTemplate.update("INSERT INTO timetable_changes (id, timetable_id, username, operation, changed_at) VALUES (?, ?, ?, ?, ?)",
+                id, row.getId(), row.getUsername(), "UPDATE", changedAt);
+    }
+
+    private static TimeTable row(String subject, String day, int hour) {
+        TimeTable row = new TimeTable(subject, day, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0), "Room 1", "Lecturer");
+        row.setUsername(USER);
+        return row;
+    }
+}
@@ -0,0 +1,177 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TimeTableImportServiceTest {
+
+    @Autowired
+    private TimeTableImportService importService;
+
+    @Autowired
+    private TimeTableService timeTableService;
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @Autowired
+    private IcsFeedService icsFeedService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM timetables WHERE username LIKE 'import-%'");
+    }
+
+    @Test
+    void reportsInvalidAndConflictingRowsAndImportsTheRest() throws Exception {
+        TimeTable existing = new TimeTable("Existing", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 1", "Lecturer");
+        existing.setUsername("import-a");
+        timeTableService.save(existing);
+
+        String csv = """
+                username,subject,day,specialDate,startTime,endTime,location,lecturer,description
+                import-a,Maths,monday,,10:00,11:00,Room 2,Dr X,"Algebra, part 1"
+                import-a,Clash with existing,MONDAY,,9:15,9:45,Room 3,Dr Y,
+                import-a,Clash in file,MONDAY,,10:30,11:30,Room 4,Dr Z,
+                import-a,,TUESDAY,,10:00,11:00,Room 5,Dr X,
+                import-a,Bad day,FUNDAY,,10:00,11:00,Room 5,Dr X,
+                import-b,Exam,,2099-03-02,09:00,12:00,Hall,Board,"Bring a pen
+                and a calculator"
+                import-b,Bad time,TUESDAY,,11:00,10:00,Hall,Board,
+                """;
+        ImportReport report = importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(7, report.total());
+        assertEquals(2, report.imported());
+        assertEquals(5, report.failed());
+        assertEquals(List.of(3, 4, 5, 6, 9), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertTrue(report.errors().get(0).error().contains("Existing"));
+        assertTrue(report.errors().get(1).error().contains("Maths"));
+
+        TimeTable maths = repository.findByUsername("import-a").stream()
+                .filter(row -> row.getSubject().equals("Maths")).findFirst().orElseThrow();
+        assertEquals("Algebra, part 1", maths.getDescription());
+        assertEquals("MONDAY", maths.getDay());
+        assertEquals(1, timeTableService.search("maths", "import-a", 0, 10).total());
+
+        TimeTable exam = repository.findByUsername("import-b").get(0);
+        assertTrue(exam.isSpecialSchedule());
+        assertEquals("MONDAY", exam.getDay());
+        assertEquals("Bring a pen\nand a calculator", exam.getDescription());
+    }
+
+    @Test
+    void specialRowsAreCheckedAgainstWeeklyRows() throws Exception {
+        TimeTable existing = new TimeTable("Existing", "MONDAY", LocalTime.of(9, 0), LocalTime.of(10, 0), "Room 1", "Lecturer");
+        existing.setUsername("import-d");
+        timeTableService.save(existing);
+
+        String csv = """
+                username,subject,day,specialDate,startTime,endTime
+                import-d,Exam over existing,,2099-03-02,09:30,11:00
+                import-d,Exam,,2099-03-03,09:00,11:00
+                import-d,Weekly over exam,TUESDAY,,10:00,12:00
+                """;
+        ImportReport report = importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(2, 4), report.errors().stream().map(ImportReport.RowError::row).toList());
+        assertTrue(report.errors().get(0).error().contains("Existing"));
+        assertTrue(report.errors().get(1).error().contains("Exam"));
+        assertEquals("TUESDAY", repository.findByUsername("import-d").stream()
+                .filter(TimeTable::isSpecialSchedule).findFirst().orElseThrow().getDay());
+
+        // Rows built in memory may be flagged special after the date is set, which clears the day
+        TimeTable generated = new TimeTable();
+        generated.setUsername("import-d");
+        generated.setSubject("Generated exam");
+        generated.setSpecialLocalDate(LocalDate.of(2099, 3, 9));
+        generated.setSpecialSchedule(true);
+        generated.setStartTime(LocalTime.of(9, 0));
+        generated.setEndTime(LocalTime.of(9, 30));
+        ImportReport generatedReport = importService.importRows(List.of(generated));
+        assertEquals(0, generatedReport.imported());
+        assertTrue(generatedReport.errors().get(0).error().contains("Existing"));
+    }
+
+    @Test
+    void importsItsOwnIcsFeed() throws Exception {
+        TimeTable weekly = new TimeTable("Networks", "WEDNESDAY", LocalTime.of(14, 0), LocalTime.of(16, 0), "Lab 7", "Prof Silva");
+        weekly.setUsername("import-source");
+        weekly.setRecurrenceInterval(2);
+        weekly.setValidFrom(LocalDate.of(2025, 3, 5));
+        weekly.setValidUntil(LocalDate.of(2025, 6, 25));
+        weekly.setId(1L);
+        TimeTable exam = new TimeTable("Networks; final", "2025-06-30", LocalTime.of(9, 0), LocalTime.of(11, 0), "Hall A", "Board", "Closed book");
+        exam.setUsername("import-source");
+        exam.setId(2L);
+        String ics = icsFeedService.render("import-source", List.of(weekly, exam));
+
+        ImportReport report = importService.importIcs(new ByteArrayInputStream(ics.getBytes(StandardCharsets.UTF_8)), "import-c");
+        assertEquals(2, report.imported(), report.errors().toString());
+
+        List<TimeTable> rows = repository.findByUsername("import-c");
+        TimeTable importedWeekly = rows.stream().filter(row -> !row.isSpecialSchedule()).findFirst().orElseThrow();
+        assertEquals("WEDNESDAY", importedWeekly.getDay());
+        assertEquals(2, importedWeekly.getRecurrenceInterval());
+        assertEquals(LocalDate.of(2025, 3, 5), importedWeekly.getValidFrom());
+        assertEquals(LocalDate.of(2025, 6, 25), importedWeekly.getValidUntil());
+        assertEquals("Prof Silva", importedWeekly.getLecturer());
+
+        TimeTable importedExam = rows.stream().filter(TimeTable::isSpecialSchedule).findFirst().orElseThrow();
+        assertEquals("Networks; final", importedExam.getSubject());
+        assertEquals(LocalDate.of(2025, 6, 30), importedExam.getSpecialLocalDate());
+        assertEquals("Closed book", importedExam.getDescription());
+    }
+
+    @Test
+    void importsGeneratedRowsForManyUsers() throws Exception {
+        importGenerated(20);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void importsFiftyThousandRows() throws Exception {
+        importGenerated(500);
+    }
+
+    // 100 non-overlapping weekly rows for each user
+    private void importGenerated(int users) throws Exception {
+        String[] days = {"MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY"};
+        StringBuilder csv = new StringBuilder("username,subject,day,startTime,endTime,location,lecturer\n");
+        for (int user = 0; user < users; user++) {
+            for (int i = 0; i < 100; i++) {
+                LocalTime start = LocalTime.of(8, 0).plusMinutes(30L * (i / days.length));
+                csv.append("import-bulk-").append(user).append(",Subject ").append(i).append(',')
+                        .append(days[i % days.length]).append(',').append(start).append(',')
+                        .append(start.plusMinutes(30)).append(",Room ").append(i % 40).append(",Lecturer ").append(i % 25).append('\n');
+            }
+        }
+
+        // The service logs the rows imported and the time taken
+        ImportReport report = importService.importCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(users * 100, report.imported(), report.errors().toString());
+        assertEquals(0, report.failed());
+        assertEquals(100, repository.findByUsername("import-bulk-" + (users - 1)).size());
+    }
+}
@@ -0,0 +1,107 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the trigram search index against the three LIKE '%term%' queries it replaces
+ * on a 100k-row timetable. TimeTableSearchIndexTest covers the same on a small one.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TimeTableSearchBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int RUNS = 5;
+
+    private static final String[] SUBJECTS = {"Mathematics", "Physics", "Data Structures", "Operating Systems",
+            "Linear Algebra", "Databases", "Computer Networks", "Software Engineering", "Statistics", "Compilers"};
+    private static final String[] LECTURERS = {"Dr Perera", "Prof Silva", "Ms Fernando", "Mr Jayasuriya", "Dr Kumar"};
+    private static final String[] LOCATIONS = {"Hall A", "Lab 2", "Room 101", "Auditorium", "Lab 7"};
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TimeTableSearchIndex index;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(new Object[]{
+                    SUBJECTS[i % SUBJECTS.length] + " " + (i % 97),
+                    LECTURERS[i % LECTURERS.length],
+                    LOCATIONS[(i / 7) % LOCATIONS.length],
+                    "MONDAY", "Title " + i, "user-" + (i % 500)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO timetables (subject, lecturer, location, day, title, username, " +
+                "is_weekly, recurrence_interval, is_special_schedule, notification_preference, start_time, end_time) " +
+                "VALUES (?, ?, ?, ?, ?, ?, true, 1, false, 'NONE', '09:00:00', '10:00:00')", batch);
+
+        index = new TimeTableSearchIndex(repository);
+        long start = System.nanoTime();
+        index.rebuild();
+        System.out.printf("Index build for %d rows: %.1f ms%n", ROWS, (System.nanoTime() - start) / 1e6);
+    }
+
+    @Test
+    void indexMatchesLikeQueriesAndIsFaster() {
+        System.out.println();
+        System.out.println("query        | LIKE ms | index ms | matches");
+        for (String query : new String[]{"algebra", "silva", "lab", "ware", "auditorium"}) {
+            Set<Long> viaLike = likeSearch(query);
+            Set<Long> viaIndex = new HashSet<>(index.search(query, null));
+            assertEquals(viaLike, viaIndex, "results differ for '" + query + "'");
+
+            long likeNanos = time(() -> likeSearch(query));
+            long indexNanos = time(() -> index.search(query, null));
+            System.out.printf("%-12s | %7.2f | %8.2f | %d%n", query, likeNanos / 1e6, indexNanos / 1e6, viaIndex.size());
+        }
+
+        // Scoped to one user, subject matches rank above lecturer/location matches
+        List<Long> ranked = index.search("data", "user-2");
+        assertFalse(ranked.isEmpty());
+        TimeTable best = repository.findById(ranked.get(0)).orElseThrow();
+        assertEquals("user-2", best.getUsername());
+        assertTrue(best.getSubject().toLowerCase().startsWith("data"));
+    }
+
+    private Set<Long> likeSearch(String query) {
+        Set<Long> ids = new HashSet<>();
+        repository.findBySubjectContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        repository.findByLecturerContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        repository.findByLocationContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        return ids;
+    }
+
+    private static long time(Runnable action) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,103 @@
+package com.kops.sem_tracker.service;
+
+import com.kops.sem_tracker.entyties.TimeTable;
+import com.kops.sem_tracker.repository.TimeTableRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The trigram search index must find exactly what the LIKE '%term%' queries it replaces find.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TimeTableSearchIndexTest {
+
+    private static final int ROWS = 2_000;
+
+    private static final String[] SUBJECTS = {"Mathematics", "Physics", "Data Structures", "Operating Systems",
+            "Linear Algebra", "Databases", "Computer Networks", "Software Engineering", "Statistics", "Compilers"};
+    private static final String[] LECTURERS = {"Dr Perera", "Prof Silva", "Ms Fernando", "Mr Jayasuriya", "Dr Kumar"};
+    private static final String[] LOCATIONS = {"Hall A", "Lab 2", "Room 101", "Auditorium", "Lab 7"};
+
+    @Autowired
+    private TimeTableRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TimeTableSearchIndex index;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(new Object[]{
+                    SUBJECTS[i % SUBJECTS.length] + " " + (i % 97),
+                    LECTURERS[i % LECTURERS.length],
+                    LOCATIONS[(i / 7) % LOCATIONS.length],
+                    "MONDAY", "Title " + i, "user-" + (i % 50)
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO timetables (subject, lecturer, location, day, title, username, " +
+                "is_weekly, recurrence_interval, is_special_schedule, notification_preference, start_time, end_time) " +
+                "VALUES (?, ?, ?, ?, ?, ?, true, 1, false, 'NONE', '09:00:00', '10:00:00')", batch);
+
+        index = new TimeTableSearchIndex(repository);
+        index.rebuild();
+    }
+
+    @Test
+    void indexMatchesLikeQueries() {
+        for (String query : new String[]{"algebra", "silva", "lab", "ware", "auditorium"}) {
+            assertEquals(likeSearch(query), new HashSet<>(index.search(query, null)), "results differ for '" + query + "'");
+        }
+
+        // Scoped to one user, subject matches rank above lecturer/location matches
+        List<Long> ranked = index.search("data", "user-2");
+        assertFalse(ranked.isEmpty());
+        TimeTable best = repository.findById(ranked.get(0)).orElseThrow();
+        assertEquals("user-2", best.getUsername());
+        assertTrue(best.getSubject().toLowerCase().startsWith("data"));
+    }
+
+    @Test
+    void indexFollowsWrites() {
+        TimeTable row = new TimeTable("Quantum Computing", "FRIDAY", LocalTime.of(9, 0),
+                LocalTime.of(10, 0), "Lab 9", "Dr Zed");
+        row.setUsername("writer");
+        row = repository.save(row);
+
+        index.index(row);
+        assertEquals(List.of(row.getId()), index.search("quantum", "writer"));
+
+        row.setSubject("Classical Mechanics");
+        index.index(row);
+        assertTrue(index.search("quantum", null).isEmpty());
+        assertEquals(List.of(row.getId()), index.search("mech", null));
+
+        index.remove(row.getId());
+        assertTrue(index.search("mech", null).isEmpty());
+    }
+
+    private Set<Long> likeSearch(String query) {
+        Set<Long> ids = new HashSet<>();
+        repository.findBySubjectContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        repository.findByLecturerContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        repository.findByLocationContainingIgnoreCase(query).forEach(row -> ids.add(row.getId()));
+        return ids;
+    }
+}
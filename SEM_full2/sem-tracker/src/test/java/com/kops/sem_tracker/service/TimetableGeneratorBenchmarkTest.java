@@ -0,0 +1,151 @@
+package com.kops.sem_tracker.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Solution quality and time-to-first-feasible of the timetable generator as the
+ * problem grows and as chains are added, on synthetic cohorts of students.
+ */
+class TimetableGeneratorBenchmarkTest {
+
+    private static final List<String> DAYS = List.of("MONDAY", "TUESDAY", "WEDNESDAY", "THURSDAY", "FRIDAY");
+    private static final List<LocalTime> SLOT_TIMES = List.of(
+            LocalTime.of(8, 0), LocalTime.of(9, 0), LocalTime.of(10, 0), LocalTime.of(11, 0),
+            LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(15, 0), LocalTime.of(16, 0));
+
+    @Test
+    void smallProblemIsSolvedWithoutClashes() {
+        TimetableProblem problem = problem(20, 4, 5);
+        TimetableSolution solution = TimetableGenerator.solve(
+                TimetableGenerator.Model.compile(problem), Duration.ofSeconds(5), 1, 42);
+
+        assertTrue(solution.isFeasible(), "hard violations: " + solution.hardViolations());
+        assertEquals(0, clashes(solution));
+        assertEquals(60, solution.placements().size());
+        assertEquals(60 * 6, TimetableGenerator.toTimeTables(solution).size());
+    }
+
+    @Test
+    void pinnedRoomsAreKept() {
+        List<TimetableProblem.Course> courses = new ArrayList<>(problem(8, 2, 2).courses());
+        courses.add(new TimetableProblem.Course("Chemistry Lab", "Dr Lab", 3, List.of("chem1", "chem2"), "Room 2"));
+        TimetableProblem problem = new TimetableProblem(DAYS, SLOT_TIMES, 60, List.of("Room 1", "Room 2"), courses);
+
+        TimetableSolution solution = TimetableGenerator.solve(
+                TimetableGenerator.Model.compile(problem), Duration.ofSeconds(5), 1, 7);
+
+        assertTrue(solution.isFeasible());
+        assertTrue(solution.placements().stream()
+                .filter(placement -> placement.subject().equals("Chemistry Lab"))
+                .allMatch(placement -> placement.room().equals("Room 2")));
+    }
+
+    @Test
+    void invalidProblemsAreRejected() {
+        TimetableProblem unknownRoom = new TimetableProblem(DAYS, SLOT_TIMES, 60, List.of("Room 1"),
+                List.of(new TimetableProblem.Course("Maths", "Dr A", 2, List.of("s1"), "Hall Z")));
+        TimetableProblem badDay = new TimetableProblem(List.of("FUNDAY"), SLOT_TIMES, 60, List.of("Room 1"),
+                List.of(new TimetableProblem.Course("Maths", "Dr A", 2, List.of("s1"), null)));
+
+        assertThrows(IllegalArgumentException.class, () -> TimetableGenerator.Model.compile(unknownRoom));
+        assertThrows(IllegalArgumentException.class, () -> TimetableGenerator.Model.compile(badDay));
+    }
+
+    @Test
+    void hardViolationsMatchAnIndependentClashCount() {
+        // Short budget, so the solution may still have clashes to count
+        TimetableSolution solution = TimetableGenerator.solve(
+                TimetableGenerator.Model.compile(problem(60, 8, 15)), Duration.ofMillis(200), 2, 1234);
+
+        assertEquals(solution.hardViolations(), clashes(solution));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void qualityAndTimeToSolutionAcrossSizesAndCores() {
+        // Chains beyond the available cores time-share, so expect gains only up to the core count
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[][] sizes = {{20, 4, 5}, {60, 8, 15}, {120, 14, 30}};
+        Duration budget = Duration.ofMillis(1500);
+
+        System.out.println("[TimetableGenerator] " + cores + " cores available");
+        System.out.println("[TimetableGenerator] courses events chains   clashes penalty   moves      first-feasible   elapsed");
+        for (int[] size : sizes) {
+            TimetableProblem problem = problem(size[0], size[1], size[2]);
+            for (int chains = 1; chains <= 4; chains *= 2) {
+                TimetableSolution solution = TimetableGenerator.solve(
+                        TimetableGenerator.Model.compile(problem), budget, chains, 1234);
+
+                assertEquals(solution.hardViolations(), clashes(solution));
+                System.out.printf("[TimetableGenerator] %7d %6d %6d   %7d %7d   %-10d %11s   %5dms%n",
+                        size[0], solution.placements().size(), solution.chains(),
+                        solution.hardViolations(), solution.softPenalty(), solution.iterations(),
+                        solution.firstFeasibleMs() < 0 ? "-" : solution.firstFeasibleMs() + "ms",
+                        solution.elapsedMs());
+            }
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * courses x 3 hours, lecturers teaching two courses each, and cohorts of six students
+     * that each take four courses. Comfortably feasible in a 40-slot week.
+     */
+    private static TimetableProblem problem(int courseCount, int roomCount, int cohorts) {
+        List<String> rooms = new ArrayList<>();
+        for (int r = 1; r <= roomCount; r++) rooms.add("Room " + r);
+
+        List<List<String>> enrolled = new ArrayList<>();
+        for (int c = 0; c < courseCount; c++) enrolled.add(new ArrayList<>());
+        for (int cohort = 0; cohort < cohorts; cohort++) {
+            for (int k = 0; k < 4; k++) {
+                List<String> students = enrolled.get((cohort * 4 + k) % courseCount);
+                for (int s = 0; s < 6; s++) students.add("cohort" + cohort + "-student" + s);
+            }
+        }
+
+        List<TimetableProblem.Course> courses = new ArrayList<>();
+        for (int c = 0; c < courseCount; c++) {
+            courses.add(new TimetableProblem.Course("Course " + c, "Lecturer " + (c / 2), 3, enrolled.get(c), null));
+        }
+        return new TimetableProblem(DAYS, SLOT_TIMES, 60, rooms, courses);
+    }
+
+    /**
+     * Clashes counted straight from the placements, independently of the generator's bookkeeping:
+     * in each slot, every pair of events sharing a person (lecturer or student) and every pair sharing a room.
+     */
+    private static int clashes(TimetableSolution solution) {
+        Map<String, List<TimetableSolution.Placement>> bySlot = new HashMap<>();
+        for (TimetableSolution.Placement placement : solution.placements()) {
+            bySlot.computeIfAbsent(placement.day() + " " + placement.startTime(), slot -> new ArrayList<>()).add(placement);
+        }
+        int clashes = 0;
+        for (List<TimetableSolution.Placement> slot : bySlot.values()) {
+            for (int i = 0; i < slot.size(); i++) {
+                for (int j = i + 1; j < slot.size(); j++) {
+                    TimetableSolution.Placement a = slot.get(i);
+                    TimetableSolution.Placement b = slot.get(j);
+                    boolean sharePerson = a.lecturer().equals(b.lecturer())
+                            || a.usernames().stream().anyMatch(b.usernames()::contains);
+                    if (sharePerson) clashes++;
+                    if (a.room().equals(b.room())) clashes++;
+                }
+            }
+        }
+        return clashes;
+    }
+}